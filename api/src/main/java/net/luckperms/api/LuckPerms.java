@@ -35,6 +35,7 @@ import net.luckperms.api.messenger.MessengerProvider;
 import net.luckperms.api.metastacking.MetaStackDefinition;
 import net.luckperms.api.metastacking.MetaStackElement;
 import net.luckperms.api.metastacking.MetaStackFactory;
+import net.luckperms.api.metrics.Metrics;
 import net.luckperms.api.model.group.Group;
 import net.luckperms.api.model.group.GroupManager;
 import net.luckperms.api.model.user.User;
@@ -232,6 +233,15 @@ public interface LuckPerms {
      */
     @NonNull Health runHealthCheck();
 
+    /**
+     * Gets the {@link Metrics}, which provide access to performance statistics
+     * recorded by the plugin.
+     *
+     * @return the metrics
+     * @since 5.5
+     */
+    @NonNull Metrics getMetrics();
+
     /**
      * Registers a {@link MessengerProvider} for use by the platform.
      *
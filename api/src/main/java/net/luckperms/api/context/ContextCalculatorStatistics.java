@@ -0,0 +1,97 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package net.luckperms.api.context;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.time.Duration;
+import java.util.SortedMap;
+
+/**
+ * Timing statistics for a {@link ContextCalculator} registered with the {@link ContextManager}.
+ *
+ * @since 5.5
+ */
+public interface ContextCalculatorStatistics {
+
+    /**
+     * Gets the name of the calculator, usually its class name.
+     *
+     * @return the name of the calculator
+     */
+    @NonNull String getCalculatorName();
+
+    /**
+     * Gets if the calculator is refreshed asynchronously.
+     *
+     * <p>The last result of an async calculator is served to callers while it
+     * is recalculated in the background.</p>
+     *
+     * @return if the calculator is refreshed asynchronously
+     */
+    boolean isAsync();
+
+    /**
+     * Gets the number of times the calculator has been called.
+     *
+     * @return the number of calls
+     */
+    long getCallCount();
+
+    /**
+     * Gets the number of calls which exceeded the configured time budget.
+     *
+     * @return the number of slow calls
+     */
+    long getSlowCallCount();
+
+    /**
+     * Gets the total time spent in the calculator.
+     *
+     * @return the total time
+     */
+    @NonNull Duration getTotalTime();
+
+    /**
+     * Gets the time taken by the slowest call.
+     *
+     * @return the maximum time
+     */
+    @NonNull Duration getMaxTime();
+
+    /**
+     * Gets a histogram of call times.
+     *
+     * <p>The map is keyed by the (exclusive) upper bound of each bucket, in
+     * ascending order. The last bucket counts every call slower than the
+     * previous bound, and is keyed by {@link java.time.temporal.ChronoUnit#FOREVER}'s
+     * duration.</p>
+     *
+     * @return the call time histogram
+     */
+    @NonNull SortedMap<Duration, Long> getLatencyHistogram();
+
+}
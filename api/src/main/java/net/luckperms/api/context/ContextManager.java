@@ -31,6 +31,7 @@ import net.luckperms.api.query.QueryOptions;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.jetbrains.annotations.ApiStatus.Internal;
 
+import java.util.Collection;
 import java.util.Optional;
 
 /**
@@ -151,6 +152,14 @@ public interface ContextManager {
      */
     void signalContextUpdate(@NonNull Object subject);
 
+    /**
+     * Gets timing statistics for the registered context calculators.
+     *
+     * @return the statistics for each registered calculator
+     * @since 5.5
+     */
+    @NonNull Collection<ContextCalculatorStatistics> getCalculatorStatistics();
+
     /**
      * Gets the {@link ContextSetFactory}, responsible for creating
      * {@link ContextSet} instances.
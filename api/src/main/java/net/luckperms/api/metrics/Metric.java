@@ -0,0 +1,100 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package net.luckperms.api.metrics;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.util.Map;
+
+/**
+ * A single metric recorded by the plugin.
+ *
+ * @since 5.5
+ */
+public interface Metric {
+
+    /**
+     * Gets the name of the metric, for example {@code storage_operation_time}.
+     *
+     * <p>Several metrics may share the same name if they have different
+     * {@link #getLabels() labels}.</p>
+     *
+     * @return the name of the metric
+     */
+    @NonNull String getName();
+
+    /**
+     * Gets a short description of what the metric measures.
+     *
+     * @return the description
+     */
+    @NonNull String getDescription();
+
+    /**
+     * Gets the labels which distinguish this metric from others with the same name.
+     *
+     * @return the labels
+     */
+    @NonNull Map<String, String> getLabels();
+
+    /**
+     * Gets the type of the metric.
+     *
+     * @return the type
+     */
+    @NonNull Type getType();
+
+    /**
+     * Gets the current value of the metric.
+     *
+     * <p>For {@link Type#TIMER timers}, this is the number of recorded events.</p>
+     *
+     * @return the current value
+     */
+    double getValue();
+
+    /**
+     * The type of a {@link Metric}.
+     */
+    enum Type {
+
+        /**
+         * A value which only ever increases, for example the number of calls to a method.
+         */
+        COUNTER,
+
+        /**
+         * A value which can increase or decrease, for example the number of loaded users.
+         */
+        GAUGE,
+
+        /**
+         * A distribution of durations. Metrics of this type implement {@link TimerMetric}.
+         */
+        TIMER
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package net.luckperms.api.metrics;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.time.Duration;
+import java.util.SortedMap;
+
+/**
+ * A {@link Metric} which records the distribution of durations, for example the
+ * time taken by a storage operation.
+ *
+ * @since 5.5
+ */
+public interface TimerMetric extends Metric {
+
+    /**
+     * Gets the number of recorded events.
+     *
+     * @return the number of events
+     */
+    long getCount();
+
+    /**
+     * Gets the sum of the recorded durations.
+     *
+     * @return the total time
+     */
+    @NonNull Duration getTotalTime();
+
+    /**
+     * Gets the longest recorded duration.
+     *
+     * @return the maximum time
+     */
+    @NonNull Duration getMaxTime();
+
+    /**
+     * Gets an estimate of the given percentile of the recorded durations.
+     *
+     * <p>The estimate is interpolated from the {@link #getLatencyHistogram() histogram},
+     * so is only as precise as its buckets.</p>
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the estimated duration
+     * @throws IllegalArgumentException if the percentile is out of range
+     */
+    @NonNull Duration getPercentile(double percentile);
+
+    /**
+     * Gets a histogram of the recorded durations.
+     *
+     * <p>The map is keyed by the (exclusive) upper bound of each bucket, in
+     * ascending order. The last bucket counts every event slower than the
+     * previous bound, and is keyed by {@link java.time.temporal.ChronoUnit#FOREVER}'s
+     * duration.</p>
+     *
+     * @return the histogram
+     */
+    @NonNull SortedMap<Duration, Long> getLatencyHistogram();
+
+}
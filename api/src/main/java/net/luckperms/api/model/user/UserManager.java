@@ -81,6 +81,24 @@ public interface UserManager {
         return loadUser(uniqueId, null);
     }
 
+    /**
+     * Gets a read-only snapshot of a user's data, without loading them into memory.
+     *
+     * <p>This is intended for frequent queries against offline players (for example
+     * leaderboards or permission checks in shops). Concurrent requests for the same
+     * user share a single storage lookup, and snapshots are cached and refreshed in
+     * the background, so they may be slightly out of date.</p>
+     *
+     * <p>Changes cannot be made to a snapshot - use {@link #modifyUser(UUID, Consumer)}
+     * instead.</p>
+     *
+     * @param uniqueId the uuid of the user
+     * @return the snapshot
+     * @throws NullPointerException if the uuid is null
+     * @since 5.5
+     */
+    @NonNull CompletableFuture<UserSnapshot> loadUserSnapshot(@NonNull UUID uniqueId);
+
     /**
      * Uses the LuckPerms cache to find a uuid for the given username.
      *
@@ -0,0 +1,109 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package net.luckperms.api.model.user;
+
+import net.luckperms.api.cacheddata.CachedMetaData;
+import net.luckperms.api.cacheddata.CachedPermissionData;
+import net.luckperms.api.node.Node;
+import net.luckperms.api.query.QueryOptions;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * A read-only view of a {@link User}'s data, intended for querying the
+ * permissions and meta of offline players.
+ *
+ * <p>Snapshots of users who aren't loaded are served from a cache, and are
+ * refreshed from storage in the background, so may be slightly out of date.
+ * Snapshots of users who are loaded reflect their current data.</p>
+ *
+ * @since 5.5
+ */
+public interface UserSnapshot {
+
+    /**
+     * Gets the user's unique ID.
+     *
+     * @return the user's unique ID.
+     */
+    @NonNull UUID getUniqueId();
+
+    /**
+     * Gets the user's username, if known.
+     *
+     * @return the username, or null
+     */
+    @Nullable String getUsername();
+
+    /**
+     * Gets the user's stored primary group.
+     *
+     * @return the primary group
+     */
+    @NonNull String getPrimaryGroup();
+
+    /**
+     * Gets the nodes held directly by the user.
+     *
+     * @return the user's own nodes
+     */
+    @NonNull @Unmodifiable Collection<Node> getNodes();
+
+    /**
+     * Gets the user's permission data for the given query options.
+     *
+     * @param queryOptions the query options
+     * @return the permission data
+     */
+    @NonNull CachedPermissionData getPermissionData(@NonNull QueryOptions queryOptions);
+
+    /**
+     * Gets the user's meta data for the given query options.
+     *
+     * @param queryOptions the query options
+     * @return the meta data
+     */
+    @NonNull CachedMetaData getMetaData(@NonNull QueryOptions queryOptions);
+
+    /**
+     * Gets the user's permission data, using the platform's static query options.
+     *
+     * @return the permission data
+     */
+    @NonNull CachedPermissionData getPermissionData();
+
+    /**
+     * Gets the user's meta data, using the platform's static query options.
+     *
+     * @return the meta data
+     */
+    @NonNull CachedMetaData getMetaData();
+
+}
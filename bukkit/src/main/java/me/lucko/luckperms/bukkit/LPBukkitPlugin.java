@@ -285,6 +285,11 @@ public class LPBukkitPlugin extends AbstractLuckPermsPlugin {
             getApiProvider().getEventBus().subscribe(new BukkitCommandListUpdater(this));
         }
 
+        // register vault listeners (vault is hooked before the api is ready)
+        if (this.vaultHookManager != null) {
+            this.vaultHookManager.registerListeners();
+        }
+
         // Load any online users (in the case of a reload)
         for (Player player : this.bootstrap.getServer().getOnlinePlayers()) {
             this.bootstrap.getScheduler().executeAsync(() -> {
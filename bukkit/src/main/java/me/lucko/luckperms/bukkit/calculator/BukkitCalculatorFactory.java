@@ -25,6 +25,7 @@
 
 package me.lucko.luckperms.bukkit.calculator;
 
+import com.google.common.collect.Maps;
 import me.lucko.luckperms.bukkit.LPBukkitPlugin;
 import me.lucko.luckperms.bukkit.context.BukkitContextManager;
 import me.lucko.luckperms.common.cacheddata.CacheMetadata;
@@ -40,11 +41,18 @@ import me.lucko.luckperms.common.model.HolderType;
 import net.luckperms.api.query.QueryOptions;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 public class BukkitCalculatorFactory implements CalculatorFactory {
     private final LPBukkitPlugin plugin;
 
+    // the calculators built by this factory, mapped to their child processor (if any)
+    private final Map<PermissionCalculator, ChildProcessor> calculators = Collections.synchronizedMap(new WeakHashMap<>());
+
     public BukkitCalculatorFactory(LPBukkitPlugin plugin) {
         this.plugin = plugin;
     }
@@ -55,8 +63,10 @@ public class BukkitCalculatorFactory implements CalculatorFactory {
 
         processors.add(new DirectProcessor());
 
+        ChildProcessor childProcessor = null;
         if (this.plugin.getConfiguration().get(ConfigKeys.APPLY_BUKKIT_CHILD_PERMISSIONS)) {
-            processors.add(new ChildProcessor(this.plugin));
+            childProcessor = new ChildProcessor(this.plugin);
+            processors.add(childProcessor);
         }
 
         if (this.plugin.getConfiguration().get(ConfigKeys.APPLYING_REGEX)) {
@@ -82,6 +92,37 @@ public class BukkitCalculatorFactory implements CalculatorFactory {
             processors.add(OpProcessor.INSTANCE);
         }
 
-        return new PermissionCalculator(this.plugin, metadata, processors);
+        PermissionCalculator calculator = new PermissionCalculator(this.plugin, metadata, processors);
+        this.calculators.put(calculator, childProcessor);
+        return calculator;
+    }
+
+    /**
+     * Invalidates the calculators affected by a change to the server's permission map.
+     *
+     * <p>Calculators with any of the parent permissions in their source are invalidated
+     * entirely. Otherwise, only the cached results for registered permissions are removed,
+     * as their default value may have changed.</p>
+     *
+     * @param parents the permissions whose child permissions have changed
+     * @param registered the permissions which have been registered
+     */
+    public void invalidateCalculators(Set<String> parents, Set<String> registered) {
+        // copy to strong references, so the calculators can't be collected whilst iterating
+        List<Map.Entry<PermissionCalculator, ChildProcessor>> calculators = new ArrayList<>();
+        synchronized (this.calculators) {
+            for (Map.Entry<PermissionCalculator, ChildProcessor> entry : this.calculators.entrySet()) {
+                calculators.add(Maps.immutableEntry(entry.getKey(), entry.getValue()));
+            }
+        }
+
+        for (Map.Entry<PermissionCalculator, ChildProcessor> entry : calculators) {
+            ChildProcessor childProcessor = entry.getValue();
+            if (childProcessor != null && childProcessor.dependsOnAny(parents)) {
+                entry.getKey().invalidateCache();
+            } else if (!registered.isEmpty()) {
+                entry.getKey().invalidateCache(registered);
+            }
+        }
     }
 }
@@ -29,22 +29,29 @@ import me.lucko.luckperms.bukkit.LPBukkitPlugin;
 import me.lucko.luckperms.common.cacheddata.result.TristateResult;
 import me.lucko.luckperms.common.calculator.processor.AbstractSourceBasedProcessor;
 import me.lucko.luckperms.common.calculator.processor.PermissionProcessor;
+import net.luckperms.api.node.Node;
 import net.luckperms.api.util.Tristate;
 
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Permission Processor for Bukkits "child" permission system.
+ *
+ * <p>Rather than copying the children of each node in the source, the processor
+ * looks up permissions in the (shared and immutable) child maps cached by the
+ * permission map.</p>
  */
 public class ChildProcessor extends AbstractSourceBasedProcessor implements PermissionProcessor {
     private static final TristateResult.Factory RESULT_FACTORY = new TristateResult.Factory(ChildProcessor.class);
+    private static final Expansion[] EMPTY = new Expansion[0];
 
     private final LPBukkitPlugin plugin;
     private final AtomicBoolean needsRefresh = new AtomicBoolean(false);
-    private Map<String, TristateResult> childPermissions = Collections.emptyMap();
+    private Expansion[] expansions = EMPTY;
 
     public ChildProcessor(LPBukkitPlugin plugin) {
         this.plugin = plugin;
@@ -55,19 +62,29 @@ public class ChildProcessor extends AbstractSourceBasedProcessor implements Perm
         if (this.needsRefresh.compareAndSet(true, false)) {
             refresh();
         }
-        return this.childPermissions.getOrDefault(permission, TristateResult.UNDEFINED);
+
+        // later nodes in the source take priority over earlier ones
+        Expansion[] expansions = this.expansions;
+        for (int i = expansions.length - 1; i >= 0; i--) {
+            Expansion expansion = expansions[i];
+            Boolean value = expansion.children.get(permission);
+            if (value != null) {
+                return RESULT_FACTORY.resultWithOverride(expansion.node, Tristate.of(value));
+            }
+        }
+        return TristateResult.UNDEFINED;
     }
 
     @Override
     public void refresh() {
-        Map<String, TristateResult> childPermissions = new HashMap<>();
+        List<Expansion> expansions = new ArrayList<>();
         this.sourceMap.forEach((key, node) -> {
             Map<String, Boolean> children = this.plugin.getPermissionMap().getChildPermissions(key, node.getValue());
-            children.forEach((childKey, childValue) -> {
-                childPermissions.put(childKey, RESULT_FACTORY.resultWithOverride(node, Tristate.of(childValue)));
-            });
+            if (!children.isEmpty()) {
+                expansions.add(new Expansion(node, children));
+            }
         });
-        this.childPermissions = childPermissions;
+        this.expansions = expansions.isEmpty() ? EMPTY : expansions.toArray(EMPTY);
         this.needsRefresh.set(false);
     }
 
@@ -75,4 +92,30 @@ public class ChildProcessor extends AbstractSourceBasedProcessor implements Perm
     public void invalidate() {
         this.needsRefresh.set(true);
     }
+
+    /**
+     * Gets if any of the given permissions are in the source of this processor.
+     *
+     * @param permissions the permissions
+     * @return true if the processor depends on any of the permissions
+     */
+    public boolean dependsOnAny(Set<String> permissions) {
+        Map<String, Node> sourceMap = this.sourceMap;
+        for (String permission : permissions) {
+            if (sourceMap.containsKey(permission)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Expansion {
+        private final Node node;
+        private final Map<String, Boolean> children;
+
+        Expansion(Node node, Map<String, Boolean> children) {
+            this.node = node;
+            this.children = children;
+        }
+    }
 }
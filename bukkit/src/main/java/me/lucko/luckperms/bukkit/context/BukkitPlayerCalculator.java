@@ -29,9 +29,9 @@ import com.google.common.collect.ImmutableMap;
 import me.lucko.luckperms.bukkit.LPBukkitPlugin;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.context.ImmutableContextSetImpl;
+import me.lucko.luckperms.common.context.calculator.SignalDrivenContextCalculator;
 import me.lucko.luckperms.common.util.EnumNamer;
 import net.luckperms.api.context.Context;
-import net.luckperms.api.context.ContextCalculator;
 import net.luckperms.api.context.ContextConsumer;
 import net.luckperms.api.context.ContextSet;
 import net.luckperms.api.context.DefaultContextKeys;
@@ -50,7 +50,7 @@ import org.checkerframework.checker.nullness.qual.NonNull;
 
 import java.util.Set;
 
-public class BukkitPlayerCalculator implements ContextCalculator<Player>, Listener {
+public class BukkitPlayerCalculator implements SignalDrivenContextCalculator<Player>, Listener {
     private static final EnumNamer<GameMode> GAMEMODE_NAMER = new EnumNamer<>(
             GameMode.class,
             EnumNamer.LOWER_CASE_NAME
@@ -142,7 +142,11 @@ public class BukkitPlayerCalculator implements ContextCalculator<Player>, Listen
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onGameModeChange(PlayerGameModeChangeEvent e) {
         if (this.gamemode) {
-            this.plugin.getContextManager().signalContextUpdate(e.getPlayer());
+            Player player = e.getPlayer();
+            this.plugin.getContextManager().signalContextUpdate(player);
+
+            // the event is called before the gamemode changes - signal again once it has applied
+            this.plugin.getBootstrap().getScheduler().sync().execute(() -> this.plugin.getContextManager().signalContextUpdate(player));
         }
     }
 }
@@ -27,7 +27,10 @@ package me.lucko.luckperms.bukkit.inject.server;
 
 import com.google.common.collect.ForwardingMap;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import me.lucko.luckperms.bukkit.calculator.BukkitCalculatorFactory;
 import me.lucko.luckperms.common.cache.LoadingMap;
+import me.lucko.luckperms.common.calculator.CalculatorFactory;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.treeview.PermissionRegistry;
 import org.bukkit.permissions.Permission;
@@ -36,11 +39,14 @@ import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.lang.reflect.Field;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
@@ -72,7 +78,7 @@ public final class LuckPermsPermissionMap extends ForwardingMap<String, Permissi
     // Uses perm.getName().toLowerCase(java.util.Locale.ENGLISH); to determine the key
     private final Map<String, Permission> delegate = new ConcurrentHashMap<>();
 
-    // cache from permission --> children
+    // cache from permission --> children (transitively resolved, immutable & shared by all calculators)
     private final Map<String, Map<String, Boolean>> trueChildPermissions = LoadingMap.of(new ChildPermissionResolver(true));
     private final Map<String, Map<String, Boolean>> falseChildPermissions = LoadingMap.of(new ChildPermissionResolver(false));
 
@@ -90,11 +96,41 @@ public final class LuckPermsPermissionMap extends ForwardingMap<String, Permissi
         return value ? this.trueChildPermissions.get(permission) : this.falseChildPermissions.get(permission);
     }
 
-    private void update() {
-        this.trueChildPermissions.clear();
-        this.falseChildPermissions.clear();
-        this.plugin.getUserManager().invalidateAllPermissionCalculators();
-        this.plugin.getGroupManager().invalidateAllPermissionCalculators();
+    /**
+     * Updates the cached child permissions and calculators after a change.
+     *
+     * @param changed the permissions which have been registered or had their children changed
+     * @param registered if the permissions have been registered (and so their default value may have changed)
+     */
+    private void update(Collection<? extends String> changed, boolean registered) {
+        Set<String> changedKeys = new HashSet<>();
+        for (String key : changed) {
+            changedKeys.add(key.toLowerCase(Locale.ROOT));
+        }
+
+        // remove the cached children of the changed permissions, and of any permissions
+        // which inherited from them. these are the parents affected by the change
+        Set<String> parents = new HashSet<>(changedKeys);
+        removeAffected(this.trueChildPermissions, changedKeys, parents);
+        removeAffected(this.falseChildPermissions, changedKeys, parents);
+
+        CalculatorFactory calculatorFactory = this.plugin.getCalculatorFactory();
+        if (calculatorFactory instanceof BukkitCalculatorFactory) {
+            ((BukkitCalculatorFactory) calculatorFactory).invalidateCalculators(parents, registered ? changedKeys : ImmutableSet.of());
+        } else {
+            this.plugin.getUserManager().invalidateAllPermissionCalculators();
+            this.plugin.getGroupManager().invalidateAllPermissionCalculators();
+        }
+    }
+
+    private static void removeAffected(Map<String, Map<String, Boolean>> cache, Set<String> changed, Set<String> affected) {
+        cache.entrySet().removeIf(e -> {
+            if (changed.contains(e.getKey()) || !Collections.disjoint(e.getValue().keySet(), changed)) {
+                affected.add(e.getKey());
+                return true;
+            }
+            return false;
+        });
     }
 
     @Override
@@ -109,7 +145,7 @@ public final class LuckPermsPermissionMap extends ForwardingMap<String, Permissi
 
         this.plugin.getPermissionRegistry().insert(key);
         Permission ret = super.put(key, inject(value));
-        update();
+        update(Collections.singleton(key), true);
         return ret;
     }
 
@@ -119,7 +155,7 @@ public final class LuckPermsPermissionMap extends ForwardingMap<String, Permissi
             this.plugin.getPermissionRegistry().insert(e.getKey());
             super.put(e.getKey(), inject(e.getValue()));
         }
-        update();
+        update(m.keySet(), true);
     }
 
     @Override
@@ -209,7 +245,7 @@ public final class LuckPermsPermissionMap extends ForwardingMap<String, Permissi
                 children = ((NotifyingChildrenMap) children).delegate;
             }
 
-            NotifyingChildrenMap notifyingChildren = new NotifyingChildrenMap(children);
+            NotifyingChildrenMap notifyingChildren = new NotifyingChildrenMap(permission.getName(), children);
             PERMISSION_CHILDREN_FIELD.set(permission, notifyingChildren);
         } catch (Exception e) {
             e.printStackTrace();
@@ -236,9 +272,11 @@ public final class LuckPermsPermissionMap extends ForwardingMap<String, Permissi
     }
 
     private final class NotifyingChildrenMap extends ForwardingMap<String, Boolean> {
+        private final Set<String> permission;
         private final Map<String, Boolean> delegate;
 
-        NotifyingChildrenMap(Map<String, Boolean> delegate) {
+        NotifyingChildrenMap(String permission, Map<String, Boolean> delegate) {
+            this.permission = Collections.singleton(permission);
             this.delegate = delegate;
 
             for (String key : this.delegate.keySet()) {
@@ -255,7 +293,7 @@ public final class LuckPermsPermissionMap extends ForwardingMap<String, Permissi
         public Boolean put(@NonNull String key, @NonNull Boolean value) {
             Boolean ret = super.put(key, value);
             LuckPermsPermissionMap.this.plugin.getPermissionRegistry().insert(key);
-            LuckPermsPermissionMap.this.update();
+            LuckPermsPermissionMap.this.update(this.permission, false);
             return ret;
         }
 
@@ -265,20 +303,20 @@ public final class LuckPermsPermissionMap extends ForwardingMap<String, Permissi
             for (String key : map.keySet()) {
                 LuckPermsPermissionMap.this.plugin.getPermissionRegistry().insert(key);
             }
-            LuckPermsPermissionMap.this.update();
+            LuckPermsPermissionMap.this.update(this.permission, false);
         }
 
         @Override
         public Boolean remove(@NonNull Object object) {
             Boolean ret = super.remove(object);
-            LuckPermsPermissionMap.this.update();
+            LuckPermsPermissionMap.this.update(this.permission, false);
             return ret;
         }
 
         @Override
         public void clear() {
             super.clear();
-            LuckPermsPermissionMap.this.update();
+            LuckPermsPermissionMap.this.update(this.permission, false);
         }
     }
 
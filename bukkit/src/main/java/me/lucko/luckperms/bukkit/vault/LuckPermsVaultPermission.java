@@ -39,6 +39,7 @@ import me.lucko.luckperms.common.model.HolderType;
 import me.lucko.luckperms.common.model.PermissionHolder;
 import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.model.manager.group.GroupManager;
+import me.lucko.luckperms.common.model.manager.user.UserSnapshotImpl;
 import me.lucko.luckperms.common.node.factory.NodeBuilders;
 import me.lucko.luckperms.common.node.types.Inheritance;
 import me.lucko.luckperms.common.query.QueryOptionsImpl;
@@ -47,6 +48,7 @@ import me.lucko.luckperms.common.util.Uuids;
 import me.lucko.luckperms.common.verbose.event.CheckOrigin;
 import net.luckperms.api.context.ContextSet;
 import net.luckperms.api.context.DefaultContextKeys;
+import net.luckperms.api.context.ImmutableContextSet;
 import net.luckperms.api.context.MutableContextSet;
 import net.luckperms.api.model.data.DataType;
 import net.luckperms.api.node.Node;
@@ -80,10 +82,17 @@ public class LuckPermsVaultPermission extends AbstractVaultPermission {
     // the plugin instance
     private final LPBukkitPlugin plugin;
 
+    // caches query options between lookups
+    private final VaultLookupCache lookupCache = new VaultLookupCache();
+
     public LuckPermsVaultPermission(LPBukkitPlugin plugin) {
         this.plugin = plugin;
     }
 
+    public VaultLookupCache getLookupCache() {
+        return this.lookupCache;
+    }
+
     @Override
     public String getName() {
         return "LuckPerms";
@@ -127,6 +136,21 @@ public class LuckPermsVaultPermission extends AbstractVaultPermission {
     }
 
     public PermissionHolder lookupUser(UUID uuid) {
+        return lookupUser(uuid, false);
+    }
+
+    /**
+     * Looks up a user in order to modify it. Unlike {@link #lookupUser(UUID)}, this never
+     * returns a snapshot of an offline user, as it may be out of date.
+     *
+     * @param uuid the uuid of the user
+     * @return the user
+     */
+    PermissionHolder lookupUserForModification(UUID uuid) {
+        return lookupUser(uuid, true);
+    }
+
+    private PermissionHolder lookupUser(UUID uuid, boolean forModification) {
         Objects.requireNonNull(uuid, "uuid");
 
         // loaded already?
@@ -148,11 +172,23 @@ public class LuckPermsVaultPermission extends AbstractVaultPermission {
             return npcGroup;
         }
 
+        // is a snapshot of the user cached? (starts loading one in the background if not)
+        if (!forModification) {
+            UserSnapshotImpl snapshot = this.plugin.getUserManager().getOfflineUserCache().getIfReady(uuid);
+            if (snapshot != null) {
+                return snapshot.getUser();
+            }
+        }
+
         // are we on the main thread?
         if (!this.plugin.getBootstrap().isServerStarting() && this.plugin.getBootstrap().getServer().isPrimaryThread() && !this.plugin.getConfiguration().get(ConfigKeys.VAULT_UNSAFE_LOOKUPS)) {
             throw new ServerThreadLookupException(uuid);
         }
 
+        if (!forModification) {
+            return this.plugin.getUserManager().getOfflineUserCache().get(uuid).join().getUser();
+        }
+
         // load an instance from the DB
         return this.plugin.getStorage().loadUser(uuid, null).join();
     }
@@ -180,7 +216,7 @@ public class LuckPermsVaultPermission extends AbstractVaultPermission {
         Objects.requireNonNull(uuid, "uuid");
         Objects.requireNonNull(permission, "permission");
 
-        PermissionHolder user = lookupUser(uuid);
+        PermissionHolder user = lookupUserForModification(uuid);
         if (user instanceof Group) {
             throw new UnsupportedOperationException("Unable to modify the permissions of NPC players");
         }
@@ -192,7 +228,7 @@ public class LuckPermsVaultPermission extends AbstractVaultPermission {
         Objects.requireNonNull(uuid, "uuid");
         Objects.requireNonNull(permission, "permission");
 
-        PermissionHolder user = lookupUser(uuid);
+        PermissionHolder user = lookupUserForModification(uuid);
         if (user instanceof Group) {
             throw new UnsupportedOperationException("Unable to modify the permissions of NPC players");
         }
@@ -204,7 +240,7 @@ public class LuckPermsVaultPermission extends AbstractVaultPermission {
         Objects.requireNonNull(uuid, "uuid");
         Objects.requireNonNull(permission, "permission");
 
-        PermissionHolder user = lookupUser(uuid);
+        PermissionHolder user = lookupUserForModification(uuid);
         if (user instanceof Group) {
             throw new UnsupportedOperationException("Unable to modify the permissions of NPC players");
         }
@@ -216,7 +252,7 @@ public class LuckPermsVaultPermission extends AbstractVaultPermission {
         Objects.requireNonNull(uuid, "uuid");
         Objects.requireNonNull(permission, "permission");
 
-        PermissionHolder user = lookupUser(uuid);
+        PermissionHolder user = lookupUserForModification(uuid);
         if (user instanceof Group) {
             throw new UnsupportedOperationException("Unable to modify the permissions of NPC players");
         }
@@ -354,15 +390,30 @@ public class LuckPermsVaultPermission extends AbstractVaultPermission {
 
     // utility method for getting a contexts instance for a given vault lookup.
     QueryOptions getQueryOptions(@Nullable UUID uuid, @Nullable String world) {
-        ContextSet context;
+        QueryOptions subjectOptions;
 
         Player player = Optional.ofNullable(uuid).flatMap(u -> this.plugin.getBootstrap().getPlayer(u)).orElse(null);
         if (player != null) {
-            context = this.plugin.getContextManager().getContext(player);
+            subjectOptions = this.plugin.getContextManager().getQueryOptions(player);
         } else {
-            context = this.plugin.getContextManager().getStaticContext();
+            subjectOptions = this.plugin.getContextManager().getStaticQueryOptions();
         }
 
+        boolean op = false;
+        if (player != null) {
+            op = player.isOp();
+        } else if (uuid != null && UniqueIdType.determineType(uuid, this.plugin).getType().equals("npc")) {
+            op = this.plugin.getConfiguration().get(ConfigKeys.VAULT_NPC_OP_STATUS);
+        }
+
+        // the options only need to be rebuilt if the subjects query options or op status have changed
+        boolean isOp = op;
+        return this.lookupCache.getQueryOptions(uuid, world, subjectOptions, op, () -> createQueryOptions(player, world, subjectOptions.context(), isOp));
+    }
+
+    private QueryOptions createQueryOptions(@Nullable Player player, @Nullable String world, ImmutableContextSet playerContext, boolean op) {
+        ContextSet context = playerContext;
+
         String playerWorld = player == null ? null : player.getWorld().getName();
 
         // if world is null, we want to do a lookup in the players current context
@@ -391,13 +442,6 @@ public class LuckPermsVaultPermission extends AbstractVaultPermission {
             }
         }
 
-        boolean op = false;
-        if (player != null) {
-            op = player.isOp();
-        } else if (uuid != null && UniqueIdType.determineType(uuid, this.plugin).getType().equals("npc")) {
-            op = this.plugin.getConfiguration().get(ConfigKeys.VAULT_NPC_OP_STATUS);
-        }
-
         QueryOptions.Builder builder = QueryOptionsImpl.DEFAULT_CONTEXTUAL.toBuilder();
         builder.context(context);
         builder.flag(Flag.INCLUDE_NODES_WITHOUT_SERVER_CONTEXT, isIncludeGlobal());
@@ -39,6 +39,7 @@ public class VaultHookManager {
 
     private LuckPermsVaultChat chat = null;
     private LuckPermsVaultPermission permission = null;
+    private boolean listenersRegistered = false;
 
     public VaultHookManager(LPBukkitPlugin plugin) {
         this.plugin = plugin;
@@ -62,11 +63,27 @@ public class VaultHookManager {
             servicesManager.register(Permission.class, this.permission, this.plugin.getLoader(), ServicePriority.High);
             servicesManager.register(Chat.class, this.chat, this.plugin.getLoader(), ServicePriority.High);
 
+            // the api isn't available yet if we're hooking during startup
+            if (this.plugin.getApiProvider() != null) {
+                registerListeners();
+            }
+
         } catch (Exception e) {
             this.plugin.getLogger().severe("Error occurred whilst hooking into Vault.", e);
         }
     }
 
+    /**
+     * Registers the listeners used to keep the Vault lookup cache up to date.
+     */
+    public void registerListeners() {
+        if (this.permission == null || this.listenersRegistered) {
+            return;
+        }
+        this.plugin.getApiProvider().getEventBus().subscribe(this.permission.getLookupCache());
+        this.listenersRegistered = true;
+    }
+
     /**
      * Unregisters the LuckPerms Vault hooks, if present.
      */
@@ -74,6 +91,10 @@ public class VaultHookManager {
         ServicesManager servicesManager = this.plugin.getBootstrap().getServer().getServicesManager();
 
         if (this.permission != null) {
+            if (this.listenersRegistered) {
+                this.permission.getLookupCache().unbind();
+                this.listenersRegistered = false;
+            }
             servicesManager.unregister(Permission.class, this.permission);
             this.permission = null;
         }
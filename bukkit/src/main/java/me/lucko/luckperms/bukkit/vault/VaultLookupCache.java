@@ -0,0 +1,150 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.bukkit.vault;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import me.lucko.luckperms.common.event.LuckPermsEventListener;
+import me.lucko.luckperms.common.query.QueryOptionsImpl;
+import me.lucko.luckperms.common.util.CaffeineFactory;
+import net.luckperms.api.event.EventBus;
+import net.luckperms.api.event.EventSubscription;
+import net.luckperms.api.event.sync.ConfigReloadEvent;
+import net.luckperms.api.query.QueryOptions;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Caches the query options used to answer Vault lookups, so that repeated calls
+ * for the same (user, world) pair don't need to rebuild them.
+ *
+ * <p>Entries are keyed on the query options the context manager has cached for the
+ * subject, which are usually the same instance until the subjects context changes,
+ * so a lookup is normally answered with a reference comparison.</p>
+ */
+public class VaultLookupCache implements LuckPermsEventListener {
+
+    /**
+     * The query options last used for each (user, world) pair. The options are
+     * canonical, so the holders cached data can be found without a map lookup.
+     */
+    private final Cache<LookupKey, CachedQueryOptions> queryOptions = CaffeineFactory.newBuilder()
+            .maximumSize(10000)
+            .expireAfterAccess(1, TimeUnit.MINUTES)
+            .build();
+
+    /** The subscription to config reloads, if bound */
+    private @Nullable EventSubscription<ConfigReloadEvent> reloadSubscription;
+
+    public VaultLookupCache() {
+
+    }
+
+    @Override
+    public void bind(EventBus bus) {
+        this.reloadSubscription = bus.subscribe(ConfigReloadEvent.class, e -> this.queryOptions.invalidateAll());
+    }
+
+    /**
+     * Unsubscribes the listeners registered by {@link #bind(EventBus)}, and clears the cache.
+     */
+    public void unbind() {
+        if (this.reloadSubscription != null) {
+            this.reloadSubscription.close();
+            this.reloadSubscription = null;
+        }
+        this.queryOptions.invalidateAll();
+    }
+
+    /**
+     * Gets the query options to use for a lookup, reusing the previous instance if
+     * the subjects query options and op status haven't changed since it was created.
+     *
+     * @param uniqueId the unique id of the user, or null for a group lookup
+     * @param world the world argument of the lookup
+     * @param subjectOptions the query options currently cached for the subject by the context manager
+     * @param op the op status of the subject
+     * @param supplier creates new query options for the lookup
+     * @return the query options
+     */
+    public QueryOptions getQueryOptions(@Nullable UUID uniqueId, @Nullable String world, QueryOptions subjectOptions, boolean op, Supplier<QueryOptions> supplier) {
+        LookupKey key = new LookupKey(uniqueId, world);
+
+        CachedQueryOptions cached = this.queryOptions.getIfPresent(key);
+        if (cached != null && cached.op == op) {
+            if (cached.subjectOptions == subjectOptions) {
+                return cached.queryOptions;
+            }
+            if (cached.subjectOptions.equals(subjectOptions)) {
+                // an equal instance was recalculated, remember it so the next lookup is a reference comparison
+                this.queryOptions.put(key, new CachedQueryOptions(subjectOptions, op, cached.queryOptions));
+                return cached.queryOptions;
+            }
+        }
+
+        QueryOptions queryOptions = QueryOptionsImpl.intern(supplier.get());
+        this.queryOptions.put(key, new CachedQueryOptions(subjectOptions, op, queryOptions));
+        return queryOptions;
+    }
+
+    private static final class LookupKey {
+        private final @Nullable UUID uniqueId;
+        private final @Nullable String world;
+
+        LookupKey(@Nullable UUID uniqueId, @Nullable String world) {
+            this.uniqueId = uniqueId;
+            this.world = world;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof LookupKey)) return false;
+            LookupKey that = (LookupKey) o;
+            return Objects.equals(this.uniqueId, that.uniqueId) && Objects.equals(this.world, that.world);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Objects.hashCode(this.uniqueId) + Objects.hashCode(this.world);
+        }
+    }
+
+    private static final class CachedQueryOptions {
+        private final QueryOptions subjectOptions;
+        private final boolean op;
+        private final QueryOptions queryOptions;
+
+        CachedQueryOptions(QueryOptions subjectOptions, boolean op, QueryOptions queryOptions) {
+            this.subjectOptions = subjectOptions;
+            this.op = op;
+            this.queryOptions = queryOptions;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+
+package me.lucko.luckperms.bukkit.calculator;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import me.lucko.luckperms.bukkit.LPBukkitPlugin;
+import me.lucko.luckperms.bukkit.inject.server.LuckPermsPermissionMap;
+import me.lucko.luckperms.common.cacheddata.CacheMetadata;
+import me.lucko.luckperms.common.calculator.PermissionCalculator;
+import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.config.LuckPermsConfiguration;
+import me.lucko.luckperms.common.metrics.MetricsRegistry;
+import me.lucko.luckperms.common.model.HolderType;
+import me.lucko.luckperms.common.node.types.Permission;
+import me.lucko.luckperms.common.query.QueryOptionsImpl;
+import me.lucko.luckperms.common.treeview.PermissionRegistry;
+import me.lucko.luckperms.common.verbose.VerboseCheckTarget;
+import me.lucko.luckperms.common.verbose.VerboseHandler;
+import me.lucko.luckperms.common.verbose.event.CheckOrigin;
+import net.luckperms.api.node.Node;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class BukkitCalculatorFactoryTest {
+
+    private static final CacheMetadata MOCK_METADATA = new CacheMetadata(
+            HolderType.GROUP,
+            VerboseCheckTarget.of(VerboseCheckTarget.GROUP_TYPE, "test"),
+            QueryOptionsImpl.DEFAULT_CONTEXTUAL
+    );
+
+    @Mock private LPBukkitPlugin plugin;
+    @Mock private LuckPermsConfiguration configuration;
+    @Mock private LuckPermsPermissionMap permissionMap;
+    @Mock private PermissionRegistry permissionRegistry;
+
+    @BeforeEach
+    public void setupMocks() {
+        lenient().when(this.plugin.getConfiguration()).thenReturn(this.configuration);
+        lenient().when(this.plugin.getPermissionMap()).thenReturn(this.permissionMap);
+        lenient().when(this.plugin.getPermissionRegistry()).thenReturn(this.permissionRegistry);
+        lenient().when(this.plugin.getVerboseHandler()).thenReturn(mock(VerboseHandler.class));
+        lenient().when(this.plugin.getMetrics()).thenReturn(new MetricsRegistry());
+        lenient().when(this.configuration.get(ConfigKeys.APPLY_BUKKIT_CHILD_PERMISSIONS)).thenReturn(true);
+        lenient().when(this.configuration.get(ConfigKeys.APPLYING_REGEX)).thenReturn(false);
+        lenient().when(this.configuration.get(ConfigKeys.APPLYING_WILDCARDS)).thenReturn(false);
+        lenient().when(this.configuration.get(ConfigKeys.APPLYING_WILDCARDS_SPONGE)).thenReturn(false);
+        lenient().when(this.permissionMap.getChildPermissions(anyString(), anyBoolean())).thenReturn(ImmutableMap.of());
+    }
+
+    private PermissionCalculator createCalculator(BukkitCalculatorFactory factory, String permission) {
+        Node node = Permission.builder().permission(permission).build();
+        PermissionCalculator calculator = factory.build(QueryOptionsImpl.DEFAULT_CONTEXTUAL, MOCK_METADATA);
+        calculator.setSourcePermissions(ImmutableMap.of(permission, node));
+        return calculator;
+    }
+
+    @Test
+    public void testInvalidateCalculators() {
+        BukkitCalculatorFactory factory = new BukkitCalculatorFactory(this.plugin);
+        PermissionCalculator dependent = createCalculator(factory, "parent");
+        PermissionCalculator unrelated = createCalculator(factory, "other");
+
+        dependent.checkPermission("test", CheckOrigin.INTERNAL);
+        unrelated.checkPermission("test", CheckOrigin.INTERNAL);
+        unrelated.checkPermission("registered", CheckOrigin.INTERNAL);
+        verify(this.permissionRegistry, times(2)).offer("test");
+        verify(this.permissionRegistry, times(1)).offer("registered");
+
+        factory.invalidateCalculators(ImmutableSet.of("parent"), ImmutableSet.of("registered"));
+
+        dependent.checkPermission("test", CheckOrigin.INTERNAL);
+        unrelated.checkPermission("test", CheckOrigin.INTERNAL);
+        unrelated.checkPermission("registered", CheckOrigin.INTERNAL);
+
+        // the calculator with the parent in its source is invalidated entirely, and its
+        // child processor refreshed
+        verify(this.permissionMap, times(2)).getChildPermissions("parent", true);
+        // the other calculator only recalculates the registered permission
+        verify(this.permissionMap, times(1)).getChildPermissions("other", true);
+        verify(this.permissionRegistry, times(3)).offer("test");
+        verify(this.permissionRegistry, times(2)).offer("registered");
+    }
+
+    @Test
+    public void testInvalidateCalculatorsWithoutChildProcessor() {
+        lenient().when(this.configuration.get(ConfigKeys.APPLY_BUKKIT_CHILD_PERMISSIONS)).thenReturn(false);
+
+        BukkitCalculatorFactory factory = new BukkitCalculatorFactory(this.plugin);
+        PermissionCalculator calculator = createCalculator(factory, "parent");
+        calculator.checkPermission("test", CheckOrigin.INTERNAL);
+
+        factory.invalidateCalculators(ImmutableSet.of("parent"), ImmutableSet.of());
+        calculator.checkPermission("test", CheckOrigin.INTERNAL);
+
+        // without child permissions, the parents have no effect on the result
+        verify(this.permissionRegistry, times(1)).offer("test");
+    }
+
+}
@@ -0,0 +1,144 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+
+package me.lucko.luckperms.bukkit.inject.server;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import me.lucko.luckperms.bukkit.calculator.BukkitCalculatorFactory;
+import me.lucko.luckperms.common.model.manager.group.GroupManager;
+import me.lucko.luckperms.common.model.manager.user.UserManager;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.treeview.PermissionRegistry;
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.permissions.Permission;
+import org.bukkit.plugin.PluginManager;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Map;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class LuckPermsPermissionMapTest {
+
+    @Mock private LuckPermsPlugin plugin;
+    @Mock private BukkitCalculatorFactory calculatorFactory;
+
+    @BeforeAll
+    public static void setupServer() {
+        // bukkit permissions look up their subscriptions using the server when constructed
+        if (Bukkit.getServer() == null) {
+            Server server = mock(Server.class);
+            when(server.getLogger()).thenReturn(Logger.getLogger("Server"));
+            when(server.getPluginManager()).thenReturn(mock(PluginManager.class));
+            Bukkit.setServer(server);
+        }
+    }
+
+    @BeforeEach
+    public void setupMocks() {
+        lenient().when(this.plugin.getPermissionRegistry()).thenReturn(mock(PermissionRegistry.class));
+        lenient().when(this.plugin.getCalculatorFactory()).thenReturn(this.calculatorFactory);
+    }
+
+    private LuckPermsPermissionMap createPermissionMap() {
+        LuckPermsPermissionMap map = new LuckPermsPermissionMap(this.plugin, ImmutableMap.of());
+        map.put("parent", new Permission("parent", ImmutableMap.of("child", true)));
+        map.put("child", new Permission("child", ImmutableMap.of("grandchild", false)));
+        map.put("other", new Permission("other", ImmutableMap.of("other.child", true)));
+        return map;
+    }
+
+    @Test
+    public void testResolveChildPermissions() {
+        LuckPermsPermissionMap map = createPermissionMap();
+
+        assertEquals(ImmutableMap.of("child", true, "grandchild", false), map.getChildPermissions("parent", true));
+        assertEquals(ImmutableMap.of("child", false, "grandchild", true), map.getChildPermissions("parent", false));
+        assertEquals(ImmutableMap.of(), map.getChildPermissions("grandchild", true));
+    }
+
+    @Test
+    public void testChildrenChangeInvalidatesAffectedParents() {
+        LuckPermsPermissionMap map = createPermissionMap();
+        map.getChildPermissions("parent", true);
+        map.getChildPermissions("child", true);
+        Map<String, Boolean> otherChildren = map.getChildPermissions("other", true);
+
+        map.get("child").getChildren().put("added", true);
+
+        // the changed permission and the permissions which include it are invalidated
+        verify(this.calculatorFactory).invalidateCalculators(ImmutableSet.of("child", "parent"), ImmutableSet.of());
+        assertEquals(ImmutableMap.of("child", true, "grandchild", false, "added", true), map.getChildPermissions("parent", true));
+
+        // unrelated expansions are kept
+        assertSame(otherChildren, map.getChildPermissions("other", true));
+    }
+
+    @Test
+    public void testRegisterInvalidatesRegistered() {
+        LuckPermsPermissionMap map = createPermissionMap();
+        map.getChildPermissions("parent", true);
+        Map<String, Boolean> otherChildren = map.getChildPermissions("other", true);
+
+        map.put("grandchild", new Permission("grandchild", ImmutableMap.of("great.grandchild", true)));
+
+        // the default value of the registered permission may have changed, so it is always invalidated
+        verify(this.calculatorFactory).invalidateCalculators(ImmutableSet.of("grandchild", "parent"), ImmutableSet.of("grandchild"));
+        assertEquals(ImmutableMap.of("child", true, "grandchild", false, "great.grandchild", true), map.getChildPermissions("parent", true));
+        assertSame(otherChildren, map.getChildPermissions("other", true));
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void testInvalidateAllWithoutCalculatorFactory() {
+        UserManager userManager = mock(UserManager.class);
+        GroupManager groupManager = mock(GroupManager.class);
+        when(this.plugin.getCalculatorFactory()).thenReturn(null);
+        when(this.plugin.getUserManager()).thenReturn((UserManager) userManager);
+        when(this.plugin.getGroupManager()).thenReturn((GroupManager) groupManager);
+
+        createPermissionMap();
+
+        verify(userManager, atLeastOnce()).invalidateAllPermissionCalculators();
+        verify(groupManager, atLeastOnce()).invalidateAllPermissionCalculators();
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+
+package me.lucko.luckperms.bukkit.vault;
+
+import me.lucko.luckperms.common.context.ImmutableContextSetImpl;
+import me.lucko.luckperms.common.query.QueryOptionsImpl;
+import net.luckperms.api.query.QueryOptions;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class VaultLookupCacheTest {
+
+    private static QueryOptions subjectOptions(String world) {
+        return QueryOptionsImpl.DEFAULT_CONTEXTUAL.toBuilder().context(ImmutableContextSetImpl.of("world", world)).build();
+    }
+
+    @Test
+    public void testReusesOptionsWhileSubjectOptionsUnchanged() {
+        VaultLookupCache cache = new VaultLookupCache();
+        UUID uniqueId = UUID.randomUUID();
+        AtomicInteger created = new AtomicInteger();
+
+        QueryOptions subject = subjectOptions("world");
+        Supplier<QueryOptions> supplier = () -> {
+            created.incrementAndGet();
+            return subjectOptions("nether");
+        };
+
+        QueryOptions first = cache.getQueryOptions(uniqueId, "nether", subject, false, supplier);
+        assertSame(first, cache.getQueryOptions(uniqueId, "nether", subject, false, supplier));
+
+        // an equal instance recalculated by the context manager is still a hit
+        assertSame(first, cache.getQueryOptions(uniqueId, "nether", subjectOptions("world"), false, supplier));
+        assertEquals(1, created.get());
+
+        // a change to the subject or its op status isn't
+        cache.getQueryOptions(uniqueId, "nether", subjectOptions("end"), false, supplier);
+        cache.getQueryOptions(uniqueId, "nether", subjectOptions("end"), true, supplier);
+        assertEquals(3, created.get());
+    }
+
+}
@@ -28,7 +28,7 @@ package me.lucko.luckperms.bungee.context;
 import me.lucko.luckperms.bungee.LPBungeePlugin;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.context.ImmutableContextSetImpl;
-import net.luckperms.api.context.ContextCalculator;
+import me.lucko.luckperms.common.context.calculator.SignalDrivenContextCalculator;
 import net.luckperms.api.context.ContextConsumer;
 import net.luckperms.api.context.ContextSet;
 import net.luckperms.api.context.DefaultContextKeys;
@@ -42,7 +42,7 @@ import net.md_5.bungee.event.EventHandler;
 import net.md_5.bungee.event.EventPriority;
 import org.checkerframework.checker.nullness.qual.NonNull;
 
-public class BungeePlayerCalculator implements ContextCalculator<ProxiedPlayer>, Listener {
+public class BungeePlayerCalculator implements SignalDrivenContextCalculator<ProxiedPlayer>, Listener {
     private final LPBungeePlugin plugin;
 
     public BungeePlayerCalculator(LPBungeePlugin plugin) {
@@ -0,0 +1,294 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.actionlog;
+
+import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.plugin.scheduler.SchedulerTask;
+import me.lucko.luckperms.common.util.Throwing;
+import net.luckperms.api.actionlog.Action;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Queues log entries and writes them to storage in batches.
+ *
+ * <p>The queue is flushed when it reaches the batch size, or periodically
+ * otherwise. Submitting never blocks the caller: if the queue is full, the entry
+ * waits for space on an async thread instead, and is only dropped (and counted)
+ * if storage doesn't catch up within a few seconds.</p>
+ */
+public class BatchedLogWriter {
+
+    /** How long an entry submitted to a full queue waits for space before it is dropped */
+    private static final long QUEUE_WAIT_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final long AWAIT_STEP_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    /** The minimum time between warnings about dropped entries */
+    private static final long DROP_WARNING_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final LuckPermsPlugin plugin;
+    private final Throwing.Consumer<List<Action>> writer;
+
+    private final BlockingQueue<PendingEntry> queue;
+    private final int batchSize;
+    private final int flushInterval;
+    private final long queueWaitNanos;
+
+    /** Lock to ensure batches are written in order */
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder flushed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    /** The time of the last warning about dropped entries, and the number dropped when it was logged */
+    private final AtomicLong lastDropWarning = new AtomicLong(System.nanoTime() - DROP_WARNING_INTERVAL_NANOS);
+    private final AtomicLong droppedAtLastWarning = new AtomicLong();
+
+    /** Guards {@link #shutdown}, so no entry can be queued after the final flush */
+    private final ReadWriteLock shutdownLock = new ReentrantReadWriteLock();
+    private SchedulerTask flushTask;
+    private boolean shutdown = false;
+
+    public BatchedLogWriter(LuckPermsPlugin plugin, Throwing.Consumer<List<Action>> writer) {
+        this(plugin, writer, QUEUE_WAIT_NANOS);
+    }
+
+    BatchedLogWriter(LuckPermsPlugin plugin, Throwing.Consumer<List<Action>> writer, long queueWaitNanos) {
+        this.plugin = plugin;
+        this.writer = writer;
+        this.queue = new ArrayBlockingQueue<>(plugin.getConfiguration().get(ConfigKeys.LOG_QUEUE_CAPACITY));
+        this.batchSize = plugin.getConfiguration().get(ConfigKeys.LOG_QUEUE_BATCH_SIZE);
+        this.flushInterval = plugin.getConfiguration().get(ConfigKeys.LOG_QUEUE_FLUSH_INTERVAL);
+        this.queueWaitNanos = queueWaitNanos;
+    }
+
+    public void start() {
+        this.flushTask = this.plugin.getBootstrap().getScheduler().asyncRepeating(this::flush, this.flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the periodic flush task and writes any remaining entries to storage.
+     */
+    public void shutdown() {
+        this.shutdownLock.writeLock().lock();
+        try {
+            this.shutdown = true;
+        } finally {
+            this.shutdownLock.writeLock().unlock();
+        }
+
+        if (this.flushTask != null) {
+            this.flushTask.cancel();
+        }
+        flush();
+    }
+
+    public CompletableFuture<Void> submit(Action entry) {
+        PendingEntry pending = new PendingEntry(entry);
+
+        boolean shutdown;
+        boolean accepted = false;
+        this.shutdownLock.readLock().lock();
+        try {
+            shutdown = this.shutdown;
+            if (!shutdown) {
+                accepted = this.queue.offer(pending);
+            }
+        } finally {
+            this.shutdownLock.readLock().unlock();
+        }
+
+        if (shutdown) {
+            // no more flushes are going to happen, so write directly
+            write(pending);
+            return pending.future;
+        }
+
+        if (!accepted) {
+            // don't block the caller (which may be the server thread) waiting for space
+            requestFlush();
+            this.plugin.getBootstrap().getScheduler().executeAsync(() -> awaitSpace(pending));
+            return pending.future;
+        }
+
+        onQueued();
+        return pending.future;
+    }
+
+    private void awaitSpace(PendingEntry pending) {
+        long deadline = System.nanoTime() + this.queueWaitNanos;
+        while (true) {
+            boolean shutdown;
+            boolean accepted = false;
+            boolean interrupted = false;
+            this.shutdownLock.readLock().lock();
+            try {
+                shutdown = this.shutdown;
+                if (!shutdown) {
+                    // wait in short steps, so a shutdown isn't held up by the lock
+                    long remaining = Math.max(0, deadline - System.nanoTime());
+                    accepted = this.queue.offer(pending, Math.min(remaining, AWAIT_STEP_NANOS), TimeUnit.NANOSECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                shutdown = false;
+                interrupted = true;
+            } finally {
+                this.shutdownLock.readLock().unlock();
+            }
+
+            if (shutdown) {
+                write(pending);
+                return;
+            }
+            if (accepted) {
+                onQueued();
+                return;
+            }
+            if (interrupted || System.nanoTime() - deadline >= 0) {
+                this.dropped.increment();
+                warnDropped();
+                pending.future.completeExceptionally(new RejectedExecutionException("Action log queue is full"));
+                return;
+            }
+            requestFlush();
+        }
+    }
+
+    private void onQueued() {
+        this.queued.increment();
+        if (this.queue.size() >= this.batchSize) {
+            requestFlush();
+        }
+    }
+
+    private void warnDropped() {
+        long now = System.nanoTime();
+        long last = this.lastDropWarning.get();
+        if (now - last < DROP_WARNING_INTERVAL_NANOS || !this.lastDropWarning.compareAndSet(last, now)) {
+            return;
+        }
+
+        long total = this.dropped.sum();
+        long count = total - this.droppedAtLastWarning.getAndSet(total);
+        this.plugin.getLogger().warn("Action log queue is full, dropped " + count + " entries (" + total + " in total). " +
+                "Consider increasing 'log-queue.capacity' or check that storage is keeping up.");
+    }
+
+    private void requestFlush() {
+        if (this.flushRequested.compareAndSet(false, true)) {
+            this.plugin.getBootstrap().getScheduler().executeAsync(() -> {
+                this.flushRequested.set(false);
+                flush();
+            });
+        }
+    }
+
+    /**
+     * Writes all queued entries to storage.
+     */
+    public void flush() {
+        this.flushLock.lock();
+        try {
+            List<PendingEntry> batch = new ArrayList<>(this.batchSize);
+            while (this.queue.drainTo(batch, this.batchSize) > 0) {
+                write(batch);
+                batch.clear();
+            }
+        } finally {
+            this.flushLock.unlock();
+        }
+    }
+
+    private void write(PendingEntry entry) {
+        List<PendingEntry> batch = new ArrayList<>(1);
+        batch.add(entry);
+        write(batch);
+    }
+
+    private void write(List<PendingEntry> batch) {
+        List<Action> actions = new ArrayList<>(batch.size());
+        for (PendingEntry entry : batch) {
+            actions.add(entry.action);
+        }
+
+        try {
+            this.writer.accept(actions);
+        } catch (Exception e) {
+            this.plugin.getLogger().severe("Exception whilst writing " + actions.size() + " action log entries to storage", e);
+            for (PendingEntry entry : batch) {
+                entry.future.completeExceptionally(e);
+            }
+            return;
+        }
+
+        this.flushed.add(batch.size());
+        for (PendingEntry entry : batch) {
+            entry.future.complete(null);
+        }
+    }
+
+    public int getPendingCount() {
+        return this.queue.size();
+    }
+
+    public long getQueuedCount() {
+        return this.queued.sum();
+    }
+
+    public long getFlushedCount() {
+        return this.flushed.sum();
+    }
+
+    public long getDroppedCount() {
+        return this.dropped.sum();
+    }
+
+    private static final class PendingEntry {
+        private final Action action;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        PendingEntry(Action action) {
+            this.action = action;
+        }
+    }
+
+}
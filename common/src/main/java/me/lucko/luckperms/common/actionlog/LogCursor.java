@@ -0,0 +1,82 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+
+package me.lucko.luckperms.common.actionlog;
+
+import java.util.Objects;
+
+/**
+ * Marks the position of an entry in the action log.
+ *
+ * <p>Log entries are always ordered by (timestamp, id) descending, so a cursor pointing
+ * at the last entry of a page can be used to seek directly to the entries on the following
+ * page, instead of skipping over all of the entries before it.</p>
+ */
+public final class LogCursor {
+    private final long timestamp;
+    private final Object id;
+
+    public LogCursor(long timestamp, Object id) {
+        this.timestamp = timestamp;
+        this.id = Objects.requireNonNull(id, "id");
+    }
+
+    /**
+     * Gets the timestamp (in epoch seconds) of the entry
+     *
+     * @return the timestamp
+     */
+    public long timestamp() {
+        return this.timestamp;
+    }
+
+    /**
+     * Gets the storage-specific id of the entry
+     *
+     * @return the id
+     */
+    public Object id() {
+        return this.id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof LogCursor)) return false;
+        LogCursor that = (LogCursor) o;
+        return this.timestamp == that.timestamp && this.id.equals(that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.timestamp, this.id);
+    }
+
+    @Override
+    public String toString() {
+        return "LogCursor(timestamp=" + this.timestamp + ", id=" + this.id + ")";
+    }
+}
@@ -35,17 +35,23 @@ import java.util.Objects;
 
 public class LogPage {
     public static LogPage of(List<LoggedAction> content, @Nullable PageParameters params, int totalEntries) {
-        return new LogPage(content, params, totalEntries);
+        return new LogPage(content, params, totalEntries, null);
+    }
+
+    public static LogPage of(List<LoggedAction> content, @Nullable PageParameters params, int totalEntries, @Nullable LogCursor last) {
+        return new LogPage(content, params, totalEntries, last);
     }
 
     private final List<LoggedAction> content;
     private final @Nullable PageParameters params;
     private final int totalEntries;
+    private final @Nullable LogCursor last;
 
-    LogPage(List<LoggedAction> content, @Nullable PageParameters params, int totalEntries) {
+    LogPage(List<LoggedAction> content, @Nullable PageParameters params, int totalEntries, @Nullable LogCursor last) {
         this.content = ImmutableList.copyOf(content);
         this.params = params;
         this.totalEntries = totalEntries;
+        this.last = last;
     }
 
     public List<LoggedAction> getContent() {
@@ -69,6 +75,21 @@ public class LogPage {
         return this.totalEntries;
     }
 
+    /**
+     * Gets the parameters for the page following this one.
+     *
+     * <p>If the storage implementation recorded the position of the last entry on
+     * this page, the returned parameters will seek from it.</p>
+     *
+     * @return the parameters for the next page, or null if this page wasn't paginated
+     */
+    public @Nullable PageParameters getNextPage() {
+        if (this.params == null) {
+            return null;
+        }
+        return new PageParameters(this.params.pageSize(), this.params.pageNumber() + 1, this.last);
+    }
+
     public static final class Entry<T> {
         private final int position;
         private final T value;
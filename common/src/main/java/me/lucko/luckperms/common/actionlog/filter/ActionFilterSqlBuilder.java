@@ -25,10 +25,13 @@
 
 package me.lucko.luckperms.common.actionlog.filter;
 
+import me.lucko.luckperms.common.actionlog.LogCursor;
 import me.lucko.luckperms.common.actionlog.LoggedAction;
 import me.lucko.luckperms.common.filter.FilterField;
+import me.lucko.luckperms.common.filter.FilterList;
 import me.lucko.luckperms.common.filter.sql.FilterSqlBuilder;
 import net.luckperms.api.actionlog.Action;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.util.UUID;
 
@@ -66,4 +69,23 @@ public class ActionFilterSqlBuilder extends FilterSqlBuilder<Action> {
         }
     }
 
+    public void visit(FilterList<Action> filters, @Nullable LogCursor after) {
+        if (after == null) {
+            visit(filters);
+            return;
+        }
+
+        // 'WHERE (time, id) < (t, i) AND (filters)'
+        // the cursor values are numeric, so they are written inline (the same as LIMIT/OFFSET)
+        long time = after.timestamp();
+        long id = ((Number) after.id()).longValue();
+        this.builder.append(" WHERE (time, id) < (" + time + ", " + id + ")");
+
+        if (!filters.isEmpty()) {
+            this.builder.append(" AND (");
+            visitConditions(filters.operator(), filters);
+            this.builder.append(")");
+        }
+    }
+
 }
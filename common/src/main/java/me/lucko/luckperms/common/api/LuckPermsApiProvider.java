@@ -53,6 +53,7 @@ import net.luckperms.api.context.ContextManager;
 import net.luckperms.api.messaging.MessagingService;
 import net.luckperms.api.messenger.MessengerProvider;
 import net.luckperms.api.metastacking.MetaStackFactory;
+import net.luckperms.api.metrics.Metrics;
 import net.luckperms.api.model.group.GroupManager;
 import net.luckperms.api.model.user.UserManager;
 import net.luckperms.api.node.NodeBuilderRegistry;
@@ -180,6 +181,11 @@ public class LuckPermsApiProvider implements LuckPerms {
         return this.plugin.runHealthCheck();
     }
 
+    @Override
+    public @NonNull Metrics getMetrics() {
+        return this.plugin.getMetrics();
+    }
+
     @Override
     public @NonNull AbstractEventBus<?> getEventBus() {
         return this.plugin.getEventDispatcher().getEventBus();
@@ -29,6 +29,7 @@ import me.lucko.luckperms.common.context.manager.ContextManager;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.query.QueryOptionsBuilderImpl;
 import net.luckperms.api.context.ContextCalculator;
+import net.luckperms.api.context.ContextCalculatorStatistics;
 import net.luckperms.api.context.ContextSetFactory;
 import net.luckperms.api.context.ImmutableContextSet;
 import net.luckperms.api.model.user.User;
@@ -36,6 +37,8 @@ import net.luckperms.api.query.QueryMode;
 import net.luckperms.api.query.QueryOptions;
 import org.checkerframework.checker.nullness.qual.NonNull;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -118,4 +121,9 @@ public class ApiContextManager implements net.luckperms.api.context.ContextManag
         Objects.requireNonNull(subject, "subject");
         this.handle.signalContextUpdate(checkType(subject));
     }
+
+    @Override
+    public @NonNull Collection<ContextCalculatorStatistics> getCalculatorStatistics() {
+        return Collections.unmodifiableList(this.handle.getCalculatorStatistics());
+    }
 }
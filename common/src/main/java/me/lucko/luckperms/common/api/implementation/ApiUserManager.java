@@ -35,6 +35,7 @@ import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.storage.misc.NodeEntry;
 import me.lucko.luckperms.common.util.ImmutableCollectors;
 import net.luckperms.api.model.PlayerSaveResult;
+import net.luckperms.api.model.user.UserSnapshot;
 import net.luckperms.api.node.HeldNode;
 import net.luckperms.api.node.Node;
 import net.luckperms.api.node.matcher.NodeMatcher;
@@ -76,6 +77,12 @@ public class ApiUserManager extends ApiAbstractManager<User, net.luckperms.api.m
                 .thenApply(this::proxyAndRegisterUsage);
     }
 
+    @Override
+    public @NonNull CompletableFuture<UserSnapshot> loadUserSnapshot(@NonNull UUID uniqueId) {
+        Objects.requireNonNull(uniqueId, "uuid");
+        return this.plugin.getUserManager().getOfflineUserCache().get(uniqueId).thenApply(snapshot -> snapshot);
+    }
+
     @Override
     public @NonNull CompletableFuture<UUID> lookupUniqueId(@NonNull String username) {
         Objects.requireNonNull(username, "username");
@@ -50,6 +50,7 @@ import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.function.IntFunction;
 
@@ -151,20 +152,32 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
     
     private PermissionCache calculatePermissions(QueryOptions queryOptions) {
         Objects.requireNonNull(queryOptions, "queryOptions");
+        long start = System.nanoTime();
         CacheMetadata metadata = getMetadataForQueryOptions(queryOptions);
 
         ConcurrentHashMap<String, Node> sourcePermissions = resolvePermissions(ConcurrentHashMap::new, queryOptions);
-        return new PermissionCache(queryOptions, metadata, getCalculatorFactory(), sourcePermissions);
+        PermissionCache cache = new PermissionCache(queryOptions, metadata, getCalculatorFactory(), sourcePermissions);
+
+        recordBuildTime("permission", start);
+        return cache;
     }
     
     private MonitoredMetaCache calculateMeta(QueryOptions queryOptions) {
         Objects.requireNonNull(queryOptions, "queryOptions");
+        long start = System.nanoTime();
         CacheMetadata metadata = getMetadataForQueryOptions(queryOptions);
 
         MetaAccumulator accumulator = newAccumulator(queryOptions);
         resolveMeta(accumulator, queryOptions);
+        MonitoredMetaCache cache = new MonitoredMetaCache(this.plugin, queryOptions, metadata, accumulator);
+
+        recordBuildTime("meta", start);
+        return cache;
+    }
 
-        return new MonitoredMetaCache(this.plugin, queryOptions, metadata, accumulator);
+    private void recordBuildTime(String type, long start) {
+        this.plugin.getMetrics().timer("cached_data_build_time", "Time taken to build cached permission and meta data", "type", type)
+                .record(System.nanoTime() - start);
     }
 
     @Override
@@ -178,6 +191,15 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
         this.permission.cache.values().forEach(PermissionCache::invalidateCache);
     }
 
+    /**
+     * Gets the number of query options which currently have cached permission data.
+     *
+     * @return the number of cached query options
+     */
+    public final int getCachedQueryOptionsCount() {
+        return this.permission.cache.size();
+    }
+
     public final void performCacheCleanup() {
         this.permission.cleanup();
         this.meta.cleanup();
@@ -187,21 +209,43 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
         private final Function<QueryOptions, C> cacheLoader;
         private final LoadingMap<QueryOptions, C> cache;
 
+        // the most recently requested entry, matched by identity - query options
+        // supplied by the context manager are canonical, so repeated lookups for the
+        // same subject state can skip the map entirely
+        private volatile LastUsed<C> lastUsed = null;
+        // incremented after every modification to the cache, invalidating lastUsed
+        private final AtomicInteger modCount = new AtomicInteger();
+
         public AbstractContainer(Function<QueryOptions, C> cacheLoader) {
             this.cacheLoader = cacheLoader;
             this.cache = LoadingMap.of(this.cacheLoader);
         }
 
+        private void modified() {
+            this.modCount.incrementAndGet();
+            this.lastUsed = null;
+        }
+
         public void cleanup() {
-            this.cache.values().removeIf(value -> !((UsageTracked) value).usedInTheLast(2, TimeUnit.MINUTES));
+            if (this.cache.values().removeIf(value -> !((UsageTracked) value).usedInTheLast(2, TimeUnit.MINUTES))) {
+                modified();
+            }
         }
 
         @Override
         public @NonNull C get(@NonNull QueryOptions queryOptions) {
             Objects.requireNonNull(queryOptions, "queryOptions");
 
+            int modCount = this.modCount.get();
+            LastUsed<C> lastUsed = this.lastUsed;
+            if (lastUsed != null && lastUsed.queryOptions == queryOptions && lastUsed.modCount == modCount) {
+                ((UsageTracked) lastUsed.data).recordUsage();
+                return lastUsed.data;
+            }
+
             C data = this.cache.get(queryOptions);
             ((UsageTracked) data).recordUsage();
+            this.lastUsed = new LastUsed<>(queryOptions, data, modCount);
             return data;
         }
 
@@ -217,6 +261,7 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
             CompletableFuture.runAsync(() -> {
                 final C value = this.cacheLoader.apply(queryOptions);
                 this.cache.put(queryOptions, value);
+                modified();
             }, CaffeineFactory.executor());
         }
 
@@ -226,6 +271,7 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
 
             // invalidate the previous value until we're done recalculating
             this.cache.remove(queryOptions);
+            modified();
 
             // request recalculation from the cache
             return CompletableFuture.supplyAsync(() -> this.cache.get(queryOptions), CaffeineFactory.executor());
@@ -247,11 +293,25 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
         public void invalidate(@NonNull QueryOptions queryOptions) {
             Objects.requireNonNull(queryOptions, "queryOptions");
             this.cache.remove(queryOptions);
+            modified();
         }
 
         @Override
         public void invalidate() {
             this.cache.clear();
+            modified();
+        }
+    }
+
+    private static final class LastUsed<C> {
+        private final QueryOptions queryOptions;
+        private final C data;
+        private final int modCount;
+
+        LastUsed(QueryOptions queryOptions, C data, int modCount) {
+            this.queryOptions = queryOptions;
+            this.data = data;
+            this.modCount = modCount;
         }
     }
     
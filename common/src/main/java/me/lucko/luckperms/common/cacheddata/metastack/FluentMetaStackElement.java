@@ -35,6 +35,7 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 public final class FluentMetaStackElement implements MetaStackElement {
@@ -44,13 +45,29 @@ public final class FluentMetaStackElement implements MetaStackElement {
     }
 
     private final List<MetaStackElement> subElements;
+    private final @Nullable Selection selection;
     private final String toString;
 
-    private FluentMetaStackElement(String name, Map<String, String> params, List<MetaStackElement> subElements) {
+    private FluentMetaStackElement(String name, Map<String, String> params, List<MetaStackElement> subElements, @Nullable Selection selection) {
         this.subElements = ImmutableList.copyOf(subElements);
+        this.selection = selection;
         this.toString = formToString(name, params);
     }
 
+    /**
+     * Gets how the element chooses between two nodes which both pass its checks.
+     *
+     * <p>When non-null, the other checks of the element only depend on the
+     * node being offered (not the current one), so the result of offering a
+     * sequence of nodes which share the same origin is equal to just offering
+     * the {@link Selection#select(ChatMetaNode, ChatMetaNode) selected} one.</p>
+     *
+     * @return the selection, or null if the element has none
+     */
+    public @Nullable Selection getSelection() {
+        return this.selection;
+    }
+
     @Override
     public boolean shouldAccumulate(@NonNull ChatMetaType type, @NonNull ChatMetaNode<?, ?> node, @Nullable ChatMetaNode<?, ?> current) {
         for (MetaStackElement element : this.subElements) {
@@ -58,7 +75,7 @@ public final class FluentMetaStackElement implements MetaStackElement {
                 return false;
             }
         }
-        return true;
+        return this.selection == null || this.selection.shouldReplace(node, current);
     }
 
     @Override
@@ -66,12 +83,12 @@ public final class FluentMetaStackElement implements MetaStackElement {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         FluentMetaStackElement that = (FluentMetaStackElement) o;
-        return this.subElements.equals(that.subElements);
+        return this.subElements.equals(that.subElements) && this.selection == that.selection;
     }
 
     @Override
     public int hashCode() {
-        return this.subElements.hashCode();
+        return 31 * this.subElements.hashCode() + Objects.hashCode(this.selection);
     }
 
     @Override
@@ -83,10 +100,36 @@ public final class FluentMetaStackElement implements MetaStackElement {
         return name + "(" + params.entrySet().stream().map(p -> p.getKey() + "=" + p.getValue()).collect(Collectors.joining(", ")) + ")";
     }
 
+    /**
+     * Chooses between nodes by comparing their priority. Ties are won by the
+     * node that was offered first.
+     */
+    public enum Selection {
+        HIGHEST_PRIORITY {
+            @Override
+            public boolean shouldReplace(ChatMetaNode<?, ?> node, @Nullable ChatMetaNode<?, ?> current) {
+                return current == null || node.getPriority() > current.getPriority();
+            }
+        },
+        LOWEST_PRIORITY {
+            @Override
+            public boolean shouldReplace(ChatMetaNode<?, ?> node, @Nullable ChatMetaNode<?, ?> current) {
+                return current == null || node.getPriority() < current.getPriority();
+            }
+        };
+
+        public abstract boolean shouldReplace(ChatMetaNode<?, ?> node, @Nullable ChatMetaNode<?, ?> current);
+
+        public <N extends ChatMetaNode<?, ?>> @Nullable N select(@Nullable N current, @Nullable N node) {
+            return node != null && shouldReplace(node, current) ? node : current;
+        }
+    }
+
     public static final class Builder {
         private final String name;
         private final ImmutableMap.Builder<String, String> params = ImmutableMap.builder();
         private final ImmutableList.Builder<MetaStackElement> elements = ImmutableList.builder();
+        private Selection selection = null;
 
         Builder(String name) {
             this.name = name;
@@ -97,13 +140,27 @@ public final class FluentMetaStackElement implements MetaStackElement {
             return this;
         }
 
+        /**
+         * Sets how the element chooses between nodes which pass its checks.
+         *
+         * <p>Checks added using {@link #with(MetaStackElement)} must then only
+         * depend on the type and origin of the node being offered.</p>
+         *
+         * @param selection the selection
+         * @return this builder
+         */
+        public Builder select(Selection selection) {
+            this.selection = selection;
+            return this;
+        }
+
         public Builder param(String name, String value) {
             this.params.put(name, value);
             return this;
         }
 
         public MetaStackElement build() {
-            return new FluentMetaStackElement(this.name, this.params.build(), this.elements.build());
+            return new FluentMetaStackElement(this.name, this.params.build(), this.elements.build(), this.selection);
         }
     }
 }
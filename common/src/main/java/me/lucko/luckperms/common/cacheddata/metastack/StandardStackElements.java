@@ -25,6 +25,7 @@
 
 package me.lucko.luckperms.common.cacheddata.metastack;
 
+import me.lucko.luckperms.common.cacheddata.metastack.FluentMetaStackElement.Selection;
 import me.lucko.luckperms.common.model.Track;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.util.ImmutableCollectors;
@@ -94,8 +95,6 @@ public final class StandardStackElements {
     // utility functions, used in combination with FluentMetaStackElement for form full MetaStackElements
 
     private static final MetaStackElement TYPE_CHECK = (type, node, current) -> type.nodeType().matches(node);
-    private static final MetaStackElement HIGHEST_CHECK = (type, node, current) -> current == null || node.getPriority() > current.getPriority();
-    private static final MetaStackElement LOWEST_CHECK = (type, node, current) -> current == null || node.getPriority() < current.getPriority();
     private static final MetaStackElement OWN_CHECK = (type, node, current) -> node.metadata(InheritanceOriginMetadata.KEY).getOrigin().getType().equals(PermissionHolder.Identifier.USER_TYPE);
     private static final MetaStackElement INHERITED_CHECK = (type, node, current) -> node.metadata(InheritanceOriginMetadata.KEY).getOrigin().getType().equals(PermissionHolder.Identifier.GROUP_TYPE);
 
@@ -104,26 +103,26 @@ public final class StandardStackElements {
 
     public static final MetaStackElement HIGHEST = FluentMetaStackElement.builder("HighestPriority")
             .with(TYPE_CHECK)
-            .with(HIGHEST_CHECK)
+            .select(Selection.HIGHEST_PRIORITY)
             .build();
 
     public static final MetaStackElement HIGHEST_OWN = FluentMetaStackElement.builder("HighestPriorityOwn")
             .with(TYPE_CHECK)
             .with(OWN_CHECK)
-            .with(HIGHEST_CHECK)
+            .select(Selection.HIGHEST_PRIORITY)
             .build();
 
     public static final MetaStackElement HIGHEST_INHERITED = FluentMetaStackElement.builder("HighestPriorityInherited")
             .with(TYPE_CHECK)
             .with(INHERITED_CHECK)
-            .with(HIGHEST_CHECK)
+            .select(Selection.HIGHEST_PRIORITY)
             .build();
 
     public static MetaStackElement highestFromGroupOnTrack(LuckPermsPlugin plugin, String trackName) {
         return FluentMetaStackElement.builder("HighestPriorityOnTrack")
                 .param("trackName", trackName)
                 .with(TYPE_CHECK)
-                .with(HIGHEST_CHECK)
+                .select(Selection.HIGHEST_PRIORITY)
                 .with(new FromGroupOnTrackCheck(plugin, trackName))
                 .build();
     }
@@ -132,7 +131,7 @@ public final class StandardStackElements {
         return FluentMetaStackElement.builder("HighestPriorityNotOnTrack")
                 .param("trackName", trackName)
                 .with(TYPE_CHECK)
-                .with(HIGHEST_CHECK)
+                .select(Selection.HIGHEST_PRIORITY)
                 .with(new NotFromGroupOnTrackCheck(plugin, trackName))
                 .build();
     }
@@ -141,7 +140,7 @@ public final class StandardStackElements {
         return FluentMetaStackElement.builder("HighestPriorityFromGroup")
                 .param("groupName", groupName)
                 .with(TYPE_CHECK)
-                .with(HIGHEST_CHECK)
+                .select(Selection.HIGHEST_PRIORITY)
                 .with(new FromGroupCheck(groupName))
                 .build();
     }
@@ -150,33 +149,33 @@ public final class StandardStackElements {
         return FluentMetaStackElement.builder("HighestPriorityNotFromGroup")
                 .param("groupName", groupName)
                 .with(TYPE_CHECK)
-                .with(HIGHEST_CHECK)
+                .select(Selection.HIGHEST_PRIORITY)
                 .with(new NotFromGroupCheck(groupName))
                 .build();
     }
 
     public static final MetaStackElement LOWEST = FluentMetaStackElement.builder("LowestPriority")
             .with(TYPE_CHECK)
-            .with(LOWEST_CHECK)
+            .select(Selection.LOWEST_PRIORITY)
             .build();
 
     public static final MetaStackElement LOWEST_OWN = FluentMetaStackElement.builder("LowestPriorityOwn")
             .with(TYPE_CHECK)
             .with(OWN_CHECK)
-            .with(LOWEST_CHECK)
+            .select(Selection.LOWEST_PRIORITY)
             .build();
 
     public static final MetaStackElement LOWEST_INHERITED = FluentMetaStackElement.builder("LowestPriorityInherited")
             .with(TYPE_CHECK)
             .with(INHERITED_CHECK)
-            .with(LOWEST_CHECK)
+            .select(Selection.LOWEST_PRIORITY)
             .build();
 
     public static MetaStackElement lowestFromGroupOnTrack(LuckPermsPlugin plugin, String trackName) {
         return FluentMetaStackElement.builder("LowestPriorityOnTrack")
                 .param("trackName", trackName)
                 .with(TYPE_CHECK)
-                .with(LOWEST_CHECK)
+                .select(Selection.LOWEST_PRIORITY)
                 .with(new FromGroupOnTrackCheck(plugin, trackName))
                 .build();
     }
@@ -185,7 +184,7 @@ public final class StandardStackElements {
         return FluentMetaStackElement.builder("LowestPriorityNotOnTrack")
                 .param("trackName", trackName)
                 .with(TYPE_CHECK)
-                .with(LOWEST_CHECK)
+                .select(Selection.LOWEST_PRIORITY)
                 .with(new NotFromGroupOnTrackCheck(plugin, trackName))
                 .build();
     }
@@ -194,7 +193,7 @@ public final class StandardStackElements {
         return FluentMetaStackElement.builder("LowestPriorityFromGroup")
                 .param("groupName", groupName)
                 .with(TYPE_CHECK)
-                .with(LOWEST_CHECK)
+                .select(Selection.LOWEST_PRIORITY)
                 .with(new FromGroupCheck(groupName))
                 .build();
     }
@@ -203,7 +202,7 @@ public final class StandardStackElements {
         return FluentMetaStackElement.builder("LowestPriorityNotFromGroup")
                 .param("groupName", groupName)
                 .with(TYPE_CHECK)
-                .with(LOWEST_CHECK)
+                .select(Selection.LOWEST_PRIORITY)
                 .with(new NotFromGroupCheck(groupName))
                 .build();
     }
@@ -136,7 +136,46 @@ public class MetaAccumulator {
 
     public void accumulateNode(Node n) {
         ensureState(State.ACCUMULATING);
+        accumulateNode(n, true);
+    }
+
+    /**
+     * Accumulates all of the nodes in a holders contribution.
+     *
+     * <p>Equivalent to calling {@link #accumulateNode(Node)} for each node,
+     * but offers prefixes and suffixes to the meta stacks a slice at a time.</p>
+     *
+     * @param contribution the contribution
+     */
+    public void accumulateContribution(MetaContribution contribution) {
+        ensureState(State.ACCUMULATING);
+
+        // if a holder visited earlier has "cancelled out" some of the chat meta in
+        // the contribution, the precomputed slices can't be used
+        if (isPartiallySeen(contribution.getPrefixes()) || isPartiallySeen(contribution.getSuffixes())) {
+            for (Node node : contribution.getNodes()) {
+                accumulateNode(node, true);
+            }
+            return;
+        }
+
+        for (Node node : contribution.getNodes()) {
+            accumulateNode(node, false);
+        }
+        this.prefixAccumulator.offer(contribution.getPrefixes());
+        this.suffixAccumulator.offer(contribution.getSuffixes());
+    }
+
+    private boolean isPartiallySeen(MetaContribution.Slice<?> slice) {
+        for (ChatMetaNode<?, ?> node : slice.getNodes()) {
+            if (this.seenNodeKeys.contains(node.getKey())) {
+                return true;
+            }
+        }
+        return false;
+    }
 
+    private void accumulateNode(Node n, boolean offerToStacks) {
         // only process distinct nodes once, allows inheritance to be
         // "cancelled out" by assigning a false copy.
         if (!this.seenNodeKeys.add(n.getKey())) {
@@ -155,13 +194,17 @@ public class MetaAccumulator {
         if (n instanceof PrefixNode) {
             PrefixNode pn = (PrefixNode) n;
             this.prefixes.putIfAbsent(pn.getPriority(), StringResult.of(pn));
-            this.prefixAccumulator.offer(pn);
+            if (offerToStacks) {
+                this.prefixAccumulator.offer(pn);
+            }
         }
 
         if (n instanceof SuffixNode) {
             SuffixNode pn = (SuffixNode) n;
             this.suffixes.putIfAbsent(pn.getPriority(), StringResult.of(pn));
-            this.suffixAccumulator.offer(pn);
+            if (offerToStacks) {
+                this.suffixAccumulator.offer(pn);
+            }
         }
     }
 
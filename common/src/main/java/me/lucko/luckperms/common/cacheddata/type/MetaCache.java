@@ -57,9 +57,14 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Holds cached meta for a given context
+ *
+ * <p>If {@link ConfigKeys#LAZY_META_CACHE} is enabled, only the prefix/suffix stacks,
+ * weight and primary group are computed up front. Individual meta values are selected
+ * when first requested, and the full meta views are only built when needed.</p>
  */
 public class MetaCache extends UsageTracked implements CachedMetaData {
 
@@ -69,10 +74,7 @@ public class MetaCache extends UsageTracked implements CachedMetaData {
     private final QueryOptions queryOptions;
 
     /* The data */
-    private final Map<String, List<StringResult<MetaNode>>> meta;
-    private final Map<String, StringResult<MetaNode>> flattenedMeta;
-    private final SortedMap<Integer, StringResult<PrefixNode>> prefixes;
-    private final SortedMap<Integer, StringResult<SuffixNode>> suffixes;
+    private final MetaValueSelector metaValueSelector;
     private final IntegerResult<WeightNode> weight;
     private final String primaryGroup;
     private final MetaStackDefinition prefixDefinition;
@@ -80,44 +82,82 @@ public class MetaCache extends UsageTracked implements CachedMetaData {
     private final StringResult<PrefixNode> prefix;
     private final StringResult<SuffixNode> suffix;
 
+    /* The full views of the data, built lazily if enabled */
+    private volatile Views views;
+
+    /* The source data, held until the views have been built */
+    private MetaAccumulator sourceMeta;
+
+    /* Meta values selected before the views were built */
+    private final Map<String, StringResult<MetaNode>> selectedMeta;
+
     public MetaCache(LuckPermsPlugin plugin, QueryOptions queryOptions, MetaAccumulator sourceMeta) {
         this.plugin = plugin;
         this.queryOptions = queryOptions;
 
-        Map<String, List<StringResult<MetaNode>>> meta = Multimaps.asMap(ImmutableListMultimap.copyOf(sourceMeta.getMeta()));
-
-        MetaValueSelector metaValueSelector = this.queryOptions.option(MetaValueSelector.KEY)
+        this.metaValueSelector = this.queryOptions.option(MetaValueSelector.KEY)
                 .orElseGet(() -> this.plugin.getConfiguration().get(ConfigKeys.META_VALUE_SELECTOR));
 
-        ImmutableMap.Builder<String, StringResult<MetaNode>> builder = ImmutableMap.builder();
-        for (Map.Entry<String, List<StringResult<MetaNode>>> e : meta.entrySet()) {
-            if (e.getValue().isEmpty()) {
-                continue;
-            }
-
-            Result<String, MetaNode> selected = metaValueSelector.selectValue(e.getKey(), e.getValue());
-            if (selected == null) {
-                throw new NullPointerException(metaValueSelector + " returned null");
-            }
-
-            builder.put(e.getKey(), (StringResult<MetaNode>) selected);
-        }
-        this.flattenedMeta = builder.build();
-        this.meta = new LowerCaseMetaMap(meta);
-
-        this.prefixes = ImmutableSortedMap.copyOfSorted(sourceMeta.getPrefixes());
-        this.suffixes = ImmutableSortedMap.copyOfSorted(sourceMeta.getSuffixes());
         this.weight = sourceMeta.getWeight();
         this.primaryGroup = sourceMeta.getPrimaryGroup();
         this.prefixDefinition = sourceMeta.getPrefixDefinition();
         this.suffixDefinition = sourceMeta.getSuffixDefinition();
         this.prefix = sourceMeta.getPrefix();
         this.suffix = sourceMeta.getSuffix();
+
+        if (this.plugin.getConfiguration().get(ConfigKeys.LAZY_META_CACHE)) {
+            this.sourceMeta = sourceMeta;
+            this.selectedMeta = new ConcurrentHashMap<>();
+        } else {
+            this.views = new Views(sourceMeta, this.metaValueSelector);
+            this.selectedMeta = null;
+        }
+    }
+
+    private Views views() {
+        Views views = this.views;
+        if (views == null) {
+            synchronized (this) {
+                views = this.views;
+                if (views == null) {
+                    views = new Views(this.sourceMeta, this.metaValueSelector);
+                    this.views = views;
+                    this.sourceMeta = null; // free up for GC
+                }
+            }
+        }
+        return views;
+    }
+
+    private StringResult<MetaNode> selectMetaValue(String key) {
+        StringResult<MetaNode> value = this.selectedMeta.get(key);
+        if (value != null) {
+            return value;
+        }
+
+        synchronized (this) {
+            Views views = this.views;
+            if (views != null) {
+                return views.flattenedMeta.getOrDefault(key, StringResult.nullResult());
+            }
+
+            List<StringResult<MetaNode>> values = this.sourceMeta.getMeta().get(key);
+            value = values.isEmpty() ? StringResult.nullResult() : select(this.metaValueSelector, key, values);
+        }
+
+        this.selectedMeta.put(key, value);
+        return value;
     }
 
     public @NonNull StringResult<MetaNode> getMetaValue(String key, CheckOrigin origin) {
         Objects.requireNonNull(key, "key");
-        return this.flattenedMeta.getOrDefault(key.toLowerCase(Locale.ROOT), StringResult.nullResult());
+        key = key.toLowerCase(Locale.ROOT);
+
+        Views views = this.views;
+        if (views != null) {
+            return views.flattenedMeta.getOrDefault(key, StringResult.nullResult());
+        }
+        return selectMetaValue(key);
     }
 
     public @NonNull StringResult<PrefixNode> getPrefix(CheckOrigin origin) {
@@ -133,7 +173,7 @@ public class MetaCache extends UsageTracked implements CachedMetaData {
     }
 
     public @NonNull Map<String, List<StringResult<MetaNode>>> getMetaResults(CheckOrigin origin) {
-        return this.meta;
+        return views().meta;
     }
 
     public @Nullable String getPrimaryGroup(CheckOrigin origin) {
@@ -186,12 +226,12 @@ public class MetaCache extends UsageTracked implements CachedMetaData {
 
     @Override
     public @NonNull SortedMap<Integer, String> getPrefixes() {
-        return Maps.transformValues(this.prefixes, StringResult::result);
+        return Maps.transformValues(views().prefixes, StringResult::result);
     }
 
     @Override
     public @NonNull SortedMap<Integer, String> getSuffixes() {
-        return Maps.transformValues(this.suffixes, StringResult::result);
+        return Maps.transformValues(views().suffixes, StringResult::result);
     }
 
     @Override
@@ -209,6 +249,41 @@ public class MetaCache extends UsageTracked implements CachedMetaData {
         return this.queryOptions;
     }
 
+    private static StringResult<MetaNode> select(MetaValueSelector metaValueSelector, String key, List<StringResult<MetaNode>> values) {
+        Result<String, MetaNode> selected = metaValueSelector.selectValue(key, values);
+        if (selected == null) {
+            throw new NullPointerException(metaValueSelector + " returned null");
+        }
+        return (StringResult<MetaNode>) selected;
+    }
+
+    /**
+     * The full (immutable) views of the meta data.
+     */
+    private static final class Views {
+        private final Map<String, List<StringResult<MetaNode>>> meta;
+        private final Map<String, StringResult<MetaNode>> flattenedMeta;
+        private final SortedMap<Integer, StringResult<PrefixNode>> prefixes;
+        private final SortedMap<Integer, StringResult<SuffixNode>> suffixes;
+
+        Views(MetaAccumulator sourceMeta, MetaValueSelector metaValueSelector) {
+            Map<String, List<StringResult<MetaNode>>> meta = Multimaps.asMap(ImmutableListMultimap.copyOf(sourceMeta.getMeta()));
+
+            ImmutableMap.Builder<String, StringResult<MetaNode>> builder = ImmutableMap.builder();
+            for (Map.Entry<String, List<StringResult<MetaNode>>> e : meta.entrySet()) {
+                if (e.getValue().isEmpty()) {
+                    continue;
+                }
+                builder.put(e.getKey(), select(metaValueSelector, e.getKey(), e.getValue()));
+            }
+            this.flattenedMeta = builder.build();
+            this.meta = new LowerCaseMetaMap(meta);
+
+            this.prefixes = ImmutableSortedMap.copyOfSorted(sourceMeta.getPrefixes());
+            this.suffixes = ImmutableSortedMap.copyOfSorted(sourceMeta.getSuffixes());
+        }
+    }
+
     private static final class LowerCaseMetaMap extends ForwardingMap<String, List<StringResult<MetaNode>>> {
         private final Map<String, List<StringResult<MetaNode>>> delegate;
 
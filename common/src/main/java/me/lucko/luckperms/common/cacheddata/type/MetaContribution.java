@@ -0,0 +1,134 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.cacheddata.type;
+
+import com.google.common.collect.ImmutableList;
+import me.lucko.luckperms.common.cacheddata.metastack.FluentMetaStackElement.Selection;
+import net.luckperms.api.node.Node;
+import net.luckperms.api.node.types.ChatMetaNode;
+import net.luckperms.api.node.types.PrefixNode;
+import net.luckperms.api.node.types.SuffixNode;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The meta nodes contributed by a single holder to a {@link MetaAccumulator},
+ * along with a summary of its prefixes and suffixes that can be offered to
+ * a {@link MetaStackAccumulator} in one step.
+ *
+ * <p>All nodes in a contribution must originate from the same holder.</p>
+ */
+public final class MetaContribution {
+
+    public static MetaContribution of(List<Node> nodes) {
+        return new MetaContribution(nodes);
+    }
+
+    private final List<Node> nodes;
+    private final Slice<PrefixNode> prefixes;
+    private final Slice<SuffixNode> suffixes;
+
+    private MetaContribution(List<Node> nodes) {
+        this.nodes = ImmutableList.copyOf(nodes);
+
+        ImmutableList.Builder<PrefixNode> prefixes = ImmutableList.builder();
+        ImmutableList.Builder<SuffixNode> suffixes = ImmutableList.builder();
+
+        // mirror the filtering applied by MetaAccumulator#accumulateNode
+        Set<String> seenNodeKeys = new HashSet<>();
+        for (Node node : this.nodes) {
+            if (!seenNodeKeys.add(node.getKey()) || !node.getValue()) {
+                continue;
+            }
+            if (node instanceof PrefixNode) {
+                prefixes.add((PrefixNode) node);
+            } else if (node instanceof SuffixNode) {
+                suffixes.add((SuffixNode) node);
+            }
+        }
+
+        this.prefixes = new Slice<>(prefixes.build());
+        this.suffixes = new Slice<>(suffixes.build());
+    }
+
+    public List<Node> getNodes() {
+        return this.nodes;
+    }
+
+    public Slice<PrefixNode> getPrefixes() {
+        return this.prefixes;
+    }
+
+    public Slice<SuffixNode> getSuffixes() {
+        return this.suffixes;
+    }
+
+    /**
+     * The distinct, enabled chat meta nodes of a single type within a contribution.
+     *
+     * @param <N> the node type
+     */
+    public static final class Slice<N extends ChatMetaNode<?, ?>> {
+        private final List<N> nodes;
+        private final @Nullable N highest;
+        private final @Nullable N lowest;
+
+        Slice(List<N> nodes) {
+            this.nodes = nodes;
+
+            N highest = null;
+            N lowest = null;
+            for (N node : nodes) {
+                highest = Selection.HIGHEST_PRIORITY.select(highest, node);
+                lowest = Selection.LOWEST_PRIORITY.select(lowest, node);
+            }
+            this.highest = highest;
+            this.lowest = lowest;
+        }
+
+        public List<N> getNodes() {
+            return this.nodes;
+        }
+
+        public boolean isEmpty() {
+            return this.nodes.isEmpty();
+        }
+
+        /**
+         * Gets the node that would be chosen by the given selection if every node
+         * in the slice was offered in order.
+         *
+         * @param selection the selection
+         * @return the selected node
+         */
+        public @Nullable N getSelected(Selection selection) {
+            return selection == Selection.HIGHEST_PRIORITY ? this.highest : this.lowest;
+        }
+    }
+}
@@ -25,6 +25,8 @@
 
 package me.lucko.luckperms.common.cacheddata.type;
 
+import me.lucko.luckperms.common.cacheddata.metastack.FluentMetaStackElement;
+import me.lucko.luckperms.common.cacheddata.metastack.FluentMetaStackElement.Selection;
 import me.lucko.luckperms.common.cacheddata.result.StringResult;
 import net.luckperms.api.metastacking.MetaStackDefinition;
 import net.luckperms.api.metastacking.MetaStackElement;
@@ -59,6 +61,35 @@ public class MetaStackAccumulator<N extends ChatMetaNode<N, ?>> {
         }
     }
 
+    /**
+     * Offers every node in the slice, in order.
+     *
+     * <p>Elements with a {@link Selection} are only offered the node they
+     * would have ended up choosing from the slice, as the outcome of their
+     * other checks is the same for every node from a single holder.</p>
+     *
+     * @param slice the slice
+     */
+    public void offer(MetaContribution.Slice<N> slice) {
+        if (slice.isEmpty()) {
+            return;
+        }
+
+        for (Entry<N> entry : this.entries) {
+            Selection selection = entry.selection;
+            if (selection != null) {
+                N selected = slice.getSelected(selection);
+                if (selected != null) {
+                    entry.offer(selected);
+                }
+            } else {
+                for (N node : slice.getNodes()) {
+                    entry.offer(node);
+                }
+            }
+        }
+    }
+
     public List<N> getElements() {
         return this.entries.stream()
                 .map(Entry::getNode)
@@ -135,12 +166,14 @@ public class MetaStackAccumulator<N extends ChatMetaNode<N, ?>> {
     private static final class Entry<N extends ChatMetaNode<?, ?>> {
         private final MetaStackElement element;
         private final ChatMetaType type;
+        private final @Nullable Selection selection;
 
         private @Nullable N current = null;
 
         Entry(MetaStackElement element, ChatMetaType type) {
             this.element = element;
             this.type = type;
+            this.selection = element instanceof FluentMetaStackElement ? ((FluentMetaStackElement) element).getSelection() : null;
         }
 
         public N getNode() {
@@ -29,6 +29,8 @@ import me.lucko.luckperms.common.cache.LoadingMap;
 import me.lucko.luckperms.common.cacheddata.CacheMetadata;
 import me.lucko.luckperms.common.cacheddata.result.TristateResult;
 import me.lucko.luckperms.common.calculator.processor.PermissionProcessor;
+import me.lucko.luckperms.common.metrics.Counter;
+import me.lucko.luckperms.common.metrics.MetricsRegistry;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.verbose.event.CheckOrigin;
 import net.luckperms.api.node.Node;
@@ -37,6 +39,7 @@ import org.checkerframework.checker.nullness.qual.NonNull;
 import java.util.Collection;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
 
 /**
@@ -56,10 +59,18 @@ public class PermissionCalculator implements Function<String, TristateResult> {
     /** Loading cache for permission checks */
     private final LoadingMap<String, TristateResult> lookupCache = LoadingMap.of(this);
 
+    /** Metrics for the number of checks, and the number of checks which missed the lookup cache */
+    private final Counter checks;
+    private final Counter cacheMisses;
+
     public PermissionCalculator(LuckPermsPlugin plugin, CacheMetadata metadata, Collection<PermissionProcessor> processors) {
         this.plugin = plugin;
         this.metadata = metadata;
         this.processors = processors.toArray(new PermissionProcessor[0]);
+
+        MetricsRegistry metrics = plugin.getMetrics();
+        this.checks = metrics.counter("permission_checks_total", "Permission checks performed against permission calculators");
+        this.cacheMisses = metrics.counter("permission_check_cache_misses_total", "Permission checks which were not cached, and had to be calculated by the processors");
     }
 
     /**
@@ -74,6 +85,7 @@ public class PermissionCalculator implements Function<String, TristateResult> {
     public TristateResult checkPermission(String permission, CheckOrigin origin) {
         // get the result
         TristateResult result = this.lookupCache.get(permission);
+        this.checks.increment();
 
         // log this permission lookup to the verbose handler
         this.plugin.getVerboseHandler().offerPermissionCheckEvent(origin, this.metadata.getVerboseCheckInfo(), this.metadata.getQueryOptions(), permission, result);
@@ -87,6 +99,7 @@ public class PermissionCalculator implements Function<String, TristateResult> {
         // convert the permission to lowercase, as all values in the backing map are also lowercase.
         // this allows fast case insensitive lookups
         permission = permission.toLowerCase(Locale.ROOT);
+        this.cacheMisses.increment();
 
         // offer the permission to the permission vault
         // we only need to do this once per permission, so it doesn't matter
@@ -119,4 +132,16 @@ public class PermissionCalculator implements Function<String, TristateResult> {
         }
         this.lookupCache.clear();
     }
+
+    /**
+     * Invalidates the cached results for the given permissions only.
+     *
+     * <p>This should only be used when the processors themselves don't need to
+     * be refreshed.</p>
+     *
+     * @param permissions the permissions, in lower case
+     */
+    public void invalidateCache(Set<String> permissions) {
+        this.lookupCache.keySet().removeIf(permission -> permissions.contains(permission.toLowerCase(Locale.ROOT)));
+    }
 }
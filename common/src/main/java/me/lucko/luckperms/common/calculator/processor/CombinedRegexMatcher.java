@@ -0,0 +1,229 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.calculator.processor;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Matches an input against a number of patterns, returning the value associated
+ * with the first (in order of priority) pattern which matches.
+ *
+ * <p>Rather than trying each pattern in turn, the literal prefix required by
+ * each pattern is worked out in advance, and the patterns are indexed by their
+ * prefix in a trie. Only the patterns with a prefix of the input are then
+ * evaluated.</p>
+ *
+ * @param <T> the value type
+ */
+public final class CombinedRegexMatcher<T> {
+
+    private static final CombinedRegexMatcher<?> EMPTY = new CombinedRegexMatcher<>(new ArrayList<>());
+
+    @SuppressWarnings("unchecked")
+    public static <T> CombinedRegexMatcher<T> empty() {
+        return (CombinedRegexMatcher<T>) EMPTY;
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    private final Pattern[] patterns;
+    private final Object[] values;
+    private final TrieNode root = new TrieNode();
+
+    private CombinedRegexMatcher(List<Entry<T>> entries) {
+        this.patterns = new Pattern[entries.size()];
+        this.values = new Object[entries.size()];
+
+        for (int i = 0; i < entries.size(); i++) {
+            Entry<T> entry = entries.get(i);
+            this.patterns[i] = entry.pattern;
+            this.values[i] = entry.value;
+
+            TrieNode node = this.root;
+            String prefix = literalPrefix(entry.pattern.pattern());
+            for (int j = 0; j < prefix.length(); j++) {
+                node = node.children.computeIfAbsent(prefix.charAt(j), c -> new TrieNode());
+            }
+            node.patterns.set(i);
+        }
+    }
+
+    public boolean isEmpty() {
+        return this.patterns.length == 0;
+    }
+
+    /**
+     * Gets the value of the first pattern which matches the input.
+     *
+     * @param input the input
+     * @return the value, or null if no patterns match
+     */
+    @SuppressWarnings("unchecked")
+    public T match(String input) {
+        if (this.patterns.length == 0) {
+            return null;
+        }
+
+        // collect the patterns which could possibly match, based on their prefix
+        BitSet candidates = (BitSet) this.root.patterns.clone();
+        TrieNode node = this.root;
+        for (int i = 0; i < input.length(); i++) {
+            node = node.children.get(input.charAt(i));
+            if (node == null) {
+                break;
+            }
+            candidates.or(node.patterns);
+        }
+
+        // then try them in order
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            if (this.patterns[i].matcher(input).matches()) {
+                return (T) this.values[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Works out the literal prefix which any input matching the regex must start with.
+     *
+     * <p>This is intentionally conservative - if in doubt, a shorter prefix is returned.</p>
+     *
+     * @param regex the regex
+     * @return the literal prefix, possibly empty
+     */
+    static String literalPrefix(String regex) {
+        if (hasTopLevelAlternation(regex)) {
+            return "";
+        }
+
+        StringBuilder prefix = new StringBuilder();
+        int i = regex.startsWith("^") ? 1 : 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            int next;
+            if (c == '\\') {
+                // only escaped punctuation is a literal, anything else is a character class, quote, etc
+                if (i + 1 >= regex.length() || Character.isLetterOrDigit(regex.charAt(i + 1))) {
+                    break;
+                }
+                c = regex.charAt(i + 1);
+                next = i + 2;
+            } else if (".[](){}*+?^$|".indexOf(c) != -1) {
+                break;
+            } else {
+                next = i + 1;
+            }
+
+            // check if the character is quantified
+            if (next < regex.length()) {
+                char quantifier = regex.charAt(next);
+                if (quantifier == '?' || quantifier == '*' || quantifier == '{') {
+                    break;
+                }
+                if (quantifier == '+') {
+                    prefix.append(c);
+                    break;
+                }
+            }
+
+            prefix.append(c);
+            i = next;
+        }
+        return prefix.toString();
+    }
+
+    private static boolean hasTopLevelAlternation(String regex) {
+        int depth = 0;
+        boolean inClass = false;
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (inClass) {
+                if (c == ']') {
+                    inClass = false;
+                }
+            } else if (c == '[') {
+                inClass = true;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '|' && depth <= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class TrieNode {
+        private final Map<Character, TrieNode> children = new HashMap<>();
+        private final BitSet patterns = new BitSet();
+    }
+
+    private static final class Entry<T> {
+        private final Pattern pattern;
+        private final T value;
+
+        Entry(Pattern pattern, T value) {
+            this.pattern = pattern;
+            this.value = value;
+        }
+    }
+
+    public static final class Builder<T> {
+        private final List<Entry<T>> entries = new ArrayList<>();
+
+        private Builder() {
+
+        }
+
+        /**
+         * Adds a pattern, with a lower priority than any already added.
+         *
+         * @param pattern the pattern
+         * @param value the value to return when the pattern matches
+         * @return this builder
+         */
+        public Builder<T> add(Pattern pattern, T value) {
+            this.entries.add(new Entry<>(pattern, value));
+            return this;
+        }
+
+        public CombinedRegexMatcher<T> build() {
+            return this.entries.isEmpty() ? empty() : new CombinedRegexMatcher<>(this.entries);
+        }
+    }
+
+}
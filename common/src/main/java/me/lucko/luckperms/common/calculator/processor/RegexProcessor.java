@@ -25,35 +25,27 @@
 
 package me.lucko.luckperms.common.calculator.processor;
 
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Maps;
 import me.lucko.luckperms.common.cacheddata.result.TristateResult;
 import me.lucko.luckperms.common.node.types.RegexPermission;
 import net.luckperms.api.node.Node;
 
-import java.util.Collections;
-import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
 
 public class RegexProcessor extends AbstractSourceBasedProcessor implements PermissionProcessor {
     private static final TristateResult.Factory RESULT_FACTORY = new TristateResult.Factory(RegexProcessor.class);
 
-    private List<Map.Entry<Pattern, TristateResult>> regexPermissions = Collections.emptyList();
+    private CombinedRegexMatcher<TristateResult> regexPermissions = CombinedRegexMatcher.empty();
 
     @Override
     public TristateResult hasPermission(String permission) {
-        for (Map.Entry<Pattern, TristateResult> e : this.regexPermissions) {
-            if (e.getKey().matcher(permission).matches()) {
-                return e.getValue();
-            }
-        }
-        return TristateResult.UNDEFINED;
+        TristateResult result = this.regexPermissions.match(permission);
+        return result != null ? result : TristateResult.UNDEFINED;
     }
 
     @Override
     public void refresh() {
-        ImmutableList.Builder<Map.Entry<Pattern, TristateResult>> builder = ImmutableList.builder();
+        CombinedRegexMatcher.Builder<TristateResult> builder = CombinedRegexMatcher.builder();
         for (Map.Entry<String, Node> e : this.sourceMap.entrySet()) {
             RegexPermission.Builder regexPerm = RegexPermission.parse(e.getKey());
             if (regexPerm == null) {
@@ -66,7 +58,7 @@ public class RegexProcessor extends AbstractSourceBasedProcessor implements Perm
             }
 
             TristateResult value = RESULT_FACTORY.result(e.getValue());
-            builder.add(Maps.immutableEntry(pattern, value));
+            builder.add(pattern, value);
         }
         this.regexPermissions = builder.build();
     }
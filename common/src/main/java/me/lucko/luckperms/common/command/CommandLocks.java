@@ -0,0 +1,305 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.command;
+
+import com.google.common.collect.ImmutableSet;
+import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.User;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.util.Uuids;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Controls which commands are allowed to execute at the same time.
+ *
+ * <p>Each command is given a set of keys for the users, groups and tracks it
+ * modifies. Commands are queued behind any earlier command which shares one of
+ * their keys, so they are serialized with other commands for the same targets,
+ * but can run alongside everything else. Commands which operate on all of the
+ * data at once (imports, bulk updates, renames, etc) use the global key, and are
+ * queued behind every earlier command.</p>
+ *
+ * <p>Commands are only handed to the executor once they are able to run, so a
+ * queued command never occupies an executor thread.</p>
+ */
+public class CommandLocks {
+
+    /** The key used for commands which can run alongside any other command */
+    public static final String SHARED = "shared";
+
+    /** The key used for commands which must run on their own */
+    public static final String GLOBAL = "global";
+
+    private static final Set<String> SHARED_KEYS = ImmutableSet.of(SHARED);
+    private static final Set<String> GLOBAL_KEYS = ImmutableSet.of(GLOBAL);
+
+    /** Commands which don't target anything, and only read data */
+    private static final Set<String> SHARED_COMMANDS = ImmutableSet.of(
+            "info", "editor", "verbose", "tree", "search", "export", "contextstats",
+            "metrics", "translations", "trusteditor", "log", "listgroups", "listtracks"
+    );
+
+    /** Holder subcommands which modify more than just the target holder */
+    private static final Set<String> GLOBAL_HOLDER_COMMANDS = ImmutableSet.of("rename", "clone");
+
+    /** Parent subcommands which take a group as their first argument */
+    private static final Set<String> GROUP_PARENT_COMMANDS = ImmutableSet.of(
+            "set", "add", "remove", "addtemp", "removetemp", "switchprimarygroup"
+    );
+
+    /** Parent subcommands which take a track as their first argument */
+    private static final Set<String> TRACK_PARENT_COMMANDS = ImmutableSet.of("settrack", "cleartrack");
+
+    private final LuckPermsPlugin plugin;
+
+    /** The last scheduled command for each key */
+    private final Map<String, CompletableFuture<Void>> tails = new HashMap<>();
+    /** The non-global commands scheduled since the last global command */
+    private final Set<CompletableFuture<Void>> sinceGlobal = new HashSet<>();
+    /** The last scheduled global command */
+    private CompletableFuture<Void> globalTail = CompletableFuture.completedFuture(null);
+
+    public CommandLocks(LuckPermsPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Gets the keys a command should hold whilst executing.
+     *
+     * <p>Convenience aliases are expected to have already been applied to
+     * the arguments.</p>
+     *
+     * <p>Targets are resolved to the same identifier the command itself will
+     * resolve them to. Users which can't be resolved without a lookup are
+     * keyed on their (case-insensitive) username instead.</p>
+     *
+     * @param arguments the command arguments
+     * @return the keys
+     */
+    public Set<String> getLockKeys(List<String> arguments) {
+        if (arguments.isEmpty()) {
+            return SHARED_KEYS;
+        }
+
+        String command = arguments.get(0).toLowerCase(Locale.ROOT);
+        if (arguments.size() < 2) {
+            // without a target, the command just prints its usage
+            return SHARED_COMMANDS.contains(command) || isTargetedCommand(command) ? SHARED_KEYS : GLOBAL_KEYS;
+        }
+
+        String target = arguments.get(1);
+        Set<String> keys = new LinkedHashSet<>();
+        switch (command) {
+            case "user":
+                keys.add(userKey(target));
+                addHolderSubcommandKeys(arguments, keys);
+                break;
+            case "group":
+                keys.add(groupKey(target));
+                addHolderSubcommandKeys(arguments, keys);
+                break;
+            case "track":
+                keys.add(trackKey(target));
+                addTrackSubcommandKeys(arguments, keys);
+                break;
+            case "creategroup":
+                keys.add(groupKey(target));
+                break;
+            case "createtrack":
+            case "deletetrack":
+                keys.add(trackKey(target));
+                break;
+            case "deletegroup":
+                // removes the group from every holder which inherits it
+                return GLOBAL_KEYS;
+            default:
+                return SHARED_COMMANDS.contains(command) ? SHARED_KEYS : GLOBAL_KEYS;
+        }
+
+        return keys.contains(GLOBAL) ? GLOBAL_KEYS : ImmutableSet.copyOf(keys);
+    }
+
+    private static boolean isTargetedCommand(String command) {
+        switch (command) {
+            case "user":
+            case "group":
+            case "track":
+            case "creategroup":
+            case "deletegroup":
+            case "createtrack":
+            case "deletetrack":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void addHolderSubcommandKeys(List<String> arguments, Set<String> keys) {
+        if (arguments.size() < 3) {
+            return;
+        }
+
+        String subcommand = arguments.get(2).toLowerCase(Locale.ROOT);
+        if (GLOBAL_HOLDER_COMMANDS.contains(subcommand)) {
+            keys.add(GLOBAL);
+        } else if (subcommand.equals("parent") && arguments.size() >= 5) {
+            String parentCommand = arguments.get(3).toLowerCase(Locale.ROOT);
+            if (GROUP_PARENT_COMMANDS.contains(parentCommand)) {
+                keys.add(groupKey(arguments.get(4)));
+            } else if (TRACK_PARENT_COMMANDS.contains(parentCommand)) {
+                keys.add(trackKey(arguments.get(4)));
+                if (parentCommand.equals("settrack") && arguments.size() >= 6) {
+                    keys.add(groupKey(arguments.get(5)));
+                }
+            }
+        } else if ((subcommand.equals("promote") || subcommand.equals("demote")) && arguments.size() >= 4) {
+            keys.add(trackKey(arguments.get(3)));
+        }
+    }
+
+    private void addTrackSubcommandKeys(List<String> arguments, Set<String> keys) {
+        if (arguments.size() < 3) {
+            return;
+        }
+
+        String subcommand = arguments.get(2).toLowerCase(Locale.ROOT);
+        switch (subcommand) {
+            case "rename":
+            case "clone":
+                keys.add(GLOBAL);
+                break;
+            case "append":
+            case "insert":
+            case "remove":
+                if (arguments.size() >= 4) {
+                    keys.add(groupKey(arguments.get(3)));
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private String userKey(String target) {
+        UUID uniqueId = Uuids.parse(target);
+        if (uniqueId == null) {
+            User user = this.plugin.getUserManager().getByUsername(target);
+            if (user == null) {
+                // resolving the username would need a lookup, which we don't want to
+                // do before the command is scheduled
+                return "username/" + target.toLowerCase(Locale.ROOT);
+            }
+            uniqueId = user.getUniqueId();
+        }
+        return "user/" + uniqueId;
+    }
+
+    private String groupKey(String target) {
+        Group group = this.plugin.getGroupManager().getByDisplayName(target);
+        return "group/" + (group != null ? group.getName() : target.toLowerCase(Locale.ROOT));
+    }
+
+    private static String trackKey(String target) {
+        return "track/" + target.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Schedules a task to be executed once every earlier command which shares
+     * one of its keys has completed.
+     *
+     * @param keys the lock keys, see {@link #getLockKeys(List)}
+     * @param previous an additional future to wait for, or null
+     * @param task the task
+     * @param executor the executor to run the task on
+     * @param onContention called if the task is not immediately able to run
+     * @return a future which completes once the task has been executed
+     */
+    public CompletableFuture<Void> schedule(Set<String> keys, CompletableFuture<?> previous, Runnable task, Executor executor, Runnable onContention) {
+        List<CompletableFuture<?>> dependencies = new ArrayList<>();
+        CompletableFuture<Void> future;
+
+        synchronized (this) {
+            dependencies.add(this.globalTail);
+            if (keys.contains(GLOBAL)) {
+                dependencies.addAll(this.sinceGlobal);
+            } else {
+                for (String key : keys) {
+                    CompletableFuture<Void> tail = this.tails.get(key);
+                    if (tail != null) {
+                        dependencies.add(tail);
+                    }
+                }
+            }
+
+            // dependencies which failed are treated the same as those which completed
+            future = CompletableFuture.allOf(dependencies.toArray(new CompletableFuture[0]))
+                    .handle((result, ex) -> null)
+                    .thenCompose(v -> previous == null ? CompletableFuture.completedFuture(null) : previous.handle((result, ex) -> null))
+                    .thenRunAsync(task, executor);
+
+            if (keys.contains(GLOBAL)) {
+                // later commands wait for this one, which waits for everything before it
+                this.globalTail = future;
+                this.sinceGlobal.clear();
+                this.tails.clear();
+            } else {
+                this.sinceGlobal.add(future);
+                for (String key : keys) {
+                    if (!key.equals(SHARED)) {
+                        this.tails.put(key, future);
+                    }
+                }
+            }
+        }
+
+        CompletableFuture<Void> scheduled = future;
+        scheduled.whenComplete((result, ex) -> release(keys, scheduled));
+
+        if (dependencies.stream().anyMatch(f -> !f.isDone())) {
+            onContention.run();
+        }
+        return scheduled;
+    }
+
+    private synchronized void release(Set<String> keys, CompletableFuture<Void> future) {
+        this.sinceGlobal.remove(future);
+        for (String key : keys) {
+            this.tails.remove(key, future);
+        }
+    }
+
+}
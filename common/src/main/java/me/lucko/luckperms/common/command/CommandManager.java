@@ -41,10 +41,12 @@ import me.lucko.luckperms.common.commands.group.ListGroups;
 import me.lucko.luckperms.common.commands.log.LogParentCommand;
 import me.lucko.luckperms.common.commands.misc.ApplyEditsCommand;
 import me.lucko.luckperms.common.commands.misc.BulkUpdateCommand;
+import me.lucko.luckperms.common.commands.misc.ContextStatsCommand;
 import me.lucko.luckperms.common.commands.misc.EditorCommand;
 import me.lucko.luckperms.common.commands.misc.ExportCommand;
 import me.lucko.luckperms.common.commands.misc.ImportCommand;
 import me.lucko.luckperms.common.commands.misc.InfoCommand;
+import me.lucko.luckperms.common.commands.misc.MetricsCommand;
 import me.lucko.luckperms.common.commands.misc.NetworkSyncCommand;
 import me.lucko.luckperms.common.commands.misc.ReloadConfigCommand;
 import me.lucko.luckperms.common.commands.misc.SearchCommand;
@@ -60,6 +62,7 @@ import me.lucko.luckperms.common.commands.track.TrackParentCommand;
 import me.lucko.luckperms.common.commands.user.UserParentCommand;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.locale.Message;
+import me.lucko.luckperms.common.metrics.MetricsRegistry;
 import me.lucko.luckperms.common.model.Group;
 import me.lucko.luckperms.common.plugin.AbstractLuckPermsPlugin;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
@@ -82,10 +85,10 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -95,19 +98,24 @@ import java.util.stream.Collectors;
  */
 public class CommandManager {
 
+    /** The number of commands which can be executed at the same time */
+    private static final int EXECUTOR_THREADS = 4;
+
     private final LuckPermsPlugin plugin;
-    private final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+    private final ExecutorService executor = Executors.newFixedThreadPool(EXECUTOR_THREADS, new ThreadFactoryBuilder()
             .setDaemon(true)
-            .setNameFormat("luckperms-command-executor")
+            .setNameFormat("luckperms-command-executor-%d")
             .build()
     );
-    private final AtomicBoolean executingCommand = new AtomicBoolean(false);
-    private final Set<UUID> playerRateLimit = ExpiringSet.newExpiringSet(500, TimeUnit.MILLISECONDS);
+    private final CommandLocks locks;
+    private final Map<UUID, CompletableFuture<Void>> senderQueues = new ConcurrentHashMap<>();
+    private final ExpiringSet<UUID> playerRateLimit = ExpiringSet.newExpiringSet(500, TimeUnit.MILLISECONDS);
     private final TabCompletions tabCompletions;
     private final Map<String, Command<?>> mainCommands;
 
     public CommandManager(LuckPermsPlugin plugin) {
         this.plugin = plugin;
+        this.locks = new CommandLocks(plugin);
         this.tabCompletions = new TabCompletions(plugin);
         this.mainCommands = ImmutableList.<Command<?>>builder()
                 .add(new UserParentCommand())
@@ -125,6 +133,8 @@ public class CommandManager {
                 .add(new ImportCommand())
                 .add(new ExportCommand())
                 .add(new ReloadConfigCommand())
+                .add(new ContextStatsCommand())
+                .add(new MetricsCommand())
                 .add(new BulkUpdateCommand())
                 .add(new TranslationsCommand())
                 .add(new ApplyEditsCommand())
@@ -163,31 +173,30 @@ public class CommandManager {
         SchedulerAdapter scheduler = this.plugin.getBootstrap().getScheduler();
         List<String> argsCopy = new ArrayList<>(args);
 
-        // if the executingCommand flag is set, there is another command executing at the moment
-        if (this.executingCommand.get()) {
-            Message.ALREADY_EXECUTING_COMMAND.send(sender);
-        }
+        // work out which other commands this command can't run alongside
+        List<String> resolvedArgs = new ArrayList<>(args);
+        applyConvenienceAliases(resolvedArgs, true);
+        Set<String> lockKeys = this.locks.getLockKeys(resolvedArgs);
+        String commandName = metricsName(resolvedArgs);
 
         // a reference to the thread being used to execute the command
         AtomicReference<Thread> executorThread = new AtomicReference<>();
         // a reference to the timeout task scheduled to catch if this command takes too long to execute
         AtomicReference<SchedulerTask> timeoutTask = new AtomicReference<>();
 
-        // schedule the actual execution of the command using the command executor service
-        CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
-            // set flags
+        long queuedTime = System.nanoTime();
+        Runnable task = () -> {
             executorThread.set(Thread.currentThread());
-            this.executingCommand.set(true);
 
-            // actually try to execute the command
+            // try to execute the command
+            long startTime = System.nanoTime();
             try {
                 execute(sender, label, args);
             } catch (Throwable e) {
                 // catch any exception
                 this.plugin.getLogger().severe("Exception whilst executing command: " + args, e);
             } finally {
-                // unset flags
-                this.executingCommand.set(false);
+                recordTimings(commandName, startTime - queuedTime, System.nanoTime() - startTime);
                 executorThread.set(null);
 
                 // cancel the timeout task
@@ -196,7 +205,15 @@ public class CommandManager {
                     timeout.cancel();
                 }
             }
-        }, this.executor);
+        };
+
+        // schedule the actual execution of the command using the command executor service, once
+        // any other commands using the same targets have finished
+        // commands sent by the same sender are executed in the order they were received
+        CompletableFuture<Void> future = this.senderQueues.compute(uniqueId, (id, previous) ->
+                this.locks.schedule(lockKeys, previous, task, this.executor, () -> Message.ALREADY_EXECUTING_COMMAND.send(sender))
+        );
+        future.whenComplete((result, ex) -> this.senderQueues.remove(uniqueId, future));
 
         // schedule another task to catch if the command doesn't complete after 10 seconds
         timeoutTask.set(scheduler.asyncLater(() -> {
@@ -208,6 +225,23 @@ public class CommandManager {
         return future;
     }
 
+    private String metricsName(List<String> arguments) {
+        // only label with known commands, so arbitrary input can't create new metrics
+        if (arguments.isEmpty()) {
+            return "none";
+        }
+        String command = arguments.get(0).toLowerCase(Locale.ROOT);
+        return this.mainCommands.containsKey(command) ? command : "unknown";
+    }
+
+    private void recordTimings(String command, long waitTime, long executionTime) {
+        MetricsRegistry metrics = this.plugin.getMetrics();
+        metrics.timer("command_wait_time", "Time commands spent waiting for other commands to complete before executing", "command", command)
+                .record(waitTime);
+        metrics.timer("command_execution_time", "Time taken to execute commands", "command", command)
+                .record(executionTime);
+    }
+
     private void handleCommandTimeout(AtomicReference<Thread> thread, List<String> args) {
         Thread executorThread = thread.get();
         if (executorThread == null) {
@@ -42,6 +42,8 @@ public enum CommandPermission {
     IMPORT("import", Type.NONE),
     EXPORT("export", Type.NONE),
     RELOAD_CONFIG("reloadconfig", Type.NONE),
+    CONTEXT_STATS("contextstats", Type.NONE),
+    METRICS("metrics", Type.NONE),
     BULK_UPDATE("bulkupdate", Type.NONE),
     APPLY_EDITS("applyedits", Type.NONE),
     TRUST_EDITOR("trusteditor", Type.NONE),
@@ -76,6 +76,10 @@ public enum CommandSpec {
             arg("upload", "--upload", false)
     ),
     RELOAD_CONFIG("/%s reloadconfig"),
+    CONTEXT_STATS("/%s contextstats"),
+    METRICS("/%s metrics [filter]",
+            arg("filter", false)
+    ),
     BULK_UPDATE("/%s bulkupdate",
             arg("data type", true),
             arg("action", true),
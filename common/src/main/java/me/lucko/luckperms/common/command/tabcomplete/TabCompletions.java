@@ -25,18 +25,17 @@
 
 package me.lucko.luckperms.common.command.tabcomplete;
 
-import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableMap;
+import me.lucko.luckperms.common.cache.ExpiringCache;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
-import me.lucko.luckperms.common.treeview.PermissionRegistry;
-import me.lucko.luckperms.common.treeview.TreeNode;
-import me.lucko.luckperms.common.util.Predicates;
+import me.lucko.luckperms.common.util.PrefixIndex;
 import net.luckperms.api.context.ImmutableContextSet;
 
-import java.util.ArrayList;
 import java.util.Collections;
-import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -46,72 +45,48 @@ public final class TabCompletions {
 
     private static final CompletionSupplier BOOLEAN = CompletionSupplier.startsWith("true", "false");
 
+    /** The maximum number of completions to return for groups, tracks, permissions and contexts */
+    private static final int MAX_COMPLETIONS = 100;
+
     private final CompletionSupplier groups;
     private final CompletionSupplier tracks;
     private final CompletionSupplier permissions;
     private final CompletionSupplier contexts;
 
     public TabCompletions(LuckPermsPlugin plugin) {
-        this.groups = CompletionSupplier.startsWith(() -> plugin.getGroupManager().getAll().keySet().stream());
-        this.tracks = CompletionSupplier.startsWith(() -> plugin.getTrackManager().getAll().keySet().stream());
-        this.permissions = partial -> {
-            PermissionRegistry cache = plugin.getPermissionRegistry();
-
-            String start = partial.toLowerCase(Locale.ROOT);
-            List<String> parts = new ArrayList<>(Splitter.on('.').splitToList(start));
-            TreeNode root = cache.getRootNode();
-
-            if (parts.size() <= 1) {
-                if (!root.getChildren().isPresent()) {
-                    return Collections.emptyList();
-                }
-
-                return CompletionSupplier.startsWith(root.getChildren().get().keySet()).supplyCompletions(start);
-            }
-
-            String incomplete = parts.remove(parts.size() - 1);
-
-            for (String s : parts) {
-                if (!root.getChildren().isPresent()) {
-                    return Collections.emptyList();
-                }
-
-                TreeNode n = root.getChildren().get().get(s);
-                if (n == null) {
-                    return Collections.emptyList();
-                }
-
-                root = n;
-            }
-
-            if (!root.getChildren().isPresent()) {
-                return Collections.emptyList();
+        this.groups = partial -> plugin.getGroupManager().getNameIndex().startsWith(partial, MAX_COMPLETIONS);
+        this.tracks = partial -> plugin.getTrackManager().getNameIndex().startsWith(partial, MAX_COMPLETIONS);
+        this.permissions = partial -> plugin.getPermissionRegistry().complete(partial, MAX_COMPLETIONS);
+
+        // estimating the potential contexts is relatively expensive, so cache the result between keystrokes
+        ExpiringCache<ContextIndex> contextIndex = new ExpiringCache<ContextIndex>(10, TimeUnit.SECONDS) {
+            @Override
+            protected ContextIndex supply() {
+                return new ContextIndex(plugin.getContextManager().getPotentialContexts());
             }
-
-            return root.getChildren().get().keySet().stream()
-                    .filter(Predicates.startsWithIgnoreCase(incomplete))
-                    .map(s -> String.join(".", parts) + "." + s)
-                    .collect(Collectors.toList());
         };
         this.contexts = partial -> {
-            ImmutableContextSet potentialContexts = plugin.getContextManager().getPotentialContexts();
+            ContextIndex index = contextIndex.get();
 
-            int index = partial.indexOf('=');
-            if (index == -1) {
+            int equals = partial.indexOf('=');
+            if (equals == -1) {
                 // cursor is specifying the key
-                return CompletionSupplier.contains(potentialContexts.toMap().keySet()).supplyCompletions(partial);
+                return CompletionSupplier.contains(index.keys).supplyCompletions(partial);
             }
 
             // cursor is specifying the value
-            String key = partial.substring(0, index);
+            String key = partial.substring(0, equals);
             if (key.isEmpty() || key.trim().isEmpty()) {
                 return Collections.emptyList();
             }
 
-            String value = partial.substring(index + 1).trim();
-            Set<String> potentialValues = potentialContexts.getValues(key);
-            return potentialValues.stream()
-                    .filter(Predicates.startsWithIgnoreCase(value))
+            PrefixIndex values = index.values.get(key.toLowerCase(Locale.ROOT));
+            if (values == null) {
+                return Collections.emptyList();
+            }
+
+            String value = partial.substring(equals + 1).trim();
+            return values.startsWith(value, MAX_COMPLETIONS).stream()
                     .map(s -> key + "=" + s)
                     .collect(Collectors.toList());
         };
@@ -140,4 +115,22 @@ public final class TabCompletions {
         return plugin.getCommandManager().getTabCompletions().contexts;
     }
 
+    /**
+     * The potential contexts, indexed for completion.
+     */
+    private static final class ContextIndex {
+        private final Set<String> keys;
+        private final Map<String, PrefixIndex> values;
+
+        ContextIndex(ImmutableContextSet potentialContexts) {
+            Map<String, Set<String>> map = potentialContexts.toMap();
+            ImmutableMap.Builder<String, PrefixIndex> values = ImmutableMap.builder();
+            for (Map.Entry<String, Set<String>> entry : map.entrySet()) {
+                values.put(entry.getKey(), new PrefixIndex(entry.getValue()));
+            }
+            this.keys = map.keySet();
+            this.values = values.build();
+        }
+    }
+
 }
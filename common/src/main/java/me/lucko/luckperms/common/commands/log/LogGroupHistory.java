@@ -47,8 +47,11 @@ import java.util.Locale;
 public class LogGroupHistory extends ChildCommand<Void> {
     private static final int ENTRIES_PER_PAGE = 10;
 
-    public LogGroupHistory() {
+    private final LogPageCursors cursors;
+
+    public LogGroupHistory(LogPageCursors cursors) {
         super(CommandSpec.LOG_GROUP_HISTORY, "grouphistory", CommandPermission.LOG_GROUP_HISTORY, Predicates.notInRange(1, 2));
+        this.cursors = cursors;
     }
 
     @Override
@@ -59,8 +62,9 @@ public class LogGroupHistory extends ChildCommand<Void> {
             return;
         }
 
-        PageParameters pageParams = new PageParameters(ENTRIES_PER_PAGE, args.getIntOrDefault(1, 1));
+        PageParameters pageParams = this.cursors.getPage(sender, "group/" + group, ENTRIES_PER_PAGE, args.getIntOrDefault(1, 1));
         LogPage log = plugin.getStorage().getLogPage(ActionFilters.group(group), pageParams).join();
+        this.cursors.record(sender, "group/" + group, log);
 
         int page = pageParams.pageNumber();
         int maxPage = pageParams.getMaxPage(log.getTotalEntries());
@@ -0,0 +1,83 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+
+package me.lucko.luckperms.common.commands.log;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import me.lucko.luckperms.common.actionlog.LogPage;
+import me.lucko.luckperms.common.filter.PageParameters;
+import me.lucko.luckperms.common.sender.Sender;
+import me.lucko.luckperms.common.util.CaffeineFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers where the last log page shown to each sender ended, so that when
+ * they request the following page, storage can seek straight to it.
+ */
+public class LogPageCursors {
+
+    private final Cache<String, PageParameters> nextPages = CaffeineFactory.newBuilder()
+            .expireAfterWrite(10, TimeUnit.MINUTES)
+            .maximumSize(1000)
+            .build();
+
+    /**
+     * Gets the parameters to use to read a log page.
+     *
+     * @param sender the sender reading the log
+     * @param query a key identifying the filters being read
+     * @param pageSize the page size
+     * @param pageNumber the page number
+     * @return the page parameters
+     */
+    public PageParameters getPage(Sender sender, String query, int pageSize, int pageNumber) {
+        PageParameters next = this.nextPages.getIfPresent(key(sender, query));
+        if (next != null && next.pageSize() == pageSize && next.pageNumber() == pageNumber) {
+            return next;
+        }
+        return new PageParameters(pageSize, pageNumber);
+    }
+
+    /**
+     * Records the log page shown to a sender.
+     *
+     * @param sender the sender reading the log
+     * @param query a key identifying the filters being read
+     * @param page the page shown
+     */
+    public void record(Sender sender, String query, LogPage page) {
+        PageParameters next = page.getNextPage();
+        if (next != null && next.after() != null) {
+            this.nextPages.put(key(sender, query), next);
+        }
+    }
+
+    private static String key(Sender sender, String query) {
+        return sender.getUniqueId() + "/" + query;
+    }
+
+}
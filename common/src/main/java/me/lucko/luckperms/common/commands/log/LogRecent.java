@@ -43,9 +43,12 @@ import java.util.UUID;
 
 public class LogRecent extends ChildCommand<Void> {
     private static final int ENTRIES_PER_PAGE = 10;
+
+    private final LogPageCursors cursors;
     
-    public LogRecent() {
+    public LogRecent(LogPageCursors cursors) {
         super(CommandSpec.LOG_RECENT, "recent", CommandPermission.LOG_RECENT, Predicates.notInRange(0, 2));
+        this.cursors = cursors;
     }
 
     @Override
@@ -70,8 +73,9 @@ public class LogRecent extends ChildCommand<Void> {
             }
         }
 
-        PageParameters pageParams = new PageParameters(ENTRIES_PER_PAGE, page);
+        PageParameters pageParams = this.cursors.getPage(sender, "recent/" + uuid, ENTRIES_PER_PAGE, page);
         LogPage log = plugin.getStorage().getLogPage(uuid == null ? ActionFilters.all() : ActionFilters.source(uuid), pageParams).join();
+        this.cursors.record(sender, "recent/" + uuid, log);
 
         int maxPage = pageParams.getMaxPage(log.getTotalEntries());
         if (log.getTotalEntries() == 0) {
@@ -43,8 +43,11 @@ import java.util.List;
 public class LogSearch extends ChildCommand<Void> {
     private static final int ENTRIES_PER_PAGE = 10;
 
-    public LogSearch() {
+    private final LogPageCursors cursors;
+
+    public LogSearch(LogPageCursors cursors) {
         super(CommandSpec.LOG_SEARCH, "search", CommandPermission.LOG_SEARCH, Predicates.is(0));
+        this.cursors = cursors;
     }
 
     @Override
@@ -60,8 +63,9 @@ public class LogSearch extends ChildCommand<Void> {
         }
 
         final String query = String.join(" ", args);
-        PageParameters pageParams = new PageParameters(ENTRIES_PER_PAGE, page);
+        PageParameters pageParams = this.cursors.getPage(sender, "search/" + query, ENTRIES_PER_PAGE, page);
         LogPage log = plugin.getStorage().getLogPage(ActionFilters.search(query), pageParams).join();
+        this.cursors.record(sender, "search/" + query, log);
 
         int maxPage = pageParams.getMaxPage(log.getTotalEntries());
         if (log.getTotalEntries() == 0) {
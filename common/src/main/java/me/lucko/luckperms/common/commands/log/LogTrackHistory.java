@@ -47,8 +47,11 @@ import java.util.Locale;
 public class LogTrackHistory extends ChildCommand<Void> {
     private static final int ENTRIES_PER_PAGE = 10;
 
-    public LogTrackHistory() {
+    private final LogPageCursors cursors;
+
+    public LogTrackHistory(LogPageCursors cursors) {
         super(CommandSpec.LOG_TRACK_HISTORY, "trackhistory", CommandPermission.LOG_TRACK_HISTORY, Predicates.notInRange(1, 2));
+        this.cursors = cursors;
     }
 
     @Override
@@ -58,8 +61,9 @@ public class LogTrackHistory extends ChildCommand<Void> {
             Message.TRACK_INVALID_ENTRY.send(sender, track);
             return;
         }
-        PageParameters pageParams = new PageParameters(ENTRIES_PER_PAGE, args.getIntOrDefault(1, 1));
+        PageParameters pageParams = this.cursors.getPage(sender, "track/" + track, ENTRIES_PER_PAGE, args.getIntOrDefault(1, 1));
         LogPage log = plugin.getStorage().getLogPage(ActionFilters.track(track), pageParams).join();
+        this.cursors.record(sender, "track/" + track, log);
 
         int page = pageParams.pageNumber();
         int maxPage = pageParams.getMaxPage(log.getTotalEntries());
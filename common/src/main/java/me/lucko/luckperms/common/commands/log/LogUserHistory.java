@@ -44,8 +44,11 @@ import java.util.UUID;
 public class LogUserHistory extends ChildCommand<Void> {
     private static final int ENTRIES_PER_PAGE = 10;
 
-    public LogUserHistory() {
+    private final LogPageCursors cursors;
+
+    public LogUserHistory(LogPageCursors cursors) {
         super(CommandSpec.LOG_USER_HISTORY, "userhistory", CommandPermission.LOG_USER_HISTORY, Predicates.notInRange(1, 2));
+        this.cursors = cursors;
     }
 
     @Override
@@ -55,8 +58,9 @@ public class LogUserHistory extends ChildCommand<Void> {
             return;
         }
 
-        PageParameters pageParams = new PageParameters(ENTRIES_PER_PAGE, args.getIntOrDefault(1, 1));
+        PageParameters pageParams = this.cursors.getPage(sender, "user/" + uuid, ENTRIES_PER_PAGE, args.getIntOrDefault(1, 1));
         LogPage log = plugin.getStorage().getLogPage(ActionFilters.user(uuid), pageParams).join();
+        this.cursors.record(sender, "user/" + uuid, log);
 
         int page = pageParams.pageNumber();
         int maxPage = pageParams.getMaxPage(log.getTotalEntries());
@@ -42,6 +42,7 @@ public class ReloadConfigCommand extends SingleCommand {
     @Override
     public void execute(LuckPermsPlugin plugin, Sender sender, ArgumentList args, String label) {
         plugin.getConfiguration().reload();
+        plugin.getContextManager().invalidateSignalDrivenContexts();
         Message.RELOAD_CONFIG_SUCCESS.send(sender);
     }
 }
@@ -36,8 +36,10 @@ import me.lucko.luckperms.common.config.generic.key.ConfigKey;
 import me.lucko.luckperms.common.config.generic.key.SimpleConfigKey;
 import me.lucko.luckperms.common.context.calculator.WorldNameRewriter;
 import me.lucko.luckperms.common.graph.TraversalAlgorithm;
+import me.lucko.luckperms.common.model.HolderType;
 import me.lucko.luckperms.common.model.PrimaryGroupHolder;
 import me.lucko.luckperms.common.model.User;
+import me.lucko.luckperms.common.model.nodemap.NodeMapType;
 import me.lucko.luckperms.common.query.QueryOptionsBuilderImpl;
 import me.lucko.luckperms.common.storage.StorageType;
 import me.lucko.luckperms.common.storage.implementation.split.SplitStorageType;
@@ -142,6 +144,22 @@ public final class ConfigKeys {
                 .collect(ImmutableCollectors.toSet());
     }));
 
+    /**
+     * If the results of signal-driven context calculators should be cached until the
+     * subject's context is invalidated, instead of being recalculated every tick.
+     */
+    public static final ConfigKey<Boolean> SIGNAL_DRIVEN_CONTEXTS = notReloadable(booleanKey("signal-driven-contexts", false));
+
+    /**
+     * The node map implementation to use for each type of permission holder
+     */
+    public static final ConfigKey<Map<HolderType, NodeMapType>> NODE_MAP_TYPES = notReloadable(key(c -> {
+        EnumMap<HolderType, NodeMapType> map = new EnumMap<>(HolderType.class);
+        map.put(HolderType.USER, NodeMapType.parse(c.getString("node-map-type.users", "concurrent"), NodeMapType.CONCURRENT));
+        map.put(HolderType.GROUP, NodeMapType.parse(c.getString("node-map-type.groups", "concurrent"), NodeMapType.CONCURRENT));
+        return ImmutableMap.copyOf(map);
+    }));
+
     /**
      * # If the servers own UUID cache/lookup facility should be used when there is no record for a player in the LuckPerms cache.
      */
@@ -235,6 +253,16 @@ public final class ConfigKeys {
      */
     public static final ConfigKey<Boolean> PREVENT_PRIMARY_GROUP_REMOVAL = booleanKey("prevent-primary-group-removal", true);
 
+    /**
+     * The maximum number of offline user snapshots to keep cached
+     */
+    public static final ConfigKey<Integer> OFFLINE_USER_CACHE_SIZE = notReloadable(key(c -> Math.max(0, c.getInteger("offline-user-cache.max-size", 1000))));
+
+    /**
+     * How often (in seconds) cached offline user snapshots should be refreshed from storage
+     */
+    public static final ConfigKey<Integer> OFFLINE_USER_CACHE_REFRESH_INTERVAL = notReloadable(key(c -> Math.max(1, c.getInteger("offline-user-cache.refresh-interval", 60))));
+
     /**
      * If the plugin should check for "extra" permissions with users run LP commands
      */
@@ -351,6 +379,16 @@ public final class ConfigKeys {
         return new SimpleMetaValueSelector(strategies, defaultStrategy);
     });
 
+    /**
+     * If meta caches should only build their full meta views when first requested
+     */
+    public static final ConfigKey<Boolean> LAZY_META_CACHE = booleanKey("lazy-meta-cache", true);
+
+    /**
+     * If the meta contributed by each group should be cached and shared between holders
+     */
+    public static final ConfigKey<Boolean> GROUP_META_CONTRIBUTION_CACHE = notReloadable(booleanKey("group-meta-contribution-cache", true));
+
     /**
      * The configured group weightings
      */
@@ -448,6 +486,47 @@ public final class ConfigKeys {
      */
     public static final ConfigKey<Boolean> LOG_SYNCHRONOUSLY_IN_COMMANDS = booleanKey("log-synchronously-in-commands", false);
 
+    /**
+     * If the total number of log entries should be estimated using table statistics (where supported)
+     * instead of being counted exactly when querying the unfiltered log
+     */
+    public static final ConfigKey<Boolean> LOG_APPROXIMATE_COUNT = booleanKey("log-approximate-count", false);
+
+    /**
+     * The number of days log entries should be kept in storage for, or 0 if they should be kept forever
+     */
+    public static final ConfigKey<Integer> LOG_RETENTION_DAYS = key(c -> Math.max(0, c.getInteger("log-retention-days", 0)));
+
+    /**
+     * The maximum number of log entries which can be waiting to be written to storage
+     */
+    public static final ConfigKey<Integer> LOG_QUEUE_CAPACITY = notReloadable(key(c -> Math.max(1, c.getInteger("log-queue.capacity", 10000))));
+
+    /**
+     * The maximum number of log entries to write to storage in a single batch
+     */
+    public static final ConfigKey<Integer> LOG_QUEUE_BATCH_SIZE = notReloadable(key(c -> Math.max(1, c.getInteger("log-queue.batch-size", 250))));
+
+    /**
+     * How often (in milliseconds) queued log entries should be written to storage
+     */
+    public static final ConfigKey<Integer> LOG_QUEUE_FLUSH_INTERVAL = notReloadable(key(c -> Math.max(50, c.getInteger("log-queue.flush-interval", 500))));
+
+    /**
+     * The time (in milliseconds) a storage operation may take, including time spent waiting to be executed, before a warning is logged, or 0 to disable
+     */
+    public static final ConfigKey<Integer> STORAGE_SLOW_OPERATION_THRESHOLD = key(c -> Math.max(0, c.getInteger("storage-slow-operation-threshold", 1000)));
+
+    /**
+     * The file (relative to the data directory) metrics should be exported to in the Prometheus text format, or empty to disable
+     */
+    public static final ConfigKey<String> METRICS_PROMETHEUS_FILE = notReloadable(stringKey("metrics.prometheus-file", ""));
+
+    /**
+     * How often (in seconds) metrics should be exported
+     */
+    public static final ConfigKey<Integer> METRICS_EXPORT_INTERVAL = notReloadable(key(c -> Math.max(1, c.getInteger("metrics.export-interval", 15))));
+
     /**
      * If LuckPerms should automatically install translation bundles and periodically update them.
      */
@@ -528,6 +607,26 @@ public final class ConfigKeys {
                 .collect(ImmutableCollectors.toSet());
     });
 
+    /**
+     * Context calculators which should be refreshed asynchronously
+     */
+    public static final ConfigKey<Set<Predicate<String>>> ASYNC_CONTEXT_CALCULATORS = notReloadable(key(c -> {
+        return c.getStringList("async-context-calculators.calculators", ImmutableList.of())
+                .stream()
+                .map(Predicates::startsWithIgnoreCase)
+                .collect(ImmutableCollectors.toSet());
+    }));
+
+    /**
+     * How often (in milliseconds) the results of async context calculators should be refreshed
+     */
+    public static final ConfigKey<Integer> ASYNC_CONTEXT_CALCULATOR_REFRESH_INTERVAL = notReloadable(key(c -> Math.max(50, c.getInteger("async-context-calculators.refresh-interval", 500))));
+
+    /**
+     * The time (in milliseconds) a single context calculator call may take before a warning is logged, or 0 to disable
+     */
+    public static final ConfigKey<Integer> CONTEXT_CALCULATOR_TIME_BUDGET = key(c -> Math.max(0, c.getInteger("context-calculator-time-budget", 5)));
+
     /**
      * The world rewrites map
      */
@@ -25,11 +25,25 @@
 
 package me.lucko.luckperms.common.context;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import me.lucko.luckperms.common.context.comparator.ContextComparator;
 import net.luckperms.api.context.Context;
 import org.checkerframework.checker.nullness.qual.NonNull;
 
 public final class ContextImpl implements Context, Comparable<Context> {
+    private static final Interner<Context> INTERNER = Interners.newWeakInterner();
+
+    /**
+     * Returns a canonical instance equal to the given context.
+     *
+     * @param context the context
+     * @return the canonical instance
+     */
+    public static Context intern(Context context) {
+        return INTERNER.intern(context);
+    }
+
     private final String key;
     private final String value;
 
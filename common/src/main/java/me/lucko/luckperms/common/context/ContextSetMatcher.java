@@ -0,0 +1,218 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.context;
+
+import net.luckperms.api.context.Context;
+import net.luckperms.api.context.ContextSatisfyMode;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A compact, precomputed form of an {@link ImmutableContextSetImpl}, used to
+ * quickly test if one set is satisfied by another.
+ *
+ * <p>Each context is encoded as a {@code long}, with an id for the key in the
+ * upper 32 bits and an id for the value in the lower 32 bits. The encoded
+ * contexts are sorted, so grouped by key, meaning satisfaction checks are a
+ * single merge of two primitive arrays.</p>
+ *
+ * <p>Each matcher also has two 64-bit signatures (one for keys, one for whole
+ * contexts), which are used to reject most unsatisfied checks without
+ * scanning the arrays at all.</p>
+ */
+final class ContextSetMatcher {
+
+    // the maximum number of ids held by a single id table
+    static final int MAX_IDS = 1 << 16;
+
+    // ids assigned to context keys and values. once full, the table is replaced - matchers
+    // compiled against an old table are recompiled on their next use
+    private static final AtomicReference<IdTable> ID_TABLE = new AtomicReference<>(new IdTable());
+
+    static final ContextSetMatcher EMPTY = new ContextSetMatcher(null, new long[0], 0L, 0L);
+
+    private static long signatureBit(long value) {
+        return 1L << ((value * 0x9E3779B97F4A7C15L) >>> 58);
+    }
+
+    static ContextSetMatcher compile(Context[] contexts) {
+        if (contexts.length == 0) {
+            return EMPTY;
+        }
+
+        while (true) {
+            IdTable table = ID_TABLE.get();
+            ContextSetMatcher matcher = compile(contexts, table);
+            if (matcher != null) {
+                return matcher;
+            }
+
+            // the table is full - replace it and try again
+            ID_TABLE.compareAndSet(table, new IdTable());
+        }
+    }
+
+    private static ContextSetMatcher compile(Context[] contexts, IdTable table) {
+        long[] entries = new long[contexts.length];
+        long keySignature = 0L;
+        long entrySignature = 0L;
+
+        for (int i = 0; i < contexts.length; i++) {
+            Context context = contexts[i];
+            int keyId = table.id(context.getKey());
+            int valueId = table.id(context.getValue());
+            if (keyId == -1 || valueId == -1) {
+                return null;
+            }
+
+            long entry = ((long) keyId << 32) | (valueId & 0xFFFFFFFFL);
+            entries[i] = entry;
+            keySignature |= signatureBit(keyId);
+            entrySignature |= signatureBit(entry);
+        }
+
+        Arrays.sort(entries);
+        return new ContextSetMatcher(table, entries, keySignature, entrySignature);
+    }
+
+    private final IdTable table;
+    private final long[] entries;
+    private final long keySignature;
+    private final long entrySignature;
+
+    private ContextSetMatcher(IdTable table, long[] entries, long keySignature, long entrySignature) {
+        this.table = table;
+        this.entries = entries;
+        this.keySignature = keySignature;
+        this.entrySignature = entrySignature;
+    }
+
+    /**
+     * Gets if this matcher was compiled against an id table which has since been replaced.
+     *
+     * @return true if the matcher should be recompiled
+     */
+    boolean isStale() {
+        return this.table != null && this.table != ID_TABLE.get();
+    }
+
+    /**
+     * Gets if this matcher can be compared with another, i.e. if they were
+     * compiled against the same id table.
+     *
+     * @param other the other matcher
+     * @return true if compatible
+     */
+    boolean isCompatible(ContextSetMatcher other) {
+        return this.table == other.table || this.table == null || other.table == null;
+    }
+
+    /**
+     * Tests if the set this matcher was compiled from is satisfied by the given set.
+     *
+     * <p>The matchers must be {@link #isCompatible(ContextSetMatcher) compatible}.</p>
+     *
+     * @param other the matcher for the other set
+     * @param mode the mode to use
+     * @return true if satisfied
+     */
+    boolean isSatisfiedBy(ContextSetMatcher other, ContextSatisfyMode mode) {
+        switch (mode) {
+            case ALL_VALUES_PER_KEY:
+                return (this.entrySignature & ~other.entrySignature) == 0 && allValues(this.entries, other.entries);
+            case AT_LEAST_ONE_VALUE_PER_KEY:
+                return (this.keySignature & ~other.keySignature) == 0 && atLeastOneValue(this.entries, other.entries);
+            default:
+                throw new IllegalArgumentException("Unknown mode: " + mode);
+        }
+    }
+
+    // returns true if every entry in 'required' is also in 'available'
+    private static boolean allValues(long[] required, long[] available) {
+        int j = 0;
+        for (long entry : required) {
+            while (j < available.length && available[j] < entry) {
+                j++;
+            }
+            if (j == available.length || available[j] != entry) {
+                return false;
+            }
+            j++;
+        }
+        return true;
+    }
+
+    // returns true if, for each key in 'required', at least one of its entries is also in 'available'
+    private static boolean atLeastOneValue(long[] required, long[] available) {
+        int i = 0;
+        int j = 0;
+        while (i < required.length) {
+            long key = required[i] >>> 32;
+
+            boolean found = false;
+            for (; i < required.length && (required[i] >>> 32) == key; i++) {
+                if (found) {
+                    continue; // skip the rest of the key
+                }
+
+                long entry = required[i];
+                while (j < available.length && available[j] < entry) {
+                    j++;
+                }
+                if (j < available.length && available[j] == entry) {
+                    found = true;
+                }
+            }
+
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class IdTable {
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+        private final AtomicInteger nextId = new AtomicInteger();
+
+        // returns the id for the string, or -1 if the table is full
+        int id(String string) {
+            Integer id = this.ids.get(string);
+            if (id == null) {
+                id = this.ids.computeIfAbsent(string, s -> {
+                    int next = this.nextId.getAndIncrement();
+                    return next < MAX_IDS ? next : null;
+                });
+            }
+            return id == null ? -1 : id;
+        }
+    }
+
+}
@@ -28,6 +28,8 @@ package me.lucko.luckperms.common.context;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Multimaps;
 import me.lucko.luckperms.common.context.comparator.ContextComparator;
@@ -49,6 +51,44 @@ import java.util.Spliterator;
 public final class ImmutableContextSetImpl extends AbstractContextSet implements ImmutableContextSet, ContextSet {
     public static final ImmutableContextSetImpl EMPTY = new ImmutableContextSetImpl(new Context[0]);
 
+    // weak canonicalizing cache, used to share identical context sets between nodes
+    private static final Interner<ImmutableContextSetImpl> INTERNER = Interners.newWeakInterner();
+
+    /**
+     * Returns a canonical instance equal to the given context set.
+     *
+     * <p>The contexts within a canonical set are also interned, so they
+     * can be shared with other sets.</p>
+     *
+     * @param contextSet the context set
+     * @return the canonical instance
+     */
+    public static ImmutableContextSet intern(ImmutableContextSet contextSet) {
+        if (contextSet.isEmpty()) {
+            return EMPTY;
+        }
+        if (!(contextSet instanceof ImmutableContextSetImpl)) {
+            return contextSet;
+        }
+
+        // intern the contexts before the set is published, as sets are never modified once built
+        ImmutableContextSetImpl set = (ImmutableContextSetImpl) contextSet;
+        Context[] interned = null;
+        for (int i = 0; i < set.array.length; i++) {
+            Context context = ContextImpl.intern(set.array[i]);
+            if (context != set.array[i]) {
+                if (interned == null) {
+                    interned = set.array.clone();
+                }
+                interned[i] = context;
+            }
+        }
+        if (interned != null) {
+            set = new ImmutableContextSetImpl(interned);
+        }
+        return INTERNER.intern(set);
+    }
+
     public static ImmutableContextSet of(String key, String value) {
         key = sanitizeKey(key);
         value = sanitizeValue(value);
@@ -66,6 +106,7 @@ public final class ImmutableContextSetImpl extends AbstractContextSet implements
     private final int hashCode;
 
     private ImmutableSetMultimap<String, String> cachedMap;
+    private ContextSetMatcher cachedMatcher;
 
     ImmutableContextSetImpl(Context[] contexts) {
         this.array = contexts; // always sorted
@@ -124,8 +165,26 @@ public final class ImmutableContextSetImpl extends AbstractContextSet implements
         return this.array; // only used read-only & internally
     }
 
+    private ContextSetMatcher matcher() {
+        ContextSetMatcher matcher = this.cachedMatcher;
+        if (matcher == null || matcher.isStale()) {
+            matcher = ContextSetMatcher.compile(this.array);
+            this.cachedMatcher = matcher;
+        }
+        return matcher;
+    }
+
     @Override
     protected boolean otherContainsAll(ContextSet other, ContextSatisfyMode mode) {
+        // fast path: compare the precomputed forms of both sets
+        if (other instanceof ImmutableContextSetImpl) {
+            ContextSetMatcher matcher = matcher();
+            ContextSetMatcher otherMatcher = ((ImmutableContextSetImpl) other).matcher();
+            if (matcher.isCompatible(otherMatcher)) {
+                return matcher.isSatisfiedBy(otherMatcher, mode);
+            }
+        }
+
         switch (mode) {
             // Use other.contains
             case ALL_VALUES_PER_KEY: {
@@ -0,0 +1,155 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.context.manager;
+
+import com.google.common.collect.ImmutableSortedMap;
+import net.luckperms.api.context.ContextCalculatorStatistics;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records call counts and timings for a registered context calculator.
+ */
+public final class CalculatorStatistics implements ContextCalculatorStatistics {
+
+    // the (exclusive) upper bounds of the histogram buckets, in nanoseconds
+    private static final long[] BUCKET_BOUNDS = {
+            TimeUnit.MICROSECONDS.toNanos(10),
+            TimeUnit.MICROSECONDS.toNanos(100),
+            TimeUnit.MILLISECONDS.toNanos(1),
+            TimeUnit.MILLISECONDS.toNanos(10),
+            TimeUnit.MILLISECONDS.toNanos(50)
+    };
+
+    // the minimum time between budget warnings for the same calculator
+    private static final long WARNING_INTERVAL = TimeUnit.MINUTES.toNanos(1);
+
+    private final String calculatorName;
+    private final boolean async;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder slowCalls = new LongAdder();
+    private final LongAdder totalTime = new LongAdder();
+    private final AtomicLong maxTime = new AtomicLong();
+    private final LongAdder[] buckets;
+
+    private final AtomicLong lastWarning = new AtomicLong(System.nanoTime() - WARNING_INTERVAL);
+
+    public CalculatorStatistics(String calculatorName, boolean async) {
+        this.calculatorName = calculatorName;
+        this.async = async;
+        this.buckets = new LongAdder[BUCKET_BOUNDS.length + 1];
+        for (int i = 0; i < this.buckets.length; i++) {
+            this.buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a call to the calculator.
+     *
+     * @param nanos the time taken by the call
+     */
+    public void recordCall(long nanos) {
+        this.calls.increment();
+        this.totalTime.add(nanos);
+
+        long max = this.maxTime.get();
+        while (nanos > max && !this.maxTime.compareAndSet(max, nanos)) {
+            max = this.maxTime.get();
+        }
+
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS.length && nanos >= BUCKET_BOUNDS[bucket]) {
+            bucket++;
+        }
+        this.buckets[bucket].increment();
+    }
+
+    /**
+     * Records a call which exceeded the time budget.
+     *
+     * @return true if a warning should be logged for the call
+     */
+    public boolean recordSlowCall() {
+        this.slowCalls.increment();
+
+        long now = System.nanoTime();
+        long last = this.lastWarning.get();
+        return now - last >= WARNING_INTERVAL && this.lastWarning.compareAndSet(last, now);
+    }
+
+    @Override
+    public @NonNull String getCalculatorName() {
+        return this.calculatorName;
+    }
+
+    @Override
+    public boolean isAsync() {
+        return this.async;
+    }
+
+    @Override
+    public long getCallCount() {
+        return this.calls.sum();
+    }
+
+    @Override
+    public long getSlowCallCount() {
+        return this.slowCalls.sum();
+    }
+
+    @Override
+    public @NonNull Duration getTotalTime() {
+        return Duration.ofNanos(this.totalTime.sum());
+    }
+
+    @Override
+    public @NonNull Duration getMaxTime() {
+        return Duration.ofNanos(this.maxTime.get());
+    }
+
+    public @NonNull Duration getAverageTime() {
+        long calls = this.calls.sum();
+        return calls == 0 ? Duration.ZERO : Duration.ofNanos(this.totalTime.sum() / calls);
+    }
+
+    @Override
+    public @NonNull SortedMap<Duration, Long> getLatencyHistogram() {
+        ImmutableSortedMap.Builder<Duration, Long> histogram = ImmutableSortedMap.naturalOrder();
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            histogram.put(Duration.ofNanos(BUCKET_BOUNDS[i]), this.buckets[i].sum());
+        }
+        histogram.put(ChronoUnit.FOREVER.getDuration(), this.buckets[BUCKET_BOUNDS.length].sum());
+        return histogram.build();
+    }
+
+}
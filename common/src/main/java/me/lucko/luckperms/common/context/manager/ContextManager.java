@@ -25,11 +25,16 @@
 
 package me.lucko.luckperms.common.context.manager;
 
+import com.github.benmanes.caffeine.cache.LoadingCache;
 import me.lucko.luckperms.common.cache.ExpiringCache;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.context.ImmutableContextSetImpl;
 import me.lucko.luckperms.common.context.calculator.ForwardingContextCalculator;
+import me.lucko.luckperms.common.context.calculator.SignalDrivenContextCalculator;
+import me.lucko.luckperms.common.metrics.MetricsRegistry;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.query.QueryOptionsImpl;
+import me.lucko.luckperms.common.util.CaffeineFactory;
 import net.luckperms.api.context.ContextCalculator;
 import net.luckperms.api.context.ContextConsumer;
 import net.luckperms.api.context.ContextSet;
@@ -43,6 +48,7 @@ import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
 
 /**
@@ -62,6 +68,9 @@ public abstract class ContextManager<S, P extends S> {
     // caches static context lookups
     private final StaticLookupCache staticLookupCache = new StaticLookupCache();
 
+    // incremented to invalidate all cached signal-driven contexts
+    private final AtomicInteger signalGeneration = new AtomicInteger();
+
     protected ContextManager(LuckPermsPlugin plugin, Class<S> subjectClass, Class<P> playerClass) {
         this.plugin = plugin;
         this.subjectClass = subjectClass;
@@ -109,6 +118,11 @@ public abstract class ContextManager<S, P extends S> {
 
         // invalidate their cache
         invalidateCache(subject);
+        for (RegisteredCalculator<S> calculator : this.calculators.calculators()) {
+            if (calculator.asyncCache != null) {
+                calculator.asyncCache.invalidate(subject);
+            }
+        }
 
         // call event
         this.plugin.getEventDispatcher().dispatchContextUpdate(subject);
@@ -116,6 +130,17 @@ public abstract class ContextManager<S, P extends S> {
 
     protected abstract void invalidateCache(S subject);
 
+    /**
+     * Invalidates the cached results of signal-driven calculators for all subjects.
+     */
+    public void invalidateSignalDrivenContexts() {
+        this.signalGeneration.incrementAndGet();
+    }
+
+    int getSignalGeneration() {
+        return this.signalGeneration.get();
+    }
+
     public void registerCalculator(ContextCalculator<? super S> calculator) {
         String calculatorClass = calculator.getClass().getName();
 
@@ -127,11 +152,59 @@ public abstract class ContextManager<S, P extends S> {
             }
         }
 
-        this.calculators.add(calculator);
+        boolean async = false;
+        Set<Predicate<String>> asyncCalculators = this.plugin.getConfiguration().get(ConfigKeys.ASYNC_CONTEXT_CALCULATORS);
+        for (Predicate<String> asyncPattern : asyncCalculators) {
+            if (asyncPattern.test(calculatorClass)) {
+                async = true;
+                break;
+            }
+        }
+
+        CalculatorStatistics statistics = new CalculatorStatistics(getCalculatorClass(calculator), async);
+        registerMetrics(statistics);
+        LoadingCache<S, ImmutableContextSet> asyncCache = null;
+        if (async) {
+            asyncCache = CaffeineFactory.newBuilder()
+                    .weakKeys()
+                    .refreshAfterWrite(this.plugin.getConfiguration().get(ConfigKeys.ASYNC_CONTEXT_CALCULATOR_REFRESH_INTERVAL), TimeUnit.MILLISECONDS)
+                    .expireAfterAccess(10, TimeUnit.MINUTES)
+                    .build(subject -> calculateAsync(calculator, statistics, subject));
+        }
+
+        this.calculators.add(new RegisteredCalculator<>(calculator, statistics, asyncCache));
+        invalidateSignalDrivenContexts();
     }
 
     public void unregisterCalculator(ContextCalculator<? super S> calculator) {
         this.calculators.remove(calculator);
+        invalidateSignalDrivenContexts();
+    }
+
+    private void registerMetrics(CalculatorStatistics statistics) {
+        // a calculator registered again under the same name replaces the previous metrics
+        MetricsRegistry metrics = this.plugin.getMetrics();
+        String name = statistics.getCalculatorName();
+        metrics.functionCounter("context_calculator_calls_total", "The number of calls made to each context calculator",
+                statistics::getCallCount, "calculator", name);
+        metrics.functionCounter("context_calculator_slow_calls_total", "The number of calls to each context calculator which exceeded the time budget",
+                statistics::getSlowCallCount, "calculator", name);
+        metrics.functionCounter("context_calculator_time_seconds_total", "The total time spent in each context calculator",
+                () -> statistics.getTotalTime().toNanos() / 1e9, "calculator", name);
+    }
+
+    /**
+     * Gets timing statistics for the registered (non-static) calculators.
+     *
+     * @return the statistics for each calculator
+     */
+    public List<CalculatorStatistics> getCalculatorStatistics() {
+        RegisteredCalculator<S>[] calculators = this.calculators.calculators();
+        List<CalculatorStatistics> statistics = new ArrayList<>(calculators.length);
+        for (RegisteredCalculator<S> calculator : calculators) {
+            statistics.add(calculator.statistics);
+        }
+        return statistics;
     }
 
     protected void callContextCalculator(ContextCalculator<? super S> calculator, S subject, ContextConsumer consumer) {
@@ -150,15 +223,90 @@ public abstract class ContextManager<S, P extends S> {
         }
     }
 
+    private void callRegisteredCalculator(RegisteredCalculator<S> calculator, S subject, ContextConsumer consumer) {
+        if (calculator.asyncCache != null) {
+            // serve the last result, the cache refreshes it in the background once stale
+            consumer.accept(calculator.asyncCache.get(subject));
+        } else {
+            callTimedContextCalculator(calculator.calculator, calculator.statistics, subject, consumer);
+        }
+    }
+
+    private void callTimedContextCalculator(ContextCalculator<? super S> calculator, CalculatorStatistics statistics, S subject, ContextConsumer consumer) {
+        long start = System.nanoTime();
+        try {
+            callContextCalculator(calculator, subject, consumer);
+        } finally {
+            long duration = System.nanoTime() - start;
+            statistics.recordCall(duration);
+
+            long budget = this.plugin.getConfiguration().get(ConfigKeys.CONTEXT_CALCULATOR_TIME_BUDGET);
+            if (budget != 0 && duration > TimeUnit.MILLISECONDS.toNanos(budget) && statistics.recordSlowCall()) {
+                this.plugin.getLogger().warn("Context calculator " + statistics.getCalculatorName() + " took " +
+                        String.format("%.2f", duration / 1e6) + "ms to calculate the context of subject " + subject +
+                        ", exceeding the time budget of " + budget + "ms." +
+                        (statistics.isAsync() ? "" : " Consider adding it to 'async-context-calculators' in the config."));
+            }
+        }
+    }
+
+    private ImmutableContextSet calculateAsync(ContextCalculator<? super S> calculator, CalculatorStatistics statistics, S subject) {
+        ImmutableContextSet.Builder accumulator = new ImmutableContextSetImpl.BuilderImpl();
+        callTimedContextCalculator(calculator, statistics, subject, accumulator::add);
+        return accumulator.build();
+    }
+
     protected QueryOptions calculate(S subject) {
         ImmutableContextSet.Builder accumulator = new ImmutableContextSetImpl.BuilderImpl();
         ContextConsumer consumer = accumulator::add;
 
-        for (ContextCalculator<? super S> calculator : this.calculators.calculators()) {
-            callContextCalculator(calculator, subject, consumer);
+        for (RegisteredCalculator<S> calculator : this.calculators.calculators()) {
+            callRegisteredCalculator(calculator, subject, consumer);
         }
 
-        return formQueryOptions(subject, accumulator.build());
+        return QueryOptionsImpl.intern(formQueryOptions(subject, accumulator.build()));
+    }
+
+    /**
+     * Calculates the contexts provided by {@link SignalDrivenContextCalculator}s.
+     *
+     * @param subject the subject
+     * @return the signal-driven contexts
+     */
+    ImmutableContextSet calculateSignalDriven(S subject) {
+        ImmutableContextSet.Builder accumulator = new ImmutableContextSetImpl.BuilderImpl();
+        ContextConsumer consumer = accumulator::add;
+
+        for (RegisteredCalculator<S> calculator : this.calculators.signalDrivenCalculators()) {
+            callRegisteredCalculator(calculator, subject, consumer);
+        }
+
+        return accumulator.build();
+    }
+
+    /**
+     * Calculates the contexts provided by all other calculators, and combines them
+     * with the given (previously calculated) signal-driven contexts.
+     *
+     * @param subject the subject
+     * @param signalDriven the signal-driven contexts
+     * @return the query options
+     */
+    QueryOptions calculatePolling(S subject, ImmutableContextSet signalDriven) {
+        ImmutableContextSet.Builder accumulator = new ImmutableContextSetImpl.BuilderImpl();
+        ContextConsumer consumer = accumulator::add;
+
+        RegisteredCalculator<S>[] pollingCalculators = this.calculators.pollingCalculators();
+        if (pollingCalculators.length == 0) {
+            return QueryOptionsImpl.intern(formQueryOptions(subject, signalDriven));
+        }
+
+        accumulator.addAll(signalDriven);
+        for (RegisteredCalculator<S> calculator : pollingCalculators) {
+            callRegisteredCalculator(calculator, subject, consumer);
+        }
+
+        return QueryOptionsImpl.intern(formQueryOptions(subject, accumulator.build()));
     }
 
     private QueryOptions calculateStatic() {
@@ -169,13 +317,14 @@ public abstract class ContextManager<S, P extends S> {
             callStaticContextCalculator(calculator, consumer);
         }
 
-        return formQueryOptions(accumulator.build());
+        return QueryOptionsImpl.intern(formQueryOptions(accumulator.build()));
     }
 
     public ImmutableContextSet getPotentialContexts() {
         ImmutableContextSet.Builder builder = new ImmutableContextSetImpl.BuilderImpl();
 
-        for (ContextCalculator<? super S> calculator : this.calculators.calculators()) {
+        for (RegisteredCalculator<S> registered : this.calculators.calculators()) {
+            ContextCalculator<? super S> calculator = registered.calculator;
             ContextSet potentialContexts;
             try {
                 potentialContexts = calculator.estimatePotentialContexts();
@@ -210,12 +359,34 @@ public abstract class ContextManager<S, P extends S> {
         return calculatorClass.getName();
     }
 
+    /**
+     * A calculator registered with the manager, and its statistics.
+     *
+     * <p>If the calculator is async, its results are held in a cache which is
+     * refreshed in the background once the refresh interval has passed.</p>
+     *
+     * @param <S> the subject type
+     */
+    private static final class RegisteredCalculator<S> {
+        private final ContextCalculator<? super S> calculator;
+        private final CalculatorStatistics statistics;
+        private final LoadingCache<S, ImmutableContextSet> asyncCache;
+
+        RegisteredCalculator(ContextCalculator<? super S> calculator, CalculatorStatistics statistics, LoadingCache<S, ImmutableContextSet> asyncCache) {
+            this.calculator = calculator;
+            this.statistics = statistics;
+            this.asyncCache = asyncCache;
+        }
+    }
+
     private final class CalculatorList {
-        private final List<ContextCalculator<? super S>> calculators;
+        private final List<RegisteredCalculator<S>> calculators;
         private final List<StaticContextCalculator> staticCalculators;
 
-        private volatile ContextCalculator<? super S>[] calculatorsArray;
+        private volatile RegisteredCalculator<S>[] calculatorsArray;
         private volatile StaticContextCalculator[] staticCalculatorsArray;
+        private volatile RegisteredCalculator<S>[] signalDrivenCalculatorsArray;
+        private volatile RegisteredCalculator<S>[] pollingCalculatorsArray;
 
         CalculatorList() {
             this.calculators = new ArrayList<>();
@@ -225,17 +396,29 @@ public abstract class ContextManager<S, P extends S> {
 
         @SuppressWarnings("unchecked")
         private void bake() {
-            this.calculatorsArray = this.calculators.toArray(new ContextCalculator[0]);
+            this.calculatorsArray = this.calculators.toArray(new RegisteredCalculator[0]);
             this.staticCalculatorsArray = this.staticCalculators.toArray(new StaticContextCalculator[0]);
+
+            List<RegisteredCalculator<S>> signalDriven = new ArrayList<>();
+            List<RegisteredCalculator<S>> polling = new ArrayList<>();
+            for (RegisteredCalculator<S> calculator : this.calculators) {
+                if (calculator.calculator instanceof SignalDrivenContextCalculator) {
+                    signalDriven.add(calculator);
+                } else {
+                    polling.add(calculator);
+                }
+            }
+            this.signalDrivenCalculatorsArray = signalDriven.toArray(new RegisteredCalculator[0]);
+            this.pollingCalculatorsArray = polling.toArray(new RegisteredCalculator[0]);
         }
 
-        public void add(ContextCalculator<? super S> calculator) {
+        public void add(RegisteredCalculator<S> calculator) {
             synchronized (this) {
                 // calculators registered first should have priority (and be checked last.)
                 this.calculators.add(0, calculator);
 
-                if (calculator instanceof StaticContextCalculator) {
-                    StaticContextCalculator staticCalculator = (StaticContextCalculator) calculator;
+                if (calculator.calculator instanceof StaticContextCalculator) {
+                    StaticContextCalculator staticCalculator = (StaticContextCalculator) calculator.calculator;
                     this.staticCalculators.add(0, staticCalculator);
                 }
 
@@ -245,7 +428,7 @@ public abstract class ContextManager<S, P extends S> {
 
         public void remove(ContextCalculator<? super S> calculator) {
             synchronized (this) {
-                this.calculators.remove(calculator);
+                this.calculators.removeIf(registered -> registered.calculator.equals(calculator));
                 if (calculator instanceof StaticContextCalculator) {
                     this.staticCalculators.remove(calculator);
                 }
@@ -254,13 +437,21 @@ public abstract class ContextManager<S, P extends S> {
             }
         }
 
-        public ContextCalculator<? super S>[] calculators() {
+        public RegisteredCalculator<S>[] calculators() {
             return this.calculatorsArray;
         }
 
         public StaticContextCalculator[] staticCalculators() {
             return this.staticCalculatorsArray;
         }
+
+        public RegisteredCalculator<S>[] signalDrivenCalculators() {
+            return this.signalDrivenCalculatorsArray;
+        }
+
+        public RegisteredCalculator<S>[] pollingCalculators() {
+            return this.pollingCalculatorsArray;
+        }
     }
 
 }
@@ -26,30 +26,75 @@
 package me.lucko.luckperms.common.context.manager;
 
 import me.lucko.luckperms.common.cache.ExpiringCache;
+import me.lucko.luckperms.common.config.ConfigKeys;
 import net.luckperms.api.context.ImmutableContextSet;
 import net.luckperms.api.query.QueryOptions;
 import org.checkerframework.checker.nullness.qual.NonNull;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Implementation of {@link QueryOptionsSupplier} that caches results.
  *
+ * <p>If signal-driven contexts are enabled, the contexts provided by
+ * {@link me.lucko.luckperms.common.context.calculator.SignalDrivenContextCalculator}s
+ * are cached until the cache is invalidated, and only the remaining calculators are
+ * re-run when the result expires.</p>
+ *
  * @param <T> the player type
  */
 public final class QueryOptionsCache<T> extends ExpiringCache<QueryOptions> implements QueryOptionsSupplier {
     private final T subject;
     private final ContextManager<T, ?> contextManager;
+    private final boolean signalDriven;
+
+    // the cached result of the signal-driven calculators, null if invalidated
+    private volatile SignalDrivenContexts signalDrivenContexts;
+
+    // incremented on each invalidation, so results calculated concurrently with one are not reused
+    private final AtomicInteger invalidations = new AtomicInteger();
+
+    // the previously supplied value - returned again if equal to a newly calculated one
+    private QueryOptions previous;
 
     public QueryOptionsCache(T subject, ContextManager<T, ?> contextManager) {
         super(50L, TimeUnit.MILLISECONDS); // expire roughly every tick
         this.subject = subject;
         this.contextManager = contextManager;
+        this.signalDriven = contextManager.plugin.getConfiguration().get(ConfigKeys.SIGNAL_DRIVEN_CONTEXTS);
     }
 
     @Override
     protected @NonNull QueryOptions supply() {
-        return this.contextManager.calculate(this.subject);
+        if (!this.signalDriven) {
+            return this.contextManager.calculate(this.subject);
+        }
+
+        int generation = this.contextManager.getSignalGeneration();
+        int invalidations = this.invalidations.get();
+        SignalDrivenContexts signalDrivenContexts = this.signalDrivenContexts;
+        if (signalDrivenContexts == null || signalDrivenContexts.generation != generation || signalDrivenContexts.invalidations != invalidations) {
+            signalDrivenContexts = new SignalDrivenContexts(generation, invalidations, this.contextManager.calculateSignalDriven(this.subject));
+            this.signalDrivenContexts = signalDrivenContexts;
+        }
+
+        QueryOptions queryOptions = this.contextManager.calculatePolling(this.subject, signalDrivenContexts.contexts);
+
+        // keep returning the same instance while the result is unchanged
+        QueryOptions previous = this.previous;
+        if (previous != null && previous.equals(queryOptions)) {
+            return previous;
+        }
+        this.previous = queryOptions;
+        return queryOptions;
+    }
+
+    @Override
+    public void invalidate() {
+        this.invalidations.incrementAndGet();
+        this.signalDrivenContexts = null;
+        super.invalidate();
     }
 
     @Override
@@ -61,4 +106,16 @@ public final class QueryOptionsCache<T> extends ExpiringCache<QueryOptions> impl
     public ImmutableContextSet getContextSet() {
         return get().context();
     }
+
+    private static final class SignalDrivenContexts {
+        private final int generation;
+        private final int invalidations;
+        private final ImmutableContextSet contexts;
+
+        SignalDrivenContexts(int generation, int invalidations, ImmutableContextSet contexts) {
+            this.generation = generation;
+            this.invalidations = invalidations;
+            this.contexts = contexts;
+        }
+    }
 }
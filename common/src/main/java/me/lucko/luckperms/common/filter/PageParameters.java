@@ -25,6 +25,9 @@
 
 package me.lucko.luckperms.common.filter;
 
+import me.lucko.luckperms.common.actionlog.LogCursor;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Stream;
@@ -33,8 +36,25 @@ public class PageParameters {
 
     private final int pageSize;
     private final int pageNumber;
+    private final @Nullable LogCursor after;
 
     public PageParameters(int pageSize, int pageNumber) {
+        this(pageSize, pageNumber, null);
+    }
+
+    /**
+     * Creates new page parameters.
+     *
+     * <p>If the position of the last entry on the previous page is known, storage
+     * implementations which support it will seek directly to the entries after it,
+     * instead of skipping over every entry on the preceding pages. The page number is
+     * still used to number the entries.</p>
+     *
+     * @param pageSize the page size
+     * @param pageNumber the page number
+     * @param after the position of the last entry on the previous page, if known
+     */
+    public PageParameters(int pageSize, int pageNumber, @Nullable LogCursor after) {
         if (pageSize < 1) {
             throw new IllegalArgumentException("pageSize cannot be less than 1: " + pageSize);
         }
@@ -44,6 +64,7 @@ public class PageParameters {
 
         this.pageSize = pageSize;
         this.pageNumber = pageNumber;
+        this.after = after;
     }
 
     public int pageSize() {
@@ -54,6 +75,10 @@ public class PageParameters {
         return this.pageNumber;
     }
 
+    public @Nullable LogCursor after() {
+        return this.after;
+    }
+
     public <T> List<T> paginate(List<T> input) {
         int fromIndex = this.pageSize * (this.pageNumber - 1);
         if (fromIndex >= input.size()) {
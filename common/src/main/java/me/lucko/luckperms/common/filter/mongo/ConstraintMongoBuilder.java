@@ -81,6 +81,10 @@ public class ConstraintMongoBuilder {
 
         int pageSize = params.pageSize();
         int pageNumber = params.pageNumber();
+        if (params.after() != null) {
+            // the query seeks past the previous page itself
+            return iterable.limit(pageSize);
+        }
         return iterable.limit(pageSize).skip((pageNumber - 1) * pageSize);
     }
 
@@ -51,6 +51,11 @@ public abstract class FilterSqlBuilder<T> extends ConstraintSqlBuilder {
             return;
         }
 
+        this.builder.append(" WHERE");
+        visitConditions(combineOperator, filters);
+    }
+
+    public void visitConditions(FilterList.LogicalOperator combineOperator, List<? extends Filter<T, ?>> filters) {
         String combineString;
         switch (combineOperator) {
             case AND:
@@ -63,7 +68,6 @@ public abstract class FilterSqlBuilder<T> extends ConstraintSqlBuilder {
                 throw new AssertionError(combineOperator);
         }
 
-        this.builder.append(" WHERE");
         for (int i = 0; i < filters.size(); i++) {
             Filter<T, ?> filter = filters.get(i);
             this.builder.append(" ");
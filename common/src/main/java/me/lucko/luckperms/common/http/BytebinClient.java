@@ -33,11 +33,14 @@ import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
+import okio.BufferedSink;
+import org.checkerframework.checker.nullness.qual.NonNull;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 
 public class BytebinClient extends AbstractHttpClient {
@@ -86,8 +89,35 @@ public class BytebinClient extends AbstractHttpClient {
      * @throws IOException if an error occurs
      */
     public Content postContent(byte[] buf, MediaType contentType, String userAgentExtra) throws IOException, UnsuccessfulRequestException {
-        RequestBody body = RequestBody.create(contentType, buf);
+        return postContent(RequestBody.create(contentType, buf), userAgentExtra);
+    }
 
+    /**
+     * POSTs GZIP compressed content to bytebin, streaming it to the request
+     * body as it is written.
+     *
+     * @param writer writes the compressed content
+     * @param contentType the type of the content
+     * @param userAgentExtra extra string to append to the user agent
+     * @return the key of the resultant content
+     * @throws IOException if an error occurs
+     */
+    public Content postContent(ContentWriter writer, MediaType contentType, String userAgentExtra) throws IOException, UnsuccessfulRequestException {
+        RequestBody body = new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return contentType;
+            }
+
+            @Override
+            public void writeTo(@NonNull BufferedSink sink) throws IOException {
+                writer.writeTo(sink.outputStream());
+            }
+        };
+        return postContent(body, userAgentExtra);
+    }
+
+    private Content postContent(RequestBody body, String userAgentExtra) throws IOException, UnsuccessfulRequestException {
         String userAgent = this.userAgent;
         if (userAgentExtra != null) {
             userAgent += "/" + userAgentExtra;
@@ -112,6 +142,14 @@ public class BytebinClient extends AbstractHttpClient {
         return postContent(buf, contentType, null);
     }
 
+    /**
+     * Writes content to a request body.
+     */
+    @FunctionalInterface
+    public interface ContentWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
     /**
      * GETs json content from bytebin
      *
@@ -0,0 +1,117 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+
+package me.lucko.luckperms.common.inheritance;
+
+import com.google.common.collect.ImmutableSet;
+import me.lucko.luckperms.common.model.PermissionHolderIdentifier;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An index of the holders which directly inherit from each group.
+ *
+ * <p>Holders record the groups they inherit from (in any context) whenever their
+ * nodes change, and are removed from the index when they are unloaded.</p>
+ */
+public class InheritorIndex {
+
+    /** group name -> the holders which directly inherit from it */
+    private final Map<String, Set<PermissionHolderIdentifier>> inheritors = new ConcurrentHashMap<>();
+
+    /** holder -> the groups it directly inherits from */
+    private final Map<PermissionHolderIdentifier, Set<String>> parents = new ConcurrentHashMap<>();
+
+    /**
+     * Records the groups which the given holder directly inherits from.
+     *
+     * @param holder the holder
+     * @param groups the names of the groups it inherits from
+     */
+    public void update(PermissionHolderIdentifier holder, Set<String> groups) {
+        Set<String> copy = ImmutableSet.copyOf(groups);
+        this.parents.compute(holder, (k, previous) -> {
+            if (previous != null) {
+                for (String group : previous) {
+                    if (!copy.contains(group)) {
+                        removeInheritor(group, holder);
+                    }
+                }
+            }
+            for (String group : copy) {
+                if (previous == null || !previous.contains(group)) {
+                    addInheritor(group, holder);
+                }
+            }
+            return copy.isEmpty() ? null : copy;
+        });
+    }
+
+    /**
+     * Removes the given holder from the index.
+     *
+     * @param holder the holder
+     */
+    public void remove(PermissionHolderIdentifier holder) {
+        this.parents.computeIfPresent(holder, (k, previous) -> {
+            for (String group : previous) {
+                removeInheritor(group, holder);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Gets the holders which directly inherit from the given group.
+     *
+     * @param group the name of the group
+     * @return the holders
+     */
+    public Set<PermissionHolderIdentifier> getInheritors(String group) {
+        Set<PermissionHolderIdentifier> inheritors = this.inheritors.get(group);
+        return inheritors == null ? ImmutableSet.of() : ImmutableSet.copyOf(inheritors);
+    }
+
+    private void addInheritor(String group, PermissionHolderIdentifier holder) {
+        this.inheritors.compute(group, (k, holders) -> {
+            if (holders == null) {
+                holders = ConcurrentHashMap.newKeySet();
+            }
+            holders.add(holder);
+            return holders;
+        });
+    }
+
+    private void removeInheritor(String group, PermissionHolderIdentifier holder) {
+        this.inheritors.computeIfPresent(group, (k, holders) -> {
+            holders.remove(holder);
+            return holders.isEmpty() ? null : holders;
+        });
+    }
+
+}
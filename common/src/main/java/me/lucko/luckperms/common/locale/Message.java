@@ -27,6 +27,9 @@ package me.lucko.luckperms.common.locale;
 
 import com.google.common.collect.Maps;
 import me.lucko.luckperms.common.actionlog.LoggedAction;
+import me.lucko.luckperms.common.context.manager.CalculatorStatistics;
+import me.lucko.luckperms.common.metrics.AbstractMetric;
+import me.lucko.luckperms.common.metrics.Timer;
 import me.lucko.luckperms.common.model.Group;
 import me.lucko.luckperms.common.model.HolderType;
 import me.lucko.luckperms.common.model.PermissionHolder;
@@ -36,6 +39,7 @@ import me.lucko.luckperms.common.plugin.AbstractLuckPermsPlugin;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.plugin.bootstrap.LuckPermsBootstrap;
 import me.lucko.luckperms.common.sender.Sender;
+import me.lucko.luckperms.common.storage.OperationStatistics;
 import me.lucko.luckperms.common.storage.StorageMetadata;
 import me.lucko.luckperms.common.util.DurationFormatter;
 import net.kyori.adventure.text.Component;
@@ -60,6 +64,7 @@ import java.text.DecimalFormat;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
 import java.time.format.DateTimeFormatter;
 import java.util.Collection;
 import java.util.Iterator;
@@ -1054,6 +1059,22 @@ public interface Message {
             .append(FULL_STOP)
     );
 
+    Args2<Integer, Integer> APPLY_EDITS_LOADING = (users, groups) -> prefixed(translatable()
+            // "&7Loading &b{}&7 users and &b{}&7 groups affected by the changes..."
+            .key("luckperms.command.editor.apply-edits.loading")
+            .color(GRAY)
+            .args(text(users, AQUA), text(groups, AQUA))
+            .append(text("..."))
+    );
+
+    Args1<Integer> APPLY_EDITS_SAVING = count -> prefixed(translatable()
+            // "&7Saving the changes made to &b{}&7 users, groups and tracks..."
+            .key("luckperms.command.editor.apply-edits.saving")
+            .color(GRAY)
+            .args(text(count, AQUA))
+            .append(text("..."))
+    );
+
     Args2<String, Component> APPLY_EDITS_SUCCESS = (type, name) -> prefixed(translatable()
             // "&aWeb editor data was applied to {} &b{}&a successfully."
             .key("luckperms.command.editor.apply-edits.success")
@@ -1537,6 +1558,130 @@ public interface Message {
             )
     );
 
+    Args0 CONTEXT_STATS_NONE = () -> prefixed(translatable()
+            // "&7No context calculators are registered."
+            .key("luckperms.command.context-stats.none")
+            .color(GRAY)
+            .append(FULL_STOP)
+    );
+
+    Args0 CONTEXT_STATS_HEADER = () -> prefixed(translatable()
+            // "&aContext calculator statistics:"
+            .key("luckperms.command.context-stats.header")
+            .color(GREEN)
+            .append(text(':'))
+    );
+
+    Args1<CalculatorStatistics> CONTEXT_STATS_ENTRY = statistics -> joinNewline(
+            // "&f-  &3{} &8(async)"
+            // "     &7Calls: &f{}&7, Average: &f{}&7, Max: &f{}&7, Slow: &c{}"
+            prefixed(text()
+                    .color(DARK_AQUA)
+                    .append(text("-  ", WHITE))
+                    .append(text(statistics.getCalculatorName()))
+                    .apply(builder -> {
+                        if (statistics.isAsync()) {
+                            builder.append(space());
+                            builder.append(text()
+                                    .color(DARK_GRAY)
+                                    .append(OPEN_BRACKET)
+                                    .append(translatable("luckperms.command.context-stats.async"))
+                                    .append(CLOSE_BRACKET)
+                            );
+                        }
+                    })),
+            prefixed(text()
+                    .color(GRAY)
+                    .append(text("     "))
+                    .append(translatable("luckperms.command.context-stats.calls-key"))
+                    .append(text(": "))
+                    .append(text(statistics.getCallCount(), WHITE))
+                    .append(text(", "))
+                    .append(translatable("luckperms.command.context-stats.average-key"))
+                    .append(text(": "))
+                    .append(text(formatNanos(statistics.getAverageTime().toNanos()), WHITE))
+                    .append(text(", "))
+                    .append(translatable("luckperms.command.context-stats.max-key"))
+                    .append(text(": "))
+                    .append(text(formatNanos(statistics.getMaxTime().toNanos()), WHITE))
+                    .append(text(", "))
+                    .append(translatable("luckperms.command.context-stats.slow-key"))
+                    .append(text(": "))
+                    .append(text(statistics.getSlowCallCount(), RED))
+                    .apply(builder -> {
+                        TextComponent.Builder hover = text()
+                                .color(GRAY)
+                                .append(translatable("luckperms.command.context-stats.histogram-key", AQUA))
+                                .append(text(':', AQUA));
+
+                        long lower = 0;
+                        for (Map.Entry<Duration, Long> bucket : statistics.getLatencyHistogram().entrySet()) {
+                            hover.append(newline());
+                            hover.append(text(formatNanos(lower) + " - "));
+                            if (bucket.getKey().equals(ChronoUnit.FOREVER.getDuration())) {
+                                hover.append(text('\u221e'));
+                            } else {
+                                lower = bucket.getKey().toNanos();
+                                hover.append(text(formatNanos(lower)));
+                            }
+                            hover.append(text(": "));
+                            hover.append(text(bucket.getValue(), WHITE));
+                        }
+
+                        builder.hoverEvent(HoverEvent.showText(hover.build()));
+                    }))
+    );
+
+    Args0 METRICS_NONE = () -> prefixed(translatable()
+            // "&7No metrics were found."
+            .key("luckperms.command.metrics.none")
+            .color(GRAY)
+            .append(FULL_STOP)
+    );
+
+    Args0 METRICS_HEADER = () -> prefixed(translatable()
+            // "&aMetrics:"
+            .key("luckperms.command.metrics.header")
+            .color(GREEN)
+            .append(text(':'))
+    );
+
+    Args1<AbstractMetric> METRICS_ENTRY = metric -> prefixed(text()
+            // "&f-  &3{}&7: &f{}"
+            .color(DARK_AQUA)
+            .append(text("-  ", WHITE))
+            .append(text(metric.toString()))
+            .append(text(": ", GRAY))
+            .append(text(formatMetricValue(metric.getValue()), WHITE))
+    );
+
+    Args1<Timer> METRICS_TIMER_ENTRY = timer -> joinNewline(
+            // "&f-  &3{}"
+            // "     &7Count: &f{}&7, Average: &f{}&7, p95: &f{}&7, p99: &f{}&7, Max: &f{}"
+            prefixed(text()
+                    .color(DARK_AQUA)
+                    .append(text("-  ", WHITE))
+                    .append(text(timer.toString()))),
+            prefixed(text()
+                    .color(GRAY)
+                    .append(text("     "))
+                    .append(translatable("luckperms.command.metrics.count-key"))
+                    .append(text(": "))
+                    .append(text(timer.getCount(), WHITE))
+                    .append(text(", "))
+                    .append(translatable("luckperms.command.metrics.average-key"))
+                    .append(text(": "))
+                    .append(text(formatNanos(timer.getAverageTime().toNanos()), WHITE))
+                    .append(text(", p95: "))
+                    .append(text(formatNanos(timer.getPercentile(95).toNanos()), WHITE))
+                    .append(text(", p99: "))
+                    .append(text(formatNanos(timer.getPercentile(99).toNanos()), WHITE))
+                    .append(text(", "))
+                    .append(translatable("luckperms.command.metrics.max-key"))
+                    .append(text(": "))
+                    .append(text(formatNanos(timer.getMaxTime().toNanos()), WHITE)))
+    );
+
     Args2<LuckPermsPlugin, StorageMetadata> INFO = (plugin, storageMeta) -> joinNewline(
             // "&2Running &bLuckPerms v{}&2 by &bLuck&2."
             // "&f-  &3Platform: &f{}"
@@ -1546,6 +1691,7 @@ public interface Message {
             // "&f-  &bStorage:"
             // "     &3Type: &f{}"
             // "     &3Some meta value: {}"
+            // "     &3Operations: &f{} &7(&c{}&7 errors, &e{}&7 slow)"
             // "&f-  &3Extensions:"
             // "     &f{}"
             // "&f-  &bMessaging: &f{}"
@@ -1635,6 +1781,60 @@ public interface Message {
                                     .append(text(size, GREEN))
                             ));
                         }
+
+                        List<OperationStatistics> operations = plugin.getStorage().getOperationStatistics();
+                        if (!operations.isEmpty()) {
+                            long count = 0;
+                            long errors = 0;
+                            long slow = 0;
+                            TextComponent.Builder hover = text()
+                                    .color(GRAY)
+                                    .append(translatable("luckperms.command.info.storage.operations-key", AQUA))
+                                    .append(text(':', AQUA));
+
+                            for (OperationStatistics operation : operations) {
+                                count += operation.getCount();
+                                errors += operation.getErrorCount();
+                                slow += operation.getSlowCount();
+
+                                // "&3{}&7: &f{}&7 calls, p95 &f{}&7, p99 &f{}&7, max &f{}&7, avg wait &f{}&7, &c{}&7 errors"
+                                hover.append(newline());
+                                hover.append(text(operation.getOperation(), DARK_AQUA));
+                                hover.append(text(": "));
+                                hover.append(text(operation.getCount(), WHITE));
+                                hover.append(text(" calls, p95 "));
+                                hover.append(text(formatNanos(operation.getExecutionTime().getPercentile(95).toNanos()), WHITE));
+                                hover.append(text(", p99 "));
+                                hover.append(text(formatNanos(operation.getExecutionTime().getPercentile(99).toNanos()), WHITE));
+                                hover.append(text(", max "));
+                                hover.append(text(formatNanos(operation.getExecutionTime().getMaxTime().toNanos()), WHITE));
+                                hover.append(text(", avg wait "));
+                                hover.append(text(formatNanos(operation.getQueueTime().getAverageTime().toNanos()), WHITE));
+                                hover.append(text(", "));
+                                hover.append(text(operation.getErrorCount(), RED));
+                                hover.append(text(" errors"));
+                            }
+
+                            builder.append(newline());
+                            builder.append(prefixed(text()
+                                    .color(DARK_AQUA)
+                                    .append(text("     "))
+                                    .append(translatable("luckperms.command.info.storage.operations-key"))
+                                    .append(text(": "))
+                                    .append(text(count, WHITE))
+                                    .append(space())
+                                    .append(text()
+                                            .color(GRAY)
+                                            .append(OPEN_BRACKET)
+                                            .append(translatable()
+                                                    .key("luckperms.command.info.storage.operations")
+                                                    .args(text(errors, RED), text(slow, YELLOW))
+                                            )
+                                            .append(CLOSE_BRACKET)
+                                    )
+                                    .hoverEvent(HoverEvent.showText(hover.build()))
+                            ));
+                        }
                     })),
             prefixed(text()
                     .color(AQUA)
@@ -4344,6 +4544,20 @@ public interface Message {
         return builder.build();
     }
 
+    static String formatNanos(long nanos) {
+        if (nanos < 1000000) {
+            return new DecimalFormat("#.#").format(nanos / 1000D) + "\u00b5s";
+        }
+        return new DecimalFormat("#.##").format(nanos / 1000000D) + "ms";
+    }
+
+    static String formatMetricValue(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        return new DecimalFormat("#.##").format(value);
+    }
+
     static Component formatBoolean(boolean bool) {
         return bool ? text("true", GREEN) : text("false", RED);
     }
@@ -34,6 +34,7 @@ import me.lucko.luckperms.common.messaging.message.ActionLogMessageImpl;
 import me.lucko.luckperms.common.messaging.message.CustomMessageImpl;
 import me.lucko.luckperms.common.messaging.message.UpdateMessageImpl;
 import me.lucko.luckperms.common.messaging.message.UserUpdateMessageImpl;
+import me.lucko.luckperms.common.metrics.MetricsRegistry;
 import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.util.AsyncInterface;
@@ -54,14 +55,13 @@ import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.util.Objects;
-import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 public class LuckPermsMessagingService extends AsyncInterface implements InternalMessagingService, IncomingMessageConsumer {
     private final LuckPermsPlugin plugin;
-    private final Set<UUID> receivedMessages;
+    private final ExpiringSet<UUID> receivedMessages;
     private final PushUpdateBuffer updateBuffer;
 
     private final MessengerProvider messengerProvider;
@@ -110,26 +110,59 @@ public class LuckPermsMessagingService extends AsyncInterface implements Interna
         return uuid;
     }
 
+    /**
+     * Records that a message has been sent.
+     *
+     * @param type the type of message
+     * @param start the time (from {@link System#nanoTime()}) the message was requested to be sent
+     */
+    private void recordSent(String type, long start) {
+        MetricsRegistry metrics = this.plugin.getMetrics();
+        metrics.counter("messaging_sent_total", "Messages sent by the messaging service", "type", type).increment();
+        metrics.timer("messaging_send_time", "Time between a message being requested and it being handed to the messenger", "type", type)
+                .record(System.nanoTime() - start);
+    }
+
+    /**
+     * Records that a message has been received and handled.
+     *
+     * @param type the type of message
+     * @param start the time (from {@link System#nanoTime()}) the message was received
+     */
+    private void recordReceived(String type, long start) {
+        this.plugin.getMetrics().timer("messaging_receive_time", "Time between a message being received and the resulting changes being applied", "type", type)
+                .record(System.nanoTime() - start);
+    }
+
+    private void recordIgnored() {
+        this.plugin.getMetrics().counter("messaging_ignored_total", "Incoming messages ignored because they were sent by this server or already received").increment();
+    }
+
     @Override
     public CompletableFuture<Void> pushUpdate() {
+        long start = System.nanoTime();
         return future(() -> {
             UUID requestId = generatePingId();
             this.plugin.getLogger().info("[Messaging] Sending ping with id: " + requestId);
             this.messenger.sendOutgoingMessage(new UpdateMessageImpl(requestId));
+            recordSent(UpdateMessageImpl.TYPE, start);
         });
     }
 
     @Override
     public CompletableFuture<Void> pushUserUpdate(User user) {
+        long start = System.nanoTime();
         return future(() -> {
             UUID requestId = generatePingId();
             this.plugin.getLogger().info("[Messaging] Sending user ping for '" + user.getPlainDisplayName() + "' with id: " + requestId);
             this.messenger.sendOutgoingMessage(new UserUpdateMessageImpl(requestId, user.getUniqueId()));
+            recordSent(UserUpdateMessageImpl.TYPE, start);
         });
     }
 
     @Override
     public CompletableFuture<Void> pushLog(Action logEntry) {
+        long start = System.nanoTime();
         return future(() -> {
             UUID requestId = generatePingId();
 
@@ -139,14 +172,17 @@ public class LuckPermsMessagingService extends AsyncInterface implements Interna
 
             this.plugin.getLogger().info("[Messaging] Sending log with id: " + requestId);
             this.messenger.sendOutgoingMessage(new ActionLogMessageImpl(requestId, logEntry));
+            recordSent(ActionLogMessageImpl.TYPE, start);
         });
     }
 
     @Override
     public CompletableFuture<Void> pushCustomPayload(String channelId, String payload) {
+        long start = System.nanoTime();
         return future(() -> {
             UUID requestId = generatePingId();
             this.messenger.sendOutgoingMessage(new CustomMessageImpl(requestId, channelId, payload));
+            recordSent(CustomMessageImpl.TYPE, start);
         });
     }
 
@@ -155,6 +191,7 @@ public class LuckPermsMessagingService extends AsyncInterface implements Interna
         Objects.requireNonNull(message, "message");
 
         if (!this.receivedMessages.add(message.getId())) {
+            recordIgnored();
             return false;
         }
 
@@ -199,6 +236,7 @@ public class LuckPermsMessagingService extends AsyncInterface implements Interna
 
         // ensure the message hasn't been received already
         if (!this.receivedMessages.add(id)) {
+            recordIgnored();
             return false;
         }
 
@@ -252,6 +290,8 @@ public class LuckPermsMessagingService extends AsyncInterface implements Interna
     }
 
     private void processIncomingMessage(Message message) {
+        long start = System.nanoTime();
+
         if (message instanceof UpdateMessage) {
             UpdateMessage msg = (UpdateMessage) message;
             UUID msgId = msg.getId();
@@ -262,7 +302,10 @@ public class LuckPermsMessagingService extends AsyncInterface implements Interna
 
             this.plugin.getLogger().info("[Messaging] Received update ping with id: " + msgId);
             this.plugin.getSyncTaskBuffer().request()
-                    .thenRunAsync(() -> this.plugin.getEventDispatcher().dispatchNetworkPostSync(msgId, SyncType.FULL, true, null));
+                    .thenRunAsync(() -> {
+                        recordReceived(UpdateMessageImpl.TYPE, start);
+                        this.plugin.getEventDispatcher().dispatchNetworkPostSync(msgId, SyncType.FULL, true, null);
+                    });
 
         } else if (message instanceof UserUpdateMessage) {
             UserUpdateMessage msg = (UserUpdateMessage) message;
@@ -275,24 +318,30 @@ public class LuckPermsMessagingService extends AsyncInterface implements Interna
 
             User user = this.plugin.getUserManager().getIfLoaded(userUniqueId);
             if (user == null) {
+                this.plugin.getUserManager().invalidateOfflineUser(userUniqueId);
                 this.plugin.getEventDispatcher().dispatchNetworkPostSync(msgId, SyncType.SPECIFIC_USER, false, userUniqueId);
                 return;
             }
 
             this.plugin.getLogger().info("[Messaging] Received user update ping for '" + user.getPlainDisplayName() + "' with id: " + msgId);
             this.plugin.getStorage().loadUser(user.getUniqueId(), null)
-                    .thenRunAsync(() -> this.plugin.getEventDispatcher().dispatchNetworkPostSync(msgId, SyncType.SPECIFIC_USER, true, userUniqueId));
+                    .thenRunAsync(() -> {
+                        recordReceived(UserUpdateMessageImpl.TYPE, start);
+                        this.plugin.getEventDispatcher().dispatchNetworkPostSync(msgId, SyncType.SPECIFIC_USER, true, userUniqueId);
+                    });
             
         } else if (message instanceof ActionLogMessage) {
             ActionLogMessage msg = (ActionLogMessage) message;
 
             this.plugin.getEventDispatcher().dispatchLogReceive(msg.getId(), msg.getAction());
             this.plugin.getLogDispatcher().broadcastFromRemote((LoggedAction) msg.getAction());
+            recordReceived(ActionLogMessageImpl.TYPE, start);
 
         } else if (message instanceof CustomMessage) {
             CustomMessage msg = (CustomMessage) message;
 
             this.plugin.getEventDispatcher().dispatchCustomMessageReceive(msg.getChannelId(), msg.getPayload());
+            recordReceived(CustomMessageImpl.TYPE, start);
 
         } else {
             throw new IllegalArgumentException("Unknown message type: " + message.getClass().getName());
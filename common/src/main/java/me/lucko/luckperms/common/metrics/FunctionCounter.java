@@ -0,0 +1,60 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+
+package me.lucko.luckperms.common.metrics;
+
+import com.google.common.collect.ImmutableMap;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * A counter whose value is read from a function whenever it is requested, for
+ * counts which are already kept elsewhere.
+ */
+public final class FunctionCounter extends AbstractMetric {
+    private final DoubleSupplier function;
+
+    FunctionCounter(String name, String description, ImmutableMap<String, String> labels, DoubleSupplier function) {
+        super(name, description, labels);
+        this.function = function;
+    }
+
+    @Override
+    public @NonNull Type getType() {
+        return Type.COUNTER;
+    }
+
+    @Override
+    public double getValue() {
+        try {
+            return this.function.getAsDouble();
+        } catch (Exception e) {
+            // the state being measured may not be available (e.g. during startup/shutdown)
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.metrics;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import net.luckperms.api.metrics.Metric;
+import net.luckperms.api.metrics.Metrics;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Registry of the {@link Metric}s recorded by the plugin.
+ *
+ * <p>Metrics are identified by their name and labels. Requesting a metric which
+ * has already been registered returns the existing instance, so callers can
+ * look up the metrics they record to whenever convenient.</p>
+ */
+public class MetricsRegistry implements Metrics {
+    private static final Comparator<Metric> COMPARATOR = Comparator.<Metric, String>comparing(Metric::getName)
+            .thenComparing(metric -> metric.getLabels().toString());
+
+    private final Map<Map.Entry<String, ImmutableMap<String, String>>, AbstractMetric> metrics = new ConcurrentHashMap<>();
+
+    /**
+     * Gets or registers a counter.
+     *
+     * @param name the name of the counter, by convention ending with {@code _total}
+     * @param description a description of the counter
+     * @param labels the labels of the counter, as alternating keys and values
+     * @return the counter
+     */
+    public Counter counter(String name, String description, String... labels) {
+        return get(name, labels, Counter.class, (n, l) -> new Counter(n, description, l));
+    }
+
+    /**
+     * Gets or registers a timer.
+     *
+     * @param name the name of the timer
+     * @param description a description of the timer
+     * @param labels the labels of the timer, as alternating keys and values
+     * @return the timer
+     */
+    public Timer timer(String name, String description, String... labels) {
+        return get(name, labels, Timer.class, (n, l) -> new Timer(n, description, l));
+    }
+
+    /**
+     * Registers a gauge, replacing any existing gauge with the same name and labels.
+     *
+     * @param name the name of the gauge
+     * @param description a description of the gauge
+     * @param function the function used to read the value of the gauge
+     * @param labels the labels of the gauge, as alternating keys and values
+     * @throws IllegalStateException if a metric of another type is registered with the
+     *                               same name and labels, in which case it is left unchanged
+     */
+    public void gauge(String name, String description, DoubleSupplier function, String... labels) {
+        replace(name, labels, Gauge.class, (n, l) -> new Gauge(n, description, l, function));
+    }
+
+    /**
+     * Registers a counter whose value is read from a function, replacing any existing
+     * function counter with the same name and labels.
+     *
+     * <p>The function must return a value which never decreases.</p>
+     *
+     * @param name the name of the counter, by convention ending with {@code _total}
+     * @param description a description of the counter
+     * @param function the function used to read the value of the counter
+     * @param labels the labels of the counter, as alternating keys and values
+     * @throws IllegalStateException if a metric of another type is registered with the
+     *                               same name and labels, in which case it is left unchanged
+     */
+    public void functionCounter(String name, String description, DoubleSupplier function, String... labels) {
+        replace(name, labels, FunctionCounter.class, (n, l) -> new FunctionCounter(n, description, l, function));
+    }
+
+    private <T extends AbstractMetric> void replace(String name, String[] labels, Class<T> type, MetricFactory<T> factory) {
+        ImmutableMap<String, String> labelMap = toLabels(labels);
+        this.metrics.compute(Maps.immutableEntry(name, labelMap), (key, existing) -> {
+            // leave metrics of another type in place
+            if (existing != null && !type.isInstance(existing)) {
+                throw new IllegalStateException("Metric " + existing + " is already registered as a " + existing.getType());
+            }
+            return factory.create(name, labelMap);
+        });
+    }
+
+    private <T extends AbstractMetric> T get(String name, String[] labels, Class<T> type, MetricFactory<T> factory) {
+        ImmutableMap<String, String> labelMap = toLabels(labels);
+        AbstractMetric metric = this.metrics.computeIfAbsent(Maps.immutableEntry(name, labelMap), key -> factory.create(name, labelMap));
+        if (!type.isInstance(metric)) {
+            throw new IllegalStateException("Metric " + metric + " is already registered as a " + metric.getType());
+        }
+        return type.cast(metric);
+    }
+
+    private static ImmutableMap<String, String> toLabels(String[] labels) {
+        if (labels.length == 0) {
+            return ImmutableMap.of();
+        }
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be given as key-value pairs");
+        }
+
+        ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
+        for (int i = 0; i < labels.length; i += 2) {
+            builder.put(labels[i], labels[i + 1]);
+        }
+        return builder.build();
+    }
+
+    @Override
+    public @NonNull Collection<Metric> getMetrics() {
+        List<Metric> metrics = new ArrayList<>(this.metrics.values());
+        metrics.sort(COMPARATOR);
+        return ImmutableList.copyOf(metrics);
+    }
+
+    @Override
+    public @NonNull Collection<Metric> getMetrics(@NonNull String name) {
+        Objects.requireNonNull(name, "name");
+        List<Metric> metrics = new ArrayList<>();
+        for (AbstractMetric metric : this.metrics.values()) {
+            if (metric.getName().equals(name)) {
+                metrics.add(metric);
+            }
+        }
+        metrics.sort(COMPARATOR);
+        return ImmutableList.copyOf(metrics);
+    }
+
+    @Override
+    public @NonNull String toPrometheusFormat() {
+        StringBuilder sb = new StringBuilder();
+        PrometheusExporter.format(getMetrics(), sb);
+        return sb.toString();
+    }
+
+    @FunctionalInterface
+    private interface MetricFactory<T extends AbstractMetric> {
+        T create(String name, ImmutableMap<String, String> labels);
+    }
+
+}
@@ -0,0 +1,191 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.metrics;
+
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import net.luckperms.api.metrics.Metric;
+import net.luckperms.api.metrics.TimerMetric;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Periodically writes the plugin metrics to a file in the Prometheus text
+ * exposition format.
+ *
+ * <p>The file is replaced atomically, so it can be picked up by the node exporter's
+ * "textfile" collector (or anything else able to read the format) at any time.</p>
+ */
+public class PrometheusExporter implements Runnable {
+    private static final String PREFIX = "luckperms_";
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+    private final LuckPermsPlugin plugin;
+    private final Path file;
+
+    // only log the first failure until the next successful export
+    private boolean failing = false;
+
+    public PrometheusExporter(LuckPermsPlugin plugin, Path file) {
+        this.plugin = plugin;
+        this.file = file;
+    }
+
+    @Override
+    public void run() {
+        StringBuilder sb = new StringBuilder();
+        format(this.plugin.getMetrics().getMetrics(), sb);
+
+        try {
+            Path parent = this.file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+
+            Path temp = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.append(sb);
+            }
+
+            try {
+                Files.move(temp, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, this.file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            this.failing = false;
+        } catch (IOException e) {
+            if (!this.failing) {
+                this.failing = true;
+                this.plugin.getLogger().warn("Unable to export metrics to " + this.file, e);
+            }
+        }
+    }
+
+    /**
+     * Formats the given metrics in the Prometheus text exposition format.
+     *
+     * <p>Metrics with the same name must be adjacent.</p>
+     *
+     * @param metrics the metrics
+     * @param sb the builder to append to
+     */
+    public static void format(Collection<Metric> metrics, StringBuilder sb) {
+        String lastName = null;
+        for (Metric metric : metrics) {
+            Metric.Type type = metric.getType();
+            String name = PREFIX + metric.getName() + (type == Metric.Type.TIMER ? "_seconds" : "");
+
+            if (!name.equals(lastName)) {
+                sb.append("# HELP ").append(name).append(' ').append(escapeHelp(metric.getDescription())).append('\n');
+                sb.append("# TYPE ").append(name).append(' ').append(typeName(type)).append('\n');
+                lastName = name;
+            }
+
+            if (type == Metric.Type.TIMER) {
+                TimerMetric timer = (TimerMetric) metric;
+                long cumulative = 0;
+                for (Map.Entry<Duration, Long> bucket : timer.getLatencyHistogram().entrySet()) {
+                    cumulative += bucket.getValue();
+                    String bound = bucket.getKey().equals(ChronoUnit.FOREVER.getDuration())
+                            ? "+Inf"
+                            : formatValue(bucket.getKey().toNanos() / NANOS_PER_SECOND);
+                    appendSample(sb, name + "_bucket", metric.getLabels(), bound, cumulative);
+                }
+                appendSample(sb, name + "_sum", metric.getLabels(), null, timer.getTotalTime().toNanos() / NANOS_PER_SECOND);
+                appendSample(sb, name + "_count", metric.getLabels(), null, cumulative);
+            } else {
+                appendSample(sb, name, metric.getLabels(), null, metric.getValue());
+            }
+        }
+    }
+
+    private static void appendSample(StringBuilder sb, String name, Map<String, String> labels, String le, double value) {
+        sb.append(name);
+        if (!labels.isEmpty() || le != null) {
+            sb.append('{');
+            boolean first = true;
+            for (Map.Entry<String, String> label : labels.entrySet()) {
+                if (!first) {
+                    sb.append(',');
+                }
+                first = false;
+                sb.append(label.getKey()).append("=\"").append(escapeLabelValue(label.getValue())).append('"');
+            }
+            if (le != null) {
+                if (!first) {
+                    sb.append(',');
+                }
+                sb.append("le=\"").append(le).append('"');
+            }
+            sb.append('}');
+        }
+        sb.append(' ').append(formatValue(value)).append('\n');
+    }
+
+    private static String typeName(Metric.Type type) {
+        switch (type) {
+            case COUNTER:
+                return "counter";
+            case GAUGE:
+                return "gauge";
+            case TIMER:
+                return "histogram";
+            default:
+                throw new IllegalArgumentException("Unknown type: " + type);
+        }
+    }
+
+    static String formatValue(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private static String escapeHelp(String help) {
+        return help.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+
+    private static String escapeLabelValue(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+}
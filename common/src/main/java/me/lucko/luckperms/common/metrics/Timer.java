@@ -0,0 +1,190 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.metrics;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+import net.luckperms.api.metrics.TimerMetric;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A metric which records a histogram of durations.
+ */
+public final class Timer extends AbstractMetric implements TimerMetric {
+
+    // the (exclusive) upper bounds of the histogram buckets, in nanoseconds
+    static final long[] BUCKET_BOUNDS = {
+            TimeUnit.MICROSECONDS.toNanos(10),
+            TimeUnit.MICROSECONDS.toNanos(100),
+            TimeUnit.MICROSECONDS.toNanos(500),
+            TimeUnit.MILLISECONDS.toNanos(1),
+            TimeUnit.MILLISECONDS.toNanos(5),
+            TimeUnit.MILLISECONDS.toNanos(10),
+            TimeUnit.MILLISECONDS.toNanos(50),
+            TimeUnit.MILLISECONDS.toNanos(100),
+            TimeUnit.MILLISECONDS.toNanos(500),
+            TimeUnit.SECONDS.toNanos(1),
+            TimeUnit.SECONDS.toNanos(5),
+            TimeUnit.SECONDS.toNanos(10)
+    };
+
+    private final LongAdder totalTime = new LongAdder();
+    private final AtomicLong maxTime = new AtomicLong();
+    private final LongAdder[] buckets;
+
+    Timer(String name, String description, ImmutableMap<String, String> labels) {
+        super(name, description, labels);
+        this.buckets = new LongAdder[BUCKET_BOUNDS.length + 1];
+        for (int i = 0; i < this.buckets.length; i++) {
+            this.buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records an event.
+     *
+     * @param nanos the duration of the event
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+
+        this.totalTime.add(nanos);
+
+        long max = this.maxTime.get();
+        while (nanos > max && !this.maxTime.compareAndSet(max, nanos)) {
+            max = this.maxTime.get();
+        }
+
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS.length && nanos >= BUCKET_BOUNDS[bucket]) {
+            bucket++;
+        }
+        this.buckets[bucket].increment();
+    }
+
+    /**
+     * Gets a snapshot of the number of events in each bucket.
+     *
+     * @return the bucket counts
+     */
+    long[] getBucketCounts() {
+        long[] counts = new long[this.buckets.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = this.buckets[i].sum();
+        }
+        return counts;
+    }
+
+    @Override
+    public @NonNull Type getType() {
+        return Type.TIMER;
+    }
+
+    @Override
+    public double getValue() {
+        return getCount();
+    }
+
+    @Override
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : this.buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    @Override
+    public @NonNull Duration getTotalTime() {
+        return Duration.ofNanos(this.totalTime.sum());
+    }
+
+    @Override
+    public @NonNull Duration getMaxTime() {
+        return Duration.ofNanos(this.maxTime.get());
+    }
+
+    public @NonNull Duration getAverageTime() {
+        long count = getCount();
+        return count == 0 ? Duration.ZERO : Duration.ofNanos(this.totalTime.sum() / count);
+    }
+
+    @Override
+    public @NonNull Duration getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+        }
+
+        long[] counts = getBucketCounts();
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return Duration.ZERO;
+        }
+
+        long max = this.maxTime.get();
+        double rank = percentile / 100d * total;
+
+        // find the bucket containing the rank, and interpolate linearly within it
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            long count = counts[i];
+            if (count != 0 && cumulative + count >= rank) {
+                long lower = i == 0 ? 0 : BUCKET_BOUNDS[i - 1];
+                long upper = i < BUCKET_BOUNDS.length ? Math.min(BUCKET_BOUNDS[i], max) : max;
+                if (upper <= lower) {
+                    return Duration.ofNanos(Math.min(lower, max));
+                }
+                double fraction = (rank - cumulative) / count;
+                return Duration.ofNanos(lower + (long) (fraction * (upper - lower)));
+            }
+            cumulative += count;
+        }
+        return Duration.ofNanos(max);
+    }
+
+    @Override
+    public @NonNull SortedMap<Duration, Long> getLatencyHistogram() {
+        long[] counts = getBucketCounts();
+        ImmutableSortedMap.Builder<Duration, Long> histogram = ImmutableSortedMap.naturalOrder();
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            histogram.put(Duration.ofNanos(BUCKET_BOUNDS[i]), counts[i]);
+        }
+        histogram.put(ChronoUnit.FOREVER.getDuration(), counts[BUCKET_BOUNDS.length]);
+        return histogram.build();
+    }
+}
@@ -29,6 +29,7 @@ import me.lucko.luckperms.common.api.implementation.ApiGroup;
 import me.lucko.luckperms.common.cache.Cache;
 import me.lucko.luckperms.common.cacheddata.GroupCachedDataManager;
 import me.lucko.luckperms.common.cacheddata.result.IntegerResult;
+import me.lucko.luckperms.common.cacheddata.type.MetaContribution;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.locale.Message;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
@@ -41,7 +42,10 @@ import net.luckperms.api.query.QueryOptions;
 import org.checkerframework.checker.nullness.qual.NonNull;
 
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Group extends PermissionHolder {
     private final ApiGroup apiProxy = new ApiGroup(this);
@@ -61,6 +65,11 @@ public class Group extends PermissionHolder {
      */
     private final Cache<Optional<String>> displayNameCache = new DisplayNameCache();
 
+    /**
+     * Caches the meta nodes contributed by the group, shared by all holders which inherit from it
+     */
+    private final MetaContributionCache metaContributionCache = new MetaContributionCache();
+
     /**
      * The groups data cache instance
      */
@@ -76,6 +85,7 @@ public class Group extends PermissionHolder {
 
     @Override
     protected void invalidateCache() {
+        this.metaContributionCache.invalidate();
         super.invalidateCache();
 
         // invalidate our caches
@@ -141,6 +151,17 @@ public class Group extends PermissionHolder {
         return name == null || name.equals(this.name) ? Optional.empty() : Optional.of(name);
     }
 
+    /**
+     * Gets the meta and chat meta nodes the group contributes to meta lookups
+     * with the given query options, in query order.
+     *
+     * @param queryOptions the query options
+     * @return the meta contribution
+     */
+    public MetaContribution getMetaContribution(QueryOptions queryOptions) {
+        return this.metaContributionCache.get(queryOptions);
+    }
+
     @Override
     public IntegerResult<WeightNode> getWeightResult() {
         return this.weightCache.get();
@@ -169,6 +190,49 @@ public class Group extends PermissionHolder {
         return "Group(name=" + this.name + ")";
     }
 
+    /**
+     * Caches the meta nodes of a {@link Group} for a small number of query options.
+     */
+    private final class MetaContributionCache {
+        private static final int MAX_SIZE = 32;
+
+        private final Map<QueryOptions, VersionedContribution> entries = new ConcurrentHashMap<>();
+
+        // incremented on invalidation, so results calculated concurrently aren't reused
+        private final AtomicInteger version = new AtomicInteger();
+
+        MetaContribution get(QueryOptions queryOptions) {
+            int version = this.version.get();
+
+            VersionedContribution entry = this.entries.get(queryOptions);
+            if (entry != null && entry.version == version) {
+                return entry.contribution;
+            }
+
+            MetaContribution contribution = MetaContribution.of(getOwnNodes(NodeType.META_OR_CHAT_META, queryOptions));
+            if (this.entries.size() >= MAX_SIZE) {
+                this.entries.clear();
+            }
+            this.entries.put(queryOptions, new VersionedContribution(version, contribution));
+            return contribution;
+        }
+
+        void invalidate() {
+            this.version.incrementAndGet();
+            this.entries.clear();
+        }
+    }
+
+    private static final class VersionedContribution {
+        private final int version;
+        private final MetaContribution contribution;
+
+        VersionedContribution(int version, MetaContribution contribution) {
+            this.version = version;
+            this.contribution = contribution;
+        }
+    }
+
     /**
      * Cache instance to supply the display name of a {@link Group}.
      */
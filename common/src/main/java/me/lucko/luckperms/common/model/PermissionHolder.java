@@ -29,15 +29,18 @@ import com.google.common.collect.Iterables;
 import me.lucko.luckperms.common.cacheddata.HolderCachedDataManager;
 import me.lucko.luckperms.common.cacheddata.result.IntegerResult;
 import me.lucko.luckperms.common.cacheddata.type.MetaAccumulator;
+import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.inheritance.InheritanceComparator;
 import me.lucko.luckperms.common.inheritance.InheritanceGraph;
+import me.lucko.luckperms.common.inheritance.InheritorIndex;
 import me.lucko.luckperms.common.model.nodemap.NodeMap;
-import me.lucko.luckperms.common.model.nodemap.NodeMapMutable;
+import me.lucko.luckperms.common.model.nodemap.NodeMapType;
 import me.lucko.luckperms.common.model.nodemap.RecordedNodeMap;
 import me.lucko.luckperms.common.node.NodeEquality;
 import me.lucko.luckperms.common.node.comparator.NodeWithContextComparator;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.query.DataSelector;
+import me.lucko.luckperms.common.tasks.ExpireTemporaryTask;
 import me.lucko.luckperms.common.util.Difference;
 import net.kyori.adventure.text.Component;
 import net.luckperms.api.context.ContextSet;
@@ -60,10 +63,12 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.OptionalInt;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.function.IntFunction;
@@ -136,8 +141,9 @@ public abstract class PermissionHolder {
     protected PermissionHolder(LuckPermsPlugin plugin, String objectName) {
         this.plugin = plugin;
         this.identifier = new PermissionHolderIdentifier(getType(), objectName);
-        this.normalNodes = new RecordedNodeMap(new NodeMapMutable(this, DataType.NORMAL));
-        this.transientNodes = new NodeMapMutable(this, DataType.TRANSIENT);
+        NodeMapType nodeMapType = plugin.getConfiguration().get(ConfigKeys.NODE_MAP_TYPES).get(getType());
+        this.normalNodes = new RecordedNodeMap(nodeMapType.create(this, DataType.NORMAL));
+        this.transientNodes = nodeMapType.create(this, DataType.TRANSIENT);
         this.inheritanceComparator = InheritanceComparator.getFor(this);
     }
 
@@ -213,6 +219,58 @@ public abstract class PermissionHolder {
     protected void invalidateCache() {
         getCachedData().invalidate();
         getPlugin().getEventDispatcher().dispatchDataRecalculate(this);
+        scheduleTemporaryNodeExpiry();
+        updateInheritorIndex();
+    }
+
+    /**
+     * Records the groups this holder directly inherits from in the {@link InheritorIndex}.
+     */
+    private void updateInheritorIndex() {
+        InheritorIndex index = this.plugin.getInheritorIndex();
+        if (index == null) {
+            return;
+        }
+
+        Set<String> groups = new HashSet<>();
+        for (InheritanceNode node : this.normalNodes.inheritanceAsList()) {
+            groups.add(node.getGroupName());
+        }
+        for (InheritanceNode node : this.transientNodes.inheritanceAsList()) {
+            groups.add(node.getGroupName());
+        }
+        index.update(this.identifier, groups);
+    }
+
+    /**
+     * Removes this holder from the {@link InheritorIndex}, once it has been unloaded.
+     */
+    public void removeFromInheritorIndex() {
+        InheritorIndex index = this.plugin.getInheritorIndex();
+        if (index != null) {
+            index.remove(this.identifier);
+        }
+    }
+
+    /**
+     * Registers the expiry time of the earliest temporary node held by this holder,
+     * so it can be removed by the {@link ExpireTemporaryTask} when it expires.
+     */
+    public void scheduleTemporaryNodeExpiry() {
+        ExpireTemporaryTask.Schedule schedule = this.plugin.getExpirySchedule();
+        if (schedule == null) {
+            return;
+        }
+
+        Instant earliest = this.normalNodes.earliestExpiry();
+        Instant transientEarliest = this.transientNodes.earliestExpiry();
+        if (earliest == null || (transientEarliest != null && transientEarliest.isBefore(earliest))) {
+            earliest = transientEarliest;
+        }
+
+        if (earliest != null) {
+            schedule.schedule(this.identifier, earliest.toEpochMilli());
+        }
     }
 
     public void loadNodesFromStorage(Iterable<? extends Node> set) {
@@ -387,15 +445,22 @@ public abstract class PermissionHolder {
     }
 
     public MetaAccumulator accumulateMeta(MetaAccumulator accumulator, QueryOptions queryOptions) {
+        boolean shareGroupMeta = this.plugin.getConfiguration().get(ConfigKeys.GROUP_META_CONTRIBUTION_CACHE);
+
         InheritanceGraph graph = this.plugin.getInheritanceGraphFactory().getGraph(queryOptions);
         for (PermissionHolder holder : graph.traverse(this)) {
             // accumulate nodes
-            for (DataType dataType : holder.queryOrder(queryOptions)) {
-                holder.getData(dataType).forEach(queryOptions, node -> {
-                    if (NodeType.META_OR_CHAT_META.matches(node)) {
-                        accumulator.accumulateNode(node);
-                    }
-                });
+            if (shareGroupMeta && holder instanceof Group) {
+                // the meta nodes of groups are cached & shared between everything inheriting from them
+                accumulator.accumulateContribution(((Group) holder).getMetaContribution(queryOptions));
+            } else {
+                for (DataType dataType : holder.queryOrder(queryOptions)) {
+                    holder.getData(dataType).forEach(queryOptions, node -> {
+                        if (NodeType.META_OR_CHAT_META.matches(node)) {
+                            accumulator.accumulateNode(node);
+                        }
+                    });
+                }
             }
 
             // accumulate weight
@@ -28,11 +28,13 @@ package me.lucko.luckperms.common.model;
 import me.lucko.luckperms.common.api.implementation.ApiUser;
 import me.lucko.luckperms.common.cacheddata.UserCachedDataManager;
 import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.model.manager.user.UserManager;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import net.kyori.adventure.text.Component;
 import net.luckperms.api.query.QueryOptions;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -116,6 +118,20 @@ public class User extends PermissionHolder {
      * @return true if a change was made
      */
     public boolean setUsername(String name, boolean weak) {
+        String previous = this.username;
+        boolean changed = setUsername0(name, weak);
+
+        // keep the username index held by the user manager in sync
+        if (!Objects.equals(previous, this.username)) {
+            UserManager<?> userManager = getPlugin().getUserManager();
+            if (userManager != null) {
+                userManager.updateUsernameIndex(this, previous);
+            }
+        }
+        return changed;
+    }
+
+    private boolean setUsername0(String name, boolean weak) {
         if (name != null && name.length() > 16) {
             return false; // nope
         }
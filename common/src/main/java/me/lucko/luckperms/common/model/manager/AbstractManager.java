@@ -40,7 +40,7 @@ import java.util.Map;
  */
 public abstract class AbstractManager<I, C, T extends C> implements Manager<I, C, T> {
 
-    private final LoadingMap<I, T> objects = LoadingMap.of(this);
+    private final LoadingMap<I, T> objects = LoadingMap.of(this::load);
 
     @Override
     public Map<I, T> getAll() {
@@ -65,7 +65,10 @@ public abstract class AbstractManager<I, C, T extends C> implements Manager<I, C
     @Override
     public void unload(I id) {
         if (id != null) {
-            this.objects.remove(sanitizeIdentifier(id));
+            T object = this.objects.remove(sanitizeIdentifier(id));
+            if (object != null) {
+                onUnload(object);
+            }
         }
     }
 
@@ -80,4 +83,32 @@ public abstract class AbstractManager<I, C, T extends C> implements Manager<I, C
         return i;
     }
 
+    private T load(I id) {
+        T object = apply(id);
+        onLoad(object);
+        return object;
+    }
+
+    /**
+     * Called after an object has been created, but before it is added to the manager.
+     *
+     * <p>This is called whilst the object is being computed by the backing map, so
+     * the object will not yet be returned by {@link #getIfLoaded(Object)}, and
+     * implementations must not load or unload other objects.</p>
+     *
+     * @param object the object that was loaded
+     */
+    protected void onLoad(T object) {
+
+    }
+
+    /**
+     * Called after an object has been removed from the manager.
+     *
+     * @param object the object that was unloaded
+     */
+    protected void onUnload(T object) {
+
+    }
+
 }
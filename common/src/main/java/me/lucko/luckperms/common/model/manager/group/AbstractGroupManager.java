@@ -27,12 +27,20 @@ package me.lucko.luckperms.common.model.manager.group;
 
 import me.lucko.luckperms.common.model.Group;
 import me.lucko.luckperms.common.model.manager.AbstractManager;
+import me.lucko.luckperms.common.util.PrefixIndex;
 
 import java.util.Locale;
 import java.util.Optional;
 
 public abstract class AbstractGroupManager<T extends Group> extends AbstractManager<String, Group, T> implements GroupManager<T> {
 
+    private final PrefixIndex nameIndex = new PrefixIndex();
+
+    @Override
+    public PrefixIndex getNameIndex() {
+        return this.nameIndex;
+    }
+
     @Override
     public T getByDisplayName(String name) {
         // try to get an exact match first
@@ -65,6 +73,17 @@ public abstract class AbstractGroupManager<T extends Group> extends AbstractMana
         return s.toLowerCase(Locale.ROOT);
     }
 
+    @Override
+    protected void onLoad(T group) {
+        this.nameIndex.add(group.getName());
+    }
+
+    @Override
+    protected void onUnload(T group) {
+        this.nameIndex.remove(group.getName());
+        group.removeFromInheritorIndex();
+    }
+
     @Override
     public void invalidateAllGroupCaches() {
         getAll().values().forEach(g -> g.getCachedData().invalidate());
@@ -28,6 +28,7 @@ package me.lucko.luckperms.common.model.manager.group;
 import me.lucko.luckperms.common.calculator.PermissionCalculator;
 import me.lucko.luckperms.common.model.Group;
 import me.lucko.luckperms.common.model.manager.Manager;
+import me.lucko.luckperms.common.util.PrefixIndex;
 
 public interface GroupManager<T extends Group> extends Manager<String, Group, T> {
 
@@ -44,6 +45,13 @@ public interface GroupManager<T extends Group> extends Manager<String, Group, T>
      */
     T getByDisplayName(String name);
 
+    /**
+     * Gets a prefix index of the names of the loaded groups.
+     *
+     * @return the name index
+     */
+    PrefixIndex getNameIndex();
+
     /**
      * Invalidates the cached data for *loaded* groups.
      */
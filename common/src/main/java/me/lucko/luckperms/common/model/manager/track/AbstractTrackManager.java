@@ -27,13 +27,31 @@ package me.lucko.luckperms.common.model.manager.track;
 
 import me.lucko.luckperms.common.model.Track;
 import me.lucko.luckperms.common.model.manager.AbstractManager;
+import me.lucko.luckperms.common.util.PrefixIndex;
 
 import java.util.Locale;
 
 public abstract class AbstractTrackManager<T extends Track> extends AbstractManager<String, Track, T> implements TrackManager<T> {
 
+    private final PrefixIndex nameIndex = new PrefixIndex();
+
+    @Override
+    public PrefixIndex getNameIndex() {
+        return this.nameIndex;
+    }
+
     @Override
     protected String sanitizeIdentifier(String s) {
         return s.toLowerCase(Locale.ROOT);
     }
+
+    @Override
+    protected void onLoad(T track) {
+        this.nameIndex.add(track.getName());
+    }
+
+    @Override
+    protected void onUnload(T track) {
+        this.nameIndex.remove(track.getName());
+    }
 }
@@ -27,7 +27,15 @@ package me.lucko.luckperms.common.model.manager.track;
 
 import me.lucko.luckperms.common.model.Track;
 import me.lucko.luckperms.common.model.manager.Manager;
+import me.lucko.luckperms.common.util.PrefixIndex;
 
 public interface TrackManager<T extends Track> extends Manager<String, Track, T> {
 
+    /**
+     * Gets a prefix index of the names of the loaded tracks.
+     *
+     * @return the name index
+     */
+    PrefixIndex getNameIndex();
+
 }
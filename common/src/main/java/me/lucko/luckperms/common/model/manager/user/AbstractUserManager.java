@@ -41,16 +41,24 @@ import net.luckperms.api.node.types.InheritanceNode;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 public abstract class AbstractUserManager<T extends User> extends AbstractManager<UUID, User, T> implements UserManager<T> {
 
     private final LuckPermsPlugin plugin;
     private final UserHousekeeper housekeeper;
+    private volatile OfflineUserCache offlineUserCache = null;
+
+    // lowercase username --> uuids, for the users currently loaded
+    // (more than one user can hold the same name, e.g. after a name change)
+    private final Map<String, Set<UUID>> usernameIndex = new ConcurrentHashMap<>();
 
     public AbstractUserManager(LuckPermsPlugin plugin, UserHousekeeper.TimeoutSettings timeoutSettings) {
         this.plugin = plugin;
@@ -69,15 +77,56 @@ public abstract class AbstractUserManager<T extends User> extends AbstractManage
 
     @Override
     public T getByUsername(String name) {
-        for (T user : getAll().values()) {
-            Optional<String> n = user.getUsername();
-            if (n.isPresent() && n.get().equalsIgnoreCase(name)) {
-                return user;
+        Set<UUID> uniqueIds = this.usernameIndex.get(name.toLowerCase(Locale.ROOT));
+        if (uniqueIds == null) {
+            return null;
+        }
+
+        for (UUID uniqueId : uniqueIds) {
+            // check the index entry is still current
+            T user = getIfLoaded(uniqueId);
+            if (user != null) {
+                Optional<String> n = user.getUsername();
+                if (n.isPresent() && n.get().equalsIgnoreCase(name)) {
+                    return user;
+                }
             }
         }
         return null;
     }
 
+    @Override
+    public void updateUsernameIndex(User user, String previousUsername) {
+        // ignore users which aren't (or are no longer) held by this manager
+        if (getIfLoaded(user.getUniqueId()) != user) {
+            return;
+        }
+
+        if (previousUsername != null) {
+            removeFromUsernameIndex(previousUsername, user.getUniqueId());
+        }
+        user.getUsername().ifPresent(name -> this.usernameIndex.compute(name.toLowerCase(Locale.ROOT), (key, uniqueIds) -> {
+            if (uniqueIds == null) {
+                uniqueIds = ConcurrentHashMap.newKeySet();
+            }
+            uniqueIds.add(user.getUniqueId());
+            return uniqueIds;
+        }));
+    }
+
+    private void removeFromUsernameIndex(String name, UUID uniqueId) {
+        this.usernameIndex.computeIfPresent(name.toLowerCase(Locale.ROOT), (key, uniqueIds) -> {
+            uniqueIds.remove(uniqueId);
+            return uniqueIds.isEmpty() ? null : uniqueIds;
+        });
+    }
+
+    @Override
+    protected void onUnload(T user) {
+        user.getUsername().ifPresent(name -> removeFromUsernameIndex(name, user.getUniqueId()));
+        user.removeFromInheritorIndex();
+    }
+
     @Override
     public boolean giveDefaultIfNeeded(User user) {
         boolean requireSave = false;
@@ -160,6 +209,22 @@ public abstract class AbstractUserManager<T extends User> extends AbstractManage
         return this.housekeeper;
     }
 
+    @Override
+    public OfflineUserCache getOfflineUserCache() {
+        // created lazily, the cache isn't needed unless offline users are queried
+        OfflineUserCache cache = this.offlineUserCache;
+        if (cache == null) {
+            synchronized (this) {
+                cache = this.offlineUserCache;
+                if (cache == null) {
+                    cache = new OfflineUserCache(this.plugin, this);
+                    this.offlineUserCache = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
     @Override
     public CompletableFuture<Void> loadAllUsers() {
         Set<UUID> ids = new HashSet<>(getAll().keySet());
@@ -173,11 +238,30 @@ public abstract class AbstractUserManager<T extends User> extends AbstractManage
     @Override
     public void invalidateAllUserCaches() {
         getAll().values().forEach(u -> u.getCachedData().invalidate());
+        invalidateOfflineUsers();
     }
 
     @Override
     public void invalidateAllPermissionCalculators() {
         getAll().values().forEach(u -> u.getCachedData().invalidatePermissionCalculators());
+        invalidateOfflineUsers();
+    }
+
+    @Override
+    public void invalidateOfflineUser(UUID uniqueId) {
+        OfflineUserCache cache = this.offlineUserCache;
+        if (cache != null) {
+            cache.invalidate(uniqueId);
+        }
+    }
+
+    private void invalidateOfflineUsers() {
+        // snapshots hold data resolved against the groups at the time they were
+        // loaded, so they're discarded whenever loaded users are recalculated
+        OfflineUserCache cache = this.offlineUserCache;
+        if (cache != null) {
+            cache.invalidateAll();
+        }
     }
 
 }
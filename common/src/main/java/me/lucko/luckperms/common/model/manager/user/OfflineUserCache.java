@@ -0,0 +1,137 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.model.manager.user;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.model.User;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.util.CaffeineFactory;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A read-only cache of {@link UserSnapshotImpl snapshots} of users who aren't loaded.
+ *
+ * <p>Snapshots are loaded from storage into user instances which aren't registered with
+ * the user manager, so frequent queries against offline players don't load them, and
+ * don't fire any load events. Concurrent requests for the same user share a single
+ * storage lookup.</p>
+ *
+ * <p>A snapshot's cached data is resolved against the groups at the time it was taken,
+ * so all snapshots are discarded whenever the caches of loaded users are invalidated,
+ * for example after a group has been modified.</p>
+ */
+public class OfflineUserCache {
+    private final LuckPermsPlugin plugin;
+    private final UserManager<?> userManager;
+    private final AsyncLoadingCache<UUID, UserSnapshotImpl> cache;
+
+    public OfflineUserCache(LuckPermsPlugin plugin, UserManager<?> userManager) {
+        this.plugin = plugin;
+        this.userManager = userManager;
+        this.cache = CaffeineFactory.newBuilder()
+                .maximumSize(plugin.getConfiguration().get(ConfigKeys.OFFLINE_USER_CACHE_SIZE))
+                .refreshAfterWrite(plugin.getConfiguration().get(ConfigKeys.OFFLINE_USER_CACHE_REFRESH_INTERVAL), TimeUnit.SECONDS)
+                .recordStats()
+                .buildAsync((uniqueId, executor) -> load(uniqueId));
+    }
+
+    private CompletableFuture<UserSnapshotImpl> load(UUID uniqueId) {
+        return this.plugin.getStorage().loadDetachedUser(uniqueId).thenApply(user -> {
+            if (user == this.userManager.getIfLoaded(uniqueId)) {
+                // the storage implementation doesn't support detached loads, so the
+                // user is registered & may change - take a copy
+                return UserSnapshotImpl.copyOf(this.plugin, user);
+            }
+
+            // nothing else holds a reference to the user, so it won't change
+            return UserSnapshotImpl.viewOf(this.plugin, user);
+        });
+    }
+
+    /**
+     * Gets a snapshot of the given user.
+     *
+     * <p>If the user is currently loaded, a view of their live data is returned
+     * instead, and the cache isn't used.</p>
+     *
+     * @param uniqueId the unique id of the user
+     * @return the snapshot
+     */
+    public CompletableFuture<UserSnapshotImpl> get(UUID uniqueId) {
+        User loaded = this.userManager.getIfLoaded(uniqueId);
+        if (loaded != null) {
+            return CompletableFuture.completedFuture(UserSnapshotImpl.viewOf(this.plugin, loaded));
+        }
+        return this.cache.get(uniqueId);
+    }
+
+    /**
+     * Gets a snapshot of the given user, if one is immediately available.
+     *
+     * <p>If not, the snapshot is loaded in the background.</p>
+     *
+     * @param uniqueId the unique id of the user
+     * @return the snapshot, or null
+     */
+    public UserSnapshotImpl getIfReady(UUID uniqueId) {
+        CompletableFuture<UserSnapshotImpl> future = get(uniqueId);
+        if (future.isDone() && !future.isCompletedExceptionally()) {
+            return future.join();
+        }
+        return null;
+    }
+
+    /**
+     * Removes any cached snapshot of the given user, for example after their data
+     * has been saved.
+     *
+     * @param uniqueId the unique id of the user
+     */
+    public void invalidate(UUID uniqueId) {
+        this.cache.synchronous().invalidate(uniqueId);
+    }
+
+    /**
+     * Removes all cached snapshots, for example after group data has changed.
+     */
+    public void invalidateAll() {
+        this.cache.synchronous().invalidateAll();
+    }
+
+    public long size() {
+        return this.cache.synchronous().estimatedSize();
+    }
+
+    public CacheStats getStats() {
+        return this.cache.synchronous().stats();
+    }
+
+}
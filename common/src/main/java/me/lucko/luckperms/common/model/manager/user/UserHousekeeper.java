@@ -30,7 +30,6 @@ import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.util.ExpiringSet;
 
-import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
@@ -42,10 +41,10 @@ public class UserHousekeeper implements Runnable {
     private final UserManager<?> userManager;
 
     // contains the uuids of users who have recently logged in / out
-    private final Set<UUID> recentlyUsed;
+    private final ExpiringSet<UUID> recentlyUsed;
 
     // contains the uuids of users who have recently been retrieved from the API
-    private final Set<UUID> recentlyUsedApi;
+    private final ExpiringSet<UUID> recentlyUsedApi;
 
     public UserHousekeeper(LuckPermsPlugin plugin, UserManager<?> userManager, TimeoutSettings timeoutSettings) {
         this.plugin = plugin;
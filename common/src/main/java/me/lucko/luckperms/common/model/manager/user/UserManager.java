@@ -45,6 +45,14 @@ public interface UserManager<T extends User> extends Manager<UUID, User, T> {
      */
     T getByUsername(String name);
 
+    /**
+     * Updates the username index after the username of a user has changed.
+     *
+     * @param user the user
+     * @param previousUsername the username the user had before the change
+     */
+    void updateUsernameIndex(User user, String previousUsername);
+
     /**
      * Gives the user the default group if necessary.
      *
@@ -75,19 +83,35 @@ public interface UserManager<T extends User> extends Manager<UUID, User, T> {
      */
     UserHousekeeper getHouseKeeper();
 
+    /**
+     * Gets the cache of snapshots of offline users.
+     *
+     * @return the offline user cache
+     */
+    OfflineUserCache getOfflineUserCache();
+
     /**
      * Reloads the data of all *online* users
      */
     CompletableFuture<Void> loadAllUsers();
 
     /**
-     * Invalidates the cached data for *loaded* users.
+     * Invalidates the cached data for *loaded* users, and discards any snapshots
+     * of offline users.
      */
     void invalidateAllUserCaches();
 
     /**
-     * Invalidates the {@link PermissionCalculator}s for *loaded* users.
+     * Invalidates the {@link PermissionCalculator}s for *loaded* users, and discards
+     * any snapshots of offline users.
      */
     void invalidateAllPermissionCalculators();
 
+    /**
+     * Discards any snapshot of the given offline user.
+     *
+     * @param uniqueId the unique id of the user
+     */
+    void invalidateOfflineUser(UUID uniqueId);
+
 }
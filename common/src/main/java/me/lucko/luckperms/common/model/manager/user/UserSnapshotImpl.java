@@ -0,0 +1,141 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.model.manager.user;
+
+import com.google.common.collect.ImmutableList;
+import me.lucko.luckperms.common.cacheddata.type.MonitoredMetaCache;
+import me.lucko.luckperms.common.cacheddata.type.PermissionCache;
+import me.lucko.luckperms.common.model.User;
+import me.lucko.luckperms.common.model.manager.group.GroupManager;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import net.luckperms.api.model.user.UserSnapshot;
+import net.luckperms.api.node.Node;
+import net.luckperms.api.query.QueryOptions;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Implementation of {@link UserSnapshot}.
+ *
+ * <p>Snapshots of offline users are backed by a private copy of the user, which is
+ * never registered with the user manager or modified after the snapshot is taken.</p>
+ */
+public final class UserSnapshotImpl implements UserSnapshot {
+
+    /**
+     * Creates a snapshot which copies the current data of the user.
+     *
+     * @param plugin the plugin
+     * @param user the user
+     * @return the snapshot
+     */
+    public static UserSnapshotImpl copyOf(LuckPermsPlugin plugin, User user) {
+        User copy = new User(user.getUniqueId(), plugin);
+        copy.setUsername(user.getUsername().orElse(null), false);
+        copy.getPrimaryGroup().setStoredValue(user.getPrimaryGroup().getStoredValue().orElse(null));
+        copy.normalData().bypass().setContent(user.normalData().asList());
+        return new UserSnapshotImpl(plugin, copy);
+    }
+
+    /**
+     * Creates a snapshot which reads from the live data of a loaded user.
+     *
+     * @param plugin the plugin
+     * @param user the user
+     * @return the snapshot
+     */
+    public static UserSnapshotImpl viewOf(LuckPermsPlugin plugin, User user) {
+        return new UserSnapshotImpl(plugin, user);
+    }
+
+    private final LuckPermsPlugin plugin;
+    private final User user;
+
+    private UserSnapshotImpl(LuckPermsPlugin plugin, User user) {
+        this.plugin = plugin;
+        this.user = user;
+    }
+
+    /**
+     * Gets the user backing the snapshot. Callers must not modify the returned instance.
+     *
+     * @return the user
+     */
+    public User getUser() {
+        return this.user;
+    }
+
+    @Override
+    public @NonNull UUID getUniqueId() {
+        return this.user.getUniqueId();
+    }
+
+    @Override
+    public @Nullable String getUsername() {
+        return this.user.getUsername().orElse(null);
+    }
+
+    @Override
+    public @NonNull String getPrimaryGroup() {
+        return this.user.getPrimaryGroup().getStoredValue().orElse(GroupManager.DEFAULT_GROUP_NAME);
+    }
+
+    @Override
+    public @NonNull Collection<Node> getNodes() {
+        return ImmutableList.copyOf(this.user.normalData().asList());
+    }
+
+    @Override
+    public @NonNull PermissionCache getPermissionData(@NonNull QueryOptions queryOptions) {
+        Objects.requireNonNull(queryOptions, "queryOptions");
+        return this.user.getCachedData().getPermissionData(queryOptions);
+    }
+
+    @Override
+    public @NonNull MonitoredMetaCache getMetaData(@NonNull QueryOptions queryOptions) {
+        Objects.requireNonNull(queryOptions, "queryOptions");
+        return this.user.getCachedData().getMetaData(queryOptions);
+    }
+
+    @Override
+    public @NonNull PermissionCache getPermissionData() {
+        return getPermissionData(this.plugin.getContextManager().getStaticQueryOptions());
+    }
+
+    @Override
+    public @NonNull MonitoredMetaCache getMetaData() {
+        return getMetaData(this.plugin.getContextManager().getStaticQueryOptions());
+    }
+
+    @Override
+    public String toString() {
+        return "UserSnapshot(uniqueId=" + getUniqueId() + ", username=" + getUsername() + ")";
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.model.nodemap;
+
+import net.luckperms.api.context.Context;
+import net.luckperms.api.context.ContextSatisfyMode;
+import net.luckperms.api.context.ImmutableContextSet;
+import net.luckperms.api.query.QueryMode;
+import net.luckperms.api.query.QueryOptions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An immutable index of the context sets used as keys in a node map.
+ *
+ * <p>Each context pair is mapped to the positions of the context sets which contain it,
+ * so only context sets sharing at least one pair with the query context (or with no
+ * contexts at all) need to be tested when working out which are satisfied.</p>
+ *
+ * <p>Whether a context set is satisfied only depends on which of its own pairs the query
+ * context contains, so the satisfied context sets are memoized per set of indexed pairs
+ * present in the query (and satisfy mode). Query contexts which only differ in pairs that
+ * aren't used by this map share the same result. A new index is created whenever the set
+ * of keys changes, which discards the memoized results.</p>
+ */
+final class ContextSetIndex {
+
+    /** The maximum number of results to memoize before the memo is reset */
+    private static final int MAX_MEMOIZED_RESULTS = 64;
+
+    /** The indexed context sets, in the same order as the map */
+    private final ImmutableContextSet[] contexts;
+
+    /** The positions of context sets which are empty (always satisfied) */
+    private final BitSet unconditional = new BitSet();
+
+    /** The context sets which are empty, in map order */
+    private final List<ImmutableContextSet> unconditionalContexts;
+
+    /** key -> value -> the pair's id and positions of context sets containing it */
+    private final Map<String, Map<String, IndexedPair>> index = new HashMap<>();
+    private int pairCount = 0;
+
+    private final Map<MemoKey, List<ImmutableContextSet>> memo = new ConcurrentHashMap<>();
+
+    ContextSetIndex(Collection<ImmutableContextSet> contexts) {
+        this.contexts = contexts.toArray(new ImmutableContextSet[0]);
+
+        List<ImmutableContextSet> unconditionalContexts = new ArrayList<>();
+        for (int i = 0; i < this.contexts.length; i++) {
+            ImmutableContextSet set = this.contexts[i];
+            if (set.isEmpty()) {
+                this.unconditional.set(i);
+                unconditionalContexts.add(set);
+                continue;
+            }
+
+            for (Context context : set) {
+                this.index.computeIfAbsent(context.getKey(), k -> new HashMap<>())
+                        .computeIfAbsent(context.getValue(), v -> new IndexedPair(this.pairCount++))
+                        .positions.set(i);
+            }
+        }
+        this.unconditionalContexts = Collections.unmodifiableList(unconditionalContexts);
+    }
+
+    /**
+     * Gets the indexed context sets which are satisfied by the given query options.
+     *
+     * @param filter the query options
+     * @param defaultSatisfyMode the satisfy mode to use if the options don't specify one
+     * @return the satisfied context sets, in map order
+     */
+    List<ImmutableContextSet> satisfiedBy(QueryOptions filter, ContextSatisfyMode defaultSatisfyMode) {
+        if (filter.mode() == QueryMode.NON_CONTEXTUAL) {
+            return Collections.unmodifiableList(Arrays.asList(this.contexts));
+        }
+
+        // find the indexed pairs present in the query context, and the context sets containing them
+        BitSet present = new BitSet();
+        BitSet candidates = (BitSet) this.unconditional.clone();
+        for (Context context : filter.context()) {
+            Map<String, IndexedPair> values = this.index.get(context.getKey());
+            if (values == null) {
+                continue;
+            }
+            IndexedPair pair = values.get(context.getValue());
+            if (pair != null) {
+                present.set(pair.id);
+                candidates.or(pair.positions);
+            }
+        }
+
+        // a non-empty context set can only be satisfied if it shares a pair with the query context
+        if (present.isEmpty()) {
+            return this.unconditionalContexts;
+        }
+
+        MemoKey key = new MemoKey(present, filter.option(ContextSatisfyMode.KEY).orElse(defaultSatisfyMode));
+        List<ImmutableContextSet> result = this.memo.get(key);
+        if (result != null) {
+            return result;
+        }
+
+        // racing threads compute the same result, so there's no need to lock
+        result = compute(candidates, filter, defaultSatisfyMode);
+        if (this.memo.size() >= MAX_MEMOIZED_RESULTS) {
+            this.memo.clear();
+        }
+        this.memo.put(key, result);
+        return result;
+    }
+
+    private List<ImmutableContextSet> compute(BitSet candidates, QueryOptions filter, ContextSatisfyMode defaultSatisfyMode) {
+        List<ImmutableContextSet> satisfied = new ArrayList<>(candidates.cardinality());
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            ImmutableContextSet set = this.contexts[i];
+            if (filter.satisfies(set, defaultSatisfyMode)) {
+                satisfied.add(set);
+            }
+        }
+        return Collections.unmodifiableList(satisfied);
+    }
+
+    private static final class IndexedPair {
+        private final int id;
+        private final BitSet positions = new BitSet();
+
+        IndexedPair(int id) {
+            this.id = id;
+        }
+    }
+
+    private static final class MemoKey {
+        private final BitSet pairs;
+        private final ContextSatisfyMode mode;
+
+        MemoKey(BitSet pairs, ContextSatisfyMode mode) {
+            this.pairs = pairs;
+            this.mode = mode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof MemoKey)) return false;
+            MemoKey other = (MemoKey) o;
+            return this.mode == other.mode && this.pairs.equals(other.pairs);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * this.pairs.hashCode() + this.mode.hashCode();
+        }
+    }
+
+}
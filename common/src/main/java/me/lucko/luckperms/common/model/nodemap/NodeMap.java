@@ -36,7 +36,9 @@ import net.luckperms.api.node.Node;
 import net.luckperms.api.node.NodeType;
 import net.luckperms.api.node.types.InheritanceNode;
 import net.luckperms.api.query.QueryOptions;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashSet;
@@ -131,6 +133,13 @@ public interface NodeMap {
 
     Collection<InheritanceNode> inheritanceNodesInContext(ContextSet context);
 
+    /**
+     * Gets the earliest expiry time of the temporary nodes in the map.
+     *
+     * @return the earliest expiry time, or null if the map contains no temporary nodes
+     */
+    @Nullable Instant earliestExpiry();
+
     // mutate methods
 
     Difference<Node> add(Node nodeWithoutInheritanceOrigin);
@@ -26,6 +26,7 @@
 package me.lucko.luckperms.common.model.nodemap;
 
 import com.google.common.collect.ImmutableCollection;
+import me.lucko.luckperms.common.node.comparator.NodeWithContextComparator;
 import net.luckperms.api.context.ContextSatisfyMode;
 import net.luckperms.api.context.ContextSet;
 import net.luckperms.api.context.DefaultContextKeys;
@@ -36,10 +37,14 @@ import net.luckperms.api.node.types.InheritanceNode;
 import net.luckperms.api.query.Flag;
 import net.luckperms.api.query.QueryOptions;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.SortedSet;
@@ -49,6 +54,9 @@ import java.util.function.Consumer;
  * Base implementation of {@link NodeMap} query methods.
  */
 abstract class NodeMapBase implements NodeMap {
+
+    /** The order of the {@link #expiringNodes()} set - soonest to expire first */
+    static final Comparator<Node> EXPIRY_ORDER = Comparator.comparing(Node::getExpiry).thenComparing(NodeWithContextComparator.normal());
    
     NodeMapBase() {
 
@@ -58,8 +66,35 @@ abstract class NodeMapBase implements NodeMap {
 
     protected abstract SortedMap<ImmutableContextSet, SortedSet<InheritanceNode>> inheritanceMap();
 
+    /**
+     * Gets the temporary nodes in {@link #map()}, ordered by {@link #EXPIRY_ORDER}.
+     *
+     * <p>Kept up to date as nodes are added and removed, so the earliest expiry
+     * can be found without scanning the whole map.</p>
+     *
+     * @return the temporary nodes
+     */
+    protected abstract SortedSet<Node> expiringNodes();
+
     protected abstract ContextSatisfyMode defaultSatisfyMode();
 
+    /**
+     * Gets the context sets (keys of {@link #map()}) which are satisfied by the given filter,
+     * in map order.
+     *
+     * @param filter the filter
+     * @return the satisfied context sets
+     */
+    protected Iterable<ImmutableContextSet> satisfiedContexts(QueryOptions filter) {
+        List<ImmutableContextSet> contexts = new ArrayList<>();
+        for (ImmutableContextSet context : map().keySet()) {
+            if (filter.satisfies(context, defaultSatisfyMode())) {
+                contexts.add(context);
+            }
+        }
+        return contexts;
+    }
+
     @Override
     public boolean isEmpty() {
         return map().isEmpty();
@@ -101,20 +136,22 @@ abstract class NodeMapBase implements NodeMap {
 
     @Override
     public void forEach(QueryOptions filter, Consumer<? super Node> consumer) {
-        for (Map.Entry<ImmutableContextSet, SortedSet<Node>> e : map().entrySet()) {
-            if (!filter.satisfies(e.getKey(), defaultSatisfyMode())) {
-                continue;
-            }
+        SortedMap<ImmutableContextSet, SortedSet<Node>> map = map();
+        SortedMap<ImmutableContextSet, SortedSet<InheritanceNode>> inheritanceMap = inheritanceMap();
 
-            if (normalNodesExcludeTest(filter, e.getKey())) {
-                if (inheritanceNodesIncludeTest(filter, e.getKey())) {
-                    SortedSet<InheritanceNode> inheritanceNodes = inheritanceMap().get(e.getKey());
+        for (ImmutableContextSet context : satisfiedContexts(filter)) {
+            if (normalNodesExcludeTest(filter, context)) {
+                if (inheritanceNodesIncludeTest(filter, context)) {
+                    SortedSet<InheritanceNode> inheritanceNodes = inheritanceMap.get(context);
                     if (inheritanceNodes != null) {
                         inheritanceNodes.forEach(consumer);
                     }
                 }
             } else {
-                e.getValue().forEach(consumer);
+                SortedSet<Node> nodes = map.get(context);
+                if (nodes != null) {
+                    nodes.forEach(consumer);
+                }
             }
         }
     }
@@ -135,20 +172,22 @@ abstract class NodeMapBase implements NodeMap {
 
     @Override
     public void copyTo(Collection<? super Node> collection, QueryOptions filter) {
-        for (Map.Entry<ImmutableContextSet, SortedSet<Node>> e : map().entrySet()) {
-            if (!filter.satisfies(e.getKey(), defaultSatisfyMode())) {
-                continue;
-            }
+        SortedMap<ImmutableContextSet, SortedSet<Node>> map = map();
+        SortedMap<ImmutableContextSet, SortedSet<InheritanceNode>> inheritanceMap = inheritanceMap();
 
-            if (normalNodesExcludeTest(filter, e.getKey())) {
-                if (inheritanceNodesIncludeTest(filter, e.getKey())) {
-                    SortedSet<InheritanceNode> inheritanceNodes = inheritanceMap().get(e.getKey());
+        for (ImmutableContextSet context : satisfiedContexts(filter)) {
+            if (normalNodesExcludeTest(filter, context)) {
+                if (inheritanceNodesIncludeTest(filter, context)) {
+                    SortedSet<InheritanceNode> inheritanceNodes = inheritanceMap.get(context);
                     if (inheritanceNodes != null) {
                         collection.addAll(inheritanceNodes);
                     }
                 }
             } else {
-                collection.addAll(e.getValue());
+                SortedSet<Node> nodes = map.get(context);
+                if (nodes != null) {
+                    collection.addAll(nodes);
+                }
             }
         }
     }
@@ -161,16 +200,19 @@ abstract class NodeMapBase implements NodeMap {
             return;
         }
         
-        for (Map.Entry<ImmutableContextSet, SortedSet<Node>> e : map().entrySet()) {
-            if (!filter.satisfies(e.getKey(), defaultSatisfyMode())) {
+        SortedMap<ImmutableContextSet, SortedSet<Node>> map = map();
+
+        for (ImmutableContextSet context : satisfiedContexts(filter)) {
+            if (normalNodesExcludeTest(filter, context)) {
                 continue;
             }
 
-            if (normalNodesExcludeTest(filter, e.getKey())) {
+            SortedSet<Node> nodes = map.get(context);
+            if (nodes == null) {
                 continue;
             }
 
-            for (Node node : e.getValue()) {
+            for (Node node : nodes) {
                 if (type.matches(node)) {
                     collection.add(type.cast(node));
                 }
@@ -194,13 +236,16 @@ abstract class NodeMapBase implements NodeMap {
 
     @Override
     public void copyInheritanceNodesTo(Collection<? super InheritanceNode> collection, QueryOptions filter) {
-        for (Map.Entry<ImmutableContextSet, SortedSet<InheritanceNode>> e : inheritanceMap().entrySet()) {
-            if (!filter.satisfies(e.getKey(), defaultSatisfyMode())) {
+        SortedMap<ImmutableContextSet, SortedSet<InheritanceNode>> inheritanceMap = inheritanceMap();
+
+        for (ImmutableContextSet context : satisfiedContexts(filter)) {
+            if (!inheritanceNodesIncludeTest(filter, context)) {
                 continue;
             }
 
-            if (inheritanceNodesIncludeTest(filter, e.getKey())) {
-                collection.addAll(e.getValue());
+            SortedSet<InheritanceNode> inheritanceNodes = inheritanceMap.get(context);
+            if (inheritanceNodes != null) {
+                collection.addAll(inheritanceNodes);
             }
         }
     }
@@ -215,6 +260,12 @@ abstract class NodeMapBase implements NodeMap {
         return copy(inheritanceMap().get(context.immutableCopy()));
     }
 
+    @Override
+    public Instant earliestExpiry() {
+        Iterator<Node> it = expiringNodes().iterator();
+        return it.hasNext() ? it.next().getExpiry() : null;
+    }
+
     private static <T> Collection<T> copy(Collection<T> collection) {
         if (collection == null) {
             return Collections.emptySet();
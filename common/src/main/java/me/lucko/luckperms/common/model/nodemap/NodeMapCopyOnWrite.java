@@ -0,0 +1,497 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.model.nodemap;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.ImmutableSortedSet;
+import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.context.comparator.ContextSetComparator;
+import me.lucko.luckperms.common.model.InheritanceOrigin;
+import me.lucko.luckperms.common.model.PermissionHolder;
+import me.lucko.luckperms.common.node.AbstractNodeBuilder;
+import me.lucko.luckperms.common.node.comparator.NodeComparator;
+import me.lucko.luckperms.common.util.Difference;
+import me.lucko.luckperms.common.util.Difference.Change;
+import me.lucko.luckperms.common.util.Difference.ChangeType;
+import net.luckperms.api.context.ContextSatisfyMode;
+import net.luckperms.api.context.ContextSet;
+import net.luckperms.api.context.ImmutableContextSet;
+import net.luckperms.api.model.data.DataType;
+import net.luckperms.api.node.Node;
+import net.luckperms.api.node.NodeBuilder;
+import net.luckperms.api.node.NodeEqualityPredicate;
+import net.luckperms.api.node.metadata.types.InheritanceOriginMetadata;
+import net.luckperms.api.node.types.InheritanceNode;
+import net.luckperms.api.query.QueryOptions;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * A {@link NodeMap} which publishes an immutable snapshot of its contents on each change.
+ *
+ * <p>Reads are lock-free and iterate over immutable sorted arrays, which makes this
+ * implementation well suited to holders that are read far more often than they are
+ * modified (e.g. groups). Each mutation copies the affected context buckets, so it is
+ * less suited to holders which change frequently.</p>
+ */
+public class NodeMapCopyOnWrite extends NodeMapBase {
+
+    /*
+     * Nodes are grouped by Node#getContexts(), and the snapshot maps are ordered in the
+     * same way as NodeMapMutable - context sets according to ContextSetComparator, and
+     * nodes according to the priority rules defined in NodeComparator.
+     *
+     * Mutations are performed on a Working copy (under the lock) and then published in
+     * a single volatile write, so readers always see a consistent state.
+     */
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    /**
+     * This lock is used whilst performing mutations, but *not* reads.
+     */
+    private final Lock lock = new ReentrantLock();
+
+    protected final PermissionHolder holder;
+    private final InheritanceOrigin inheritanceOrigin;
+
+    public NodeMapCopyOnWrite(PermissionHolder holder, DataType type) {
+        this.holder = holder;
+        this.inheritanceOrigin = new InheritanceOrigin(holder.getIdentifier(), type);
+    }
+
+    @Override
+    protected SortedMap<ImmutableContextSet, SortedSet<Node>> map() {
+        return this.snapshot.map;
+    }
+
+    @Override
+    protected SortedMap<ImmutableContextSet, SortedSet<InheritanceNode>> inheritanceMap() {
+        return this.snapshot.inheritanceMap;
+    }
+
+    @Override
+    protected SortedSet<Node> expiringNodes() {
+        return this.snapshot.expiringNodes;
+    }
+
+    @Override
+    protected ContextSatisfyMode defaultSatisfyMode() {
+        return this.holder.getPlugin().getConfiguration().get(ConfigKeys.CONTEXT_SATISFY_MODE);
+    }
+
+    @Override
+    protected Iterable<ImmutableContextSet> satisfiedContexts(QueryOptions filter) {
+        return this.snapshot.contextIndex().satisfiedBy(filter, defaultSatisfyMode());
+    }
+
+    private Node addInheritanceOrigin(Node node) {
+        Optional<InheritanceOriginMetadata> existing = node.getMetadata(InheritanceOriginMetadata.KEY);
+        if (existing.isPresent() && existing.get().equals(this.inheritanceOrigin)) {
+            return node;
+        }
+
+        NodeBuilder<?, ?> builder = node.toBuilder().withMetadata(InheritanceOriginMetadata.KEY, this.inheritanceOrigin);
+        if (builder instanceof AbstractNodeBuilder) {
+            // nodes held in node maps are long-lived, and commonly the same across many holders
+            ((AbstractNodeBuilder<?, ?>) builder).interned();
+        }
+        return builder.build();
+    }
+
+    @Override
+    public Difference<Node> add(Node node) {
+        return mutate(w -> w.add(addInheritanceOrigin(node)));
+    }
+
+    @Override
+    public Difference<Node> remove(Node node) {
+        return mutate(w -> w.removeIf(node.getContexts(), el -> node.equals(el, NodeEqualityPredicate.IGNORE_EXPIRY_TIME_AND_VALUE)));
+    }
+
+    @Override
+    public Difference<Node> removeExact(Node node) {
+        return mutate(w -> w.removeExact(node));
+    }
+
+    @Override
+    public Difference<Node> removeIf(Predicate<? super Node> predicate) {
+        return mutate(w -> {
+            Difference<Node> result = new Difference<>();
+            for (ImmutableContextSet context : new ArrayList<>(w.map.keySet())) {
+                result.mergeFrom(w.removeIf(context, predicate));
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public Difference<Node> removeIf(ContextSet contextSet, Predicate<? super Node> predicate) {
+        ImmutableContextSet context = contextSet.immutableCopy();
+        return mutate(w -> w.removeIf(context, predicate));
+    }
+
+    @Override
+    public Difference<Node> removeThenAdd(Node nodeToRemove, Node nodeToAdd) {
+        if (nodeToAdd.equals(nodeToRemove)) {
+            return new Difference<>();
+        }
+
+        return mutate(w -> w.removeExact(nodeToRemove).mergeFrom(w.add(addInheritanceOrigin(nodeToAdd))));
+    }
+
+    @Override
+    public Difference<Node> clear() {
+        this.lock.lock();
+        try {
+            Difference<Node> result = new Difference<>();
+            for (SortedSet<Node> nodes : this.snapshot.map.values()) {
+                result.recordChanges(ChangeType.REMOVE, nodes);
+            }
+            this.snapshot = Snapshot.EMPTY;
+            return result;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public Difference<Node> clear(ContextSet contextSet) {
+        ImmutableContextSet context = contextSet.immutableCopy();
+        return mutate(w -> w.clear(context));
+    }
+
+    @Override
+    public Difference<Node> setContent(Iterable<? extends Node> set) {
+        return replace(w -> {
+            Difference<Node> result = new Difference<>();
+            for (Node n : set) {
+                result.mergeFrom(w.add(addInheritanceOrigin(n)));
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public Difference<Node> setContent(Stream<? extends Node> stream) {
+        return replace(w -> {
+            Difference<Node> result = new Difference<>();
+            stream.forEach(n -> result.mergeFrom(w.add(addInheritanceOrigin(n))));
+            return result;
+        });
+    }
+
+    @Override
+    public Difference<Node> applyChanges(Difference<Node> changes) {
+        return mutate(w -> {
+            Difference<Node> result = new Difference<>();
+            for (Node n : changes.getAdded()) {
+                result.mergeFrom(w.add(addInheritanceOrigin(n)));
+            }
+            for (Node n : changes.getRemoved()) {
+                result.mergeFrom(w.removeExact(n));
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public Difference<Node> addAll(Iterable<? extends Node> set) {
+        return mutate(w -> {
+            Difference<Node> result = new Difference<>();
+            for (Node n : set) {
+                result.mergeFrom(w.add(addInheritanceOrigin(n)));
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public Difference<Node> addAll(Stream<? extends Node> stream) {
+        return mutate(w -> {
+            Difference<Node> result = new Difference<>();
+            stream.forEach(n -> result.mergeFrom(w.add(addInheritanceOrigin(n))));
+            return result;
+        });
+    }
+
+    /**
+     * Applies a mutation to a working copy of the current snapshot, and publishes the result.
+     *
+     * @param mutation the mutation
+     * @return the changes made
+     */
+    private Difference<Node> mutate(Mutation mutation) {
+        this.lock.lock();
+        try {
+            Working working = new Working(this.snapshot);
+            Difference<Node> result = mutation.apply(working);
+            if (!result.isEmpty()) {
+                this.snapshot = working.build();
+            }
+            return result;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the contents of the map with the result of the given mutation applied to
+     * an empty working copy, and publishes the result.
+     *
+     * @param mutation the mutation
+     * @return the changes made, including removal of the previous contents
+     */
+    private Difference<Node> replace(Mutation mutation) {
+        this.lock.lock();
+        try {
+            // record removal of the previous contents - the new snapshot is
+            // published in one go, so readers never see the map empty
+            Difference<Node> result = new Difference<>();
+            for (SortedSet<Node> nodes : this.snapshot.map.values()) {
+                result.recordChanges(ChangeType.REMOVE, nodes);
+            }
+
+            Working working = new Working(Snapshot.EMPTY);
+            result.mergeFrom(mutation.apply(working));
+            this.snapshot = working.build();
+            return result;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Mutation {
+        Difference<Node> apply(Working working);
+    }
+
+    /**
+     * An immutable view of the map contents.
+     */
+    private static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(
+                ImmutableSortedMap.<ImmutableContextSet, SortedSet<Node>>orderedBy(ContextSetComparator.reverse()).build(),
+                ImmutableSortedMap.<ImmutableContextSet, SortedSet<InheritanceNode>>orderedBy(ContextSetComparator.reverse()).build(),
+                ImmutableSortedSet.orderedBy(EXPIRY_ORDER).build()
+        );
+
+        final ImmutableSortedMap<ImmutableContextSet, SortedSet<Node>> map;
+        final ImmutableSortedMap<ImmutableContextSet, SortedSet<InheritanceNode>> inheritanceMap;
+        final ImmutableSortedSet<Node> expiringNodes;
+
+        /** Built lazily - racing threads will just compute the same index */
+        private volatile ContextSetIndex contextIndex;
+
+        Snapshot(ImmutableSortedMap<ImmutableContextSet, SortedSet<Node>> map, ImmutableSortedMap<ImmutableContextSet, SortedSet<InheritanceNode>> inheritanceMap, ImmutableSortedSet<Node> expiringNodes) {
+            this.map = map;
+            this.inheritanceMap = inheritanceMap;
+            this.expiringNodes = expiringNodes;
+        }
+
+        ContextSetIndex contextIndex() {
+            ContextSetIndex index = this.contextIndex;
+            if (index == null) {
+                index = new ContextSetIndex(this.map.keySet());
+                this.contextIndex = index;
+            }
+            return index;
+        }
+    }
+
+    /**
+     * A mutable copy of a snapshot. Buckets are only copied when they are modified.
+     */
+    private static final class Working {
+        private final Snapshot base;
+        private final TreeMap<ImmutableContextSet, SortedSet<Node>> map;
+        private final Set<ImmutableContextSet> modified = new HashSet<>();
+
+        /** Copied from the base snapshot when a temporary node is added or removed */
+        private TreeSet<Node> expiringNodes = null;
+
+        Working(Snapshot base) {
+            this.base = base;
+            this.map = new TreeMap<>(base.map);
+        }
+
+        private void trackExpiringNodes(Difference<Node> changes) {
+            for (Change<Node> change : changes.getChanges()) {
+                Node node = change.value();
+                if (!node.hasExpiry()) {
+                    continue;
+                }
+
+                if (this.expiringNodes == null) {
+                    this.expiringNodes = new TreeSet<>(this.base.expiringNodes);
+                }
+                if (change.type() == ChangeType.ADD) {
+                    this.expiringNodes.add(node);
+                } else {
+                    this.expiringNodes.remove(node);
+                }
+            }
+        }
+
+        private SortedSet<Node> modifiableSet(ImmutableContextSet context, boolean create) {
+            SortedSet<Node> nodes = this.map.get(context);
+            if (nodes == null && !create) {
+                return null;
+            }
+            if (this.modified.add(context)) {
+                SortedSet<Node> copy = new TreeSet<>(NodeComparator.reverse());
+                if (nodes != null) {
+                    copy.addAll(nodes);
+                }
+                this.map.put(context, copy);
+                return copy;
+            }
+            return nodes;
+        }
+
+        Difference<Node> add(Node node) {
+            Difference<Node> result = new Difference<>();
+            SortedSet<Node> nodes = modifiableSet(node.getContexts(), true);
+
+            // add the new node to the set - if it was already there, return
+            if (!nodes.add(node)) {
+                return result;
+            }
+
+            // mark that we added the node in the results
+            result.recordChange(ChangeType.ADD, node);
+
+            // remove any others that were in the set already with a different value/expiry time
+            nodes.removeIf(el -> {
+                if (el != node && node.equals(el, NodeEqualityPredicate.IGNORE_EXPIRY_TIME_AND_VALUE)) {
+                    result.recordChange(ChangeType.REMOVE, el);
+                    return true;
+                }
+                return false;
+            });
+            trackExpiringNodes(result);
+            return result;
+        }
+
+        Difference<Node> removeExact(Node node) {
+            Difference<Node> result = new Difference<>();
+            SortedSet<Node> existing = this.map.get(node.getContexts());
+            if (existing == null || !existing.contains(node)) {
+                return result;
+            }
+
+            modifiableSet(node.getContexts(), false).remove(node);
+            result.recordChange(ChangeType.REMOVE, node);
+            trackExpiringNodes(result);
+            return result;
+        }
+
+        Difference<Node> removeIf(ImmutableContextSet context, Predicate<? super Node> predicate) {
+            Difference<Node> result = new Difference<>();
+            SortedSet<Node> existing = this.map.get(context);
+            if (existing == null) {
+                return result;
+            }
+
+            // find matches before copying the bucket, so unchanged buckets stay shared
+            List<Node> matches = new ArrayList<>();
+            for (Node node : existing) {
+                if (predicate.test(node)) {
+                    matches.add(node);
+                }
+            }
+            if (matches.isEmpty()) {
+                return result;
+            }
+
+            modifiableSet(context, false).removeAll(matches);
+            result.recordChanges(ChangeType.REMOVE, matches);
+            trackExpiringNodes(result);
+            return result;
+        }
+
+        Difference<Node> clear(ImmutableContextSet context) {
+            Difference<Node> result = new Difference<>();
+            SortedSet<Node> removed = this.map.remove(context);
+            if (removed != null) {
+                result.recordChanges(ChangeType.REMOVE, removed);
+                trackExpiringNodes(result);
+            }
+            return result;
+        }
+
+        Snapshot build() {
+            ImmutableSortedMap.Builder<ImmutableContextSet, SortedSet<Node>> map = ImmutableSortedMap.orderedBy(ContextSetComparator.reverse());
+            ImmutableSortedMap.Builder<ImmutableContextSet, SortedSet<InheritanceNode>> inheritanceMap = ImmutableSortedMap.orderedBy(ContextSetComparator.reverse());
+
+            for (Map.Entry<ImmutableContextSet, SortedSet<Node>> e : this.map.entrySet()) {
+                ImmutableContextSet context = e.getKey();
+                SortedSet<Node> nodes = e.getValue();
+                if (nodes.isEmpty()) {
+                    continue;
+                }
+
+                if (!this.modified.contains(context)) {
+                    // unchanged - reuse the existing buckets
+                    map.put(context, nodes);
+                    SortedSet<InheritanceNode> inheritanceNodes = this.base.inheritanceMap.get(context);
+                    if (inheritanceNodes != null) {
+                        inheritanceMap.put(context, inheritanceNodes);
+                    }
+                    continue;
+                }
+
+                map.put(context, ImmutableSortedSet.copyOfSorted(nodes));
+
+                SortedSet<InheritanceNode> inheritanceNodes = new TreeSet<>(NodeComparator.reverse());
+                for (Node node : nodes) {
+                    if (node instanceof InheritanceNode && node.getValue()) {
+                        inheritanceNodes.add((InheritanceNode) node);
+                    }
+                }
+                if (!inheritanceNodes.isEmpty()) {
+                    inheritanceMap.put(context, ImmutableSortedSet.copyOfSorted(inheritanceNodes));
+                }
+            }
+
+            ImmutableSortedSet<Node> expiringNodes = this.expiringNodes == null ? this.base.expiringNodes : ImmutableSortedSet.copyOfSorted(this.expiringNodes);
+            return new Snapshot(map.build(), inheritanceMap.build(), expiringNodes);
+        }
+    }
+
+}
@@ -29,17 +29,21 @@ import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.context.comparator.ContextSetComparator;
 import me.lucko.luckperms.common.model.InheritanceOrigin;
 import me.lucko.luckperms.common.model.PermissionHolder;
+import me.lucko.luckperms.common.node.AbstractNodeBuilder;
 import me.lucko.luckperms.common.node.comparator.NodeComparator;
 import me.lucko.luckperms.common.util.Difference;
+import me.lucko.luckperms.common.util.Difference.Change;
 import me.lucko.luckperms.common.util.Difference.ChangeType;
 import net.luckperms.api.context.ContextSatisfyMode;
 import net.luckperms.api.context.ContextSet;
 import net.luckperms.api.context.ImmutableContextSet;
 import net.luckperms.api.model.data.DataType;
 import net.luckperms.api.node.Node;
+import net.luckperms.api.node.NodeBuilder;
 import net.luckperms.api.node.NodeEqualityPredicate;
 import net.luckperms.api.node.metadata.types.InheritanceOriginMetadata;
 import net.luckperms.api.node.types.InheritanceNode;
+import net.luckperms.api.query.QueryOptions;
 
 import java.util.Iterator;
 import java.util.Optional;
@@ -47,6 +51,7 @@ import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
@@ -79,6 +84,7 @@ public class NodeMapMutable extends NodeMapBase {
      */
     private SortedMap<ImmutableContextSet, SortedSet<Node>> map = createMap();
     private SortedMap<ImmutableContextSet, SortedSet<InheritanceNode>> inheritanceMap = createMap();
+    private SortedSet<Node> expiringNodes = new ConcurrentSkipListSet<>(EXPIRY_ORDER);
 
     /**
      * This lock is used whilst performing mutations, but *not* reads.
@@ -89,6 +95,21 @@ public class NodeMapMutable extends NodeMapBase {
      */
     private final Lock lock = new ReentrantLock();
 
+    /**
+     * Incremented whenever a context set is added to or removed from this.map.
+     *
+     * Only written whilst holding the lock, after the map has been changed.
+     */
+    private volatile int keysStamp = 0;
+
+    /**
+     * An index of the keys in this.map, used to quickly find the context sets
+     * satisfied by a given set of query options.
+     *
+     * Built lazily without locking, and rebuilt once the keys stamp moves on.
+     */
+    private final AtomicReference<StampedIndex> contextIndex = new AtomicReference<>();
+
     protected final PermissionHolder holder;
     private final InheritanceOrigin inheritanceOrigin;
 
@@ -107,18 +128,51 @@ public class NodeMapMutable extends NodeMapBase {
         return this.inheritanceMap;
     }
 
+    @Override
+    protected SortedSet<Node> expiringNodes() {
+        return this.expiringNodes;
+    }
+
     @Override
     protected ContextSatisfyMode defaultSatisfyMode() {
         return this.holder.getPlugin().getConfiguration().get(ConfigKeys.CONTEXT_SATISFY_MODE);
     }
 
+    @Override
+    protected Iterable<ImmutableContextSet> satisfiedContexts(QueryOptions filter) {
+        return contextIndex().satisfiedBy(filter, defaultSatisfyMode());
+    }
+
+    private ContextSetIndex contextIndex() {
+        // read the stamp before the keys - if the keys change whilst the index is
+        // being built, the stamp moves on and the index is rebuilt on the next read
+        int stamp = this.keysStamp;
+        StampedIndex current = this.contextIndex.get();
+        if (current != null && current.stamp == stamp) {
+            return current.index;
+        }
+
+        ContextSetIndex index = new ContextSetIndex(this.map.keySet());
+
+        // don't replace an index built by a racing thread from newer keys
+        if (current == null || current.stamp - stamp < 0) {
+            this.contextIndex.compareAndSet(current, new StampedIndex(stamp, index));
+        }
+        return index;
+    }
+
     private Node addInheritanceOrigin(Node node) {
         Optional<InheritanceOriginMetadata> existing = node.getMetadata(InheritanceOriginMetadata.KEY);
         if (existing.isPresent() && existing.get().equals(this.inheritanceOrigin)) {
             return node;
         }
 
-        return node.toBuilder().withMetadata(InheritanceOriginMetadata.KEY, this.inheritanceOrigin).build();
+        NodeBuilder<?, ?> builder = node.toBuilder().withMetadata(InheritanceOriginMetadata.KEY, this.inheritanceOrigin);
+        if (builder instanceof AbstractNodeBuilder) {
+            // nodes held in node maps are long-lived, and commonly the same across many holders
+            ((AbstractNodeBuilder<?, ?>) builder).interned();
+        }
+        return builder.build();
     }
 
     @Override
@@ -130,7 +184,12 @@ public class NodeMapMutable extends NodeMapBase {
 
         this.lock.lock();
         try {
-            SortedSet<Node> nodes = this.map.computeIfAbsent(context, VALUE_SET_SUPPLIER);
+            SortedSet<Node> nodes = this.map.get(context);
+            if (nodes == null) {
+                nodes = VALUE_SET_SUPPLIER.apply(context);
+                this.map.put(context, nodes);
+                this.keysStamp++;
+            }
 
             // add the new node to the set - if it was already there, return
             if (!nodes.add(node)) {
@@ -154,6 +213,7 @@ public class NodeMapMutable extends NodeMapBase {
                 }
             }
 
+            trackExpiringNodes(result);
         } finally {
             this.lock.unlock();
         }
@@ -184,6 +244,7 @@ public class NodeMapMutable extends NodeMapBase {
                 }
             }
 
+            trackExpiringNodes(result);
         } finally {
             this.lock.unlock();
         }
@@ -191,6 +252,22 @@ public class NodeMapMutable extends NodeMapBase {
         return result;
     }
 
+    // keeps this.expiringNodes in sync with the changes made by a mutation
+    private void trackExpiringNodes(Difference<Node> changes) {
+        for (Change<Node> change : changes.getChanges()) {
+            Node node = change.value();
+            if (!node.hasExpiry()) {
+                continue;
+            }
+
+            if (change.type() == ChangeType.ADD) {
+                this.expiringNodes.add(node);
+            } else {
+                this.expiringNodes.remove(node);
+            }
+        }
+    }
+
     private static void removeMatching(Iterator<Node> it, Node node, Difference<Node> result) {
         while (it.hasNext()) {
             Node el = it.next();
@@ -235,6 +312,8 @@ public class NodeMapMutable extends NodeMapBase {
                         inhNodes.remove(node);
                     }
                 }
+
+                trackExpiringNodes(result);
             }
 
         } finally {
@@ -253,6 +332,7 @@ public class NodeMapMutable extends NodeMapBase {
             for (SortedSet<Node> nodes : this.map.values()) {
                 removeMatching(nodes.iterator(), predicate, result);
             }
+            trackExpiringNodes(result);
         } finally {
             this.lock.unlock();
         }
@@ -272,6 +352,7 @@ public class NodeMapMutable extends NodeMapBase {
                 return result;
             }
             removeMatching(nodes.iterator(), predicate, result);
+            trackExpiringNodes(result);
         } finally {
             this.lock.unlock();
         }
@@ -328,6 +409,8 @@ public class NodeMapMutable extends NodeMapBase {
             // by any race conditions between this call to clear and any subsequent call to setContent
             this.map = createMap();
             this.inheritanceMap = createMap();
+            this.expiringNodes = new ConcurrentSkipListSet<>(EXPIRY_ORDER);
+            this.keysStamp++;
         } finally {
             this.lock.unlock();
         }
@@ -346,6 +429,8 @@ public class NodeMapMutable extends NodeMapBase {
             if (removed != null) {
                 result.recordChanges(ChangeType.REMOVE, removed);
                 this.inheritanceMap.remove(context);
+                this.keysStamp++;
+                trackExpiringNodes(result);
             }
         } finally {
             this.lock.unlock();
@@ -433,4 +518,14 @@ public class NodeMapMutable extends NodeMapBase {
         return result;
     }
 
+    private static final class StampedIndex {
+        private final int stamp;
+        private final ContextSetIndex index;
+
+        StampedIndex(int stamp, ContextSetIndex index) {
+            this.stamp = stamp;
+            this.index = index;
+        }
+    }
+
 }
@@ -0,0 +1,81 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.model.nodemap;
+
+import com.google.common.collect.ImmutableList;
+import me.lucko.luckperms.common.model.PermissionHolder;
+import net.luckperms.api.model.data.DataType;
+
+import java.util.List;
+
+/**
+ * The available {@link NodeMap} implementations.
+ */
+public enum NodeMapType {
+
+    /**
+     * Backed by concurrent skip lists - cheap to modify in place.
+     */
+    CONCURRENT("concurrent") {
+        @Override
+        public NodeMap create(PermissionHolder holder, DataType type) {
+            return new NodeMapMutable(holder, type);
+        }
+    },
+
+    /**
+     * Backed by immutable snapshots which are replaced on each change - fastest to read.
+     */
+    COPY_ON_WRITE("copy-on-write", "cow") {
+        @Override
+        public NodeMap create(PermissionHolder holder, DataType type) {
+            return new NodeMapCopyOnWrite(holder, type);
+        }
+    };
+
+    private final List<String> identifiers;
+
+    NodeMapType(String... identifiers) {
+        this.identifiers = ImmutableList.copyOf(identifiers);
+    }
+
+    public abstract NodeMap create(PermissionHolder holder, DataType type);
+
+    public static NodeMapType parse(String name, NodeMapType def) {
+        for (NodeMapType t : values()) {
+            for (String id : t.identifiers) {
+                if (id.equalsIgnoreCase(name)) {
+                    return t;
+                }
+            }
+        }
+        return def;
+    }
+
+    public List<String> getIdentifiers() {
+        return this.identifiers;
+    }
+}
@@ -37,6 +37,7 @@ import net.luckperms.api.node.NodeType;
 import net.luckperms.api.node.types.InheritanceNode;
 import net.luckperms.api.query.QueryOptions;
 
+import java.time.Instant;
 import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -196,5 +197,6 @@ public class RecordedNodeMap implements NodeMap {
     @Override public void copyInheritanceNodesTo(Collection<? super InheritanceNode> collection, QueryOptions filter) { this.delegate.copyInheritanceNodesTo(collection, filter); }
     @Override public Collection<Node> nodesInContext(ContextSet context) { return this.delegate.nodesInContext(context); }
     @Override public Collection<InheritanceNode> inheritanceNodesInContext(ContextSet context) { return this.delegate.inheritanceNodesInContext(context); }
+    @Override public Instant earliestExpiry() { return this.delegate.earliestExpiry(); }
     
 }
@@ -27,6 +27,9 @@ package me.lucko.luckperms.common.node;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import me.lucko.luckperms.common.context.ImmutableContextSetImpl;
 import me.lucko.luckperms.common.node.utils.ShorthandParser;
 import net.luckperms.api.context.ImmutableContextSet;
 import net.luckperms.api.node.Node;
@@ -34,6 +37,7 @@ import net.luckperms.api.node.NodeBuilder;
 import net.luckperms.api.node.NodeEqualityPredicate;
 import net.luckperms.api.node.ScopedNode;
 import net.luckperms.api.node.metadata.NodeMetadataKey;
+import net.luckperms.api.node.metadata.types.InheritanceOriginMetadata;
 import net.luckperms.api.node.types.PermissionNode;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -54,6 +58,33 @@ public abstract class AbstractNode<N extends ScopedNode<N, B>, B extends NodeBui
     public static final char NODE_SEPARATOR = '.';
     public static final String NODE_SEPARATOR_STRING = String.valueOf(NODE_SEPARATOR);
 
+    /*
+     * Weak canonicalizing caches for the parts of a node which are commonly the same
+     * across many holders. Nodes are copied for each holder (with an inheritance origin
+     * that differs per holder), so without these each copy has its own instances.
+     *
+     * Only nodes built for a holder's node map are interned (see AbstractNodeBuilder#interned),
+     * so nodes which are built and discarded don't pay for the lookups.
+     */
+    private static final Interner<String> STRING_INTERNER = Interners.newWeakInterner();
+    private static final Interner<Map<NodeMetadataKey<?>, Object>> ORIGIN_METADATA_INTERNER = Interners.newWeakInterner();
+    private static final Interner<List<String>> SHORTHAND_INTERNER = Interners.newWeakInterner();
+
+    protected static String intern(String string) {
+        return STRING_INTERNER.intern(string);
+    }
+
+    private static Map<NodeMetadataKey<?>, Object> internMetadata(Map<NodeMetadataKey<?>, Object> metadata) {
+        ImmutableMap<NodeMetadataKey<?>, Object> copy = ImmutableMap.copyOf(metadata);
+
+        // only intern the common case of a map containing just the origin - other
+        // metadata values are provided by API users and may not be safe to share
+        if (copy.size() == 1 && copy.containsKey(InheritanceOriginMetadata.KEY)) {
+            return ORIGIN_METADATA_INTERNER.intern(copy);
+        }
+        return copy;
+    }
+
     // node attributes
     protected final String key;
     protected final boolean value;
@@ -66,14 +97,15 @@ public abstract class AbstractNode<N extends ScopedNode<N, B>, B extends NodeBui
     // this class is immutable, so we can cache the hashcode calculation
     private final int hashCode;
 
-    protected AbstractNode(String key, boolean value, long expireAt, ImmutableContextSet contexts, Map<NodeMetadataKey<?>, Object> metadata) {
-        this.key = key;
+    protected AbstractNode(String key, boolean value, long expireAt, ImmutableContextSet contexts, Map<NodeMetadataKey<?>, Object> metadata, boolean interned) {
+        this.key = interned ? intern(key) : key;
         this.value = value;
         this.expireAt = expireAt;
-        this.contexts = contexts;
-        this.metadata = ImmutableMap.copyOf(metadata);
+        this.contexts = interned ? ImmutableContextSetImpl.intern(contexts) : contexts;
+        this.metadata = interned ? internMetadata(metadata) : ImmutableMap.copyOf(metadata);
 
-        this.resolvedShorthand = this instanceof PermissionNode ? ImmutableList.copyOf(ShorthandParser.expandShorthand(this.key)) : ImmutableList.of();
+        List<String> resolvedShorthand = this instanceof PermissionNode ? ImmutableList.copyOf(ShorthandParser.expandShorthand(this.key)) : ImmutableList.of();
+        this.resolvedShorthand = interned ? SHORTHAND_INTERNER.intern(resolvedShorthand) : resolvedShorthand;
 
         this.hashCode = calculateHashCode();
     }
@@ -50,6 +50,7 @@ public abstract class AbstractNodeBuilder<N extends ScopedNode<N, B>, B extends
     protected long expireAt;
     protected ImmutableContextSet.Builder context;
     protected final Map<NodeMetadataKey<?>, Object> metadata;
+    protected boolean interned = false;
 
     protected AbstractNodeBuilder(boolean value, long expireAt, ImmutableContextSet context, Map<NodeMetadataKey<?>, Object> metadata) {
         this.value = value;
@@ -136,6 +137,20 @@ public abstract class AbstractNodeBuilder<N extends ScopedNode<N, B>, B extends
         return (B) this;
     }
 
+    /**
+     * Marks the node being built as long-lived, so its key, contexts and metadata
+     * are replaced with canonical instances shared with other nodes.
+     *
+     * <p>This is used for nodes held in node maps, which are commonly the same
+     * across many holders.</p>
+     *
+     * @return the builder
+     */
+    public B interned() {
+        this.interned = true;
+        return (B) this;
+    }
+
     protected static void ensureDefined(Object value, String description) {
         if (value == null) {
             throw new IllegalStateException(description + " has not been defined");
@@ -55,8 +55,8 @@ public class DisplayName extends AbstractNode<DisplayNameNode, DisplayNameNode.B
 
     private final String displayName;
 
-    public DisplayName(String displayName, boolean value, long expireAt, ImmutableContextSet contexts, Map<NodeMetadataKey<?>, Object> metadata) {
-        super(key(displayName), value, expireAt, contexts, metadata);
+    public DisplayName(String displayName, boolean value, long expireAt, ImmutableContextSet contexts, Map<NodeMetadataKey<?>, Object> metadata, boolean interned) {
+        super(key(displayName), value, expireAt, contexts, metadata, interned);
         this.displayName = displayName;
     }
 
@@ -104,7 +104,7 @@ public class DisplayName extends AbstractNode<DisplayNameNode, DisplayNameNode.B
         @Override
         public @NonNull DisplayName build() {
             ensureDefined(this.displayName, "display name");
-            return new DisplayName(this.displayName, this.value, this.expireAt, this.context.build(), this.metadata);
+            return new DisplayName(this.displayName, this.value, this.expireAt, this.context.build(), this.metadata, this.interned);
         }
     }
 }
@@ -57,9 +57,10 @@ public class Inheritance extends AbstractNode<InheritanceNode, InheritanceNode.B
 
     private final String groupName;
 
-    public Inheritance(String groupName, boolean value, long expireAt, ImmutableContextSet contexts, Map<NodeMetadataKey<?>, Object> metadata) {
-        super(key(groupName), value, expireAt, contexts, metadata);
-        this.groupName = groupName.toLowerCase(Locale.ROOT);
+    public Inheritance(String groupName, boolean value, long expireAt, ImmutableContextSet contexts, Map<NodeMetadataKey<?>, Object> metadata, boolean interned) {
+        super(key(groupName), value, expireAt, contexts, metadata, interned);
+        String name = groupName.toLowerCase(Locale.ROOT);
+        this.groupName = interned ? intern(name) : name;
     }
 
     @Override
@@ -113,7 +114,7 @@ public class Inheritance extends AbstractNode<InheritanceNode, InheritanceNode.B
         @Override
         public @NonNull Inheritance build() {
             ensureDefined(this.groupName, "group");
-            return new Inheritance(this.groupName, this.value, this.expireAt, this.context.build(), this.metadata);
+            return new Inheritance(this.groupName, this.value, this.expireAt, this.context.build(), this.metadata, this.interned);
         }
     }
 }
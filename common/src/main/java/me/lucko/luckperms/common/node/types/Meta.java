@@ -58,8 +58,8 @@ public class Meta extends AbstractNode<MetaNode, MetaNode.Builder> implements Me
     private final String metaKey;
     private final String metaValue;
 
-    public Meta(String metaKey, String metaValue, boolean value, long expireAt, ImmutableContextSet contexts, Map<NodeMetadataKey<?>, Object> metadata) {
-        super(key(metaKey, metaValue), value, expireAt, contexts, metadata);
+    public Meta(String metaKey, String metaValue, boolean value, long expireAt, ImmutableContextSet contexts, Map<NodeMetadataKey<?>, Object> metadata, boolean interned) {
+        super(key(metaKey, metaValue), value, expireAt, contexts, metadata, interned);
         this.metaKey = metaKey.toLowerCase(Locale.ROOT);
         this.metaValue = metaValue;
     }
@@ -132,7 +132,7 @@ public class Meta extends AbstractNode<MetaNode, MetaNode.Builder> implements Me
         public @NonNull Meta build() {
             ensureDefined(this.metaKey, "meta key");
             ensureDefined(this.metaValue, "meta value");
-            return new Meta(this.metaKey, this.metaValue, this.value, this.expireAt, this.context.build(), this.metadata);
+            return new Meta(this.metaKey, this.metaValue, this.value, this.expireAt, this.context.build(), this.metadata, this.interned);
         }
     }
 }
@@ -46,8 +46,8 @@ public class Permission extends AbstractNode<PermissionNode, PermissionNode.Buil
 
     private final int wildcardLevel;
 
-    public Permission(String permission, boolean value, long expireAt, ImmutableContextSet contexts, Map<NodeMetadataKey<?>, Object> metadata) {
-        super(permission, value, expireAt, contexts, metadata);
+    public Permission(String permission, boolean value, long expireAt, ImmutableContextSet contexts, Map<NodeMetadataKey<?>, Object> metadata, boolean interned) {
+        super(permission, value, expireAt, contexts, metadata, interned);
         this.wildcardLevel = WildcardProcessor.isWildcardPermission(permission) ? permission.chars().filter(num -> num == NODE_SEPARATOR).sum() : -1;
     }
 
@@ -102,7 +102,7 @@ public class Permission extends AbstractNode<PermissionNode, PermissionNode.Buil
                 throw new IllegalArgumentException("Attempting to build non-permission node with PermissionNode.Builder. permission = '" + this.permission + "', correct builder type = " + testBuilder.getClass().getName());
             }
 
-            return new Permission(this.permission, this.value, this.expireAt, this.context.build(), this.metadata);
+            return new Permission(this.permission, this.value, this.expireAt, this.context.build(), this.metadata, this.interned);
         }
     }
 
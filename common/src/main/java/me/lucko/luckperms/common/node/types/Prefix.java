@@ -59,8 +59,8 @@ public class Prefix extends AbstractNode<PrefixNode, PrefixNode.Builder> impleme
     private final String prefix;
     private final int priority;
 
-    public Prefix(String prefix, int priority, boolean value, long expireAt, ImmutableContextSet contexts, Map<NodeMetadataKey<?>, Object> metadata) {
-        super(key(priority, prefix), value, expireAt, contexts, metadata);
+    public Prefix(String prefix, int priority, boolean value, long expireAt, ImmutableContextSet contexts, Map<NodeMetadataKey<?>, Object> metadata, boolean interned) {
+        super(key(priority, prefix), value, expireAt, contexts, metadata, interned);
         this.prefix = prefix;
         this.priority = priority;
     }
@@ -138,7 +138,7 @@ public class Prefix extends AbstractNode<PrefixNode, PrefixNode.Builder> impleme
         public @NonNull Prefix build() {
             ensureDefined(this.prefix, "prefix");
             ensureDefined(this.priority, "priority");
-            return new Prefix(this.prefix, this.priority, this.value, this.expireAt, this.context.build(), this.metadata);
+            return new Prefix(this.prefix, this.priority, this.value, this.expireAt, this.context.build(), this.metadata, this.interned);
         }
     }
 }
@@ -61,8 +61,8 @@ public class RegexPermission extends AbstractNode<RegexPermissionNode, RegexPerm
         }
     };
 
-    public RegexPermission(String pattern, boolean value, long expireAt, ImmutableContextSet contexts, Map<NodeMetadataKey<?>, Object> metadata) {
-        super(key(pattern), value, expireAt, contexts, metadata);
+    public RegexPermission(String pattern, boolean value, long expireAt, ImmutableContextSet contexts, Map<NodeMetadataKey<?>, Object> metadata, boolean interned) {
+        super(key(pattern), value, expireAt, contexts, metadata, interned);
         this.pattern = pattern;
     }
 
@@ -120,7 +120,7 @@ public class RegexPermission extends AbstractNode<RegexPermissionNode, RegexPerm
         @Override
         public @NonNull RegexPermission build() {
             ensureDefined(this.pattern, "pattern");
-            return new RegexPermission(this.pattern, this.value, this.expireAt, this.context.build(), this.metadata);
+            return new RegexPermission(this.pattern, this.value, this.expireAt, this.context.build(), this.metadata, this.interned);
         }
     }
 }
@@ -59,8 +59,8 @@ public class Suffix extends AbstractNode<SuffixNode, SuffixNode.Builder> impleme
     private final String suffix;
     private final int priority;
 
-    public Suffix(String suffix, int priority, boolean value, long expireAt, ImmutableContextSet contexts, Map<NodeMetadataKey<?>, Object> metadata) {
-        super(key(priority, suffix), value, expireAt, contexts, metadata);
+    public Suffix(String suffix, int priority, boolean value, long expireAt, ImmutableContextSet contexts, Map<NodeMetadataKey<?>, Object> metadata, boolean interned) {
+        super(key(priority, suffix), value, expireAt, contexts, metadata, interned);
         this.suffix = suffix;
         this.priority = priority;
     }
@@ -139,7 +139,7 @@ public class Suffix extends AbstractNode<SuffixNode, SuffixNode.Builder> impleme
         public @NonNull Suffix build() {
             ensureDefined(this.suffix, "suffix");
             ensureDefined(this.priority, "priority");
-            return new Suffix(this.suffix, this.priority, this.value, this.expireAt, this.context.build(), this.metadata);
+            return new Suffix(this.suffix, this.priority, this.value, this.expireAt, this.context.build(), this.metadata, this.interned);
         }
     }
 }
@@ -54,8 +54,8 @@ public class Weight extends AbstractNode<WeightNode, WeightNode.Builder> impleme
 
     private final int weight;
 
-    public Weight(int weight, boolean value, long expireAt, ImmutableContextSet contexts, Map<NodeMetadataKey<?>, Object> metadata) {
-        super(key(weight), value, expireAt, contexts, metadata);
+    public Weight(int weight, boolean value, long expireAt, ImmutableContextSet contexts, Map<NodeMetadataKey<?>, Object> metadata, boolean interned) {
+        super(key(weight), value, expireAt, contexts, metadata, interned);
         this.weight = weight;
     }
 
@@ -104,7 +104,7 @@ public class Weight extends AbstractNode<WeightNode, WeightNode.Builder> impleme
         @Override
         public @NonNull Weight build() {
             ensureDefined(this.weight, "weight");
-            return new Weight(this.weight, this.value, this.expireAt, this.context.build(), this.metadata);
+            return new Weight(this.weight, this.value, this.expireAt, this.context.build(), this.metadata, this.interned);
         }
     }
 }
@@ -46,13 +46,19 @@ import me.lucko.luckperms.common.extension.SimpleExtensionManager;
 import me.lucko.luckperms.common.http.BytebinClient;
 import me.lucko.luckperms.common.http.BytesocksClient;
 import me.lucko.luckperms.common.inheritance.InheritanceGraphFactory;
+import me.lucko.luckperms.common.inheritance.InheritorIndex;
 import me.lucko.luckperms.common.locale.Message;
 import me.lucko.luckperms.common.locale.TranslationManager;
 import me.lucko.luckperms.common.locale.TranslationRepository;
 import me.lucko.luckperms.common.messaging.InternalMessagingService;
 import me.lucko.luckperms.common.messaging.MessagingFactory;
+import me.lucko.luckperms.common.metrics.MetricsRegistry;
+import me.lucko.luckperms.common.metrics.PrometheusExporter;
+import me.lucko.luckperms.common.metrics.Timer;
+import me.lucko.luckperms.common.model.PermissionHolder;
 import me.lucko.luckperms.common.plugin.logging.PluginLogger;
 import me.lucko.luckperms.common.plugin.util.HealthCheckResult;
+import me.lucko.luckperms.common.storage.OperationStatistics;
 import me.lucko.luckperms.common.storage.Storage;
 import me.lucko.luckperms.common.storage.StorageFactory;
 import me.lucko.luckperms.common.storage.StorageMetadata;
@@ -60,6 +66,7 @@ import me.lucko.luckperms.common.storage.implementation.file.watcher.FileWatcher
 import me.lucko.luckperms.common.storage.misc.DataConstraints;
 import me.lucko.luckperms.common.tasks.CacheHousekeepingTask;
 import me.lucko.luckperms.common.tasks.ExpireTemporaryTask;
+import me.lucko.luckperms.common.tasks.LogRetentionTask;
 import me.lucko.luckperms.common.tasks.SyncTask;
 import me.lucko.luckperms.common.treeview.AsyncPermissionRegistry;
 import me.lucko.luckperms.common.treeview.PermissionRegistry;
@@ -78,6 +85,7 @@ import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.Month;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.LinkedHashMap;
@@ -86,7 +94,9 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
 public abstract class AbstractLuckPermsPlugin implements LuckPermsPlugin {
 
@@ -94,7 +104,9 @@ public abstract class AbstractLuckPermsPlugin implements LuckPermsPlugin {
     private DependencyManager dependencyManager;
     private TranslationManager translationManager;
     private AsyncPermissionRegistry permissionRegistry;
+    private CompletableFuture<Void> permissionRegistryLoad;
     private VerboseHandler verboseHandler;
+    private MetricsRegistry metrics;
 
     // init during enable
     private LogDispatcher logDispatcher;
@@ -108,6 +120,8 @@ public abstract class AbstractLuckPermsPlugin implements LuckPermsPlugin {
     private Storage storage;
     private InternalMessagingService messagingService = null;
     private SyncTask.Buffer syncTaskBuffer;
+    private final ExpireTemporaryTask.Schedule expirySchedule = new ExpireTemporaryTask.Schedule();
+    private final InheritorIndex inheritorIndex = new InheritorIndex();
     private InheritanceGraphFactory inheritanceGraphFactory;
     private CalculatorFactory calculatorFactory;
     private LuckPermsApiProvider apiProvider;
@@ -130,7 +144,15 @@ public abstract class AbstractLuckPermsPlugin implements LuckPermsPlugin {
 
         // load some utilities early
         this.permissionRegistry = new AsyncPermissionRegistry(getBootstrap().getScheduler());
+        this.permissionRegistryLoad = CompletableFuture.runAsync(() -> {
+            try {
+                this.permissionRegistry.load(getBootstrap().getDataDirectory().resolve("permission-registry.gz"));
+            } catch (Exception e) {
+                getLogger().warn("Unable to load the permission registry", e);
+            }
+        }, getBootstrap().getScheduler().async());
         this.verboseHandler = new VerboseHandler(getBootstrap().getScheduler());
+        this.metrics = new MetricsRegistry();
     }
 
     public final void enable() {
@@ -214,6 +236,7 @@ public abstract class AbstractLuckPermsPlugin implements LuckPermsPlugin {
 
         // setup user/group/track manager
         setupManagers();
+        registerMetrics();
 
         // init calculator factory
         this.calculatorFactory = provideCalculatorFactory();
@@ -243,6 +266,13 @@ public abstract class AbstractLuckPermsPlugin implements LuckPermsPlugin {
             getBootstrap().getScheduler().asyncRepeating(() -> this.syncTaskBuffer.request(), syncMins, TimeUnit.MINUTES);
         }
 
+        // schedule metrics export
+        String metricsFile = getConfiguration().get(ConfigKeys.METRICS_PROMETHEUS_FILE);
+        if (!metricsFile.isEmpty()) {
+            PrometheusExporter exporter = new PrometheusExporter(this, getBootstrap().getDataDirectory().resolve(metricsFile));
+            getBootstrap().getScheduler().asyncRepeating(exporter, getConfiguration().get(ConfigKeys.METRICS_EXPORT_INTERVAL), TimeUnit.SECONDS);
+        }
+
         // run an update instantly.
         getLogger().info("Performing initial data load...");
         try {
@@ -281,6 +311,15 @@ public abstract class AbstractLuckPermsPlugin implements LuckPermsPlugin {
         this.permissionRegistry.close();
         this.verboseHandler.close();
 
+        // save known permissions, so they are available straight away after a restart.
+        // wait for the saved permissions to finish loading first, so they aren't lost
+        try {
+            this.permissionRegistryLoad.join();
+            this.permissionRegistry.save(getBootstrap().getDataDirectory().resolve("permission-registry.gz"));
+        } catch (Exception e) {
+            getLogger().warn("Unable to save the permission registry", e);
+        }
+
         // unload extensions
         this.extensionManager.close();
 
@@ -343,9 +382,35 @@ public abstract class AbstractLuckPermsPlugin implements LuckPermsPlugin {
 
     // hooks called during enable
 
+    private void registerMetrics() {
+        this.metrics.gauge("loaded_users", "The number of loaded users", () -> getUserManager().getAll().size());
+        this.metrics.gauge("loaded_groups", "The number of loaded groups", () -> getGroupManager().getAll().size());
+        this.metrics.gauge("loaded_tracks", "The number of loaded tracks", () -> getTrackManager().getAll().size());
+        this.metrics.gauge("action_log_queue_size", "The number of action log entries waiting to be written to storage", () -> getStorage().getLogWriter().getPendingCount());
+        this.metrics.functionCounter("action_log_dropped_entries_total", "The number of action log entries dropped because the queue was full", () -> getStorage().getLogWriter().getDroppedCount());
+
+        String offlineCacheDescription = "The number of lookups made against the offline user cache";
+        this.metrics.gauge("offline_user_cache_size", "The number of user snapshots held by the offline user cache", () -> getUserManager().getOfflineUserCache().size());
+        this.metrics.functionCounter("offline_user_cache_requests_total", offlineCacheDescription, () -> getUserManager().getOfflineUserCache().getStats().hitCount(), "result", "hit");
+        this.metrics.functionCounter("offline_user_cache_requests_total", offlineCacheDescription, () -> getUserManager().getOfflineUserCache().getStats().missCount(), "result", "miss");
+        this.metrics.gauge("offline_user_cache_hit_rate", "The proportion of lookups against the offline user cache which were hits", () -> getUserManager().getOfflineUserCache().getStats().hitRate());
+
+        String cachedDescription = "The number of query options with cached data, summed over all loaded holders";
+        String maxCachedDescription = "The largest number of query options with cached data held by a single holder";
+        this.metrics.gauge("cached_query_options", cachedDescription, () -> cachedQueryOptionCounts(getUserManager().getAll().values()).sum(), "type", "user");
+        this.metrics.gauge("cached_query_options", cachedDescription, () -> cachedQueryOptionCounts(getGroupManager().getAll().values()).sum(), "type", "group");
+        this.metrics.gauge("cached_query_options_max", maxCachedDescription, () -> cachedQueryOptionCounts(getUserManager().getAll().values()).max().orElse(0), "type", "user");
+        this.metrics.gauge("cached_query_options_max", maxCachedDescription, () -> cachedQueryOptionCounts(getGroupManager().getAll().values()).max().orElse(0), "type", "group");
+    }
+
+    private static IntStream cachedQueryOptionCounts(Collection<? extends PermissionHolder> holders) {
+        return holders.stream().mapToInt(holder -> holder.getCachedData().getCachedQueryOptionsCount());
+    }
+
     protected void registerHousekeepingTasks() {
-        getBootstrap().getScheduler().asyncRepeating(new ExpireTemporaryTask(this), 3, TimeUnit.SECONDS);
+        getBootstrap().getScheduler().asyncRepeating(new ExpireTemporaryTask(this), 1, TimeUnit.SECONDS);
         getBootstrap().getScheduler().asyncRepeating(new CacheHousekeepingTask(this), 2, TimeUnit.MINUTES);
+        getBootstrap().getScheduler().asyncRepeating(new LogRetentionTask(this), 1, TimeUnit.HOURS);
     }
 
     protected abstract void setupSenderFactory();
@@ -420,9 +485,31 @@ public abstract class AbstractLuckPermsPlugin implements LuckPermsPlugin {
             map.put("storageSizeBytes", meta.sizeBytes());
         }
 
+        Map<String, Object> operations = new LinkedHashMap<>();
+        for (OperationStatistics statistics : this.storage.getOperationStatistics()) {
+            Timer executionTime = statistics.getExecutionTime();
+            Map<String, Object> operation = new LinkedHashMap<>();
+            operation.put("count", statistics.getCount());
+            operation.put("errors", statistics.getErrorCount());
+            operation.put("slow", statistics.getSlowCount());
+            operation.put("p50Millis", toMillis(executionTime.getPercentile(50)));
+            operation.put("p95Millis", toMillis(executionTime.getPercentile(95)));
+            operation.put("p99Millis", toMillis(executionTime.getPercentile(99)));
+            operation.put("maxMillis", toMillis(executionTime.getMaxTime()));
+            operation.put("averageWaitMillis", toMillis(statistics.getQueueTime().getAverageTime()));
+            operations.put(statistics.getOperation(), operation);
+        }
+        if (!operations.isEmpty()) {
+            map.put("storageOperations", operations);
+        }
+
         return HealthCheckResult.healthy(map);
     }
 
+    private static double toMillis(Duration duration) {
+        return duration.toNanos() / 1_000_000d;
+    }
+
     @Override
     public Optional<UUID> lookupUniqueId(String username) {
         // get a result from the DB cache
@@ -490,6 +577,11 @@ public abstract class AbstractLuckPermsPlugin implements LuckPermsPlugin {
         return this.permissionRegistry;
     }
 
+    @Override
+    public MetricsRegistry getMetrics() {
+        return this.metrics;
+    }
+
     @Override
     public LogDispatcher getLogDispatcher() {
         return this.logDispatcher;
@@ -544,6 +636,16 @@ public abstract class AbstractLuckPermsPlugin implements LuckPermsPlugin {
         return this.syncTaskBuffer;
     }
 
+    @Override
+    public ExpireTemporaryTask.Schedule getExpirySchedule() {
+        return this.expirySchedule;
+    }
+
+    @Override
+    public InheritorIndex getInheritorIndex() {
+        return this.inheritorIndex;
+    }
+
     @Override
     public InheritanceGraphFactory getInheritanceGraphFactory() {
         return this.inheritanceGraphFactory;
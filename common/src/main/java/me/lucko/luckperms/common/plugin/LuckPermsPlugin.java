@@ -38,9 +38,11 @@ import me.lucko.luckperms.common.extension.SimpleExtensionManager;
 import me.lucko.luckperms.common.http.BytebinClient;
 import me.lucko.luckperms.common.http.BytesocksClient;
 import me.lucko.luckperms.common.inheritance.InheritanceGraphFactory;
+import me.lucko.luckperms.common.inheritance.InheritorIndex;
 import me.lucko.luckperms.common.locale.TranslationManager;
 import me.lucko.luckperms.common.locale.TranslationRepository;
 import me.lucko.luckperms.common.messaging.InternalMessagingService;
+import me.lucko.luckperms.common.metrics.MetricsRegistry;
 import me.lucko.luckperms.common.model.Group;
 import me.lucko.luckperms.common.model.Track;
 import me.lucko.luckperms.common.model.User;
@@ -53,6 +55,7 @@ import me.lucko.luckperms.common.plugin.util.AbstractConnectionListener;
 import me.lucko.luckperms.common.sender.Sender;
 import me.lucko.luckperms.common.storage.Storage;
 import me.lucko.luckperms.common.storage.implementation.file.watcher.FileWatcher;
+import me.lucko.luckperms.common.tasks.ExpireTemporaryTask;
 import me.lucko.luckperms.common.tasks.SyncTask;
 import me.lucko.luckperms.common.treeview.PermissionRegistry;
 import me.lucko.luckperms.common.verbose.VerboseHandler;
@@ -229,6 +232,13 @@ public interface LuckPermsPlugin {
      */
     PermissionRegistry getPermissionRegistry();
 
+    /**
+     * Gets the metrics registry for the platform.
+     *
+     * @return the metrics registry
+     */
+    MetricsRegistry getMetrics();
+
     /**
      * Gets the log dispatcher running on the platform
      *
@@ -328,6 +338,20 @@ public interface LuckPermsPlugin {
      */
     SyncTask.Buffer getSyncTaskBuffer();
 
+    /**
+     * Gets the schedule of temporary node expiry times.
+     *
+     * @return the expiry schedule
+     */
+    ExpireTemporaryTask.Schedule getExpirySchedule();
+
+    /**
+     * Gets the index of the holders which directly inherit from each group.
+     *
+     * @return the inheritor index
+     */
+    InheritorIndex getInheritorIndex();
+
     /**
      * Called at the end of the sync task.
      */
@@ -27,6 +27,8 @@ package me.lucko.luckperms.common.query;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import me.lucko.luckperms.common.context.ImmutableContextSetImpl;
 import net.luckperms.api.context.ContextSatisfyMode;
 import net.luckperms.api.context.ContextSet;
@@ -47,6 +49,33 @@ public class QueryOptionsImpl implements QueryOptions {
     public static final QueryOptions DEFAULT_CONTEXTUAL = new QueryOptionsImpl(QueryMode.CONTEXTUAL, ImmutableContextSetImpl.EMPTY, FlagUtils.ALL_FLAGS, null);
     public static final QueryOptions DEFAULT_NON_CONTEXTUAL = new QueryOptionsImpl(QueryMode.NON_CONTEXTUAL, null, FlagUtils.ALL_FLAGS, null);
 
+    // weak canonicalizing cache, so equal query options resolve to the same instance
+    private static final Interner<QueryOptionsImpl> INTERNER = Interners.newWeakInterner();
+
+    /**
+     * Returns a canonical instance equal to the given query options.
+     *
+     * <p>Canonical instances can be compared by identity, which allows caches keyed
+     * by query options to skip the deep equality check on lookup.</p>
+     *
+     * @param queryOptions the query options
+     * @return the canonical instance
+     */
+    public static QueryOptions intern(QueryOptions queryOptions) {
+        if (queryOptions == DEFAULT_CONTEXTUAL || queryOptions == DEFAULT_NON_CONTEXTUAL || !(queryOptions instanceof QueryOptionsImpl)) {
+            return queryOptions;
+        }
+
+        QueryOptionsImpl impl = (QueryOptionsImpl) queryOptions;
+        if (impl.context != null) {
+            ImmutableContextSet context = ImmutableContextSetImpl.intern(impl.context);
+            if (context != impl.context) {
+                impl = new QueryOptionsImpl(impl.mode, context, impl.flags, impl.options);
+            }
+        }
+        return INTERNER.intern(impl);
+    }
+
     // state
     private final QueryMode mode;
     private final ImmutableContextSet context;
@@ -0,0 +1,95 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.storage;
+
+import me.lucko.luckperms.common.metrics.Counter;
+import me.lucko.luckperms.common.metrics.MetricsRegistry;
+import me.lucko.luckperms.common.metrics.Timer;
+
+/**
+ * Records timings and error counts for a single {@link Storage} operation.
+ *
+ * <p>The time an operation spends waiting to be executed is recorded separately
+ * from the time taken to execute it.</p>
+ */
+public final class OperationStatistics {
+    private final String operation;
+    private final Timer queueTime;
+    private final Timer executionTime;
+    private final Counter errors;
+    private final Counter slow;
+
+    OperationStatistics(String operation, MetricsRegistry metrics) {
+        this.operation = operation;
+        this.queueTime = metrics.timer("storage_queue_time", "Time storage operations spent waiting to be executed", "operation", operation);
+        this.executionTime = metrics.timer("storage_operation_time", "Time taken to execute storage operations", "operation", operation);
+        this.errors = metrics.counter("storage_errors_total", "Storage operations which failed with an exception", "operation", operation);
+        this.slow = metrics.counter("storage_slow_operations_total", "Storage operations which took longer than the slow operation threshold", "operation", operation);
+    }
+
+    /**
+     * Records an execution of the operation.
+     *
+     * @param queueNanos the time spent waiting to be executed
+     * @param executionNanos the time taken to execute
+     * @param success if the operation completed without an exception
+     * @param slow if the operation exceeded the slow operation threshold
+     */
+    void record(long queueNanos, long executionNanos, boolean success, boolean slow) {
+        this.queueTime.record(queueNanos);
+        this.executionTime.record(executionNanos);
+        if (!success) {
+            this.errors.increment();
+        }
+        if (slow) {
+            this.slow.increment();
+        }
+    }
+
+    public String getOperation() {
+        return this.operation;
+    }
+
+    public Timer getQueueTime() {
+        return this.queueTime;
+    }
+
+    public Timer getExecutionTime() {
+        return this.executionTime;
+    }
+
+    public long getCount() {
+        return this.executionTime.getCount();
+    }
+
+    public long getErrorCount() {
+        return this.errors.getCount();
+    }
+
+    public long getSlowCount() {
+        return this.slow.getCount();
+    }
+}
@@ -25,9 +25,12 @@
 
 package me.lucko.luckperms.common.storage;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import com.google.common.collect.ImmutableList;
+import me.lucko.luckperms.common.actionlog.BatchedLogWriter;
 import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
+import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.filter.FilterList;
 import me.lucko.luckperms.common.filter.PageParameters;
 import me.lucko.luckperms.common.model.Group;
@@ -39,6 +42,8 @@ import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
 import me.lucko.luckperms.common.storage.implementation.split.SplitStorage;
 import me.lucko.luckperms.common.storage.misc.NodeEntry;
 import me.lucko.luckperms.common.util.AsyncInterface;
+import me.lucko.luckperms.common.util.CaffeineFactory;
+import me.lucko.luckperms.common.util.Throwing;
 import net.luckperms.api.actionlog.Action;
 import net.luckperms.api.event.cause.CreationCause;
 import net.luckperms.api.event.cause.DeletionCause;
@@ -46,15 +51,22 @@ import net.luckperms.api.model.PlayerSaveResult;
 import net.luckperms.api.node.Node;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.StringJoiner;
 import java.util.UUID;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Provides a {@link CompletableFuture} based API for interacting with a {@link StorageImplementation}.
@@ -62,11 +74,25 @@ import java.util.concurrent.CompletableFuture;
 public class Storage extends AsyncInterface {
     private final LuckPermsPlugin plugin;
     private final StorageImplementation implementation;
+    private final BatchedLogWriter logWriter;
+    private final Map<String, OperationStatistics> operationStatistics = new ConcurrentHashMap<>();
+
+    // caches the results of player data lookups, to avoid repeatedly querying the
+    // storage when resolving the same usernames/uuids
+    private final Cache<String, UUID> uniqueIdLookupCache = CaffeineFactory.newBuilder()
+            .maximumSize(10000)
+            .expireAfterWrite(10, TimeUnit.MINUTES)
+            .build();
+    private final Cache<UUID, String> usernameLookupCache = CaffeineFactory.newBuilder()
+            .maximumSize(10000)
+            .expireAfterWrite(10, TimeUnit.MINUTES)
+            .build();
 
     public Storage(LuckPermsPlugin plugin, StorageImplementation implementation) {
         super(plugin);
         this.plugin = plugin;
         this.implementation = implementation;
+        this.logWriter = new BatchedLogWriter(plugin, this::writeLogBatch);
     }
 
     public StorageImplementation getImplementation() {
@@ -81,6 +107,10 @@ public class Storage extends AsyncInterface {
         }
     }
 
+    public BatchedLogWriter getLogWriter() {
+        return this.logWriter;
+    }
+
     public String getName() {
         return this.implementation.getImplementationName();
     }
@@ -91,9 +121,12 @@ public class Storage extends AsyncInterface {
         } catch (Exception e) {
             this.plugin.getLogger().severe("Failed to init storage implementation", e);
         }
+        this.logWriter.start();
     }
 
     public void shutdown() {
+        // make sure any queued log entries are written before the implementation is closed
+        this.logWriter.shutdown();
         try {
             this.implementation.shutdown();
         } catch (Exception e) {
@@ -106,156 +139,317 @@ public class Storage extends AsyncInterface {
     }
 
     public CompletableFuture<Void> logAction(Action entry) {
-        return future(() -> this.implementation.logAction(entry));
+        return this.logWriter.submit(entry);
     }
 
     public CompletableFuture<LogPage> getLogPage(FilterList<Action> filters, @Nullable PageParameters page) {
-        return future(() -> this.implementation.getLogPage(filters, page));
+        return timed("getLogPage", () -> this.implementation.getLogPage(filters, page), filters);
+    }
+
+    public CompletableFuture<Integer> pruneLog(Instant before) {
+        return timed("pruneLog", () -> this.implementation.pruneLog(before), before);
     }
 
     public CompletableFuture<Void> applyBulkUpdate(BulkUpdate bulkUpdate) {
-        return future(() -> this.implementation.applyBulkUpdate(bulkUpdate));
+        return timed("applyBulkUpdate", () -> this.implementation.applyBulkUpdate(bulkUpdate), bulkUpdate);
     }
 
     public CompletableFuture<User> loadUser(UUID uniqueId, String username) {
-        return future(() -> {
+        return timed("loadUser", () -> {
             User user = this.implementation.loadUser(uniqueId, username);
             if (user != null) {
                 this.plugin.getEventDispatcher().dispatchUserLoad(user);
             }
             return user;
-        });
+        }, uniqueId, username);
+    }
+
+    public CompletableFuture<User> loadDetachedUser(UUID uniqueId) {
+        return timed("loadDetachedUser", () -> this.implementation.loadDetachedUser(uniqueId), uniqueId);
     }
 
     public CompletableFuture<Map<UUID, User>> loadUsers(Set<UUID> uniqueIds) {
-        return future(() -> {
+        return timed("loadUsers", () -> {
             Map<UUID, User> users = this.implementation.loadUsers(uniqueIds);
             for (User user : users.values()) {
                 this.plugin.getEventDispatcher().dispatchUserLoad(user);
             }
             return users;
-        });
+        }, uniqueIds);
     }
 
     public CompletableFuture<Void> saveUser(User user) {
-        return future(() -> this.implementation.saveUser(user));
+        return timed("saveUser", () -> {
+            this.implementation.saveUser(user);
+
+            // snapshots taken before the save are out of date
+            this.plugin.getUserManager().getOfflineUserCache().invalidate(user.getUniqueId());
+        }, user);
     }
 
     public CompletableFuture<Set<UUID>> getUniqueUsers() {
-        return future(this.implementation::getUniqueUsers);
+        return timed("getUniqueUsers", this.implementation::getUniqueUsers);
     }
 
     public <N extends Node> CompletableFuture<List<NodeEntry<UUID, N>>> searchUserNodes(ConstraintNodeMatcher<N> constraint) {
-        return future(() -> {
+        return timed("searchUserNodes", () -> {
             List<NodeEntry<UUID, N>> result = this.implementation.searchUserNodes(constraint);
             result.removeIf(entry -> entry.getNode().hasExpired());
             return ImmutableList.copyOf(result);
-        });
+        }, constraint);
     }
 
     public CompletableFuture<Group> createAndLoadGroup(String name, CreationCause cause) {
-        return future(() -> {
+        return timed("createAndLoadGroup", () -> {
             Group group = this.implementation.createAndLoadGroup(name.toLowerCase(Locale.ROOT));
             if (group != null) {
                 this.plugin.getEventDispatcher().dispatchGroupCreate(group, cause);
             }
             return group;
-        });
+        }, name);
     }
 
     public CompletableFuture<Optional<Group>> loadGroup(String name) {
-        return future(() -> {
+        return timed("loadGroup", () -> {
             Optional<Group> group = this.implementation.loadGroup(name.toLowerCase(Locale.ROOT));
             if (group.isPresent()) {
                 this.plugin.getEventDispatcher().dispatchGroupLoad(group.get());
             }
             return group;
-        });
+        }, name);
     }
 
     public CompletableFuture<Void> loadAllGroups() {
-        return future(() -> {
+        return timed("loadAllGroups", () -> {
             this.implementation.loadAllGroups();
             this.plugin.getEventDispatcher().dispatchGroupLoadAll();
         });
     }
 
     public CompletableFuture<Void> saveGroup(Group group) {
-        return future(() -> this.implementation.saveGroup(group));
+        return timed("saveGroup", () -> this.implementation.saveGroup(group), group);
     }
 
     public CompletableFuture<Void> deleteGroup(Group group, DeletionCause cause) {
-        return future(() -> {
+        return timed("deleteGroup", () -> {
             this.implementation.deleteGroup(group);
             this.plugin.getEventDispatcher().dispatchGroupDelete(group, cause);
-        });
+        }, group);
     }
 
     public <N extends Node> CompletableFuture<List<NodeEntry<String, N>>> searchGroupNodes(ConstraintNodeMatcher<N> constraint) {
-        return future(() -> {
+        return timed("searchGroupNodes", () -> {
             List<NodeEntry<String, N>> result = this.implementation.searchGroupNodes(constraint);
             result.removeIf(entry -> entry.getNode().hasExpired());
             return ImmutableList.copyOf(result);
-        });
+        }, constraint);
     }
 
     public CompletableFuture<Track> createAndLoadTrack(String name, CreationCause cause) {
-        return future(() -> {
+        return timed("createAndLoadTrack", () -> {
             Track track = this.implementation.createAndLoadTrack(name.toLowerCase(Locale.ROOT));
             if (track != null) {
                 this.plugin.getEventDispatcher().dispatchTrackCreate(track, cause);
             }
             return track;
-        });
+        }, name);
     }
 
     public CompletableFuture<Optional<Track>> loadTrack(String name) {
-        return future(() -> {
+        return timed("loadTrack", () -> {
             Optional<Track> track = this.implementation.loadTrack(name.toLowerCase(Locale.ROOT));
             if (track.isPresent()) {
                 this.plugin.getEventDispatcher().dispatchTrackLoad(track.get());
             }
             return track;
-        });
+        }, name);
     }
 
     public CompletableFuture<Void> loadAllTracks() {
-        return future(() -> {
+        return timed("loadAllTracks", () -> {
             this.implementation.loadAllTracks();
             this.plugin.getEventDispatcher().dispatchTrackLoadAll();
         });
     }
 
     public CompletableFuture<Void> saveTrack(Track track) {
-        return future(() -> this.implementation.saveTrack(track));
+        return timed("saveTrack", () -> this.implementation.saveTrack(track), track);
     }
 
     public CompletableFuture<Void> deleteTrack(Track track, DeletionCause cause) {
-        return future(() -> {
+        return timed("deleteTrack", () -> {
             this.implementation.deleteTrack(track);
             this.plugin.getEventDispatcher().dispatchTrackDelete(track, cause);
-         });
+         }, track);
     }
 
     public CompletableFuture<PlayerSaveResult> savePlayerData(UUID uniqueId, String username) {
-        return future(() -> {
+        return timed("savePlayerData", () -> {
             PlayerSaveResult result = this.implementation.savePlayerData(uniqueId, username);
+            invalidatePlayerLookups(uniqueId, result);
+            if (username != null) {
+                this.uniqueIdLookupCache.invalidate(username.toLowerCase(Locale.ROOT));
+            }
             if (result != null) {
                 this.plugin.getEventDispatcher().dispatchPlayerDataSave(uniqueId, username, result);
             }
             return result;
-        });
+        }, uniqueId, username);
     }
 
     public CompletableFuture<Void> deletePlayerData(UUID uniqueId) {
-        return future(() -> this.implementation.deletePlayerData(uniqueId));
+        return timed("deletePlayerData", () -> {
+            this.implementation.deletePlayerData(uniqueId);
+            invalidatePlayerLookups(uniqueId, null);
+        }, uniqueId);
     }
 
     public CompletableFuture<UUID> getPlayerUniqueId(String username) {
-        return future(() -> this.implementation.getPlayerUniqueId(username));
+        String key = username.toLowerCase(Locale.ROOT);
+        UUID cached = this.uniqueIdLookupCache.getIfPresent(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        return timed("getPlayerUniqueId", () -> {
+            UUID uniqueId = this.implementation.getPlayerUniqueId(username);
+            if (uniqueId != null) {
+                this.uniqueIdLookupCache.put(key, uniqueId);
+            }
+            return uniqueId;
+        }, username);
     }
 
     public CompletableFuture<String> getPlayerName(UUID uniqueId) {
-        return future(() -> this.implementation.getPlayerName(uniqueId));
+        String cached = this.usernameLookupCache.getIfPresent(uniqueId);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        return timed("getPlayerName", () -> {
+            String username = this.implementation.getPlayerName(uniqueId);
+            if (username != null) {
+                this.usernameLookupCache.put(uniqueId, username);
+            }
+            return username;
+        }, uniqueId);
+    }
+
+    public List<OperationStatistics> getOperationStatistics() {
+        List<OperationStatistics> statistics = new ArrayList<>(this.operationStatistics.values());
+        statistics.sort(Comparator.comparing(OperationStatistics::getOperation));
+        return statistics;
+    }
+
+    /**
+     * Executes a storage operation asynchronously, recording how long it spent
+     * waiting to be executed and how long it took to execute.
+     *
+     * @param operation the name of the operation
+     * @param callable the operation
+     * @param args the arguments of the operation, included when logging slow operations
+     * @param <T> the result type
+     * @return a future encapsulating the result
+     */
+    private <T> CompletableFuture<T> timed(String operation, Callable<T> callable, Object... args) {
+        OperationStatistics statistics = statistics(operation);
+        long submitted = System.nanoTime();
+        return future(() -> {
+            long start = System.nanoTime();
+            boolean success = false;
+            try {
+                T result = callable.call();
+                success = true;
+                return result;
+            } finally {
+                recordOperation(statistics, args, submitted, start, success);
+            }
+        });
+    }
+
+    private CompletableFuture<Void> timed(String operation, Throwing.Runnable runnable, Object... args) {
+        return timed(operation, () -> {
+            runnable.run();
+            return null;
+        }, args);
+    }
+
+    /**
+     * Executes a storage operation on the calling thread, recording how long it took
+     * to execute.
+     *
+     * @param operation the name of the operation
+     * @param runnable the operation
+     * @param args the arguments of the operation, included when logging slow operations
+     * @throws Exception if the operation fails
+     */
+    private void timedNow(String operation, Throwing.Runnable runnable, Object... args) throws Exception {
+        OperationStatistics statistics = statistics(operation);
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            runnable.run();
+            success = true;
+        } finally {
+            recordOperation(statistics, args, start, start, success);
+        }
+    }
+
+    private void writeLogBatch(List<Action> actions) throws Exception {
+        // called by the log writer, which is already running asynchronously
+        timedNow("logActions", () -> this.implementation.logActions(actions), actions);
+    }
+
+    private OperationStatistics statistics(String operation) {
+        return this.operationStatistics.computeIfAbsent(operation, op -> new OperationStatistics(op, this.plugin.getMetrics()));
+    }
+
+    private void recordOperation(OperationStatistics statistics, Object[] args, long submitted, long start, boolean success) {
+        long queueNanos = start - submitted;
+        long executionNanos = System.nanoTime() - start;
+
+        int threshold = this.plugin.getConfiguration().get(ConfigKeys.STORAGE_SLOW_OPERATION_THRESHOLD);
+        boolean slow = threshold > 0 && queueNanos + executionNanos >= TimeUnit.MILLISECONDS.toNanos(threshold);
+        statistics.record(queueNanos, executionNanos, success, slow);
+
+        if (slow) {
+            this.plugin.getLogger().warn("Storage operation " + statistics.getOperation() + formatArguments(args) + " took " +
+                    TimeUnit.NANOSECONDS.toMillis(queueNanos + executionNanos) + "ms (waited " +
+                    TimeUnit.NANOSECONDS.toMillis(queueNanos) + "ms, executed in " +
+                    TimeUnit.NANOSECONDS.toMillis(executionNanos) + "ms)" + (success ? "" : " and failed"));
+        }
+    }
+
+    private static String formatArguments(Object[] args) {
+        StringJoiner joiner = new StringJoiner(", ", "(", ")");
+        for (Object arg : args) {
+            if (arg instanceof Collection<?> && ((Collection<?>) arg).size() > 10) {
+                joiner.add("[" + ((Collection<?>) arg).size() + " entries]");
+            } else {
+                joiner.add(String.valueOf(arg));
+            }
+        }
+        return joiner.toString();
+    }
+
+    private void invalidatePlayerLookups(UUID uniqueId, @Nullable PlayerSaveResult result) {
+        // the previous username of the player (or the username of other players which
+        // previously had the same name) may no longer resolve to the same uuid
+        String username = this.usernameLookupCache.getIfPresent(uniqueId);
+        if (username != null) {
+            this.uniqueIdLookupCache.invalidate(username.toLowerCase(Locale.ROOT));
+        }
+        this.usernameLookupCache.invalidate(uniqueId);
+
+        if (result != null) {
+            String previousUsername = result.getPreviousUsername();
+            if (previousUsername != null) {
+                this.uniqueIdLookupCache.invalidate(previousUsername.toLowerCase(Locale.ROOT));
+            }
+            Set<UUID> otherUniqueIds = result.getOtherUniqueIds();
+            if (otherUniqueIds != null) {
+                this.usernameLookupCache.invalidateAll(otherUniqueIds);
+            }
+        }
     }
 }
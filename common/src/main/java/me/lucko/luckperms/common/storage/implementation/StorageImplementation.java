@@ -41,6 +41,7 @@ import net.luckperms.api.model.PlayerSaveResult;
 import net.luckperms.api.node.Node;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -60,12 +61,32 @@ public interface StorageImplementation {
 
     void logAction(Action entry) throws Exception;
 
+    void logActions(List<Action> entries) throws Exception;
+
     LogPage getLogPage(FilterList<Action> filters, @Nullable PageParameters page) throws Exception;
 
+    int pruneLog(Instant before) throws Exception;
+
     void applyBulkUpdate(BulkUpdate bulkUpdate) throws Exception;
 
     User loadUser(UUID uniqueId, String username) throws Exception;
 
+    /**
+     * Loads the data of a user into a new {@link User} instance, which isn't registered
+     * with the user manager. Changes made whilst loading (for example, the removal of
+     * expired nodes) are not saved back to storage.
+     *
+     * <p>Implementations which can't load users in isolation fall back to
+     * {@link #loadUser(UUID, String)}.</p>
+     *
+     * @param uniqueId the unique id of the user
+     * @return the user
+     * @throws Exception if an error occurs
+     */
+    default User loadDetachedUser(UUID uniqueId) throws Exception {
+        return loadUser(uniqueId, null);
+    }
+
     Map<UUID, User> loadUsers(Set<UUID> uniqueIds) throws Exception;
 
     void saveUser(User user) throws Exception;
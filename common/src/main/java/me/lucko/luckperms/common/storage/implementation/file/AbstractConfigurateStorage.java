@@ -70,6 +70,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -170,14 +171,35 @@ public abstract class AbstractConfigurateStorage implements StorageImplementatio
         this.actionLogger.logAction(entry);
     }
 
+    @Override
+    public void logActions(List<Action> entries) {
+        for (Action entry : entries) {
+            this.actionLogger.logAction(entry);
+        }
+    }
+
     @Override
     public LogPage getLogPage(FilterList<Action> filters, @Nullable PageParameters page) throws Exception {
         return this.actionLogger.getLogPage(filters, page);
     }
 
+    @Override
+    public int pruneLog(Instant before) throws IOException {
+        return this.actionLogger.pruneLog(before);
+    }
+
     @Override
     public User loadUser(UUID uniqueId, String username) throws IOException {
-        User user = this.plugin.getUserManager().getOrMake(uniqueId, username);
+        return loadUser(this.plugin.getUserManager().getOrMake(uniqueId, username), true);
+    }
+
+    @Override
+    public User loadDetachedUser(UUID uniqueId) throws IOException {
+        return loadUser(new User(uniqueId, this.plugin), false);
+    }
+
+    private User loadUser(User user, boolean saveChanges) throws IOException {
+        UUID uniqueId = user.getUniqueId();
         try {
             ConfigurationNode file = readFile(StorageLocation.USERS, uniqueId.toString());
             if (file != null) {
@@ -191,7 +213,7 @@ public abstract class AbstractConfigurateStorage implements StorageImplementatio
                 this.plugin.getUserManager().giveDefaultIfNeeded(user);
 
                 boolean updatedUsername = user.getUsername().isPresent() && (name == null || !user.getUsername().get().equalsIgnoreCase(name));
-                if (updatedUsername | user.auditTemporaryNodes()) {
+                if ((updatedUsername | user.auditTemporaryNodes()) && saveChanges) {
                     saveUser(user);
                 }
             } else {
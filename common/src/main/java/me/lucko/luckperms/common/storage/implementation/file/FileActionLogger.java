@@ -44,7 +44,9 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
@@ -176,6 +178,48 @@ public class FileActionLogger {
         return LogPage.of(paginated, page, size);
     }
 
+    public int pruneLog(Instant before) throws IOException {
+        // write any pending entries first, so they are also subject to pruning
+        flush();
+
+        this.writeLock.lock();
+        try {
+            if (!Files.exists(this.contentFile)) {
+                return 0;
+            }
+
+            List<String> retained = new ArrayList<>();
+            int removed = 0;
+
+            try (BufferedReader reader = Files.newBufferedReader(this.contentFile, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    try {
+                        LoggedAction action = ActionJsonSerializer.deserialize(GsonProvider.parser().parse(line));
+                        if (action.getTimestamp().isBefore(before)) {
+                            removed++;
+                            continue;
+                        }
+                    } catch (Exception e) {
+                        // keep lines we can't parse, rather than silently discarding them
+                    }
+                    retained.add(line);
+                }
+            }
+
+            if (removed == 0) {
+                return 0;
+            }
+
+            Path tempFile = this.contentFile.resolveSibling(this.contentFile.getFileName().toString() + ".tmp");
+            Files.write(tempFile, retained, StandardCharsets.UTF_8);
+            Files.move(tempFile, this.contentFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return removed;
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
     private final class SaveBuffer extends BufferedRequest<Void> {
         public SaveBuffer(LuckPermsPlugin plugin) {
             super(2, TimeUnit.SECONDS, plugin.getBootstrap().getScheduler());
@@ -36,12 +36,16 @@ import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
 import com.mongodb.client.model.ReplaceOptions;
 import com.mongodb.client.model.Sorts;
+import me.lucko.luckperms.common.actionlog.LogCursor;
 import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.actionlog.LoggedAction;
 import me.lucko.luckperms.common.actionlog.filter.ActionFilterMongoBuilder;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
+import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.context.MutableContextSetImpl;
 import me.lucko.luckperms.common.filter.FilterList;
 import me.lucko.luckperms.common.filter.PageParameters;
@@ -142,6 +146,22 @@ public class MongoStorage implements StorageImplementation {
         }
         
         this.database = this.mongoClient.getDatabase(this.configuration.getDatabase());
+
+        // building an index on a large action log can take a while, so do it in the
+        // background rather than holding up the plugin enable
+        MongoCollection<Document> actions = this.database.getCollection(this.prefix + "action");
+        this.plugin.getBootstrap().getScheduler().executeAsync(() -> {
+            try {
+                IndexOptions indexOptions = new IndexOptions().background(true);
+                Bson timeOrder = Indexes.descending("timestamp", "_id");
+                actions.createIndex(timeOrder, indexOptions);
+                actions.createIndex(Indexes.compoundIndex(Indexes.ascending("source.uniqueId"), timeOrder), indexOptions);
+                actions.createIndex(Indexes.compoundIndex(Indexes.ascending("target.uniqueId"), timeOrder), indexOptions);
+                actions.createIndex(Indexes.compoundIndex(Indexes.ascending("target.type", "target.name"), timeOrder), indexOptions);
+            } catch (Exception e) {
+                this.plugin.getLogger().warn("Unable to create indexes for the action log collection", e);
+            }
+        });
     }
 
     @Override
@@ -179,21 +199,50 @@ public class MongoStorage implements StorageImplementation {
         c.insertOne(actionToDoc(entry));
     }
 
+    @Override
+    public void logActions(List<Action> entries) {
+        MongoCollection<Document> c = this.database.getCollection(this.prefix + "action");
+        c.insertMany(entries.stream().map(MongoStorage::actionToDoc).collect(Collectors.toList()));
+    }
+
     @Override
     public LogPage getLogPage(FilterList<Action> filters, @Nullable PageParameters page) throws Exception {
         Bson filter = ActionFilterMongoBuilder.INSTANCE.make(filters);
 
         MongoCollection<Document> c = this.database.getCollection(this.prefix + "action");
-        long count = c.countDocuments(filter);
+        long count = filters.isEmpty() && this.plugin.getConfiguration().get(ConfigKeys.LOG_APPROXIMATE_COUNT)
+                ? c.estimatedDocumentCount()
+                : c.countDocuments(filter);
+
+        // if the position of the last entry on the previous page is known, seek straight to it
+        Bson query = filter;
+        LogCursor after = page == null ? null : page.after();
+        if (after != null) {
+            Bson seek = Filters.or(
+                    Filters.lt("timestamp", after.timestamp()),
+                    Filters.and(Filters.eq("timestamp", after.timestamp()), Filters.lt("_id", after.id()))
+            );
+            query = Filters.and(seek, filter);
+        }
 
         List<LoggedAction> content = new ArrayList<>();
-        try (MongoCursor<Document> cursor = ConstraintMongoBuilder.page(page, c.find(filter).sort(Sorts.descending("timestamp", "_id"))).iterator()) {
+        LogCursor last = null;
+        try (MongoCursor<Document> cursor = ConstraintMongoBuilder.page(page, c.find(query).sort(Sorts.descending("timestamp", "_id"))).iterator()) {
             while (cursor.hasNext()) {
-                content.add(actionFromDoc(cursor.next()));
+                Document d = cursor.next();
+                content.add(actionFromDoc(d));
+                last = new LogCursor(d.getLong("timestamp"), d.get("_id"));
             }
         }
 
-        return LogPage.of(content, page, (int) count);
+        return LogPage.of(content, page, (int) count, last);
+    }
+
+    @Override
+    public int pruneLog(Instant before) {
+        MongoCollection<Document> c = this.database.getCollection(this.prefix + "action");
+        long deleted = c.deleteMany(Filters.lt("timestamp", before.getEpochSecond())).getDeletedCount();
+        return (int) deleted;
     }
 
     @Override
@@ -245,7 +294,15 @@ public class MongoStorage implements StorageImplementation {
 
     @Override
     public User loadUser(UUID uniqueId, String username) {
-        User user = this.plugin.getUserManager().getOrMake(uniqueId, username);
+        return loadUser(this.plugin.getUserManager().getOrMake(uniqueId, username), true);
+    }
+
+    @Override
+    public User loadDetachedUser(UUID uniqueId) {
+        return loadUser(new User(uniqueId, this.plugin), false);
+    }
+
+    private User loadUser(User user, boolean saveChanges) {
         MongoCollection<Document> c = this.database.getCollection(this.prefix + "users");
         try (MongoCursor<Document> cursor = c.find(Filters.eq("_id", user.getUniqueId())).iterator()) {
             if (cursor.hasNext()) {
@@ -261,7 +318,7 @@ public class MongoStorage implements StorageImplementation {
 
 
                 boolean updatedUsername = user.getUsername().isPresent() && (name == null || !user.getUsername().get().equalsIgnoreCase(name));
-                if (updatedUsername | user.auditTemporaryNodes()) {
+                if ((updatedUsername | user.auditTemporaryNodes()) && saveChanges) {
                     c.replaceOne(Filters.eq("_id", user.getUniqueId()), userToDoc(user));
                 }
             } else {
@@ -44,6 +44,7 @@ import net.luckperms.api.model.PlayerSaveResult;
 import net.luckperms.api.node.Node;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -120,11 +121,21 @@ public class SplitStorage implements StorageImplementation {
         implFor(SplitStorageType.LOG).logAction(entry);
     }
 
+    @Override
+    public void logActions(List<Action> entries) throws Exception {
+        implFor(SplitStorageType.LOG).logActions(entries);
+    }
+
     @Override
     public LogPage getLogPage(FilterList<Action> filters, @Nullable PageParameters page) throws Exception {
         return implFor(SplitStorageType.LOG).getLogPage(filters, page);
     }
 
+    @Override
+    public int pruneLog(Instant before) throws Exception {
+        return implFor(SplitStorageType.LOG).pruneLog(before);
+    }
+
     @Override
     public void applyBulkUpdate(BulkUpdate bulkUpdate) throws Exception {
         StorageType userType = this.types.get(SplitStorageType.USER);
@@ -143,6 +154,11 @@ public class SplitStorage implements StorageImplementation {
         return implFor(SplitStorageType.USER).loadUser(uniqueId, username);
     }
 
+    @Override
+    public User loadDetachedUser(UUID uniqueId) throws Exception {
+        return implFor(SplitStorageType.USER).loadDetachedUser(uniqueId);
+    }
+
     @Override
     public Map<UUID, User> loadUsers(Set<UUID> uniqueIds) throws Exception {
         return implFor(SplitStorageType.USER).loadUsers(uniqueIds);
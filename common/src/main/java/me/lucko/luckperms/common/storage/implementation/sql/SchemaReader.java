@@ -33,6 +33,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -42,6 +43,7 @@ public final class SchemaReader {
 
     private static final Pattern CREATE_TABLE_PATTERN = Pattern.compile("^CREATE TABLE [`\"']([^`\"']+)[`\"'].*");
     private static final Pattern CREATE_INDEX_PATTERN = Pattern.compile("^CREATE INDEX.* ON [`\"']([^`\"']+)[`\"'].*");
+    private static final Pattern CREATE_NAMED_INDEX_PATTERN = Pattern.compile("^CREATE INDEX [`\"']([^`\"']+)[`\"'] ON .*");
 
     /**
      * Parses a schema file to a list of SQL statements
@@ -93,6 +95,20 @@ public final class SchemaReader {
         throw new IllegalArgumentException("Unknown statement type: " + statement);
     }
 
+    /**
+     * Gets the name of the index created by the given statement, if it is a named index statement
+     *
+     * @param statement the statement
+     * @return the index name, or null
+     */
+    public static String indexFromStatement(String statement) {
+        Matcher index = CREATE_NAMED_INDEX_PATTERN.matcher(statement);
+        if (index.matches()) {
+            return index.group(1).toLowerCase(Locale.ROOT);
+        }
+        return null;
+    }
+
     /**
      * Filters which statements should be executed based on the current list of tables in the database
      *
@@ -105,4 +121,22 @@ public final class SchemaReader {
                 .filter(statement -> !currentTables.contains(tableFromStatement(statement)))
                 .collect(Collectors.toList());
     }
+
+    /**
+     * Filters which named index statements should be executed for tables which already exist in the
+     * database, but are missing an index that was added to the schema after they were created
+     *
+     * @param statements the statements to filter
+     * @param currentTables the current tables in the database
+     * @param currentIndexes the current indexes in the database
+     * @return the filtered list of statements
+     */
+    public static List<String> filterMissingIndexStatements(List<String> statements, List<String> currentTables, Set<String> currentIndexes) {
+        return statements.stream()
+                .filter(statement -> {
+                    String index = indexFromStatement(statement);
+                    return index != null && !currentIndexes.contains(index) && currentTables.contains(tableFromStatement(statement));
+                })
+                .collect(Collectors.toList());
+    }
 }
@@ -28,12 +28,14 @@ package me.lucko.luckperms.common.storage.implementation.sql;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableMap;
 import com.google.gson.reflect.TypeToken;
+import me.lucko.luckperms.common.actionlog.LogCursor;
 import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.actionlog.LoggedAction;
 import me.lucko.luckperms.common.actionlog.filter.ActionFilterSqlBuilder;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdateSqlBuilder;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdateStatistics;
+import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.context.serializer.ContextSetJsonSerializer;
 import me.lucko.luckperms.common.filter.FilterList;
 import me.lucko.luckperms.common.filter.PageParameters;
@@ -132,6 +134,12 @@ public class SqlStorage implements StorageImplementation {
     private static final String ACTION_INSERT = "INSERT INTO '{prefix}actions' (time, actor_uuid, actor_name, type, acted_uuid, acted_name, action) VALUES(?, ?, ?, ?, ?, ?, ?)";
     private static final String ACTION_SELECT_ALL = "SELECT * FROM '{prefix}actions'";
     private static final String ACTION_COUNT = "SELECT COUNT(*) FROM '{prefix}actions'";
+    private static final String ACTION_DELETE_BEFORE = "DELETE FROM '{prefix}actions' WHERE time < ?";
+    private static final Map<String, String> ACTION_COUNT_ESTIMATE = ImmutableMap.of(
+            "MySQL", "SELECT TABLE_ROWS FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?",
+            "MariaDB", "SELECT TABLE_ROWS FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?",
+            "PostgreSQL", "SELECT CAST(reltuples AS BIGINT) FROM pg_class WHERE relname = ?"
+    );
 
     private final LuckPermsPlugin plugin;
     
@@ -187,6 +195,8 @@ public class SqlStorage implements StorageImplementation {
                     .collect(Collectors.toList());
         }
 
+        applyMissingIndexes(statements, existingTables);
+
         statements = SchemaReader.filterStatements(statements, existingTables);
         if (statements.isEmpty()) {
             return;
@@ -224,6 +234,49 @@ public class SqlStorage implements StorageImplementation {
         }
     }
 
+    private void applyMissingIndexes(List<String> statements, List<String> existingTables) throws SQLException {
+        if (existingTables.isEmpty()) {
+            return;
+        }
+
+        Set<String> indexedTables = statements.stream()
+                .filter(statement -> SchemaReader.indexFromStatement(statement) != null)
+                .map(SchemaReader::tableFromStatement)
+                .collect(Collectors.toSet());
+
+        List<String> missing;
+        try (Connection connection = this.connectionFactory.getConnection()) {
+            Set<String> indexes = listIndexes(connection, indexedTables);
+            missing = SchemaReader.filterMissingIndexStatements(statements, existingTables, indexes);
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        // building an index on a large action log can take several minutes, so do it
+        // in the background rather than holding up the plugin enable
+        this.plugin.getLogger().info("Creating " + missing.size() + " missing index(es) on existing tables in the background. " +
+                "Log queries may be slower until this completes.");
+        this.plugin.getBootstrap().getScheduler().executeAsync(() -> createIndexes(missing));
+    }
+
+    private void createIndexes(List<String> statements) {
+        try (Connection connection = this.connectionFactory.getConnection()) {
+            for (String statement : statements) {
+                String index = SchemaReader.indexFromStatement(statement);
+                long start = System.currentTimeMillis();
+                try (Statement s = connection.createStatement()) {
+                    s.execute(statement);
+                    this.plugin.getLogger().info("Created index " + index + " in " + (System.currentTimeMillis() - start) + "ms");
+                } catch (SQLException e) {
+                    this.plugin.getLogger().warn("Unable to create index " + index, e);
+                }
+            }
+        } catch (SQLException e) {
+            this.plugin.getLogger().warn("Unable to create missing indexes", e);
+        }
+    }
+
     @Override
     public void shutdown() {
         try {
@@ -248,27 +301,51 @@ public class SqlStorage implements StorageImplementation {
         }
     }
 
+    @Override
+    public void logActions(List<Action> entries) throws SQLException {
+        try (Connection c = this.connectionFactory.getConnection()) {
+            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.process(ACTION_INSERT))) {
+                for (Action entry : entries) {
+                    writeAction(entry, ps);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+    }
+
     @Override
     public LogPage getLogPage(FilterList<Action> filter, @Nullable PageParameters page) throws SQLException {
-        int count = 0;
+        int count = -1;
+        boolean estimated = false;
         List<LoggedAction> content = new ArrayList<>();
+        LogCursor last = null;
 
         try (Connection c = this.connectionFactory.getConnection()) {
-            ActionFilterSqlBuilder countSqlBuilder = new ActionFilterSqlBuilder();
-            countSqlBuilder.builder().append(ACTION_COUNT);
-            countSqlBuilder.visit(filter);
+            if (filter.isEmpty() && this.plugin.getConfiguration().get(ConfigKeys.LOG_APPROXIMATE_COUNT)) {
+                count = estimateActionCount(c);
+                estimated = count >= 0;
+            }
 
-            try (PreparedStatement ps = countSqlBuilder.builder().build(c, this.statementProcessor)) {
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        count = rs.getInt(1);
+            if (!estimated) {
+                count = 0;
+                ActionFilterSqlBuilder countSqlBuilder = new ActionFilterSqlBuilder();
+                countSqlBuilder.builder().append(ACTION_COUNT);
+                countSqlBuilder.visit(filter);
+
+                try (PreparedStatement ps = countSqlBuilder.builder().build(c, this.statementProcessor)) {
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (rs.next()) {
+                            count = rs.getInt(1);
+                        }
                     }
                 }
             }
 
+            // if the position of the last entry on the previous page is known, seek straight to it
             ActionFilterSqlBuilder sqlBuilder = new ActionFilterSqlBuilder();
             sqlBuilder.builder().append(ACTION_SELECT_ALL);
-            sqlBuilder.visit(filter);
+            sqlBuilder.visit(filter, page == null ? null : page.after());
             sqlBuilder.builder().append(" ORDER BY time DESC, id DESC");
             sqlBuilder.visit(page);
 
@@ -276,11 +353,45 @@ public class SqlStorage implements StorageImplementation {
                 try (ResultSet rs = ps.executeQuery()) {
                     while (rs.next()) {
                         content.add(readAction(rs));
+                        last = new LogCursor(rs.getLong("time"), rs.getLong("id"));
                     }
                 }
             }
         }
-        return LogPage.of(content, page, count);
+
+        if (estimated && !content.isEmpty()) {
+            // table statistics can lag behind the actual number of rows
+            count = Math.max(count, content.size() + (page == null ? 0 : page.pageSize() * (page.pageNumber() - 1)));
+        }
+        return LogPage.of(content, page, count, last);
+    }
+
+    private int estimateActionCount(Connection c) throws SQLException {
+        String query = ACTION_COUNT_ESTIMATE.get(this.connectionFactory.getImplementationName());
+        if (query == null) {
+            return -1;
+        }
+
+        try (PreparedStatement ps = c.prepareStatement(query)) {
+            ps.setString(1, this.statementProcessor.process("{prefix}actions"));
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    long estimate = rs.getLong(1);
+                    return estimate < 0 ? -1 : (int) Math.min(estimate, Integer.MAX_VALUE);
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int pruneLog(Instant before) throws SQLException {
+        try (Connection c = this.connectionFactory.getConnection()) {
+            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.process(ACTION_DELETE_BEFORE))) {
+                ps.setLong(1, before.getEpochSecond());
+                return ps.executeUpdate();
+            }
+        }
     }
 
     @Override
@@ -362,7 +473,20 @@ public class SqlStorage implements StorageImplementation {
             playerData = selectPlayerData(c, uniqueId);
         }
 
-        return createUser(uniqueId, username, playerData, nodes, true);
+        return createUser(this.plugin.getUserManager().getOrMake(uniqueId, username), playerData, nodes, true);
+    }
+
+    @Override
+    public User loadDetachedUser(UUID uniqueId) throws SQLException {
+        List<Node> nodes;
+        SqlPlayerData playerData;
+
+        try (Connection c = this.connectionFactory.getConnection()) {
+            nodes = selectUserPermissions(c, uniqueId);
+            playerData = selectPlayerData(c, uniqueId);
+        }
+
+        return createUser(new User(uniqueId, this.plugin), playerData, nodes, false);
     }
 
     @Override
@@ -379,13 +503,12 @@ public class SqlStorage implements StorageImplementation {
         for (UUID uniqueId : uniqueIds) {
             SqlPlayerData playerData = playerDataMap.get(uniqueId);
             List<Node> nodes = nodesMap.get(uniqueId);
-            users.put(uniqueId, createUser(uniqueId, null, playerData, nodes, false));
+            users.put(uniqueId, createUser(this.plugin.getUserManager().getOrMake(uniqueId), playerData, nodes, false));
         }
         return users;
     }
 
-    private User createUser(UUID uniqueId, String username, SqlPlayerData playerData, List<Node> nodes, boolean saveAfterAudit) throws SQLException {
-        User user = this.plugin.getUserManager().getOrMake(uniqueId, username);
+    private User createUser(User user, SqlPlayerData playerData, List<Node> nodes, boolean saveAfterAudit) throws SQLException {
         if (playerData != null) {
             if (playerData.primaryGroup != null) {
                 user.getPrimaryGroup().setStoredValue(playerData.primaryGroup);
@@ -1122,11 +1245,38 @@ public class SqlStorage implements StorageImplementation {
         return tracks;
     }
 
+    private static Set<String> listIndexes(Connection connection, Set<String> tables) throws SQLException {
+        Set<String> indexes = new HashSet<>();
+        for (String table : listTableNames(connection)) {
+            if (!tables.contains(table.toLowerCase(Locale.ROOT))) {
+                continue;
+            }
+
+            try (ResultSet rs = connection.getMetaData().getIndexInfo(connection.getCatalog(), null, table, false, true)) {
+                while (rs.next()) {
+                    String index = rs.getString("INDEX_NAME");
+                    if (index != null) {
+                        indexes.add(index.toLowerCase(Locale.ROOT));
+                    }
+                }
+            }
+        }
+        return indexes;
+    }
+
     private static List<String> listTables(Connection connection) throws SQLException {
+        List<String> tables = new ArrayList<>();
+        for (String table : listTableNames(connection)) {
+            tables.add(table.toLowerCase(Locale.ROOT));
+        }
+        return tables;
+    }
+
+    private static List<String> listTableNames(Connection connection) throws SQLException {
         List<String> tables = new ArrayList<>();
         try (ResultSet rs = connection.getMetaData().getTables(connection.getCatalog(), null, "%", null)) {
             while (rs.next()) {
-                tables.add(rs.getString(3).toLowerCase(Locale.ROOT));
+                tables.add(rs.getString(3));
             }
         }
         return tables;
@@ -25,10 +25,30 @@
 
 package me.lucko.luckperms.common.tasks;
 
+import me.lucko.luckperms.common.inheritance.InheritorIndex;
 import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.PermissionHolder;
+import me.lucko.luckperms.common.model.PermissionHolderIdentifier;
 import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+
+/**
+ * Removes temporary nodes from holders once they have expired.
+ *
+ * <p>Holders register the expiry time of their earliest temporary node with the
+ * {@link Schedule}, so only the holders with nodes due to expire are audited.</p>
+ */
 public class ExpireTemporaryTask implements Runnable {
     private final LuckPermsPlugin plugin;
 
@@ -38,24 +58,157 @@ public class ExpireTemporaryTask implements Runnable {
 
     @Override
     public void run() {
-        boolean groupChanges = false;
-        for (Group group : this.plugin.getGroupManager().getAll().values()) {
-            if (group.auditTemporaryNodes()) {
-                this.plugin.getStorage().saveGroup(group);
-                groupChanges = true;
+        List<PermissionHolderIdentifier> due = this.plugin.getExpirySchedule().pollDue(System.currentTimeMillis());
+        if (due.isEmpty()) {
+            return;
+        }
+
+        Set<String> changedGroups = new HashSet<>();
+        for (PermissionHolderIdentifier identifier : due) {
+            PermissionHolder holder = getIfLoaded(identifier);
+            if (holder == null) {
+                // the holder will be audited & rescheduled when it is next loaded
+                continue;
+            }
+
+            if (holder.auditTemporaryNodes()) {
+                if (holder instanceof Group) {
+                    this.plugin.getStorage().saveGroup((Group) holder);
+                    changedGroups.add(((Group) holder).getName());
+                } else {
+                    this.plugin.getStorage().saveUser((User) holder);
+                }
+            }
+
+            // register the next node to expire (if there is one)
+            holder.scheduleTemporaryNodeExpiry();
+        }
+
+        if (!changedGroups.isEmpty()) {
+            invalidateInheritors(changedGroups);
+        }
+    }
+
+    private PermissionHolder getIfLoaded(PermissionHolderIdentifier identifier) {
+        if (identifier.getType().equals(PermissionHolderIdentifier.GROUP_TYPE)) {
+            return this.plugin.getGroupManager().getIfLoaded(identifier.getName());
+        } else {
+            return this.plugin.getUserManager().getIfLoaded(UUID.fromString(identifier.getName()));
+        }
+    }
+
+    /**
+     * Invalidates the cached data of the holders which inherit from the given groups,
+     * either directly or indirectly.
+     *
+     * @param changedGroups the groups which have changed
+     */
+    private void invalidateInheritors(Set<String> changedGroups) {
+        InheritorIndex index = this.plugin.getInheritorIndex();
+
+        // walk down the inheritance tree from the changed groups, using the index
+        // to find the direct inheritors of each group
+        Set<String> visited = new HashSet<>(changedGroups);
+        Deque<String> queue = new ArrayDeque<>(changedGroups);
+        Set<PermissionHolderIdentifier> invalidated = new HashSet<>();
+
+        String group;
+        while ((group = queue.poll()) != null) {
+            for (PermissionHolderIdentifier identifier : index.getInheritors(group)) {
+                if (!invalidated.add(identifier)) {
+                    continue;
+                }
+
+                PermissionHolder holder = getIfLoaded(identifier);
+                if (holder == null) {
+                    continue;
+                }
+
+                if (holder instanceof Group) {
+                    String name = ((Group) holder).getName();
+                    if (!visited.add(name)) {
+                        // changed groups were already invalidated when their nodes expired
+                        continue;
+                    }
+                    queue.add(name);
+                }
+                holder.getCachedData().invalidate();
             }
         }
+    }
 
-        for (User user : this.plugin.getUserManager().getAll().values()) {
-            if (user.auditTemporaryNodes()) {
-                this.plugin.getStorage().saveUser(user);
+    /**
+     * Keeps track of when the temporary nodes held by each holder will expire.
+     *
+     * <p>Only the earliest expiry time is kept for each holder - once that has passed,
+     * the holder is audited and the next time is registered.</p>
+     */
+    public static final class Schedule {
+        private final Map<PermissionHolderIdentifier, Long> scheduled = new ConcurrentHashMap<>();
+        private final PriorityBlockingQueue<Entry> queue = new PriorityBlockingQueue<>();
+
+        /**
+         * Schedules the holder to be audited after the given time, unless it is
+         * already scheduled to be audited earlier.
+         *
+         * @param holder the holder
+         * @param time the expiry time, in epoch millis
+         */
+        public void schedule(PermissionHolderIdentifier holder, long time) {
+            while (true) {
+                Long existing = this.scheduled.putIfAbsent(holder, time);
+                if (existing == null) {
+                    break;
+                }
+                if (existing <= time) {
+                    return;
+                }
+                if (this.scheduled.replace(holder, existing, time)) {
+                    break;
+                }
             }
+            this.queue.add(new Entry(holder, time));
         }
 
-        if (groupChanges) {
-            this.plugin.getGroupManager().invalidateAllGroupCaches();
-            this.plugin.getUserManager().invalidateAllUserCaches();
+        /**
+         * Removes and returns the holders with nodes which expired before the given time.
+         *
+         * @param now the current time, in epoch millis
+         * @return the holders which are due to be audited
+         */
+        public List<PermissionHolderIdentifier> pollDue(long now) {
+            List<PermissionHolderIdentifier> due = new ArrayList<>();
+
+            Entry entry;
+            while ((entry = this.queue.peek()) != null && entry.time < now) {
+                entry = this.queue.poll();
+
+                // entries which have been superseded by an earlier time are ignored
+                if (entry != null && this.scheduled.remove(entry.holder, entry.time)) {
+                    due.add(entry.holder);
+                }
+            }
+            return due;
+        }
+
+        public int size() {
+            return this.scheduled.size();
+        }
+
+        private static final class Entry implements Comparable<Entry> {
+            private final PermissionHolderIdentifier holder;
+            private final long time;
+
+            Entry(PermissionHolderIdentifier holder, long time) {
+                this.holder = holder;
+                this.time = time;
+            }
+
+            @Override
+            public int compareTo(Entry other) {
+                return Long.compare(this.time, other.time);
+            }
         }
     }
 
-}
\ No newline at end of file
+}
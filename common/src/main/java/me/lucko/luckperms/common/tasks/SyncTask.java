@@ -55,6 +55,8 @@ public class SyncTask implements Runnable {
             return;
         }
 
+        long start = System.nanoTime();
+
         // Reload all groups
         this.plugin.getStorage().loadAllGroups().join();
         if (!this.plugin.getGroupManager().isLoaded(GroupManager.DEFAULT_GROUP_NAME)) {
@@ -73,6 +75,9 @@ public class SyncTask implements Runnable {
         this.plugin.getGroupManager().invalidateAllGroupCaches();
         this.plugin.getUserManager().invalidateAllUserCaches();
 
+        this.plugin.getMetrics().timer("sync_task_time", "Time taken to run the sync task, which reloads all data from storage")
+                .record(System.nanoTime() - start);
+
         this.plugin.getEventDispatcher().dispatchPostSync();
     }
 
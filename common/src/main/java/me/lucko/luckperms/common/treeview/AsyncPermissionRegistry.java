@@ -28,19 +28,26 @@ package me.lucko.luckperms.common.treeview;
 import me.lucko.luckperms.common.plugin.scheduler.SchedulerAdapter;
 import me.lucko.luckperms.common.plugin.scheduler.SchedulerTask;
 
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 public class AsyncPermissionRegistry extends PermissionRegistry implements AutoCloseable {
 
-    /** A queue of permission strings to be added to the tree */
-    private final Queue<String> queue;
+    /** The maximum number of permissions waiting to be added to the tree */
+    private static final int MAX_PENDING = 10000;
+
+    /**
+     * The permission strings waiting to be added to the tree. Permissions are usually
+     * offered repeatedly, so duplicates are merged until the next tick.
+     */
+    private final Set<String> pending;
     /** The tick task */
     private final SchedulerTask task;
 
     public AsyncPermissionRegistry(SchedulerAdapter scheduler) {
-        this.queue = new ConcurrentLinkedQueue<>();
+        this.pending = ConcurrentHashMap.newKeySet();
         this.task = scheduler.asyncRepeating(this::tick, 1, TimeUnit.SECONDS);
     }
 
@@ -49,11 +56,16 @@ public class AsyncPermissionRegistry extends PermissionRegistry implements AutoC
         if (permission == null) {
             throw new NullPointerException("permission");
         }
-        this.queue.offer(permission);
+        // if the tree can't keep up, drop permissions rather than growing without bound
+        if (this.pending.size() < MAX_PENDING) {
+            this.pending.add(permission);
+        }
     }
 
     private void tick() {
-        for (String e; (e = this.queue.poll()) != null; ) {
+        for (Iterator<String> it = this.pending.iterator(); it.hasNext(); ) {
+            String e = it.next();
+            it.remove();
             try {
                 doInsert(e);
             } catch (Exception ex) {
@@ -65,6 +77,9 @@ public class AsyncPermissionRegistry extends PermissionRegistry implements AutoC
     @Override
     public void close() {
         this.task.cancel();
+
+        // insert anything still waiting, so it isn't lost if the registry is saved
+        tick();
     }
 
 }
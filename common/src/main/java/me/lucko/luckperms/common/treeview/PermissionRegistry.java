@@ -25,18 +25,34 @@
 
 package me.lucko.luckperms.common.treeview;
 
-import com.google.common.base.Splitter;
 import me.lucko.luckperms.common.util.ImmutableCollectors;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Stores a collection of all permissions known to the platform.
  */
 public class PermissionRegistry {
-    private static final Splitter DOT_SPLIT = Splitter.on('.').omitEmptyStrings();
+
+    /** The number of days a permission is kept in the saved registry after it was last seen */
+    private static final int SAVED_EXPIRY_DAYS = 30;
 
     /** The root node in the tree */
     private final TreeNode rootNode = new TreeNode();
@@ -51,6 +67,47 @@ public class PermissionRegistry {
                 .collect(ImmutableCollectors.toList());
     }
 
+    /**
+     * Gets the permissions which complete the given partial permission, up to
+     * the next segment.
+     *
+     * <p>For example, given the permissions {@code a.b.c} and {@code a.d}, a
+     * partial permission of {@code a.} would be completed to {@code a.b} and {@code a.d}.</p>
+     *
+     * @param partial the partial permission
+     * @param limit the maximum number of completions to return
+     * @return the completions
+     */
+    public List<String> complete(String partial, int limit) {
+        String permission = partial.toLowerCase(Locale.ROOT);
+        int lastDot = permission.lastIndexOf('.');
+
+        // find the node for the complete segments
+        TreeNode node = this.rootNode;
+        int start = 0;
+        while (start <= lastDot) {
+            int end = permission.indexOf('.', start);
+            node = node.getChild(permission.substring(start, end));
+            if (node == null) {
+                return Collections.emptyList();
+            }
+            start = end + 1;
+        }
+
+        // then find the children matching the incomplete segment
+        List<String> names = node.getChildNames(permission.substring(lastDot + 1), limit);
+        if (lastDot == -1) {
+            return names;
+        }
+
+        String prefix = permission.substring(0, lastDot + 1);
+        List<String> completions = new ArrayList<>(names.size());
+        for (String name : names) {
+            completions.add(prefix + name);
+        }
+        return completions;
+    }
+
     /**
      * Offer a permission to the registry (to be potentially inserted asynchronously).
      *
@@ -78,18 +135,108 @@ public class PermissionRegistry {
     }
 
     protected void doInsert(String permission) {
-        permission = permission.toLowerCase(Locale.ROOT);
+        doInsert(permission, today());
+    }
 
-        // split the permission up into parts
-        Iterable<String> parts = DOT_SPLIT.split(permission);
+    private void doInsert(String permission, int lastSeen) {
+        permission = permission.toLowerCase(Locale.ROOT);
 
-        // insert the permission into the node structure
+        // walk the permission segment by segment, inserting nodes into the tree
+        // as required. empty segments are skipped.
         TreeNode current = this.rootNode;
-        for (String part : parts) {
-            current = current.tryInsert(part);
-            if (current == null) {
-                return;
+        int start = 0;
+        int length = permission.length();
+        while (start < length) {
+            int end = permission.indexOf('.', start);
+            if (end == -1) {
+                end = length;
+            }
+
+            if (end > start) {
+                current = current.tryInsert(permission.substring(start, end));
+                if (current == null) {
+                    return;
+                }
+            }
+            start = end + 1;
+        }
+        current.markSeen(lastSeen);
+    }
+
+    private static int today() {
+        return (int) TimeUnit.MILLISECONDS.toDays(System.currentTimeMillis());
+    }
+
+    /**
+     * Loads permissions previously saved using {@link #save(Path)} into the registry.
+     *
+     * @param file the file to read from
+     * @throws IOException if an error occurs
+     */
+    public void load(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            String line;
+            int today = today();
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+
+                // each line is the permission and the day it was last seen, separated by a tab
+                int tab = line.indexOf('\t');
+                if (tab == -1) {
+                    insert(line);
+                    continue;
+                }
+
+                try {
+                    doInsert(line.substring(0, tab), Math.min(Integer.parseInt(line.substring(tab + 1)), today));
+                } catch (Exception ex) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    /**
+     * Saves the permissions in the registry to a file.
+     *
+     * <p>Only the leaves of the tree are written - the other nodes are implied.
+     * Permissions which haven't been seen for {@value #SAVED_EXPIRY_DAYS} days
+     * are not written, so the saved registry doesn't grow forever.</p>
+     *
+     * @param file the file to write to
+     * @throws IOException if an error occurs
+     */
+    public void save(Path file) throws IOException {
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(tempFile)), StandardCharsets.UTF_8))) {
+            writeLeaves(writer, this.rootNode, new StringBuilder(), today() - SAVED_EXPIRY_DAYS);
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void writeLeaves(Writer writer, TreeNode node, StringBuilder path, int expiry) throws IOException {
+        if (node.getChildrenSize() == 0) {
+            int lastSeen = node.getLastSeen();
+            if (path.length() != 0 && lastSeen > expiry) {
+                writer.append(path).append('\t').append(Integer.toString(lastSeen)).append('\n');
+            }
+            return;
+        }
+
+        int length = path.length();
+        for (Map.Entry<String, TreeNode> child : node.getChildren().get().entrySet()) {
+            if (length != 0) {
+                path.append('.');
             }
+            path.append(child.getKey());
+            writeLeaves(writer, child.getValue(), path, expiry);
+            path.setLength(length);
         }
     }
 
@@ -28,9 +28,13 @@ package me.lucko.luckperms.common.treeview;
 import com.google.common.collect.Maps;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 /**
  * Represents one "branch" or "level" of the node tree
@@ -59,10 +63,14 @@ public class TreeNode {
         }
     }
 
-    private Map<String, TreeNode> children = null;
+    // sorted, so children can be looked up by prefix
+    private ConcurrentNavigableMap<String, TreeNode> children = null;
 
     private final int level;
 
+    // the day (since the epoch) a permission ending at this node was last seen
+    private volatile int lastSeen = 0;
+
     public TreeNode() {
         this.level = 0;
     }
@@ -73,21 +81,84 @@ public class TreeNode {
     }
 
     // lazy init
-    private synchronized Map<String, TreeNode> getChildMap() {
+    private synchronized ConcurrentNavigableMap<String, TreeNode> getChildMap() {
         if (this.children == null) {
-            this.children = new ConcurrentHashMap<>();
+            this.children = new ConcurrentSkipListMap<>();
         }
         return this.children;
     }
 
+    /**
+     * Gets the child node with the given name, inserting it if it doesn't exist
+     * and the size limits allow.
+     *
+     * @param s the name of the child
+     * @return the child node, or null if it couldn't be inserted
+     */
     public @Nullable TreeNode tryInsert(String s) {
-        Map<String, TreeNode> childMap = getChildMap();
+        ConcurrentNavigableMap<String, TreeNode> childMap = getChildMap();
+        TreeNode existing = childMap.get(s);
+        if (existing != null) {
+            return existing;
+        }
         if (!allowInsert(this)) {
             return null;
         }
         return childMap.computeIfAbsent(s, x -> new TreeNode(this));
     }
 
+    /**
+     * Records that a permission ending at this node was seen on the given day.
+     *
+     * @param day the day, as a number of days since the epoch
+     */
+    public void markSeen(int day) {
+        if (day > this.lastSeen) {
+            this.lastSeen = day;
+        }
+    }
+
+    /**
+     * Gets the day a permission ending at this node was last seen.
+     *
+     * @return the day, as a number of days since the epoch, or 0 if never seen
+     */
+    public int getLastSeen() {
+        return this.lastSeen;
+    }
+
+    public @Nullable TreeNode getChild(String s) {
+        Map<String, TreeNode> children = this.children;
+        return children == null ? null : children.get(s);
+    }
+
+    /**
+     * Gets the names of the children which start with the given prefix, in order.
+     *
+     * @param prefix the prefix
+     * @param limit the maximum number of names to return
+     * @return the matching names
+     */
+    public List<String> getChildNames(String prefix, int limit) {
+        ConcurrentNavigableMap<String, TreeNode> children = this.children;
+        if (children == null) {
+            return Collections.emptyList();
+        }
+
+        if (!prefix.isEmpty()) {
+            children = children.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        }
+
+        List<String> names = new ArrayList<>();
+        for (String name : children.keySet()) {
+            if (names.size() >= limit) {
+                break;
+            }
+            names.add(name);
+        }
+        return names;
+    }
+
     public Optional<Map<String, TreeNode>> getChildren() {
         return Optional.ofNullable(this.children);
     }
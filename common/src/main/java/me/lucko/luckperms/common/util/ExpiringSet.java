@@ -25,21 +25,216 @@
 
 package me.lucko.luckperms.common.util;
 
-import java.util.Collections;
-import java.util.Set;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
 
-public final class ExpiringSet {
-    private ExpiringSet() {}
+/**
+ * A set of elements which expire a fixed amount of time after they were last added.
+ *
+ * <p>Elements are spread over a number of independently locked stripes. Each stripe
+ * links its elements together in the order they were last added, which is also the
+ * order in which they expire, so expired elements are removed from the head of the
+ * list as the set is used (amortized O(1)), without the need for a separate cleanup
+ * task. Re-adding an existing element moves it to the tail of the list and doesn't
+ * allocate.</p>
+ *
+ * @param <E> the element type
+ */
+public final class ExpiringSet<E> {
+
+    /** The number of stripes, must be a power of two */
+    private static final int STRIPES = 16;
 
     /**
-     * An expiring set using Caffeine caches
+     * Creates a new expiring set.
      *
+     * @param duration the time after being added that elements expire
+     * @param unit the unit of duration
      * @param <E> the element type
      * @return a new expiring set
      */
-    public static <E> Set<E> newExpiringSet(long duration, TimeUnit unit) {
-        return Collections.newSetFromMap(CaffeineFactory.newBuilder().expireAfterWrite(duration, unit).<E, Boolean>build().asMap());
+    public static <E> ExpiringSet<E> newExpiringSet(long duration, TimeUnit unit) {
+        return new ExpiringSet<>(unit.toNanos(duration), System::nanoTime);
+    }
+
+    private final long durationNanos;
+    private final LongSupplier ticker;
+    private final Stripe[] stripes;
+
+    ExpiringSet(long durationNanos, LongSupplier ticker) {
+        this.durationNanos = durationNanos;
+        this.ticker = ticker;
+        this.stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            this.stripes[i] = new Stripe();
+        }
+    }
+
+    private Stripe stripe(Object element) {
+        int hash = element.hashCode();
+        return this.stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    /**
+     * Adds an element to the set, or resets its expiry time if it is already present.
+     *
+     * @param element the element
+     * @return true if the element was not already present
+     */
+    public boolean add(E element) {
+        long now = this.ticker.getAsLong();
+        return stripe(element).add(element, now + this.durationNanos, now);
+    }
+
+    public boolean contains(Object element) {
+        return stripe(element).contains(element, this.ticker.getAsLong());
+    }
+
+    public boolean remove(Object element) {
+        return stripe(element).remove(element, this.ticker.getAsLong());
+    }
+
+    public int size() {
+        long now = this.ticker.getAsLong();
+        int size = 0;
+        for (Stripe stripe : this.stripes) {
+            size += stripe.size(now);
+        }
+        return size;
+    }
+
+    /**
+     * Gets the number of entries linked into the expiry order, including any which
+     * have expired but not yet been removed.
+     *
+     * @return the number of linked entries
+     */
+    int linkedSize() {
+        int size = 0;
+        for (Stripe stripe : this.stripes) {
+            size += stripe.linkedSize();
+        }
+        return size;
+    }
+
+    private static final class Stripe {
+        /** The minimum table size before the stripe is considered for shrinking */
+        private static final int SHRINK_THRESHOLD = 64;
+
+        private Map<Object, Entry> entries = new HashMap<>();
+        private int peakSize = 0;
+
+        // the entries in the order they were last added, and therefore also in order of expiry
+        private Entry head = null;
+        private Entry tail = null;
+        private int linkedSize = 0;
+
+        synchronized boolean add(Object element, long expiry, long now) {
+            expire(now);
+
+            Entry existing = this.entries.get(element);
+            if (existing != null) {
+                existing.time = expiry;
+                unlink(existing);
+                link(existing);
+                return false;
+            }
+
+            Entry entry = new Entry(element, expiry);
+            this.entries.put(element, entry);
+            link(entry);
+            this.peakSize = Math.max(this.peakSize, this.entries.size());
+            return true;
+        }
+
+        synchronized boolean contains(Object element, long now) {
+            expire(now);
+            return this.entries.containsKey(element);
+        }
+
+        synchronized boolean remove(Object element, long now) {
+            expire(now);
+            Entry entry = this.entries.remove(element);
+            if (entry == null) {
+                return false;
+            }
+            unlink(entry);
+            shrink();
+            return true;
+        }
+
+        synchronized int size(long now) {
+            expire(now);
+            return this.entries.size();
+        }
+
+        synchronized int linkedSize() {
+            return this.linkedSize;
+        }
+
+        private void link(Entry entry) {
+            entry.prev = this.tail;
+            entry.next = null;
+            if (this.tail == null) {
+                this.head = entry;
+            } else {
+                this.tail.next = entry;
+            }
+            this.tail = entry;
+            this.linkedSize++;
+        }
+
+        private void unlink(Entry entry) {
+            if (entry.prev == null) {
+                this.head = entry.next;
+            } else {
+                entry.prev.next = entry.next;
+            }
+            if (entry.next == null) {
+                this.tail = entry.prev;
+            } else {
+                entry.next.prev = entry.prev;
+            }
+            entry.prev = null;
+            entry.next = null;
+            this.linkedSize--;
+        }
+
+        private void expire(long now) {
+            boolean removed = false;
+            while (this.head != null && this.head.time - now <= 0) {
+                Entry entry = this.head;
+                unlink(entry);
+                this.entries.remove(entry.element);
+                removed = true;
+            }
+            if (removed) {
+                shrink();
+            }
+        }
+
+        private void shrink() {
+            // a HashMap never shrinks its table, so copy the entries into a right-sized
+            // map once most of the elements seen at the peak have gone
+            if (this.peakSize >= SHRINK_THRESHOLD && this.entries.size() < this.peakSize / 4) {
+                this.entries = new HashMap<>(this.entries);
+                this.peakSize = this.entries.size();
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final Object element;
+        private long time;
+        private Entry prev;
+        private Entry next;
+
+        Entry(Object element, long time) {
+            this.element = element;
+            this.time = time;
+        }
     }
 
 }
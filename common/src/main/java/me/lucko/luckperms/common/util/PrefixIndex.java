@@ -0,0 +1,98 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * A sorted index of strings, which supports case-insensitive prefix lookups
+ * without scanning every entry.
+ *
+ * <p>Lookups take O(log n) time to find the first match, plus the time taken
+ * to read the matching entries, up to the given limit.</p>
+ */
+public final class PrefixIndex {
+
+    /** Maps the lower case form of each entry to the original */
+    private final ConcurrentSkipListMap<String, String> entries = new ConcurrentSkipListMap<>();
+
+    public PrefixIndex() {
+
+    }
+
+    public PrefixIndex(Collection<String> values) {
+        for (String value : values) {
+            add(value);
+        }
+    }
+
+    public void add(String value) {
+        this.entries.put(value.toLowerCase(Locale.ROOT), value);
+    }
+
+    public void remove(String value) {
+        this.entries.remove(value.toLowerCase(Locale.ROOT));
+    }
+
+    public void clear() {
+        this.entries.clear();
+    }
+
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Gets the entries which start with the given prefix, ignoring case.
+     *
+     * @param prefix the prefix
+     * @param limit the maximum number of entries to return
+     * @return the matching entries, in order
+     */
+    public List<String> startsWith(String prefix, int limit) {
+        List<String> results = new ArrayList<>();
+        for (String value : range(prefix.toLowerCase(Locale.ROOT)).values()) {
+            if (results.size() >= limit) {
+                break;
+            }
+            results.add(value);
+        }
+        return results;
+    }
+
+    private ConcurrentNavigableMap<String, String> range(String lowerPrefix) {
+        if (lowerPrefix.isEmpty()) {
+            return this.entries;
+        }
+        return this.entries.subMap(lowerPrefix, true, lowerPrefix + Character.MAX_VALUE, false);
+    }
+
+}
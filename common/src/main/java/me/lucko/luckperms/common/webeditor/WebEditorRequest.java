@@ -27,6 +27,7 @@ package me.lucko.luckperms.common.webeditor;
 
 import com.google.common.base.Preconditions;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
 import me.lucko.luckperms.common.context.ImmutableContextSetImpl;
 import me.lucko.luckperms.common.context.serializer.ContextSetJsonSerializer;
 import me.lucko.luckperms.common.model.Group;
@@ -43,65 +44,126 @@ import me.lucko.luckperms.common.util.ImmutableCollectors;
 import me.lucko.luckperms.common.util.gson.GsonProvider;
 import me.lucko.luckperms.common.util.gson.JArray;
 import me.lucko.luckperms.common.util.gson.JObject;
-import me.lucko.luckperms.common.verbose.event.CheckOrigin;
 import net.luckperms.api.context.ImmutableContextSet;
 import net.luckperms.api.node.Node;
-import net.luckperms.api.query.QueryOptions;
+import net.luckperms.api.node.types.InheritanceNode;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
-import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import java.util.zip.GZIPOutputStream;
 
 /**
  * Encapsulates a request to the web editor.
+ *
+ * <p>The payload is written directly to the output when the request is encoded,
+ * rather than being built up as a json object in memory first.</p>
  */
 public class WebEditorRequest {
 
     public static final int MAX_USERS = 500;
 
-    /**
-     * The encoded json object this payload is made up of
-     */
-    private final JsonObject payload;
+    private final JsonObject metadata;
+    private final Map<PermissionHolder, List<Node>> holderData;
+    private final Map<Track, List<String>> trackData;
+    private final List<String> knownPermissions;
+    private final JsonObject potentialContexts;
+
+    private JsonObject socket = null;
 
     private final Map<PermissionHolderIdentifier, List<Node>> holders;
     private final Map<String, List<String>> tracks;
 
-    private WebEditorRequest(JsonObject payload, Map<PermissionHolder, List<Node>> holders, Map<Track, List<String>> tracks) {
-        this.payload = payload;
-        this.holders = holders.entrySet().stream().collect(ImmutableCollectors.toMap(
+    private WebEditorRequest(JsonObject metadata, Map<PermissionHolder, List<Node>> holderData, Map<Track, List<String>> trackData, List<String> knownPermissions, JsonObject potentialContexts) {
+        this.metadata = metadata;
+        this.holderData = holderData;
+        this.trackData = trackData;
+        this.knownPermissions = knownPermissions;
+        this.potentialContexts = potentialContexts;
+
+        this.holders = holderData.entrySet().stream().collect(ImmutableCollectors.toMap(
                 e -> e.getKey().getIdentifier(),
                 Map.Entry::getValue
         ));
-        this.tracks = tracks.entrySet().stream().collect(ImmutableCollectors.toMap(
+        this.tracks = trackData.entrySet().stream().collect(ImmutableCollectors.toMap(
                 e -> e.getKey().getName(),
                 Map.Entry::getValue
         ));
     }
 
-    public JsonObject getPayload() {
-        return this.payload;
+    /**
+     * Sets the details of the socket channel the editor should connect to.
+     *
+     * @param socket the socket details
+     */
+    public void setSocket(JsonObject socket) {
+        this.socket = socket;
+    }
+
+    /**
+     * Writes the payload, GZIP compressed, to the given output stream.
+     *
+     * @param out the output stream
+     * @throws IOException if an error occurs
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        // the output stream isn't closed - it belongs to the caller
+        GZIPOutputStream gzipOut = new GZIPOutputStream(out);
+        JsonWriter writer = new JsonWriter(new OutputStreamWriter(gzipOut, StandardCharsets.UTF_8));
+        writer.beginObject();
+
+        writer.name("metadata");
+        GsonProvider.normal().toJson(this.metadata, writer);
+
+        writer.name("permissionHolders").beginArray();
+        for (Map.Entry<PermissionHolder, List<Node>> holder : this.holderData.entrySet()) {
+            GsonProvider.normal().toJson(formPermissionHolder(holder.getKey(), holder.getValue()).toJson(), writer);
+        }
+        writer.endArray();
+
+        writer.name("tracks").beginArray();
+        for (Map.Entry<Track, List<String>> track : this.trackData.entrySet()) {
+            GsonProvider.normal().toJson(formTrack(track.getKey(), track.getValue()).toJson(), writer);
+        }
+        writer.endArray();
+
+        writer.name("knownPermissions").beginArray();
+        for (String permission : this.knownPermissions) {
+            writer.value(permission);
+        }
+        writer.endArray();
+
+        writer.name("potentialContexts");
+        GsonProvider.normal().toJson(this.potentialContexts, writer);
+
+        if (this.socket != null) {
+            writer.name("socket");
+            GsonProvider.normal().toJson(this.socket, writer);
+        }
+
+        writer.endObject();
+        writer.flush();
+        gzipOut.finish();
     }
 
     public byte[] encode() {
         ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
-        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(bytesOut), StandardCharsets.UTF_8)) {
-            GsonProvider.normal().toJson(this.payload, writer);
+        try {
+            writeTo(bytesOut);
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -131,40 +193,34 @@ public class WebEditorRequest {
 
         ImmutableContextSet.Builder potentialContexts = new ImmutableContextSetImpl.BuilderImpl();
         potentialContexts.addAll(plugin.getContextManager().getPotentialContexts());
-        for (PermissionHolder holder : holders) {
-            holder.normalData().forEach(node -> potentialContexts.addAll(node.getContexts()));
-        }
 
         // form the payload data
-        Map<PermissionHolder, List<Node>> holdersMap = holders.stream().collect(ImmutableCollectors.toMap(
-                Function.identity(),
-                holder -> holder.normalData().asList()
-        ));
+        Map<PermissionHolder, List<Node>> holderData = new LinkedHashMap<>();
+        Set<PermissionHolderIdentifier> seen = new LinkedHashSet<>();
+        for (PermissionHolder holder : holders) {
+            if (!seen.add(holder.getIdentifier())) {
+                continue;
+            }
 
-        Map<Track, List<String>> tracksMap = tracks.stream().collect(ImmutableCollectors.toMap(
-                Function.identity(),
-                Track::getGroups
-        ));
+            List<Node> nodes = holder.normalData().asList();
+            for (Node node : nodes) {
+                potentialContexts.addAll(node.getContexts());
+            }
+            holderData.put(holder, nodes);
+        }
 
-        JsonObject json = createJsonPayload(holdersMap, tracksMap, sender, cmdLabel, potentialContexts.build(), plugin).toJson();
-        return new WebEditorRequest(json, holdersMap, tracksMap);
-    }
+        Map<Track, List<String>> trackData = new LinkedHashMap<>();
+        for (Track track : tracks) {
+            trackData.put(track, track.getGroups());
+        }
 
-    private static JObject createJsonPayload(Map<PermissionHolder, List<Node>> holders, Map<Track, List<String>> tracks, Sender sender, String cmdLabel, ImmutableContextSet potentialContexts, LuckPermsPlugin plugin) {
-        return new JObject()
-                .add("metadata", formMetadata(sender, cmdLabel, plugin.getBootstrap().getVersion()))
-                .add("permissionHolders", new JArray().consume(arr ->
-                        holders.forEach((holder, data) ->
-                                arr.add(formPermissionHolder(holder, data))
-                        )
-                ))
-                .add("tracks", new JArray().consume(arr ->
-                        tracks.forEach((track, data) ->
-                                arr.add(formTrack(track, data))
-                        )
-                ))
-                .add("knownPermissions", new JArray().addAll(plugin.getPermissionRegistry().rootAsList()))
-                .add("potentialContexts", ContextSetJsonSerializer.serialize(potentialContexts));
+        return new WebEditorRequest(
+                formMetadata(sender, cmdLabel, plugin.getBootstrap().getVersion()).toJson(),
+                holderData,
+                trackData,
+                plugin.getPermissionRegistry().rootAsList(),
+                ContextSetJsonSerializer.serialize(potentialContexts.build())
+        );
     }
 
     private static JObject formMetadata(Sender sender, String cmdLabel, String pluginVersion) {
@@ -178,7 +234,7 @@ public class WebEditorRequest {
                 .add("pluginVersion", pluginVersion);
     }
 
-    private static JObject formPermissionHolder(PermissionHolder holder, List<Node> data) {
+    public static JObject formPermissionHolder(PermissionHolder holder, List<Node> data) {
         return new JObject()
                 .add("type", holder.getType().toString())
                 .add("id", holder.getIdentifier().getName())
@@ -207,38 +263,50 @@ public class WebEditorRequest {
         includeMatchingUsers(holders, matcher == null ? Collections.emptyList() : Collections.singleton(matcher), includeOffline, plugin);
     }
 
+    /**
+     * Adds the users matching any of the given matchers to the list of holders.
+     *
+     * <p>At most {@link #MAX_USERS} offline users are loaded from storage.</p>
+     *
+     * @param holders the list of holders to add to
+     * @param matchers the matchers
+     * @param includeOffline if offline users should be included
+     * @param plugin the plugin
+     */
     public static void includeMatchingUsers(List<? super User> holders, Collection<ConstraintNodeMatcher<Node>> matchers, boolean includeOffline, LuckPermsPlugin plugin) {
         Map<UUID, User> users = new LinkedHashMap<>(plugin.getUserManager().getAll());
 
-        if (!matchers.isEmpty()) {
-            users.values().removeIf(user -> {
-                for (ConstraintNodeMatcher<Node> matcher : matchers) {
-                    if (user.normalData().asList().stream().anyMatch(matcher)) {
-                        return false;
-                    }
-                }
-                return true;
-            });
-        }
+        if (includeOffline) {
+            // find the matching users (online or offline) using a storage-side search
+            Set<UUID> matching = findMatchingUsers(matchers, plugin);
 
-        if (includeOffline && users.size() < MAX_USERS) {
-            if (matchers.isEmpty()) {
-                findMatchingOfflineUsers(users, null, plugin);
-            } else {
-                for (ConstraintNodeMatcher<Node> matcher : matchers) {
-                    if (users.size() < MAX_USERS) {
-                        findMatchingOfflineUsers(users, matcher, plugin);
-                    } else {
-                        break;
-                    }
-                }
+            // loaded users may have changes which haven't been saved yet, so also
+            // keep those whose current nodes match
+            if (!matchers.isEmpty()) {
+                users.values().removeIf(user -> !matching.contains(user.getUniqueId()) && !matchesAny(user, matchers));
             }
+
+            List<UUID> offline = matching.stream()
+                    .filter(uuid -> !users.containsKey(uuid))
+                    .sorted()
+                    .limit(Math.max(0, MAX_USERS - users.size()))
+                    .collect(Collectors.toList());
+
+            loadOfflineUsers(users, offline, plugin);
+        } else if (!matchers.isEmpty()) {
+            users.values().removeIf(user -> !matchesAny(user, matchers));
+        }
+
+        // sort firstly by the users relative weight (depends on the groups they inherit)
+        // the weight of the groups is cached, so avoid calculating meta data for each user
+        Map<User, Integer> weights = new HashMap<>();
+        for (User user : users.values()) {
+            weights.put(user, approximateWeight(user, plugin));
         }
 
         users.values().stream()
                 .sorted(Comparator
-                        // sort firstly by the users relative weight (depends on the groups they inherit)
-                        .<User>comparingInt(u -> u.getCachedData().getMetaData(QueryOptions.nonContextual()).getWeight(CheckOrigin.INTERNAL).intResult()).reversed()
+                        .<User>comparingInt(weights::get).reversed()
                         // then, prioritise users we actually have a username for
                         .thenComparing(u -> u.getUsername().isPresent(), ((Comparator<Boolean>) Boolean::compare).reversed())
                         // then sort according to their username
@@ -247,28 +315,36 @@ public class WebEditorRequest {
                 .forEach(holders::add);
     }
 
-    private static void findMatchingOfflineUsers(Map<UUID, User> users, ConstraintNodeMatcher<Node> matcher, LuckPermsPlugin plugin) {
-        Stream<UUID> stream;
-        if (matcher == null) {
-            stream = plugin.getStorage().getUniqueUsers().join().stream();
-        } else {
-            stream = plugin.getStorage().searchUserNodes(matcher).join().stream()
-                    .map(NodeEntry::getHolder)
-                    .distinct();
+    private static boolean matchesAny(User user, Collection<ConstraintNodeMatcher<Node>> matchers) {
+        for (ConstraintNodeMatcher<Node> matcher : matchers) {
+            if (user.normalData().asList().stream().anyMatch(matcher)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Set<UUID> findMatchingUsers(Collection<ConstraintNodeMatcher<Node>> matchers, LuckPermsPlugin plugin) {
+        if (matchers.isEmpty()) {
+            return plugin.getStorage().getUniqueUsers().join();
         }
 
-        Set<UUID> uuids = stream
-                .filter(uuid -> !users.containsKey(uuid))
-                .sorted()
-                .limit(MAX_USERS - users.size())
-                .collect(Collectors.toSet());
+        Set<UUID> matching = new LinkedHashSet<>();
+        for (ConstraintNodeMatcher<Node> matcher : matchers) {
+            for (NodeEntry<UUID, Node> entry : plugin.getStorage().searchUserNodes(matcher).join()) {
+                matching.add(entry.getHolder());
+            }
+        }
+        return matching;
+    }
 
+    private static void loadOfflineUsers(Map<UUID, User> users, Collection<UUID> uuids, LuckPermsPlugin plugin) {
         if (uuids.isEmpty()) {
             return;
         }
 
         // load users in bulk from storage
-        Map<UUID, User> loadedUsers = plugin.getStorage().loadUsers(uuids).join();
+        Map<UUID, User> loadedUsers = plugin.getStorage().loadUsers(new LinkedHashSet<>(uuids)).join();
         users.putAll(loadedUsers);
 
         // schedule cleanup
@@ -277,4 +353,15 @@ public class WebEditorRequest {
         }
     }
 
+    private static int approximateWeight(User user, LuckPermsPlugin plugin) {
+        int weight = 0;
+        for (InheritanceNode node : user.normalData().inheritanceAsList()) {
+            Group group = plugin.getGroupManager().getIfLoaded(node.getGroupName());
+            if (group != null) {
+                weight = Math.max(weight, group.getWeight().orElse(0));
+            }
+        }
+        return weight;
+    }
+
 }
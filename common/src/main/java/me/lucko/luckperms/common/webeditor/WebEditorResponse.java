@@ -32,8 +32,10 @@ import me.lucko.luckperms.common.actionlog.LoggedAction;
 import me.lucko.luckperms.common.command.access.ArgumentPermissions;
 import me.lucko.luckperms.common.command.access.CommandPermission;
 import me.lucko.luckperms.common.command.utils.StorageAssistant;
+import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.context.ImmutableContextSetImpl;
 import me.lucko.luckperms.common.locale.Message;
+import me.lucko.luckperms.common.messaging.InternalMessagingService;
 import me.lucko.luckperms.common.model.Group;
 import me.lucko.luckperms.common.model.PermissionHolder;
 import me.lucko.luckperms.common.model.Track;
@@ -54,9 +56,17 @@ import net.luckperms.api.node.Node;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Encapsulates a response from the web editor.
@@ -107,11 +117,19 @@ public class WebEditorResponse {
 
         if (this.payload.has("changes")) {
             JsonArray changes = this.payload.get("changes").getAsJsonArray();
+
+            // load all of the holders being modified at once
+            changeApplier.loadHolders(changes);
+
+            // apply the changes in memory
             for (JsonElement change : changes) {
                 if (changeApplier.applyChange(change.getAsJsonObject())) {
                     work = true;
                 }
             }
+
+            // then save everything that was changed, and push a single update
+            changeApplier.saveChanges();
         }
         if (this.payload.has("userDeletions")) {
             JsonArray userDeletions = this.payload.get("userDeletions").getAsJsonArray();
@@ -151,11 +169,24 @@ public class WebEditorResponse {
      * Represents the application of a given editor session on this platform.
      */
     private static class ChangeApplier {
+
+        /** The number of holders above which progress messages are sent */
+        private static final int PROGRESS_THRESHOLD = 10;
+
         private final LuckPermsPlugin plugin;
         private final Sender sender;
         private final WebEditorSession session;
         private final RemoteSession remoteSession;
 
+        // the holders loaded ahead of applying the changes
+        private final Map<UUID, User> loadedUsers = new HashMap<>();
+        private final Map<String, Group> loadedGroups = new HashMap<>();
+
+        // the objects which have been modified and need to be saved
+        private final Set<User> modifiedUsers = new LinkedHashSet<>();
+        private final Set<Group> modifiedGroups = new LinkedHashSet<>();
+        private final Set<Track> modifiedTracks = new LinkedHashSet<>();
+
         ChangeApplier(LuckPermsPlugin plugin, Sender sender, WebEditorSession session, RemoteSession remoteSession) {
             this.plugin = plugin;
             this.sender = sender;
@@ -163,6 +194,107 @@ public class WebEditorResponse {
             this.remoteSession = remoteSession;
         }
 
+        private void loadHolders(JsonArray changes) {
+            Set<UUID> users = new HashSet<>();
+            Set<String> groups = new HashSet<>();
+
+            for (JsonElement change : changes) {
+                JsonObject changeInfo = change.getAsJsonObject();
+                String type = changeInfo.get("type").getAsString();
+                String id = changeInfo.get("id").getAsString();
+
+                if (type.equals("user")) {
+                    UUID uuid = Uuids.parse(id);
+                    if (uuid != null) {
+                        users.add(uuid);
+                    }
+                } else if (type.equals("group")) {
+                    groups.add(id.toLowerCase(Locale.ROOT));
+                }
+            }
+
+            if (users.size() + groups.size() >= PROGRESS_THRESHOLD) {
+                Message.APPLY_EDITS_LOADING.send(this.sender, users.size(), groups.size());
+            }
+
+            List<CompletableFuture<?>> futures = new ArrayList<>();
+            if (!users.isEmpty()) {
+                futures.add(this.plugin.getStorage().loadUsers(users).thenAccept(this.loadedUsers::putAll));
+            }
+
+            Map<String, CompletableFuture<Optional<Group>>> groupFutures = new HashMap<>();
+            for (String group : groups) {
+                CompletableFuture<Optional<Group>> future = this.plugin.getStorage().loadGroup(group);
+                groupFutures.put(group, future);
+                futures.add(future);
+            }
+
+            try {
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+            } catch (CompletionException e) {
+                // any holders which couldn't be loaded will be retried individually
+                this.plugin.getLogger().warn("Error whilst loading holders for web editor changes", e.getCause());
+            }
+
+            groupFutures.forEach((name, future) -> {
+                if (future.isCompletedExceptionally()) {
+                    return;
+                }
+                Optional<Group> group = future.join();
+                group.ifPresent(g -> this.loadedGroups.put(name, g));
+            });
+        }
+
+        private void saveChanges() {
+            int count = this.modifiedUsers.size() + this.modifiedGroups.size() + this.modifiedTracks.size();
+            if (count == 0) {
+                return;
+            }
+            if (count >= PROGRESS_THRESHOLD) {
+                Message.APPLY_EDITS_SAVING.send(this.sender, count);
+            }
+
+            // save everything concurrently
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (User user : this.modifiedUsers) {
+                futures.add(this.plugin.getStorage().saveUser(user).exceptionally(e -> {
+                    this.plugin.getLogger().warn("Error whilst saving user", e);
+                    Message.USER_SAVE_ERROR.send(this.sender, user);
+                    return null;
+                }));
+            }
+            for (Group group : this.modifiedGroups) {
+                futures.add(this.plugin.getStorage().saveGroup(group).exceptionally(e -> {
+                    this.plugin.getLogger().warn("Error whilst saving group", e);
+                    Message.GROUP_SAVE_ERROR.send(this.sender, group);
+                    return null;
+                }));
+            }
+            for (Track track : this.modifiedTracks) {
+                futures.add(this.plugin.getStorage().saveTrack(track).exceptionally(e -> {
+                    this.plugin.getLogger().warn("Error whilst saving track", e);
+                    Message.TRACK_SAVE_ERROR.send(this.sender, track.getName());
+                    return null;
+                }));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+            // push a single update for all of the changes
+            if (!this.modifiedGroups.isEmpty() || !this.modifiedTracks.isEmpty()) {
+                StorageAssistant.invalidateCachesAndPushUpdates(this.plugin);
+                return;
+            }
+
+            Optional<InternalMessagingService> messagingService = this.plugin.getMessagingService();
+            if (messagingService.isPresent() && this.plugin.getConfiguration().get(ConfigKeys.AUTO_PUSH_UPDATES)) {
+                if (this.modifiedUsers.size() == 1) {
+                    messagingService.get().pushUserUpdate(this.modifiedUsers.iterator().next());
+                } else {
+                    messagingService.get().getUpdateBuffer().request();
+                }
+            }
+        }
+
         private boolean applyChange(JsonObject changeInfo) {
             String type = changeInfo.get("type").getAsString();
 
@@ -188,14 +320,20 @@ public class WebEditorResponse {
                     Message.APPLY_EDITS_TARGET_USER_NOT_UUID.send(this.sender, id);
                     return false;
                 }
-                holder = this.plugin.getStorage().loadUser(uuid, null).join();
+                holder = this.loadedUsers.get(uuid);
+                if (holder == null) {
+                    holder = this.plugin.getStorage().loadUser(uuid, null).join();
+                }
                 if (holder == null) {
                     Message.APPLY_EDITS_TARGET_USER_UNABLE_TO_LOAD.send(this.sender, uuid.toString());
                     return false;
                 }
             } else {
                 // group
-                holder = this.plugin.getStorage().loadGroup(id).join().orElse(null);
+                holder = this.loadedGroups.get(id.toLowerCase(Locale.ROOT));
+                if (holder == null) {
+                    holder = this.plugin.getStorage().loadGroup(id).join().orElse(null);
+                }
                 if (holder == null) {
                     holder = this.plugin.getStorage().createAndLoadGroup(id, CreationCause.WEB_EDITOR).join();
                     if (this.session != null) {
@@ -240,7 +378,11 @@ public class WebEditorResponse {
                 Message.APPLY_EDITS_DIFF_REMOVED.send(this.sender, n);
             }
 
-            StorageAssistant.save(holder, this.sender, this.plugin);
+            if (holder instanceof User) {
+                this.modifiedUsers.add((User) holder);
+            } else {
+                this.modifiedGroups.add((Group) holder);
+            }
             return true;
         }
 
@@ -322,7 +464,7 @@ public class WebEditorResponse {
             Message.APPLY_EDITS_TRACK_BEFORE.send(this.sender, before);
             Message.APPLY_EDITS_TRACK_AFTER.send(this.sender, after);
 
-            StorageAssistant.save(track, this.sender, this.plugin);
+            this.modifiedTracks.add(track);
             return true;
         }
 
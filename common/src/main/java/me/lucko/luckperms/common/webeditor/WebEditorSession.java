@@ -198,11 +198,10 @@ public class WebEditorSession {
     }
 
     private String uploadRequestData(WebEditorRequest request) {
-        byte[] requestBuf = request.encode();
-
         String pasteId;
         try {
-            pasteId = this.plugin.getBytebin().postContent(requestBuf, AbstractHttpClient.JSON_TYPE, "editor").key();
+            // stream the payload directly into the request body
+            pasteId = this.plugin.getBytebin().postContent(request::writeTo, AbstractHttpClient.JSON_TYPE, "editor").key();
         } catch (UnsuccessfulRequestException e) {
             Message.EDITOR_HTTP_REQUEST_FAILURE.send(this.sender, e.getResponse().code(), e.getResponse().message());
             return null;
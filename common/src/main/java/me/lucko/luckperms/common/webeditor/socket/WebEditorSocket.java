@@ -116,8 +116,7 @@ public class WebEditorSocket {
         socket.addProperty("channelId", channelId);
         socket.addProperty("publicKey", publicKey);
 
-        JsonObject payload = request.getPayload();
-        payload.add("socket", socket);
+        request.setSocket(socket);
     }
 
     /**
@@ -50,6 +50,10 @@ CREATE TABLE `{prefix}actions` (
   `action`     VARCHAR(300)       NOT NULL,
   PRIMARY KEY (`id`)
 ) DEFAULT CHARSET = utf8mb4;
+CREATE INDEX `{prefix}actions_time` ON `{prefix}actions` (`time`, `id`);
+CREATE INDEX `{prefix}actions_actor_uuid` ON `{prefix}actions` (`actor_uuid`, `time`, `id`);
+CREATE INDEX `{prefix}actions_acted_uuid` ON `{prefix}actions` (`acted_uuid`, `time`, `id`);
+CREATE INDEX `{prefix}actions_type_acted_name` ON `{prefix}actions` (`type`, `acted_name`, `time`, `id`);
 
 CREATE TABLE `{prefix}tracks` (
   `name`   VARCHAR(36) NOT NULL,
@@ -0,0 +1,240 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.actionlog;
+
+import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.config.LuckPermsConfiguration;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.plugin.bootstrap.LuckPermsBootstrap;
+import me.lucko.luckperms.common.plugin.logging.PluginLogger;
+import me.lucko.luckperms.common.plugin.scheduler.SchedulerAdapter;
+import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
+import net.luckperms.api.actionlog.Action;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class BatchedLogWriterTest {
+
+    @Mock private LuckPermsPlugin plugin;
+    @Mock private LuckPermsBootstrap bootstrap;
+    @Mock private LuckPermsConfiguration configuration;
+    @Mock private SchedulerAdapter scheduler;
+    @Mock private PluginLogger logger;
+    @Mock private StorageImplementation storage;
+
+    private final List<List<Action>> batches = new ArrayList<>();
+
+    @BeforeEach
+    public void setupMocks() throws Exception {
+        lenient().when(this.plugin.getBootstrap()).thenReturn(this.bootstrap);
+        lenient().when(this.plugin.getConfiguration()).thenReturn(this.configuration);
+        lenient().when(this.plugin.getLogger()).thenReturn(this.logger);
+        lenient().when(this.bootstrap.getScheduler()).thenReturn(this.scheduler);
+        lenient().when(this.configuration.get(ConfigKeys.LOG_QUEUE_CAPACITY)).thenReturn(5);
+        lenient().when(this.configuration.get(ConfigKeys.LOG_QUEUE_BATCH_SIZE)).thenReturn(2);
+        lenient().when(this.configuration.get(ConfigKeys.LOG_QUEUE_FLUSH_INTERVAL)).thenReturn(500);
+
+        // flushes requested by the writer aren't run, so the tests control when the queue is drained
+        lenient().doAnswer(invocation -> {
+            this.batches.add(new ArrayList<>(invocation.getArgument(0)));
+            return null;
+        }).when(this.storage).logActions(anyList());
+    }
+
+    private static Action action(int i) {
+        return LoggedAction.build()
+                .source(UUID.randomUUID())
+                .sourceName("Test Source")
+                .targetType(Action.Target.Type.GROUP)
+                .targetName("test")
+                .description("action " + i)
+                .timestamp(Instant.ofEpochSecond(i))
+                .build();
+    }
+
+    @Test
+    public void testWritesInBatches() throws Exception {
+        BatchedLogWriter writer = new BatchedLogWriter(this.plugin, this.storage::logActions);
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(writer.submit(action(i)));
+        }
+        assertEquals(5, writer.getPendingCount());
+        assertTrue(this.batches.isEmpty());
+
+        // reaching the batch size requests a flush
+        verify(this.scheduler).executeAsync(any(Runnable.class));
+
+        writer.flush();
+        assertEquals(3, this.batches.size());
+        assertEquals(2, this.batches.get(0).size());
+        assertEquals(2, this.batches.get(1).size());
+        assertEquals(1, this.batches.get(2).size());
+        assertEquals("action 0", this.batches.get(0).get(0).getDescription());
+        assertEquals("action 4", this.batches.get(2).get(0).getDescription());
+
+        for (CompletableFuture<Void> future : futures) {
+            assertTrue(future.isDone());
+            assertFalse(future.isCompletedExceptionally());
+        }
+        assertEquals(0, writer.getPendingCount());
+        assertEquals(5, writer.getFlushedCount());
+    }
+
+    @Test
+    public void testWaitsForSpaceWhenFull() throws Exception {
+        // run requested flushes, and entries waiting for space, on separate threads
+        doAnswer(invocation -> {
+            new Thread(invocation.<Runnable>getArgument(0)).start();
+            return null;
+        }).when(this.scheduler).executeAsync(any(Runnable.class));
+
+        BatchedLogWriter writer = new BatchedLogWriter(this.plugin, this.storage::logActions, TimeUnit.SECONDS.toNanos(5));
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 15; i++) {
+            futures.add(writer.submit(action(i)));
+        }
+
+        // entries which didn't fit wait for the queue to drain rather than being dropped
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+        writer.flush();
+        assertEquals(0, writer.getDroppedCount());
+        assertEquals(15, writer.getQueuedCount());
+        assertEquals(15, this.batches.stream().mapToInt(List::size).sum());
+        verify(this.logger, never()).warn(anyString());
+    }
+
+    @Test
+    public void testDropsWhenStorageDoesNotCatchUp() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            latch.await();
+            this.batches.add(new ArrayList<>(invocation.getArgument(0)));
+            return null;
+        }).when(this.storage).logActions(anyList());
+        doAnswer(invocation -> {
+            new Thread(invocation.<Runnable>getArgument(0)).start();
+            return null;
+        }).when(this.scheduler).executeAsync(any(Runnable.class));
+
+        BatchedLogWriter writer = new BatchedLogWriter(this.plugin, this.storage::logActions, TimeUnit.MILLISECONDS.toNanos(500));
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 15; i++) {
+            // submitting doesn't block, even though storage is stuck
+            futures.add(writer.submit(action(i)));
+        }
+
+        // the first batch is taken by the stuck flush, making space for two more
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (writer.getQueuedCount() + writer.getDroppedCount() < 15 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(7, writer.getQueuedCount());
+        assertEquals(8, writer.getDroppedCount());
+        assertEquals(8, futures.stream().filter(CompletableFuture::isCompletedExceptionally).count());
+        assertThrows(ExecutionException.class, () -> futures.stream().filter(CompletableFuture::isCompletedExceptionally).findFirst().get().get());
+
+        // only one warning is logged for a burst of dropped entries
+        verify(this.logger, times(1)).warn(anyString());
+
+        latch.countDown();
+        writer.flush();
+        for (CompletableFuture<Void> future : futures) {
+            if (!future.isCompletedExceptionally()) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+        }
+        assertEquals(7, this.batches.stream().mapToInt(List::size).sum());
+    }
+
+    @Test
+    public void testFailedWriteCompletesExceptionally() throws Exception {
+        doAnswer(invocation -> {
+            throw new RuntimeException("storage unavailable");
+        }).when(this.storage).logActions(anyList());
+
+        BatchedLogWriter writer = new BatchedLogWriter(this.plugin, this.storage::logActions);
+        CompletableFuture<Void> future = writer.submit(action(0));
+        writer.flush();
+
+        assertTrue(future.isCompletedExceptionally());
+        assertEquals(0, writer.getFlushedCount());
+    }
+
+    @Test
+    public void testShutdownFlushesQueue() throws Exception {
+        BatchedLogWriter writer = new BatchedLogWriter(this.plugin, this.storage::logActions);
+
+        CompletableFuture<Void> first = writer.submit(action(0));
+        CompletableFuture<Void> second = writer.submit(action(1));
+        CompletableFuture<Void> third = writer.submit(action(2));
+        verify(this.storage, never()).logActions(anyList());
+
+        writer.shutdown();
+        assertTrue(first.isDone());
+        assertTrue(second.isDone());
+        assertTrue(third.isDone());
+        assertEquals(3, writer.getFlushedCount());
+        assertEquals(0, writer.getPendingCount());
+
+        // entries submitted after shutdown are written directly
+        CompletableFuture<Void> late = writer.submit(action(3));
+        assertTrue(late.isDone());
+        assertFalse(late.isCompletedExceptionally());
+        assertEquals(0, writer.getPendingCount());
+        assertEquals(4, this.batches.stream().mapToInt(List::size).sum());
+    }
+
+}
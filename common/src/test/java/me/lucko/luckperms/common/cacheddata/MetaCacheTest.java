@@ -0,0 +1,180 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.cacheddata;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import me.lucko.luckperms.common.cacheddata.metastack.SimpleMetaStackDefinition;
+import me.lucko.luckperms.common.cacheddata.metastack.StandardStackElements;
+import me.lucko.luckperms.common.cacheddata.result.IntegerResult;
+import me.lucko.luckperms.common.cacheddata.result.StringResult;
+import me.lucko.luckperms.common.cacheddata.type.MetaAccumulator;
+import me.lucko.luckperms.common.cacheddata.type.MetaCache;
+import me.lucko.luckperms.common.cacheddata.type.SimpleMetaValueSelector;
+import me.lucko.luckperms.common.cacheddata.type.SimpleMetaValueSelector.Strategy;
+import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.config.LuckPermsConfiguration;
+import me.lucko.luckperms.common.node.types.Meta;
+import me.lucko.luckperms.common.node.types.Prefix;
+import me.lucko.luckperms.common.node.types.Suffix;
+import me.lucko.luckperms.common.node.types.Weight;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.query.QueryOptionsImpl;
+import me.lucko.luckperms.common.verbose.event.CheckOrigin;
+import net.luckperms.api.cacheddata.Result;
+import net.luckperms.api.metastacking.DuplicateRemovalFunction;
+import net.luckperms.api.node.types.MetaNode;
+import net.luckperms.api.query.meta.MetaValueSelector;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.lenient;
+
+@ExtendWith(MockitoExtension.class)
+public class MetaCacheTest {
+
+    private static final String[] KEYS = {"foo", "bar", "FOO", "baz", "weight", "primarygroup", "missing"};
+
+    @Mock private LuckPermsPlugin plugin;
+    @Mock private LuckPermsConfiguration configuration;
+
+    private final CountingSelector selector = new CountingSelector(new SimpleMetaValueSelector(ImmutableMap.of("foo", Strategy.HIGHEST_NUMBER), Strategy.INHERITANCE));
+
+    @BeforeEach
+    public void setupMocks() {
+        lenient().when(this.plugin.getConfiguration()).thenReturn(this.configuration);
+        lenient().when(this.configuration.get(ConfigKeys.META_VALUE_SELECTOR)).thenReturn(this.selector);
+    }
+
+    private MetaCache createMetaCache(boolean lazy) {
+        lenient().when(this.configuration.get(ConfigKeys.LAZY_META_CACHE)).thenReturn(lazy);
+
+        SimpleMetaStackDefinition definition = new SimpleMetaStackDefinition(ImmutableList.of(StandardStackElements.HIGHEST), DuplicateRemovalFunction.RETAIN_ALL, "[", "|", "]");
+        MetaAccumulator accumulator = new MetaAccumulator(definition, definition);
+        accumulator.accumulateNode(Prefix.builder("a", 100).build());
+        accumulator.accumulateNode(Prefix.builder("b", 90).build());
+        accumulator.accumulateNode(Suffix.builder("c", 80).build());
+        accumulator.accumulateNode(Meta.builder("foo", "1").build());
+        accumulator.accumulateNode(Meta.builder("foo", "3").build());
+        accumulator.accumulateNode(Meta.builder("foo", "2").build());
+        accumulator.accumulateNode(Meta.builder("bar", "x").build());
+        accumulator.accumulateNode(Meta.builder("bar", "y").build());
+        accumulator.accumulateNode(Meta.builder("baz", "z").build());
+        accumulator.accumulateWeight(IntegerResult.of(Weight.builder(5).build()));
+        accumulator.setPrimaryGroup("member");
+        accumulator.complete();
+
+        this.selector.calls.set(0);
+        return new MetaCache(this.plugin, QueryOptionsImpl.DEFAULT_CONTEXTUAL, accumulator);
+    }
+
+    @Test
+    public void testLazyEquivalentToEager() {
+        MetaCache eager = createMetaCache(false);
+        MetaCache lazy = createMetaCache(true);
+
+        // single values, before and after the full views have been built
+        for (int i = 0; i < 2; i++) {
+            for (String key : KEYS) {
+                StringResult<MetaNode> expected = eager.getMetaValue(key, CheckOrigin.INTERNAL);
+                StringResult<MetaNode> actual = lazy.getMetaValue(key, CheckOrigin.INTERNAL);
+                assertEquals(expected.result(), actual.result(), key);
+                assertEquals(expected.node(), actual.node(), key);
+            }
+
+            assertEquals(eager.getPrefix(CheckOrigin.INTERNAL).result(), lazy.getPrefix(CheckOrigin.INTERNAL).result());
+            assertEquals(eager.getSuffix(CheckOrigin.INTERNAL).result(), lazy.getSuffix(CheckOrigin.INTERNAL).result());
+            assertEquals(eager.getWeight(CheckOrigin.INTERNAL).intResult(), lazy.getWeight(CheckOrigin.INTERNAL).intResult());
+            assertEquals(eager.getPrimaryGroup(CheckOrigin.INTERNAL), lazy.getPrimaryGroup(CheckOrigin.INTERNAL));
+
+            // builds the views
+            assertEquals(eager.getMeta(), lazy.getMeta());
+            assertEquals(eager.getPrefixes(), lazy.getPrefixes());
+            assertEquals(eager.getSuffixes(), lazy.getSuffixes());
+            assertEquals(eager.getMetaResults(CheckOrigin.INTERNAL).get("FOO").size(), lazy.getMetaResults(CheckOrigin.INTERNAL).get("FOO").size());
+        }
+
+        assertEquals("3", lazy.getMetaValue("foo", CheckOrigin.INTERNAL).result());
+        assertEquals("x", lazy.getMetaValue("bar", CheckOrigin.INTERNAL).result());
+        assertNull(lazy.getMetaValue("missing", CheckOrigin.INTERNAL).result());
+    }
+
+    @Test
+    public void testLazySelection() {
+        MetaCache eager = createMetaCache(false);
+        assertEquals(5, this.selector.calls.get()); // foo, bar, baz, weight & primarygroup
+
+        MetaCache lazy = createMetaCache(true);
+        assertEquals(0, this.selector.calls.get());
+
+        // values are selected on first request, then memoized
+        StringResult<MetaNode> foo = lazy.getMetaValue("foo", CheckOrigin.INTERNAL);
+        assertEquals(1, this.selector.calls.get());
+        assertSame(foo, lazy.getMetaValue("FOO", CheckOrigin.INTERNAL));
+        assertEquals(1, this.selector.calls.get());
+
+        // missing keys never reach the selector
+        lazy.getMetaValue("missing", CheckOrigin.INTERNAL);
+        assertEquals(1, this.selector.calls.get());
+
+        // the prefix/suffix stacks don't need the views
+        assertEquals("[a]", lazy.getPrefix(CheckOrigin.INTERNAL).result());
+        assertEquals("[c]", lazy.getSuffix(CheckOrigin.INTERNAL).result());
+        assertEquals(1, this.selector.calls.get());
+
+        // building the views selects every value, once
+        lazy.getMeta();
+        lazy.getMeta();
+        assertEquals(6, this.selector.calls.get());
+        assertEquals(eager.getMeta(), lazy.getMeta());
+    }
+
+    private static final class CountingSelector implements MetaValueSelector {
+        private final MetaValueSelector delegate;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        CountingSelector(MetaValueSelector delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public @NonNull Result<String, MetaNode> selectValue(@NonNull String key, @NonNull List<? extends Result<String, MetaNode>> values) {
+            this.calls.incrementAndGet();
+            return this.delegate.selectValue(key, values);
+        }
+    }
+
+}
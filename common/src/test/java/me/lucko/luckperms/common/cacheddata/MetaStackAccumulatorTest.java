@@ -28,14 +28,20 @@ package me.lucko.luckperms.common.cacheddata;
 import me.lucko.luckperms.common.cacheddata.metastack.SimpleMetaStackDefinition;
 import me.lucko.luckperms.common.cacheddata.metastack.StandardStackElements;
 import me.lucko.luckperms.common.cacheddata.result.StringResult;
+import me.lucko.luckperms.common.cacheddata.type.MetaContribution;
 import me.lucko.luckperms.common.cacheddata.type.MetaStackAccumulator;
 import me.lucko.luckperms.common.node.types.Prefix;
 import net.luckperms.api.metastacking.DuplicateRemovalFunction;
 import net.luckperms.api.node.ChatMetaType;
+import net.luckperms.api.node.Node;
 import net.luckperms.api.node.types.PrefixNode;
 import org.junit.jupiter.api.Test;
 import org.testcontainers.shaded.com.google.common.collect.ImmutableList;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
@@ -101,4 +107,36 @@ public class MetaStackAccumulatorTest {
         assertNull(overriddenResult.overriddenResult());
     }
 
+    @Test
+    public void testContributionSlice() {
+        SimpleMetaStackDefinition definition = new SimpleMetaStackDefinition(ImmutableList.of(StandardStackElements.HIGHEST, StandardStackElements.LOWEST), DuplicateRemovalFunction.RETAIN_ALL, "[", "|", "]");
+        Random random = new Random(42);
+
+        for (int i = 0; i < 500; i++) {
+            List<Node> group1 = randomPrefixes(random);
+            List<Node> group2 = randomPrefixes(random);
+
+            MetaStackAccumulator<PrefixNode> expected = new MetaStackAccumulator<>(definition, ChatMetaType.PREFIX);
+            MetaStackAccumulator<PrefixNode> actual = new MetaStackAccumulator<>(definition, ChatMetaType.PREFIX);
+
+            for (List<Node> group : ImmutableList.of(group1, group2)) {
+                for (Node node : group) {
+                    expected.offer((PrefixNode) node);
+                }
+                actual.offer(MetaContribution.of(group).getPrefixes());
+            }
+
+            assertEquals(expected.getElements(), actual.getElements());
+        }
+    }
+
+    private static List<Node> randomPrefixes(Random random) {
+        List<Node> nodes = new ArrayList<>();
+        int size = random.nextInt(5);
+        for (int i = 0; i < size; i++) {
+            nodes.add(Prefix.builder("p" + random.nextInt(10), random.nextInt(4)).build());
+        }
+        return nodes;
+    }
+
 }
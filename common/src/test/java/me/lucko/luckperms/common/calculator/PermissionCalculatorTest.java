@@ -27,6 +27,7 @@ package me.lucko.luckperms.common.calculator;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import me.lucko.luckperms.common.cacheddata.CacheMetadata;
 import me.lucko.luckperms.common.cacheddata.result.TristateResult;
 import me.lucko.luckperms.common.calculator.processor.AbstractOverrideWildcardProcessor;
@@ -35,6 +36,7 @@ import me.lucko.luckperms.common.calculator.processor.PermissionProcessor;
 import me.lucko.luckperms.common.calculator.processor.RegexProcessor;
 import me.lucko.luckperms.common.calculator.processor.SpongeWildcardProcessor;
 import me.lucko.luckperms.common.calculator.processor.WildcardProcessor;
+import me.lucko.luckperms.common.metrics.MetricsRegistry;
 import me.lucko.luckperms.common.model.HolderType;
 import me.lucko.luckperms.common.node.factory.NodeBuilders;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
@@ -54,12 +56,16 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
 
@@ -106,6 +112,7 @@ public class PermissionCalculatorTest {
     public void setupMocks() {
         lenient().when(this.plugin.getVerboseHandler()).thenReturn(mock(VerboseHandler.class));
         lenient().when(this.plugin.getPermissionRegistry()).thenReturn(mock(PermissionRegistry.class));
+        lenient().when(this.plugin.getMetrics()).thenReturn(new MetricsRegistry());
     }
 
     private PermissionCalculator createCalculator(PermissionProcessor... processors) {
@@ -246,4 +253,41 @@ public class PermissionCalculatorTest {
         assertSame(WildcardProcessor.class, overriddenResult.processorClass());
     }
 
+    @Test
+    public void testInvalidateCacheSelectively() {
+        AtomicInteger calls = new AtomicInteger();
+        AtomicBoolean invalidated = new AtomicBoolean();
+        PermissionProcessor countingProcessor = new PermissionProcessor() {
+            @Override
+            public TristateResult hasPermission(TristateResult prev, String permission) {
+                calls.incrementAndGet();
+                return prev;
+            }
+
+            @Override
+            public void invalidate() {
+                invalidated.set(true);
+            }
+        };
+
+        PermissionCalculator calculator = createCalculator(new DirectProcessor(), countingProcessor);
+        calculator.setSourcePermissions(EXAMPLE_PERMISSIONS);
+
+        calculator.checkPermission("test.node1", CheckOrigin.INTERNAL);
+        calculator.checkPermission("Test.Node2", CheckOrigin.INTERNAL);
+        assertEquals(2, calls.get());
+
+        // only the given permissions are recalculated, and the processors are left alone
+        calculator.invalidateCache(ImmutableSet.of("test.node2"));
+        calculator.checkPermission("test.node1", CheckOrigin.INTERNAL);
+        calculator.checkPermission("Test.Node2", CheckOrigin.INTERNAL);
+        assertEquals(3, calls.get());
+        assertFalse(invalidated.get());
+
+        calculator.invalidateCache();
+        calculator.checkPermission("test.node1", CheckOrigin.INTERNAL);
+        assertEquals(4, calls.get());
+        assertTrue(invalidated.get());
+    }
+
 }
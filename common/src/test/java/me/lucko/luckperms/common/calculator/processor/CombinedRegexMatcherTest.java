@@ -0,0 +1,80 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.calculator.processor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class CombinedRegexMatcherTest {
+
+    @ParameterizedTest(name = "[{index}] {0}")
+    @CsvSource(delimiter = ' ', value = {
+            "essentials\\..* essentials.",
+            "^essentials\\.home\\.\\d+ essentials.home.",
+            "worldedit.* worldedit",
+            "ab?c a",
+            "ab*c a",
+            "ab+c ab",
+            "ab{2}c a",
+            "(?i)abc ''",
+            "[a-z]+\\.test ''",
+            "abc|def ''",
+            "ab(c|d) ab",
+            "\\Qa.b\\E ''",
+            "\\w+ ''"
+    })
+    public void testLiteralPrefix(String regex, String expected) {
+        assertEquals(expected, CombinedRegexMatcher.literalPrefix(regex));
+    }
+
+    @Test
+    public void testPriorityOrder() {
+        CombinedRegexMatcher<String> matcher = CombinedRegexMatcher.<String>builder()
+                .add(Pattern.compile("essentials\\.home\\..*"), "first")
+                .add(Pattern.compile(".*\\.home\\..*"), "second")
+                .add(Pattern.compile("essentials\\..*"), "third")
+                .add(Pattern.compile("worldedit\\..*"), "fourth")
+                .build();
+
+        assertEquals("first", matcher.match("essentials.home.1"));
+        assertEquals("second", matcher.match("towny.home.1"));
+        assertEquals("third", matcher.match("essentials.warp"));
+        assertEquals("fourth", matcher.match("worldedit.wand"));
+        assertNull(matcher.match("minecraft.command.give"));
+    }
+
+    @Test
+    public void testEmpty() {
+        assertNull(CombinedRegexMatcher.<String>builder().build().match("test"));
+    }
+
+}
@@ -0,0 +1,228 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.command;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.User;
+import me.lucko.luckperms.common.model.manager.group.GroupManager;
+import me.lucko.luckperms.common.model.manager.user.UserManager;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CommandLocksTest {
+
+    private static final UUID LUCK = UUID.fromString("c1d60c50-70b5-4722-8057-87767557e50d");
+
+    private CommandLocks locks;
+    private ExecutorService executor;
+
+    @BeforeEach
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void setupLocks() {
+        User user = mock(User.class);
+        when(user.getUniqueId()).thenReturn(LUCK);
+        UserManager userManager = mock(UserManager.class);
+        when(userManager.getByUsername(anyString())).thenReturn(null);
+        when(userManager.getByUsername("Luck")).thenReturn(user);
+
+        Group group = mock(Group.class);
+        when(group.getName()).thenReturn("admin");
+        GroupManager groupManager = mock(GroupManager.class);
+        when(groupManager.getByDisplayName(anyString())).thenReturn(null);
+        when(groupManager.getByDisplayName("Administrators")).thenReturn(group);
+
+        LuckPermsPlugin plugin = mock(LuckPermsPlugin.class);
+        when(plugin.getUserManager()).thenReturn((UserManager) userManager);
+        when(plugin.getGroupManager()).thenReturn((GroupManager) groupManager);
+
+        this.locks = new CommandLocks(plugin);
+        this.executor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterEach
+    public void shutdownExecutor() {
+        this.executor.shutdownNow();
+    }
+
+    private static Stream<Arguments> testGetLockKeys() {
+        return Stream.of(
+                Arguments.of(ImmutableList.of(), ImmutableSet.of(CommandLocks.SHARED)),
+                Arguments.of(ImmutableList.of("user"), ImmutableSet.of(CommandLocks.SHARED)),
+                Arguments.of(ImmutableList.of("user", "Luck", "info"), ImmutableSet.of("user/" + LUCK)),
+                Arguments.of(ImmutableList.of("user", LUCK.toString().toUpperCase(), "info"), ImmutableSet.of("user/" + LUCK)),
+                Arguments.of(ImmutableList.of("user", "Notch", "info"), ImmutableSet.of("username/notch")),
+                Arguments.of(ImmutableList.of("user", "NOTCH", "parent", "add", "Mod"), ImmutableSet.of("username/notch", "group/mod")),
+                Arguments.of(ImmutableList.of("user", "Luck", "parent", "add", "Administrators"), ImmutableSet.of("user/" + LUCK, "group/admin")),
+                Arguments.of(ImmutableList.of("user", "Luck", "parent", "settrack", "Staff", "mod"), ImmutableSet.of("user/" + LUCK, "track/staff", "group/mod")),
+                Arguments.of(ImmutableList.of("user", "Luck", "promote", "staff"), ImmutableSet.of("user/" + LUCK, "track/staff")),
+                Arguments.of(ImmutableList.of("user", "Luck", "clone", "Notch"), ImmutableSet.of(CommandLocks.GLOBAL)),
+                Arguments.of(ImmutableList.of("group", "Administrators", "permission", "set", "test"), ImmutableSet.of("group/admin")),
+                Arguments.of(ImmutableList.of("group", "admin", "parent", "add", "Mod"), ImmutableSet.of("group/admin", "group/mod")),
+                Arguments.of(ImmutableList.of("group", "admin", "rename", "owner"), ImmutableSet.of(CommandLocks.GLOBAL)),
+                Arguments.of(ImmutableList.of("track", "Staff", "append", "Administrators"), ImmutableSet.of("track/staff", "group/admin")),
+                Arguments.of(ImmutableList.of("track", "staff", "clone", "staff2"), ImmutableSet.of(CommandLocks.GLOBAL)),
+                Arguments.of(ImmutableList.of("creategroup", "Admin"), ImmutableSet.of("group/admin")),
+                Arguments.of(ImmutableList.of("deletegroup", "admin"), ImmutableSet.of(CommandLocks.GLOBAL)),
+                Arguments.of(ImmutableList.of("deletetrack", "staff"), ImmutableSet.of("track/staff")),
+                Arguments.of(ImmutableList.of("search", "test"), ImmutableSet.of(CommandLocks.SHARED)),
+                Arguments.of(ImmutableList.of("info"), ImmutableSet.of(CommandLocks.SHARED)),
+                Arguments.of(ImmutableList.of("import", "file"), ImmutableSet.of(CommandLocks.GLOBAL)),
+                Arguments.of(ImmutableList.of("bulkupdate", "all", "delete"), ImmutableSet.of(CommandLocks.GLOBAL)),
+                Arguments.of(ImmutableList.of("sync"), ImmutableSet.of(CommandLocks.GLOBAL))
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    public void testGetLockKeys(List<String> arguments, Set<String> expected) {
+        assertEquals(expected, this.locks.getLockKeys(arguments));
+    }
+
+    private CompletableFuture<Void> schedule(Set<String> keys, Runnable task, AtomicBoolean contended) {
+        return this.locks.schedule(keys, null, task, this.executor, () -> contended.set(true));
+    }
+
+    private static Runnable await(CountDownLatch latch) {
+        return () -> {
+            try {
+                latch.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
+
+    @Test
+    public void testDifferentTargetsRunConcurrently() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean contended = new AtomicBoolean(false);
+
+        CompletableFuture<Void> a = this.locks.schedule(ImmutableSet.of("user/a"), null, await(release), this.executor, () -> {});
+        ExecutorService other = Executors.newSingleThreadExecutor();
+        try {
+            this.locks.schedule(ImmutableSet.of("user/b"), null, () -> {}, other, () -> contended.set(true)).get(5, TimeUnit.SECONDS);
+            this.locks.schedule(ImmutableSet.of(CommandLocks.SHARED), null, () -> {}, other, () -> contended.set(true)).get(5, TimeUnit.SECONDS);
+        } finally {
+            other.shutdownNow();
+        }
+
+        assertFalse(contended.get());
+        assertFalse(a.isDone());
+        release.countDown();
+        a.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testSameTargetIsSerialized() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean contended = new AtomicBoolean(false);
+
+        CompletableFuture<Void> a = schedule(ImmutableSet.of("group/admin"), await(release), new AtomicBoolean());
+        CompletableFuture<Void> b = schedule(ImmutableSet.of("user/" + LUCK, "group/admin"), () -> {}, contended);
+        assertTrue(contended.get());
+        assertFalse(b.isDone());
+
+        release.countDown();
+        a.get(5, TimeUnit.SECONDS);
+        b.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testGlobalIsExclusive() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean contended = new AtomicBoolean(false);
+
+        CompletableFuture<Void> a = schedule(ImmutableSet.of("user/a"), await(release), new AtomicBoolean());
+        CompletableFuture<Void> global = schedule(ImmutableSet.of(CommandLocks.GLOBAL), () -> {}, contended);
+        CompletableFuture<Void> b = schedule(ImmutableSet.of("user/b"), () -> {}, new AtomicBoolean());
+        assertTrue(contended.get());
+        assertFalse(global.isDone());
+        assertFalse(b.isDone());
+
+        release.countDown();
+        a.get(5, TimeUnit.SECONDS);
+        global.get(5, TimeUnit.SECONDS);
+        b.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testQueuedCommandsDontOccupyExecutor() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService blocking = Executors.newSingleThreadExecutor();
+        try {
+            CompletableFuture<Void> a = this.locks.schedule(ImmutableSet.of("user/a"), null, await(release), blocking, () -> {});
+
+            // queued behind 'a' without taking the only executor thread
+            CompletableFuture<Void> b = schedule(ImmutableSet.of("user/a"), () -> {}, new AtomicBoolean());
+            CompletableFuture<Void> c = schedule(ImmutableSet.of("user/b"), () -> {}, new AtomicBoolean());
+            c.get(5, TimeUnit.SECONDS);
+            assertFalse(b.isDone());
+
+            release.countDown();
+            a.get(5, TimeUnit.SECONDS);
+            b.get(5, TimeUnit.SECONDS);
+        } finally {
+            blocking.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testWaitsForPrevious() throws Exception {
+        CompletableFuture<Void> previous = new CompletableFuture<>();
+        CompletableFuture<Void> future = this.locks.schedule(ImmutableSet.of("user/a"), previous, () -> {}, this.executor, () -> {});
+        assertFalse(future.isDone());
+
+        // a failed previous command doesn't stop the next one from running
+        previous.completeExceptionally(new RuntimeException());
+        future.get(5, TimeUnit.SECONDS);
+    }
+
+}
@@ -33,11 +33,14 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.util.Random;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class ImmutableContextSetTest {
@@ -170,4 +173,68 @@ public class ImmutableContextSetTest {
         );
     }
 
+    @Test
+    public void testIntern() {
+        ImmutableContextSet a = new ImmutableContextSetImpl.BuilderImpl().add("server", "lobby").add("world", "nether").build();
+        ImmutableContextSet b = new ImmutableContextSetImpl.BuilderImpl().add("world", "nether").add("server", "lobby").build();
+        ImmutableContextSet c = new ImmutableContextSetImpl.BuilderImpl().add("server", "lobby").build();
+        assertNotSame(a, b);
+
+        ImmutableContextSet internedA = ImmutableContextSetImpl.intern(a);
+        assertSame(internedA, ImmutableContextSetImpl.intern(b));
+        assertEquals(a, internedA);
+
+        // contexts are shared between different sets
+        Context[] internedContexts = ((ImmutableContextSetImpl) internedA).toArray();
+        Context[] cContexts = ((ImmutableContextSetImpl) ImmutableContextSetImpl.intern(c)).toArray();
+        assertSame(internedContexts[0], cContexts[0]);
+
+        assertSame(ImmutableContextSetImpl.EMPTY, ImmutableContextSetImpl.intern(new ImmutableContextSetImpl.BuilderImpl().build()));
+    }
+
+    @Test
+    public void testMatcherAgreesWithLookup() {
+        Random random = new Random(42);
+        String[] keys = {"server", "world", "gamemode", "region"};
+        String[] values = {"a", "b", "c", "d", "e"};
+
+        for (int i = 0; i < 2000; i++) {
+            ImmutableContextSet required = randomSet(random, keys, values);
+            ImmutableContextSet available = randomSet(random, keys, values);
+
+            for (ContextSatisfyMode mode : ContextSatisfyMode.values()) {
+                // a mutable 'other' set takes the lookup path
+                boolean expected = required.isSatisfiedBy(available.mutableCopy(), mode);
+                assertEquals(expected, required.isSatisfiedBy(available, mode), () -> required + " " + available + " " + mode);
+            }
+        }
+    }
+
+    @Test
+    public void testMatcherAfterIdTableReplaced() {
+        ImmutableContextSet required = new ImmutableContextSetImpl.BuilderImpl().add("server", "a").build();
+        ImmutableContextSet available = new ImmutableContextSetImpl.BuilderImpl().add("server", "a").add("world", "b").build();
+        assertTrue(required.isSatisfiedBy(available));
+
+        // fill the id table so it is replaced
+        for (int i = 0; i < ContextSetMatcher.MAX_IDS; i++) {
+            ImmutableContextSet set = new ImmutableContextSetImpl.BuilderImpl().add("server", "value-" + i).build();
+            assertTrue(set.isSatisfiedBy(set));
+        }
+
+        ImmutableContextSet other = new ImmutableContextSetImpl.BuilderImpl().add("server", "c").add("world", "b").build();
+        assertTrue(required.isSatisfiedBy(available));
+        assertFalse(required.isSatisfiedBy(other));
+        assertTrue(other.isSatisfiedBy(new ImmutableContextSetImpl.BuilderImpl().add("server", "c").add("world", "b").add("region", "d").build()));
+    }
+
+    private static ImmutableContextSet randomSet(Random random, String[] keys, String[] values) {
+        ImmutableContextSet.Builder builder = new ImmutableContextSetImpl.BuilderImpl();
+        int size = random.nextInt(6);
+        for (int i = 0; i < size; i++) {
+            builder.add(keys[random.nextInt(keys.length)], values[random.nextInt(values.length)]);
+        }
+        return builder.build();
+    }
+
 }
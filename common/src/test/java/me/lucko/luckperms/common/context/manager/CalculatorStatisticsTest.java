@@ -0,0 +1,122 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.context.manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CalculatorStatisticsTest {
+
+    @Test
+    public void testEmpty() {
+        CalculatorStatistics statistics = new CalculatorStatistics("test", false);
+        assertEquals("test", statistics.getCalculatorName());
+        assertFalse(statistics.isAsync());
+        assertEquals(0, statistics.getCallCount());
+        assertEquals(Duration.ZERO, statistics.getTotalTime());
+        assertEquals(Duration.ZERO, statistics.getMaxTime());
+        assertEquals(Duration.ZERO, statistics.getAverageTime());
+        for (long count : statistics.getLatencyHistogram().values()) {
+            assertEquals(0, count);
+        }
+    }
+
+    @Test
+    public void testRecordCall() {
+        CalculatorStatistics statistics = new CalculatorStatistics("test", true);
+        statistics.recordCall(TimeUnit.MICROSECONDS.toNanos(5));
+        statistics.recordCall(TimeUnit.MICROSECONDS.toNanos(10));
+        statistics.recordCall(TimeUnit.MILLISECONDS.toNanos(2));
+        statistics.recordCall(TimeUnit.MILLISECONDS.toNanos(100));
+
+        assertTrue(statistics.isAsync());
+        assertEquals(4, statistics.getCallCount());
+        assertEquals(Duration.ofNanos(102_015_000), statistics.getTotalTime());
+        assertEquals(Duration.ofMillis(100), statistics.getMaxTime());
+        assertEquals(Duration.ofNanos(25_503_750), statistics.getAverageTime());
+
+        SortedMap<Duration, Long> histogram = statistics.getLatencyHistogram();
+        List<Duration> bounds = new ArrayList<>(histogram.keySet());
+        assertEquals(Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(10)), bounds.get(0));
+        assertEquals(ChronoUnit.FOREVER.getDuration(), bounds.get(bounds.size() - 1));
+
+        // bucket bounds are exclusive
+        assertEquals(1, (long) histogram.get(Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(10))));
+        assertEquals(1, (long) histogram.get(Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(100))));
+        assertEquals(0, (long) histogram.get(Duration.ofMillis(1)));
+        assertEquals(1, (long) histogram.get(Duration.ofMillis(10)));
+        assertEquals(0, (long) histogram.get(Duration.ofMillis(50)));
+        assertEquals(1, (long) histogram.get(ChronoUnit.FOREVER.getDuration()));
+
+        long total = 0;
+        for (long count : histogram.values()) {
+            total += count;
+        }
+        assertEquals(statistics.getCallCount(), total);
+    }
+
+    @Test
+    public void testMaxTimeConcurrent() throws InterruptedException {
+        CalculatorStatistics statistics = new CalculatorStatistics("test", false);
+
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            int offset = i;
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    statistics.recordCall(j * threads.length + offset);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(4000, statistics.getCallCount());
+        assertEquals(Duration.ofNanos(3999), statistics.getMaxTime());
+    }
+
+    @Test
+    public void testSlowCallWarningsRateLimited() {
+        CalculatorStatistics statistics = new CalculatorStatistics("test", false);
+        assertTrue(statistics.recordSlowCall());
+        assertFalse(statistics.recordSlowCall());
+        assertFalse(statistics.recordSlowCall());
+        assertEquals(3, statistics.getSlowCallCount());
+    }
+
+}
@@ -0,0 +1,283 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.context.manager;
+
+import com.google.common.collect.ImmutableSet;
+import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.config.LuckPermsConfiguration;
+import me.lucko.luckperms.common.context.ImmutableContextSetImpl;
+import me.lucko.luckperms.common.event.EventDispatcher;
+import me.lucko.luckperms.common.metrics.MetricsRegistry;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.plugin.logging.PluginLogger;
+import me.lucko.luckperms.common.query.QueryOptionsImpl;
+import me.lucko.luckperms.common.util.Predicates;
+import net.luckperms.api.context.ContextCalculator;
+import net.luckperms.api.context.ContextConsumer;
+import net.luckperms.api.context.ImmutableContextSet;
+import net.luckperms.api.query.QueryOptions;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class ContextManagerTest {
+
+    @Mock private LuckPermsPlugin plugin;
+    @Mock private LuckPermsConfiguration configuration;
+    @Mock private EventDispatcher eventDispatcher;
+    @Mock private PluginLogger logger;
+
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final Subject subject = new Subject();
+
+    @BeforeEach
+    public void setupMocks() {
+        lenient().when(this.plugin.getConfiguration()).thenReturn(this.configuration);
+        lenient().when(this.plugin.getEventDispatcher()).thenReturn(this.eventDispatcher);
+        lenient().when(this.plugin.getLogger()).thenReturn(this.logger);
+        lenient().when(this.plugin.getMetrics()).thenReturn(this.metrics);
+        lenient().when(this.configuration.get(ConfigKeys.DISABLED_CONTEXT_CALCULATORS)).thenReturn(ImmutableSet.of());
+        lenient().when(this.configuration.get(ConfigKeys.ASYNC_CONTEXT_CALCULATOR_REFRESH_INTERVAL)).thenReturn(60_000);
+        lenient().when(this.configuration.get(ConfigKeys.CONTEXT_CALCULATOR_TIME_BUDGET)).thenReturn(0);
+        lenient().when(this.configuration.get(ConfigKeys.GLOBAL_QUERY_OPTIONS)).thenReturn(QueryOptionsImpl.DEFAULT_CONTEXTUAL);
+    }
+
+    private void setAsyncCalculators(Class<?>... calculators) {
+        ImmutableSet.Builder<Predicate<String>> predicates = ImmutableSet.builder();
+        for (Class<?> calculator : calculators) {
+            predicates.add(Predicates.startsWithIgnoreCase(calculator.getName()));
+        }
+        Set<Predicate<String>> set = predicates.build();
+        lenient().when(this.configuration.get(ConfigKeys.ASYNC_CONTEXT_CALCULATORS)).thenReturn(set);
+    }
+
+    @Test
+    public void testAsyncCalculatorCachesResult() {
+        setAsyncCalculators(SlowCalculator.class);
+        TestContextManager contextManager = new TestContextManager(this.plugin);
+
+        SlowCalculator slow = new SlowCalculator("region", "spawn");
+        FastCalculator fast = new FastCalculator("world", "x");
+        contextManager.registerCalculator(slow);
+        contextManager.registerCalculator(fast);
+
+        ImmutableContextSet expected = new ImmutableContextSetImpl.BuilderImpl().add("region", "spawn").add("world", "x").build();
+        assertEquals(expected, contextManager.calculate(this.subject).context());
+        assertEquals(expected, contextManager.calculate(this.subject).context());
+        assertEquals(expected, contextManager.calculate(this.subject).context());
+
+        // the async calculator is only called once, the result is served from its cache
+        assertEquals(1, slow.calls.get());
+        assertEquals(3, fast.calls.get());
+
+        // a signal invalidates the cached result
+        slow.value = "arena";
+        contextManager.signalContextUpdate(this.subject);
+        assertEquals(new ImmutableContextSetImpl.BuilderImpl().add("region", "arena").add("world", "x").build(), contextManager.calculate(this.subject).context());
+        assertEquals(2, slow.calls.get());
+    }
+
+    @Test
+    public void testAsyncEquivalentToSync() {
+        setAsyncCalculators();
+        TestContextManager sync = new TestContextManager(this.plugin);
+        SlowCalculator syncCalculator = new SlowCalculator("region", "spawn");
+        sync.registerCalculator(syncCalculator);
+        sync.registerCalculator(new FastCalculator("world", "x"));
+
+        setAsyncCalculators(SlowCalculator.class);
+        TestContextManager async = new TestContextManager(this.plugin);
+        SlowCalculator asyncCalculator = new SlowCalculator("region", "spawn");
+        async.registerCalculator(asyncCalculator);
+        async.registerCalculator(new FastCalculator("world", "x"));
+
+        String[] regions = {"spawn", "arena", "shop"};
+        for (String region : regions) {
+            syncCalculator.value = region;
+            asyncCalculator.value = region;
+            async.signalContextUpdate(this.subject);
+            assertEquals(sync.calculate(this.subject), async.calculate(this.subject));
+        }
+    }
+
+    @Test
+    public void testCalculatorStatistics() {
+        setAsyncCalculators(SlowCalculator.class);
+        TestContextManager contextManager = new TestContextManager(this.plugin);
+        contextManager.registerCalculator(new SlowCalculator("region", "spawn"));
+        contextManager.registerCalculator(new FastCalculator("world", "x"));
+
+        for (int i = 0; i < 5; i++) {
+            contextManager.calculate(this.subject);
+        }
+
+        List<CalculatorStatistics> statistics = contextManager.getCalculatorStatistics();
+        assertEquals(2, statistics.size());
+
+        CalculatorStatistics slow = getStatistics(statistics, SlowCalculator.class);
+        assertTrue(slow.isAsync());
+        assertEquals(1, slow.getCallCount());
+
+        CalculatorStatistics fast = getStatistics(statistics, FastCalculator.class);
+        assertFalse(fast.isAsync());
+        assertEquals(5, fast.getCallCount());
+
+        // and the same counts are exported as metrics
+        String output = this.metrics.toPrometheusFormat();
+        assertTrue(output.contains("luckperms_context_calculator_calls_total{calculator=\"" + FastCalculator.class.getName() + "\"} 5\n"), output);
+        assertTrue(output.contains("luckperms_context_calculator_calls_total{calculator=\"" + SlowCalculator.class.getName() + "\"} 1\n"), output);
+    }
+
+    private static CalculatorStatistics getStatistics(List<CalculatorStatistics> statistics, Class<?> calculatorClass) {
+        return statistics.stream()
+                .filter(s -> s.getCalculatorName().equals(calculatorClass.getName()))
+                .findFirst()
+                .orElseThrow(AssertionError::new);
+    }
+
+    @Test
+    public void testTimeBudgetWarning() {
+        setAsyncCalculators();
+        lenient().when(this.configuration.get(ConfigKeys.CONTEXT_CALCULATOR_TIME_BUDGET)).thenReturn(1);
+        TestContextManager contextManager = new TestContextManager(this.plugin);
+        SlowCalculator slow = new SlowCalculator("region", "spawn");
+        slow.sleep = 5;
+        contextManager.registerCalculator(slow);
+
+        contextManager.calculate(this.subject);
+        contextManager.calculate(this.subject);
+
+        // only warned once per interval
+        verify(this.logger, times(1)).warn(anyString());
+        assertEquals(2, contextManager.getCalculatorStatistics().get(0).getSlowCallCount());
+    }
+
+    @Test
+    public void testTimeBudgetDisabled() {
+        setAsyncCalculators();
+        TestContextManager contextManager = new TestContextManager(this.plugin);
+        SlowCalculator slow = new SlowCalculator("region", "spawn");
+        slow.sleep = 5;
+        contextManager.registerCalculator(slow);
+
+        contextManager.calculate(this.subject);
+
+        verify(this.logger, never()).warn(anyString());
+        assertEquals(0, contextManager.getCalculatorStatistics().get(0).getSlowCallCount());
+    }
+
+    private static final class Subject {
+        private final UUID uniqueId = UUID.randomUUID();
+    }
+
+    private abstract static class CountingCalculator implements ContextCalculator<Subject> {
+        private final String key;
+        protected volatile String value;
+        protected final AtomicInteger calls = new AtomicInteger();
+
+        CountingCalculator(String key, String value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public void calculate(@NonNull Subject target, @NonNull ContextConsumer consumer) {
+            this.calls.incrementAndGet();
+            consumer.accept(this.key, this.value);
+        }
+    }
+
+    private static final class SlowCalculator extends CountingCalculator {
+        private long sleep = 0;
+
+        SlowCalculator(String key, String value) {
+            super(key, value);
+        }
+
+        @Override
+        public void calculate(@NonNull Subject target, @NonNull ContextConsumer consumer) {
+            if (this.sleep != 0) {
+                try {
+                    Thread.sleep(this.sleep);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            super.calculate(target, consumer);
+        }
+    }
+
+    private static final class FastCalculator extends CountingCalculator {
+        FastCalculator(String key, String value) {
+            super(key, value);
+        }
+    }
+
+    private static final class TestContextManager extends ContextManager<Subject, Subject> {
+        TestContextManager(LuckPermsPlugin plugin) {
+            super(plugin, Subject.class, Subject.class);
+        }
+
+        @Override
+        public UUID getUniqueId(Subject player) {
+            return player.uniqueId;
+        }
+
+        @Override
+        public QueryOptionsSupplier getCacheFor(Subject subject) {
+            return new QueryOptionsCache<>(subject, this);
+        }
+
+        @Override
+        public QueryOptions formQueryOptions(Subject subject, ImmutableContextSet contextSet) {
+            return formQueryOptions(contextSet);
+        }
+
+        @Override
+        protected void invalidateCache(Subject subject) {
+            // no cache
+        }
+    }
+}
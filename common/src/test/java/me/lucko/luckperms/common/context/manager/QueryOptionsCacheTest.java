@@ -0,0 +1,226 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.context.manager;
+
+import com.google.common.collect.ImmutableSet;
+import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.config.LuckPermsConfiguration;
+import me.lucko.luckperms.common.context.ImmutableContextSetImpl;
+import me.lucko.luckperms.common.context.calculator.SignalDrivenContextCalculator;
+import me.lucko.luckperms.common.event.EventDispatcher;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.query.QueryOptionsImpl;
+import net.luckperms.api.context.ContextCalculator;
+import net.luckperms.api.context.ContextConsumer;
+import net.luckperms.api.context.ImmutableContextSet;
+import net.luckperms.api.query.QueryOptions;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.lenient;
+
+@ExtendWith(MockitoExtension.class)
+public class QueryOptionsCacheTest {
+
+    @Mock private LuckPermsPlugin plugin;
+    @Mock private LuckPermsConfiguration configuration;
+    @Mock private EventDispatcher eventDispatcher;
+
+    private final Subject subject = new Subject();
+    private final TestCalculator signalDrivenCalculator = new TestSignalDrivenCalculator("server", "a");
+    private final TestCalculator pollingCalculator = new TestCalculator("world", "x");
+
+    @BeforeEach
+    public void setupMocks() {
+        lenient().when(this.plugin.getConfiguration()).thenReturn(this.configuration);
+        lenient().when(this.plugin.getEventDispatcher()).thenReturn(this.eventDispatcher);
+        lenient().when(this.configuration.get(ConfigKeys.DISABLED_CONTEXT_CALCULATORS)).thenReturn(ImmutableSet.of());
+        lenient().when(this.configuration.get(ConfigKeys.ASYNC_CONTEXT_CALCULATORS)).thenReturn(ImmutableSet.of());
+        lenient().when(this.configuration.get(ConfigKeys.CONTEXT_CALCULATOR_TIME_BUDGET)).thenReturn(0);
+        lenient().when(this.configuration.get(ConfigKeys.GLOBAL_QUERY_OPTIONS)).thenReturn(QueryOptionsImpl.DEFAULT_CONTEXTUAL);
+    }
+
+    private TestContextManager createContextManager(boolean signalDriven) {
+        lenient().when(this.configuration.get(ConfigKeys.SIGNAL_DRIVEN_CONTEXTS)).thenReturn(signalDriven);
+
+        TestContextManager contextManager = new TestContextManager(this.plugin);
+        contextManager.registerCalculator(this.signalDrivenCalculator);
+        contextManager.registerCalculator(this.pollingCalculator);
+        return contextManager;
+    }
+
+    @Test
+    public void testSignalDrivenContextsCachedUntilSignal() {
+        TestContextManager contextManager = createContextManager(true);
+        QueryOptionsCache<Subject> cache = contextManager.getCacheFor(this.subject);
+
+        assertEquals(new ImmutableContextSetImpl.BuilderImpl().add("server", "a").add("world", "x").build(), cache.getContextSet());
+        assertEquals(1, this.signalDrivenCalculator.calls);
+        assertEquals(1, this.pollingCalculator.calls);
+
+        // the cached value expiring only re-runs the polling calculators
+        this.signalDrivenCalculator.value = "b";
+        this.pollingCalculator.value = "y";
+        assertEquals(new ImmutableContextSetImpl.BuilderImpl().add("server", "a").add("world", "y").build(), cache.supply().context());
+        assertEquals(1, this.signalDrivenCalculator.calls);
+        assertEquals(2, this.pollingCalculator.calls);
+
+        // a signal re-runs everything
+        contextManager.signalContextUpdate(this.subject);
+        assertEquals(new ImmutableContextSetImpl.BuilderImpl().add("server", "b").add("world", "y").build(), cache.getContextSet());
+        assertEquals(2, this.signalDrivenCalculator.calls);
+        assertEquals(3, this.pollingCalculator.calls);
+    }
+
+    @Test
+    public void testInvalidateSignalDrivenContexts() {
+        TestContextManager contextManager = createContextManager(true);
+        QueryOptionsCache<Subject> cache = contextManager.getCacheFor(this.subject);
+
+        cache.supply();
+        assertEquals(1, this.signalDrivenCalculator.calls);
+
+        this.signalDrivenCalculator.value = "b";
+        contextManager.invalidateSignalDrivenContexts();
+        assertEquals(new ImmutableContextSetImpl.BuilderImpl().add("server", "b").add("world", "x").build(), cache.supply().context());
+        assertEquals(2, this.signalDrivenCalculator.calls);
+
+        // registering a calculator also discards the cached results
+        contextManager.registerCalculator(new TestSignalDrivenCalculator("gamemode", "creative"));
+        assertEquals(new ImmutableContextSetImpl.BuilderImpl().add("server", "b").add("world", "x").add("gamemode", "creative").build(), cache.supply().context());
+        assertEquals(3, this.signalDrivenCalculator.calls);
+    }
+
+    @Test
+    public void testSameInstanceWhileUnchanged() {
+        TestContextManager contextManager = createContextManager(true);
+        QueryOptionsCache<Subject> cache = contextManager.getCacheFor(this.subject);
+
+        QueryOptions first = cache.supply();
+        assertSame(first, cache.supply());
+
+        this.pollingCalculator.value = "y";
+        QueryOptions second = cache.supply();
+        assertEquals(new ImmutableContextSetImpl.BuilderImpl().add("server", "a").add("world", "y").build(), second.context());
+        assertSame(second, cache.supply());
+    }
+
+    @Test
+    public void testEquivalentToFullCalculation() {
+        TestContextManager signalDriven = createContextManager(true);
+        TestContextManager polling = createContextManager(false);
+        QueryOptionsCache<Subject> signalDrivenCache = signalDriven.getCacheFor(this.subject);
+        QueryOptionsCache<Subject> pollingCache = polling.getCacheFor(this.subject);
+
+        String[] values = {"a", "b", "c"};
+        for (int i = 0; i < 20; i++) {
+            this.signalDrivenCalculator.value = values[i % values.length];
+            this.pollingCalculator.value = values[(i / 2) % values.length];
+            signalDriven.signalContextUpdate(this.subject);
+            polling.signalContextUpdate(this.subject);
+
+            assertEquals(pollingCache.getQueryOptions(), signalDrivenCache.getQueryOptions());
+            assertEquals(polling.calculate(this.subject), signalDrivenCache.supply());
+        }
+    }
+
+    @Test
+    public void testSignalDrivenDisabled() {
+        TestContextManager contextManager = createContextManager(false);
+        QueryOptionsCache<Subject> cache = contextManager.getCacheFor(this.subject);
+
+        cache.supply();
+        this.signalDrivenCalculator.value = "b";
+        assertEquals(new ImmutableContextSetImpl.BuilderImpl().add("server", "b").add("world", "x").build(), cache.supply().context());
+        assertEquals(2, this.signalDrivenCalculator.calls);
+        assertEquals(2, this.pollingCalculator.calls);
+    }
+
+    private static final class Subject {
+        private final UUID uniqueId = UUID.randomUUID();
+    }
+
+    private static class TestCalculator implements ContextCalculator<Subject> {
+        private final String key;
+        private volatile String value;
+        private int calls = 0;
+
+        TestCalculator(String key, String value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public void calculate(@NonNull Subject target, @NonNull ContextConsumer consumer) {
+            this.calls++;
+            consumer.accept(this.key, this.value);
+        }
+    }
+
+    private static final class TestSignalDrivenCalculator extends TestCalculator implements SignalDrivenContextCalculator<Subject> {
+        TestSignalDrivenCalculator(String key, String value) {
+            super(key, value);
+        }
+    }
+
+    private static final class TestContextManager extends ContextManager<Subject, Subject> {
+        private final Map<Subject, QueryOptionsCache<Subject>> caches = new HashMap<>();
+
+        TestContextManager(LuckPermsPlugin plugin) {
+            super(plugin, Subject.class, Subject.class);
+        }
+
+        @Override
+        public UUID getUniqueId(Subject player) {
+            return player.uniqueId;
+        }
+
+        @Override
+        public QueryOptionsCache<Subject> getCacheFor(Subject subject) {
+            return this.caches.computeIfAbsent(subject, s -> new QueryOptionsCache<>(s, this));
+        }
+
+        @Override
+        public QueryOptions formQueryOptions(Subject subject, ImmutableContextSet contextSet) {
+            return formQueryOptions(contextSet);
+        }
+
+        @Override
+        protected void invalidateCache(Subject subject) {
+            getCacheFor(subject).invalidate();
+        }
+    }
+}
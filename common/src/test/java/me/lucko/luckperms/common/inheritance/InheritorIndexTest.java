@@ -0,0 +1,71 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+
+package me.lucko.luckperms.common.inheritance;
+
+import com.google.common.collect.ImmutableSet;
+import me.lucko.luckperms.common.model.HolderType;
+import me.lucko.luckperms.common.model.PermissionHolderIdentifier;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InheritorIndexTest {
+
+    private static final PermissionHolderIdentifier ADMIN = new PermissionHolderIdentifier(HolderType.GROUP, "admin");
+    private static final PermissionHolderIdentifier USER = new PermissionHolderIdentifier(HolderType.USER, "c1d60c50-70b5-4722-8057-87767557e50d");
+
+    @Test
+    public void testUpdate() {
+        InheritorIndex index = new InheritorIndex();
+        index.update(ADMIN, ImmutableSet.of("mod"));
+        index.update(USER, ImmutableSet.of("mod", "default"));
+
+        assertEquals(ImmutableSet.of(ADMIN, USER), index.getInheritors("mod"));
+        assertEquals(ImmutableSet.of(USER), index.getInheritors("default"));
+
+        // groups no longer inherited are dropped
+        index.update(USER, ImmutableSet.of("admin"));
+        assertEquals(ImmutableSet.of(ADMIN), index.getInheritors("mod"));
+        assertTrue(index.getInheritors("default").isEmpty());
+        assertEquals(ImmutableSet.of(USER), index.getInheritors("admin"));
+    }
+
+    @Test
+    public void testRemove() {
+        InheritorIndex index = new InheritorIndex();
+        index.update(ADMIN, ImmutableSet.of("mod"));
+        index.update(USER, ImmutableSet.of("mod"));
+
+        index.remove(USER);
+        assertEquals(ImmutableSet.of(ADMIN), index.getInheritors("mod"));
+
+        index.remove(ADMIN);
+        assertTrue(index.getInheritors("mod").isEmpty());
+    }
+
+}
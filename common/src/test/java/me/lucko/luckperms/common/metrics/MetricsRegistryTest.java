@@ -0,0 +1,136 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void testRegistration() {
+        MetricsRegistry registry = new MetricsRegistry();
+
+        Counter counter = registry.counter("test_total", "test");
+        assertSame(counter, registry.counter("test_total", "test"));
+
+        Counter labelled = registry.counter("test_total", "test", "type", "a");
+        assertTrue(counter != labelled);
+        assertEquals(2, registry.getMetrics("test_total").size());
+
+        assertThrows(IllegalStateException.class, () -> registry.timer("test_total", "test"));
+        assertThrows(IllegalArgumentException.class, () -> registry.counter("other_total", "test", "type"));
+    }
+
+    @Test
+    public void testGaugeRegistration() {
+        MetricsRegistry registry = new MetricsRegistry();
+
+        registry.gauge("test_gauge", "test", () -> 1);
+        registry.gauge("test_gauge", "test", () -> 2);
+        assertEquals(1, registry.getMetrics("test_gauge").size());
+        assertTrue(registry.toPrometheusFormat().contains("luckperms_test_gauge 2\n"));
+
+        // a gauge doesn't replace a metric of another type
+        Counter counter = registry.counter("test_total", "test");
+        assertThrows(IllegalStateException.class, () -> registry.gauge("test_total", "test", () -> 1));
+        assertSame(counter, registry.counter("test_total", "test"));
+        assertSame(counter, registry.getMetrics("test_total").iterator().next());
+    }
+
+    @Test
+    public void testFunctionCounterRegistration() {
+        MetricsRegistry registry = new MetricsRegistry();
+
+        registry.functionCounter("test_total", "test", () -> 1);
+        registry.functionCounter("test_total", "test", () -> 2);
+        assertEquals(1, registry.getMetrics("test_total").size());
+        assertTrue(registry.toPrometheusFormat().contains("# TYPE luckperms_test_total counter\nluckperms_test_total 2\n"));
+
+        // a function counter doesn't replace a counter which is recorded to directly
+        Counter counter = registry.counter("other_total", "test");
+        assertThrows(IllegalStateException.class, () -> registry.functionCounter("other_total", "test", () -> 1));
+        assertSame(counter, registry.counter("other_total", "test"));
+        assertThrows(IllegalStateException.class, () -> registry.counter("test_total", "test"));
+    }
+
+    @Test
+    public void testTimer() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Timer timer = registry.timer("test_time", "test");
+
+        assertEquals(Duration.ZERO, timer.getPercentile(50));
+
+        // 90 events of 2ms, 10 events of 200ms
+        for (int i = 0; i < 90; i++) {
+            timer.record(TimeUnit.MILLISECONDS.toNanos(2));
+        }
+        for (int i = 0; i < 10; i++) {
+            timer.record(TimeUnit.MILLISECONDS.toNanos(200));
+        }
+
+        assertEquals(100, timer.getCount());
+        assertEquals(Duration.ofMillis(200), timer.getMaxTime());
+        assertEquals(Duration.ofMillis(2180).dividedBy(100), timer.getAverageTime());
+
+        // percentiles are interpolated within the bucket they fall in
+        long p50 = timer.getPercentile(50).toNanos();
+        assertTrue(p50 >= TimeUnit.MILLISECONDS.toNanos(1) && p50 < TimeUnit.MILLISECONDS.toNanos(5), () -> "p50 " + p50);
+        long p99 = timer.getPercentile(99).toNanos();
+        assertTrue(p99 >= TimeUnit.MILLISECONDS.toNanos(100) && p99 <= TimeUnit.MILLISECONDS.toNanos(200), () -> "p99 " + p99);
+        assertEquals(Duration.ofMillis(200), timer.getPercentile(100));
+
+        assertThrows(IllegalArgumentException.class, () -> timer.getPercentile(101));
+    }
+
+    @Test
+    public void testPrometheusFormat() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("test_total", "A \"test\" counter", "type", "a\"b").add(3);
+        registry.gauge("test_gauge", "A test gauge", () -> 1.5);
+        registry.timer("test_time", "A test timer").record(TimeUnit.MILLISECONDS.toNanos(2));
+
+        String output = registry.toPrometheusFormat();
+
+        assertTrue(output.contains("# HELP luckperms_test_total A \"test\" counter\n# TYPE luckperms_test_total counter\n"), output);
+        assertTrue(output.contains("luckperms_test_total{type=\"a\\\"b\"} 3\n"), output);
+        assertTrue(output.contains("# TYPE luckperms_test_gauge gauge\nluckperms_test_gauge 1.5\n"), output);
+        assertTrue(output.contains("# TYPE luckperms_test_time_seconds histogram\n"), output);
+        assertTrue(output.contains("luckperms_test_time_seconds_bucket{le=\"0.001\"} 0\n"), output);
+        assertTrue(output.contains("luckperms_test_time_seconds_bucket{le=\"0.005\"} 1\n"), output);
+        assertTrue(output.contains("luckperms_test_time_seconds_bucket{le=\"+Inf\"} 1\n"), output);
+        assertTrue(output.contains("luckperms_test_time_seconds_sum 0.002\n"), output);
+        assertTrue(output.contains("luckperms_test_time_seconds_count 1\n"), output);
+    }
+
+}
@@ -0,0 +1,225 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimaps;
+import me.lucko.luckperms.common.cacheddata.metastack.SimpleMetaStackDefinition;
+import me.lucko.luckperms.common.cacheddata.metastack.StandardStackElements;
+import me.lucko.luckperms.common.cacheddata.result.StringResult;
+import me.lucko.luckperms.common.cacheddata.type.MetaAccumulator;
+import me.lucko.luckperms.common.cacheddata.type.MetaContribution;
+import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.config.LuckPermsConfiguration;
+import me.lucko.luckperms.common.context.ImmutableContextSetImpl;
+import me.lucko.luckperms.common.event.EventDispatcher;
+import me.lucko.luckperms.common.graph.TraversalAlgorithm;
+import me.lucko.luckperms.common.inheritance.InheritanceGraphFactory;
+import me.lucko.luckperms.common.model.manager.group.GroupManager;
+import me.lucko.luckperms.common.model.manager.group.StandardGroupManager;
+import me.lucko.luckperms.common.model.nodemap.NodeMapType;
+import me.lucko.luckperms.common.node.types.Inheritance;
+import me.lucko.luckperms.common.node.types.Meta;
+import me.lucko.luckperms.common.node.types.Prefix;
+import me.lucko.luckperms.common.node.types.Suffix;
+import me.lucko.luckperms.common.node.types.Weight;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.query.QueryOptionsImpl;
+import net.luckperms.api.context.ContextSatisfyMode;
+import net.luckperms.api.metastacking.DuplicateRemovalFunction;
+import net.luckperms.api.model.data.DataType;
+import net.luckperms.api.node.Node;
+import net.luckperms.api.query.QueryOptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+
+@ExtendWith(MockitoExtension.class)
+public class GroupMetaContributionTest {
+
+    private static final QueryOptions GLOBAL = QueryOptionsImpl.DEFAULT_CONTEXTUAL;
+    private static final QueryOptions SERVER_A = QueryOptionsImpl.DEFAULT_CONTEXTUAL.toBuilder()
+            .context(new ImmutableContextSetImpl.BuilderImpl().add("server", "a").build())
+            .build();
+
+    @Mock private LuckPermsPlugin plugin;
+    @Mock private LuckPermsConfiguration configuration;
+
+    private StandardGroupManager groupManager;
+
+    @BeforeEach
+    public void setupMocks() {
+        this.groupManager = new StandardGroupManager(this.plugin);
+
+        //noinspection unchecked,rawtypes
+        lenient().when(this.plugin.getGroupManager()).thenReturn((GroupManager) this.groupManager);
+        lenient().when(this.plugin.getInheritanceGraphFactory()).thenReturn(new InheritanceGraphFactory(this.plugin));
+        lenient().when(this.plugin.getConfiguration()).thenReturn(this.configuration);
+        lenient().when(this.plugin.getEventDispatcher()).thenReturn(mock(EventDispatcher.class));
+        lenient().when(this.configuration.get(ConfigKeys.CONTEXT_SATISFY_MODE)).thenReturn(ContextSatisfyMode.AT_LEAST_ONE_VALUE_PER_KEY);
+        lenient().when(this.configuration.get(ConfigKeys.GROUP_WEIGHTS)).thenReturn(Collections.emptyMap());
+        lenient().when(this.configuration.get(ConfigKeys.NODE_MAP_TYPES)).thenReturn(ImmutableMap.of(HolderType.USER, NodeMapType.CONCURRENT, HolderType.GROUP, NodeMapType.CONCURRENT));
+        lenient().when(this.configuration.get(ConfigKeys.INHERITANCE_TRAVERSAL_ALGORITHM)).thenReturn(TraversalAlgorithm.DEPTH_FIRST_PRE_ORDER);
+        lenient().when(this.configuration.get(ConfigKeys.POST_TRAVERSAL_INHERITANCE_SORT)).thenReturn(false);
+    }
+
+    /*
+     * test
+     * ├── admin (10)
+     * │   └── member (0)
+     * └── vip (5)
+     *     └── member (0)
+     */
+    private Group createGroups() {
+        Group member = this.groupManager.getOrMake("member");
+        member.normalData().add(Prefix.builder("member", 10).build());
+        member.normalData().add(Suffix.builder("!", 10).build());
+        member.normalData().add(Meta.builder("rank", "member").build());
+        member.normalData().add(Meta.builder("colour", "red").build());
+        member.normalData().add(Prefix.builder("member-a", 15).withContext("server", "a").build());
+
+        Group admin = this.groupManager.getOrMake("admin");
+        admin.normalData().add(Inheritance.builder("member").build());
+        admin.normalData().add(Weight.builder(10).build());
+        admin.normalData().add(Prefix.builder("admin", 100).build());
+        admin.normalData().add(Meta.builder("rank", "admin").build());
+        admin.normalData().add(Meta.builder("colour", "red").value(false).build()); // cancels out member's colour
+        admin.normalData().add(Suffix.builder("?", 20).withContext("server", "a").build());
+
+        Group vip = this.groupManager.getOrMake("vip");
+        vip.normalData().add(Inheritance.builder("member").build());
+        vip.normalData().add(Weight.builder(5).build());
+        vip.normalData().add(Prefix.builder("vip", 50).build());
+        vip.normalData().add(Meta.builder("colour", "gold").build());
+
+        Group test = this.groupManager.getOrMake("test");
+        test.normalData().add(Inheritance.builder("admin").build());
+        test.normalData().add(Inheritance.builder("vip").build());
+        test.normalData().add(Prefix.builder("member", 10).value(false).build()); // cancels out member's prefix
+        test.normalData().add(Meta.builder("nickname", "tester").build());
+        return test;
+    }
+
+    private MetaAccumulator accumulate(PermissionHolder holder, QueryOptions queryOptions, boolean shareGroupMeta) {
+        lenient().when(this.configuration.get(ConfigKeys.GROUP_META_CONTRIBUTION_CACHE)).thenReturn(shareGroupMeta);
+
+        SimpleMetaStackDefinition definition = new SimpleMetaStackDefinition(ImmutableList.of(StandardStackElements.HIGHEST, StandardStackElements.LOWEST), DuplicateRemovalFunction.RETAIN_ALL, "[", "|", "]");
+        return holder.accumulateMeta(new MetaAccumulator(definition, definition), queryOptions);
+    }
+
+    private static void assertEquivalent(MetaAccumulator expected, MetaAccumulator actual) {
+        assertEquals(
+                ImmutableListMultimap.copyOf(Multimaps.transformValues(expected.getMeta(), StringResult::result)),
+                ImmutableListMultimap.copyOf(Multimaps.transformValues(actual.getMeta(), StringResult::result))
+        );
+        assertEquals(
+                ImmutableSortedMap.copyOfSorted(Maps.transformValues(expected.getPrefixes(), StringResult::result)),
+                ImmutableSortedMap.copyOfSorted(Maps.transformValues(actual.getPrefixes(), StringResult::result))
+        );
+        assertEquals(
+                ImmutableSortedMap.copyOfSorted(Maps.transformValues(expected.getSuffixes(), StringResult::result)),
+                ImmutableSortedMap.copyOfSorted(Maps.transformValues(actual.getSuffixes(), StringResult::result))
+        );
+        assertEquals(expected.getPrefix().result(), actual.getPrefix().result());
+        assertEquals(expected.getSuffix().result(), actual.getSuffix().result());
+        assertEquals(expected.getWeight().intResult(), actual.getWeight().intResult());
+    }
+
+    @Test
+    public void testEquivalentToUncached() {
+        Group test = createGroups();
+
+        for (QueryOptions queryOptions : ImmutableList.of(GLOBAL, SERVER_A)) {
+            MetaAccumulator expected = accumulate(test, queryOptions, false);
+
+            // twice, so the second run uses the cached contributions
+            assertEquivalent(expected, accumulate(test, queryOptions, true));
+            assertEquivalent(expected, accumulate(test, queryOptions, true));
+        }
+
+        MetaAccumulator global = accumulate(test, GLOBAL, true);
+        assertEquals("[admin|vip]", global.getPrefix().result());
+        assertEquals("[admin]", global.getMeta().get("rank").get(0).result());
+        assertEquals("gold", global.getMeta().get("colour").get(0).result());
+
+        MetaAccumulator serverA = accumulate(test, SERVER_A, true);
+        assertEquals("[?|!]", serverA.getSuffix().result());
+    }
+
+    @Test
+    public void testContributionCachedPerQueryOptions() {
+        createGroups();
+        Group member = this.groupManager.getIfLoaded("member");
+
+        MetaContribution global = member.getMetaContribution(GLOBAL);
+        MetaContribution serverA = member.getMetaContribution(SERVER_A);
+        assertSame(global, member.getMetaContribution(GLOBAL));
+        assertSame(serverA, member.getMetaContribution(SERVER_A));
+        assertEquals(4, global.getNodes().size());
+        assertEquals(5, serverA.getNodes().size());
+    }
+
+    @Test
+    public void testContributionInvalidatedOnChange() {
+        Group test = createGroups();
+        Group member = this.groupManager.getIfLoaded("member");
+
+        MetaContribution before = member.getMetaContribution(GLOBAL);
+        accumulate(test, GLOBAL, true);
+
+        Node node = Meta.builder("title", "newbie").build();
+        member.setNode(DataType.NORMAL, node, false);
+
+        MetaContribution after = member.getMetaContribution(GLOBAL);
+        assertNotSame(before, after);
+        assertTrue(after.getNodes().contains(node));
+
+        MetaAccumulator accumulator = accumulate(test, GLOBAL, true);
+        assertEquals("newbie", accumulator.getMeta().get("title").get(0).result());
+        assertEquivalent(accumulate(test, GLOBAL, false), accumulator);
+
+        member.unsetNode(DataType.NORMAL, node);
+        List<Node> nodes = member.getMetaContribution(GLOBAL).getNodes();
+        assertEquals(before.getNodes(), nodes);
+    }
+
+}
@@ -25,6 +25,7 @@
 
 package me.lucko.luckperms.common.model;
 
+import com.google.common.collect.ImmutableMap;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.config.LuckPermsConfiguration;
 import me.lucko.luckperms.common.event.EventDispatcher;
@@ -32,6 +33,7 @@ import me.lucko.luckperms.common.graph.TraversalAlgorithm;
 import me.lucko.luckperms.common.inheritance.InheritanceGraphFactory;
 import me.lucko.luckperms.common.model.manager.group.GroupManager;
 import me.lucko.luckperms.common.model.manager.group.StandardGroupManager;
+import me.lucko.luckperms.common.model.nodemap.NodeMapType;
 import me.lucko.luckperms.common.node.types.Inheritance;
 import me.lucko.luckperms.common.node.types.Weight;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
@@ -73,6 +75,7 @@ public class InheritanceTest {
         lenient().when(this.plugin.getEventDispatcher()).thenReturn(mock(EventDispatcher.class));
         lenient().when(this.configuration.get(ConfigKeys.CONTEXT_SATISFY_MODE)).thenReturn(ContextSatisfyMode.AT_LEAST_ONE_VALUE_PER_KEY);
         lenient().when(this.configuration.get(ConfigKeys.GROUP_WEIGHTS)).thenReturn(Collections.emptyMap());
+        lenient().when(this.configuration.get(ConfigKeys.NODE_MAP_TYPES)).thenReturn(ImmutableMap.of(HolderType.USER, NodeMapType.CONCURRENT, HolderType.GROUP, NodeMapType.CONCURRENT));
     }
 
     /*
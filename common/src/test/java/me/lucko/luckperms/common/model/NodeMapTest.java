@@ -29,6 +29,8 @@ import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import me.lucko.luckperms.common.context.ImmutableContextSetImpl;
+import me.lucko.luckperms.common.model.nodemap.NodeMap;
+import me.lucko.luckperms.common.model.nodemap.NodeMapCopyOnWrite;
 import me.lucko.luckperms.common.model.nodemap.NodeMapMutable;
 import me.lucko.luckperms.common.node.factory.NodeBuilders;
 import me.lucko.luckperms.common.query.QueryOptionsBuilderImpl;
@@ -52,6 +54,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
@@ -59,6 +62,7 @@ import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -324,5 +328,190 @@ public class NodeMapTest {
         assertEquals(expectedInheritance, inheritanceOutput.size());
     }
 
+    @Test
+    public void testContextFilteringAfterChanges() {
+        NodeMapMutable map = new NodeMapMutable(this.mockHolder, DataType.NORMAL) {
+            @Override
+            protected ContextSatisfyMode defaultSatisfyMode() {
+                return ContextSatisfyMode.AT_LEAST_ONE_VALUE_PER_KEY;
+            }
+        };
+
+        QueryOptions options = new QueryOptionsBuilderImpl(QueryMode.CONTEXTUAL)
+                .context(new ImmutableContextSetImpl.BuilderImpl().add("server", "test").build())
+                .build();
+
+        map.add(makeNode("test1"));
+        map.add(makeNode("test2").toBuilder().withContext("server", "other").build());
+
+        Set<Node> output = new HashSet<>();
+        map.copyTo(output, options);
+        assertEquals(1, output.size());
+
+        // adding a node in a new context should be reflected in subsequent queries with the same options
+        map.add(makeNode("test3").toBuilder().withContext("server", "test").build());
+        output.clear();
+        map.copyTo(output, options);
+        assertEquals(2, output.size());
+
+        map.clear(new ImmutableContextSetImpl.BuilderImpl().add("server", "test").build());
+        output.clear();
+        map.copyTo(output, options);
+        assertEquals(1, output.size());
+
+        map.clear();
+        output.clear();
+        map.copyTo(output, options);
+        assertEquals(0, output.size());
+    }
+
+    @Test
+    public void testCopyOnWriteMatchesMutable() {
+        NodeMap mutable = new NodeMapMutable(this.mockHolder, DataType.NORMAL) {
+            @Override
+            protected ContextSatisfyMode defaultSatisfyMode() {
+                return ContextSatisfyMode.AT_LEAST_ONE_VALUE_PER_KEY;
+            }
+        };
+        NodeMap copyOnWrite = new NodeMapCopyOnWrite(this.mockHolder, DataType.NORMAL) {
+            @Override
+            protected ContextSatisfyMode defaultSatisfyMode() {
+                return ContextSatisfyMode.AT_LEAST_ONE_VALUE_PER_KEY;
+            }
+        };
+
+        Node server = makeNode("test2").toBuilder().withContext("server", "test").build();
+        Node temporary = makeNode("test3").toBuilder().expiry(1, TimeUnit.HOURS).build();
+
+        for (NodeMap map : ImmutableList.of(mutable, copyOnWrite)) {
+            map.addAll(ImmutableList.of(
+                    makeNode("test1"),
+                    server,
+                    temporary,
+                    makeNode("group.test1"),
+                    makeNode("group.test2").toBuilder().withContext("world", "test").build()
+            ));
+            map.add(makeNode("test1").toBuilder().value(false).build());
+            map.remove(server);
+            map.removeExact(temporary);
+            map.removeIf(n -> n.getKey().equals("group.test2"));
+            map.add(makeNode("test4").toBuilder().withContext("server", "test").build());
+        }
+
+        assertEquals(mutable.asList(), copyOnWrite.asList());
+        List<InheritanceNode> expectedInheritance = new ArrayList<>();
+        mutable.copyInheritanceNodesTo(expectedInheritance);
+        List<InheritanceNode> actualInheritance = new ArrayList<>();
+        copyOnWrite.copyInheritanceNodesTo(actualInheritance);
+        assertEquals(expectedInheritance, actualInheritance);
+
+        QueryOptions options = new QueryOptionsBuilderImpl(QueryMode.CONTEXTUAL)
+                .context(new ImmutableContextSetImpl.BuilderImpl().add("server", "test").build())
+                .build();
+
+        List<Node> expected = new ArrayList<>();
+        mutable.copyTo(expected, options);
+        List<Node> actual = new ArrayList<>();
+        copyOnWrite.copyTo(actual, options);
+        assertEquals(expected, actual);
+        assertEquals(3, actual.size());
+
+        copyOnWrite.clear();
+        assertEquals(0, copyOnWrite.size());
+    }
+
+    @Test
+    public void testEarliestExpiry() {
+        NodeMap mutable = new NodeMapMutable(this.mockHolder, DataType.NORMAL);
+        NodeMap copyOnWrite = new NodeMapCopyOnWrite(this.mockHolder, DataType.NORMAL);
+
+        Node hour = makeNode("test1").toBuilder().expiry(1, TimeUnit.HOURS).build();
+        Node day = makeNode("test2").toBuilder().expiry(1, TimeUnit.DAYS).build();
+        Node dayInContext = makeNode("test3").toBuilder().expiry(1, TimeUnit.DAYS).withContext("server", "test").build();
+        Node minute = makeNode("test2").toBuilder().expiry(1, TimeUnit.MINUTES).build();
+
+        for (NodeMap map : ImmutableList.of(mutable, copyOnWrite)) {
+            assertNull(map.earliestExpiry());
+
+            map.add(makeNode("permanent"));
+            assertNull(map.earliestExpiry());
+
+            map.addAll(ImmutableList.of(day, hour, dayInContext));
+            assertEquals(hour.getExpiry(), map.earliestExpiry());
+
+            map.removeExact(hour);
+            assertEquals(day.getExpiry(), map.earliestExpiry());
+
+            // replacing a node with a different expiry time
+            map.add(minute);
+            assertEquals(minute.getExpiry(), map.earliestExpiry());
+
+            map.remove(minute);
+            assertEquals(dayInContext.getExpiry(), map.earliestExpiry());
+
+            map.clear(dayInContext.getContexts());
+            assertNull(map.earliestExpiry());
+
+            map.setContent(ImmutableList.of(makeNode("permanent"), hour));
+            assertEquals(hour.getExpiry(), map.earliestExpiry());
+
+            map.removeIf(Node::hasExpiry);
+            assertNull(map.earliestExpiry());
+
+            map.add(day);
+            map.clear();
+            assertNull(map.earliestExpiry());
+        }
+    }
+
+    @Test
+    public void testContextFilteringWithManyQueryContexts() {
+        NodeMapMutable map = new NodeMapMutable(this.mockHolder, DataType.NORMAL) {
+            @Override
+            protected ContextSatisfyMode defaultSatisfyMode() {
+                return ContextSatisfyMode.AT_LEAST_ONE_VALUE_PER_KEY;
+            }
+        };
+
+        map.add(makeNode("global"));
+        map.add(makeNode("world1").toBuilder().withContext("world", "world1").build());
+        map.add(makeNode("world2").toBuilder().withContext("world", "world2").build());
+        map.add(makeNode("world1-or-2").toBuilder().withContext("world", "world1").withContext("world", "world2").build());
+        map.add(makeNode("world1-survival").toBuilder().withContext("world", "world1").withContext("gamemode", "survival").build());
+
+        // more distinct query contexts than the index memoizes, differing in pairs unused by the map
+        for (int i = 0; i < 500; i++) {
+            String world = "world" + (i % 3);
+            ImmutableContextSetImpl.BuilderImpl context = new ImmutableContextSetImpl.BuilderImpl()
+                    .add("world", world)
+                    .add("player", "player" + i);
+            if (i % 2 == 0) {
+                context.add("gamemode", "survival");
+            }
+
+            QueryOptions options = new QueryOptionsBuilderImpl(QueryMode.CONTEXTUAL).context(context.build()).build();
+            Set<Node> output = new HashSet<>();
+            map.copyTo(output, options);
+
+            Set<String> expected = new HashSet<>();
+            expected.add("global");
+            if (world.equals("world1")) {
+                expected.add("world1");
+                expected.add("world1-or-2");
+                if (i % 2 == 0) {
+                    expected.add("world1-survival");
+                }
+            } else if (world.equals("world2")) {
+                expected.add("world2");
+                expected.add("world1-or-2");
+            }
+
+            Set<String> actual = new HashSet<>();
+            for (Node node : output) {
+                actual.add(node.getKey());
+            }
+            assertEquals(expected, actual, "query " + i);
+        }
+    }
 
 }
@@ -0,0 +1,253 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.model;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.config.LuckPermsConfiguration;
+import me.lucko.luckperms.common.event.EventDispatcher;
+import me.lucko.luckperms.common.metrics.MetricsRegistry;
+import me.lucko.luckperms.common.model.manager.user.OfflineUserCache;
+import me.lucko.luckperms.common.model.manager.user.StandardUserManager;
+import me.lucko.luckperms.common.model.manager.user.UserManager;
+import me.lucko.luckperms.common.model.manager.user.UserSnapshotImpl;
+import me.lucko.luckperms.common.model.nodemap.NodeMapType;
+import me.lucko.luckperms.common.node.types.Permission;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.plugin.bootstrap.LuckPermsBootstrap;
+import me.lucko.luckperms.common.plugin.scheduler.SchedulerAdapter;
+import me.lucko.luckperms.common.storage.Storage;
+import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
+import net.luckperms.api.node.Node;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class OfflineUserCacheTest {
+
+    private static final Node PERMISSION = Permission.builder().permission("test.offline").build();
+
+    @Mock private LuckPermsPlugin plugin;
+    @Mock private LuckPermsBootstrap bootstrap;
+    @Mock private LuckPermsConfiguration configuration;
+    @Mock private SchedulerAdapter scheduler;
+    @Mock private EventDispatcher eventDispatcher;
+    @Mock private StorageImplementation implementation;
+
+    private StandardUserManager userManager;
+    private OfflineUserCache cache;
+
+    // run storage operations on a separate thread, so loads can be held up by the tests
+    private final Executor executor = runnable -> new Thread(runnable).start();
+
+    @BeforeEach
+    public void setupMocks() {
+        lenient().when(this.plugin.getBootstrap()).thenReturn(this.bootstrap);
+        lenient().when(this.plugin.getConfiguration()).thenReturn(this.configuration);
+        lenient().when(this.plugin.getEventDispatcher()).thenReturn(this.eventDispatcher);
+        lenient().when(this.plugin.getMetrics()).thenReturn(new MetricsRegistry());
+        lenient().when(this.bootstrap.getScheduler()).thenReturn(this.scheduler);
+        lenient().when(this.scheduler.async()).thenReturn(this.executor);
+        lenient().when(this.configuration.get(ConfigKeys.PRIMARY_GROUP_CALCULATION)).thenReturn(PrimaryGroupHolder.AllParentsByWeight::new);
+        lenient().when(this.configuration.get(ConfigKeys.NODE_MAP_TYPES)).thenReturn(ImmutableMap.of(HolderType.USER, NodeMapType.CONCURRENT, HolderType.GROUP, NodeMapType.CONCURRENT));
+        lenient().when(this.configuration.get(ConfigKeys.OFFLINE_USER_CACHE_SIZE)).thenReturn(100);
+        lenient().when(this.configuration.get(ConfigKeys.OFFLINE_USER_CACHE_REFRESH_INTERVAL)).thenReturn(60);
+        lenient().when(this.configuration.get(ConfigKeys.LOG_QUEUE_CAPACITY)).thenReturn(10);
+        lenient().when(this.configuration.get(ConfigKeys.LOG_QUEUE_BATCH_SIZE)).thenReturn(10);
+        lenient().when(this.configuration.get(ConfigKeys.LOG_QUEUE_FLUSH_INTERVAL)).thenReturn(500);
+        lenient().when(this.configuration.get(ConfigKeys.STORAGE_SLOW_OPERATION_THRESHOLD)).thenReturn(0);
+
+        this.userManager = new StandardUserManager(this.plugin);
+        //noinspection unchecked,rawtypes
+        lenient().when(this.plugin.getUserManager()).thenReturn((UserManager) this.userManager);
+        lenient().when(this.plugin.getStorage()).thenReturn(new Storage(this.plugin, this.implementation));
+
+        this.cache = this.userManager.getOfflineUserCache();
+    }
+
+    private User detachedUser(UUID uniqueId, Node... nodes) {
+        User user = new User(uniqueId, this.plugin);
+        for (Node node : nodes) {
+            user.normalData().add(node);
+        }
+        return user;
+    }
+
+    @Test
+    public void testConcurrentRequestsShareLoad() throws Exception {
+        UUID uniqueId = UUID.randomUUID();
+        User user = detachedUser(uniqueId, PERMISSION);
+
+        CountDownLatch latch = new CountDownLatch(1);
+        when(this.implementation.loadDetachedUser(uniqueId)).then(invocation -> {
+            latch.await();
+            return user;
+        });
+
+        CompletableFuture<UserSnapshotImpl> first = this.cache.get(uniqueId);
+        CompletableFuture<UserSnapshotImpl> second = this.cache.get(uniqueId);
+        assertNull(this.cache.getIfReady(uniqueId));
+        assertFalse(first.isDone());
+
+        latch.countDown();
+        UserSnapshotImpl snapshot = first.get(5, TimeUnit.SECONDS);
+        assertSame(snapshot, second.get(5, TimeUnit.SECONDS));
+        assertSame(snapshot, this.cache.getIfReady(uniqueId));
+        assertEquals(ImmutableSet.of(PERMISSION), ImmutableSet.copyOf(snapshot.getNodes()));
+
+        verify(this.implementation, times(1)).loadDetachedUser(uniqueId);
+        verify(this.implementation, never()).loadUser(any(), any());
+
+        // the user isn't loaded, and no load event is fired
+        assertNull(this.userManager.getIfLoaded(uniqueId));
+        verify(this.eventDispatcher, never()).dispatchUserLoad(any());
+    }
+
+    @Test
+    public void testLoadedUserBypassesCache() throws Exception {
+        UUID uniqueId = UUID.randomUUID();
+        User loaded = this.userManager.getOrMake(uniqueId);
+
+        UserSnapshotImpl snapshot = this.cache.get(uniqueId).get(5, TimeUnit.SECONDS);
+        verify(this.implementation, never()).loadDetachedUser(any());
+
+        // the snapshot is a view of the live data
+        loaded.normalData().add(PERMISSION);
+        assertTrue(snapshot.getNodes().contains(PERMISSION));
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        UUID uniqueId = UUID.randomUUID();
+        Node other = Permission.builder().permission("test.other").build();
+        when(this.implementation.loadDetachedUser(uniqueId)).thenReturn(detachedUser(uniqueId, PERMISSION), detachedUser(uniqueId, other));
+
+        UserSnapshotImpl snapshot = this.cache.get(uniqueId).get(5, TimeUnit.SECONDS);
+        assertSame(snapshot, this.cache.get(uniqueId).get(5, TimeUnit.SECONDS));
+        assertEquals(ImmutableSet.of(PERMISSION), ImmutableSet.copyOf(snapshot.getNodes()));
+
+        this.cache.invalidate(uniqueId);
+        snapshot = this.cache.get(uniqueId).get(5, TimeUnit.SECONDS);
+        assertEquals(ImmutableSet.of(other), ImmutableSet.copyOf(snapshot.getNodes()));
+        verify(this.implementation, times(2)).loadDetachedUser(uniqueId);
+    }
+
+    @Test
+    public void testSaveUserInvalidates() throws Exception {
+        UUID uniqueId = UUID.randomUUID();
+        Node other = Permission.builder().permission("test.other").build();
+        when(this.implementation.loadDetachedUser(uniqueId)).thenReturn(detachedUser(uniqueId, PERMISSION), detachedUser(uniqueId, other));
+
+        UserSnapshotImpl snapshot = this.cache.get(uniqueId).get(5, TimeUnit.SECONDS);
+        assertEquals(ImmutableSet.of(PERMISSION), ImmutableSet.copyOf(snapshot.getNodes()));
+
+        this.plugin.getStorage().saveUser(detachedUser(uniqueId, other)).get(5, TimeUnit.SECONDS);
+
+        snapshot = this.cache.get(uniqueId).get(5, TimeUnit.SECONDS);
+        assertEquals(ImmutableSet.of(other), ImmutableSet.copyOf(snapshot.getNodes()));
+        verify(this.implementation, times(2)).loadDetachedUser(uniqueId);
+    }
+
+    @Test
+    public void testInvalidateAllUserCachesDiscardsSnapshots() throws Exception {
+        UUID uniqueId = UUID.randomUUID();
+        when(this.implementation.loadDetachedUser(uniqueId)).then(invocation -> detachedUser(uniqueId, PERMISSION));
+
+        UserSnapshotImpl snapshot = this.cache.get(uniqueId).get(5, TimeUnit.SECONDS);
+        assertSame(snapshot, this.cache.get(uniqueId).get(5, TimeUnit.SECONDS));
+
+        // e.g. after a group has been modified
+        this.userManager.invalidateAllUserCaches();
+        assertNotSame(snapshot, this.cache.get(uniqueId).get(5, TimeUnit.SECONDS));
+        verify(this.implementation, times(2)).loadDetachedUser(uniqueId);
+
+        // or a user update message for the offline user is received
+        snapshot = this.cache.get(uniqueId).get(5, TimeUnit.SECONDS);
+        this.userManager.invalidateOfflineUser(uniqueId);
+        assertNotSame(snapshot, this.cache.get(uniqueId).get(5, TimeUnit.SECONDS));
+        verify(this.implementation, times(3)).loadDetachedUser(uniqueId);
+    }
+
+    @Test
+    public void testFallbackToRegisteredUser() throws Exception {
+        UUID uniqueId = UUID.randomUUID();
+
+        // an implementation which doesn't support detached loads registers the user
+        when(this.implementation.loadDetachedUser(uniqueId)).then(invocation -> {
+            User user = this.userManager.getOrMake(uniqueId);
+            user.normalData().add(PERMISSION);
+            return user;
+        });
+
+        UserSnapshotImpl snapshot = this.cache.get(uniqueId).get(5, TimeUnit.SECONDS);
+        User registered = this.userManager.getIfLoaded(uniqueId);
+        assertNotNull(registered);
+
+        // the snapshot is a copy, so doesn't change with the registered user
+        registered.normalData().add(Permission.builder().permission("test.other").build());
+        assertEquals(ImmutableSet.of(PERMISSION), ImmutableSet.copyOf(snapshot.getNodes()));
+    }
+
+    @Test
+    public void testStats() throws Exception {
+        UUID uniqueId = UUID.randomUUID();
+        when(this.implementation.loadDetachedUser(uniqueId)).thenReturn(detachedUser(uniqueId));
+
+        this.cache.get(uniqueId).get(5, TimeUnit.SECONDS);
+        this.cache.get(uniqueId).get(5, TimeUnit.SECONDS);
+        this.cache.get(uniqueId).get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, this.cache.size());
+        assertEquals(1, this.cache.getStats().missCount());
+        assertEquals(2, this.cache.getStats().hitCount());
+    }
+
+}
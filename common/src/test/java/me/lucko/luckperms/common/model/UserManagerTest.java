@@ -26,10 +26,13 @@
 package me.lucko.luckperms.common.model;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.config.LuckPermsConfiguration;
 import me.lucko.luckperms.common.event.EventDispatcher;
 import me.lucko.luckperms.common.model.manager.user.StandardUserManager;
+import me.lucko.luckperms.common.model.manager.user.UserManager;
+import me.lucko.luckperms.common.model.nodemap.NodeMapType;
 import me.lucko.luckperms.common.node.types.Inheritance;
 import me.lucko.luckperms.common.node.types.Permission;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
@@ -46,9 +49,12 @@ import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 public class UserManagerTest {
@@ -65,6 +71,7 @@ public class UserManagerTest {
         lenient().when(this.bootstrap.getScheduler()).thenReturn(mock(SchedulerAdapter.class));
         lenient().when(this.configuration.get(ConfigKeys.PRIMARY_GROUP_CALCULATION)).thenReturn(PrimaryGroupHolder.AllParentsByWeight::new);
         lenient().when(this.configuration.get(ConfigKeys.PRIMARY_GROUP_CALCULATION_METHOD)).thenReturn("parents-by-weight");
+        lenient().when(this.configuration.get(ConfigKeys.NODE_MAP_TYPES)).thenReturn(ImmutableMap.of(HolderType.USER, NodeMapType.CONCURRENT, HolderType.GROUP, NodeMapType.CONCURRENT));
     }
 
     @Test
@@ -110,4 +117,66 @@ public class UserManagerTest {
         assertFalse(manager.isDefaultNode(Permission.builder().permission("hello").build()));
     }
 
+    private StandardUserManager registerUserManager() {
+        StandardUserManager manager = new StandardUserManager(this.plugin);
+        //noinspection unchecked,rawtypes
+        when(this.plugin.getUserManager()).thenReturn((UserManager) manager);
+        return manager;
+    }
+
+    @Test
+    public void testGetByUsername() {
+        StandardUserManager manager = registerUserManager();
+        User user = manager.getOrMake(UUID.randomUUID(), "Luck");
+
+        assertSame(user, manager.getByUsername("Luck"));
+        assertSame(user, manager.getByUsername("luck"));
+        assertNull(manager.getByUsername("Notch"));
+
+        // renaming moves the index entry
+        user.setUsername("Notch", false);
+        assertNull(manager.getByUsername("Luck"));
+        assertSame(user, manager.getByUsername("notch"));
+
+        // unloading removes it
+        manager.unload(user.getUniqueId());
+        assertNull(manager.getByUsername("Notch"));
+    }
+
+    @Test
+    public void testGetByUsernameSharedName() {
+        StandardUserManager manager = registerUserManager();
+
+        // two loaded users briefly hold the same name, e.g. before the old holder's name is updated
+        User first = manager.getOrMake(UUID.randomUUID(), "Luck");
+        User second = manager.getOrMake(UUID.randomUUID(), "Luck");
+
+        // either user changing their name must not remove the other's entry
+        second.setUsername("Notch", false);
+        assertSame(first, manager.getByUsername("Luck"));
+        assertSame(second, manager.getByUsername("Notch"));
+
+        second.setUsername("Luck", false);
+        first.setUsername("Notch", false);
+        assertSame(second, manager.getByUsername("Luck"));
+        assertSame(first, manager.getByUsername("Notch"));
+
+        // neither must unloading a user which shares the name
+        first.setUsername("Luck", false);
+        manager.unload(first.getUniqueId());
+        assertSame(second, manager.getByUsername("Luck"));
+
+        manager.unload(second.getUniqueId());
+        assertNull(manager.getByUsername("Luck"));
+    }
+
+    @Test
+    public void testGetByUsernameIgnoresDetachedUsers() {
+        StandardUserManager manager = registerUserManager();
+
+        User detached = new User(UUID.randomUUID(), this.plugin);
+        detached.setUsername("Luck", false);
+        assertNull(manager.getByUsername("Luck"));
+    }
+
 }
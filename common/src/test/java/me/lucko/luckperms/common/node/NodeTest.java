@@ -43,7 +43,9 @@ import java.util.UUID;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -149,4 +151,19 @@ public class NodeTest {
         assertThrows(IllegalStateException.class, () -> node.metadata(key4));
     }
 
+    @Test
+    public void testInterned() {
+        Node a = Permission.builder().interned().permission(new String("hello.world")).withContext("server", "survival").build();
+        Node b = Permission.builder().interned().permission(new String("hello.world")).withContext("server", "survival").build();
+        assertEquals(a, b);
+        assertSame(a.getKey(), b.getKey());
+        assertSame(a.getContexts(), b.getContexts());
+
+        // nodes which aren't interned don't share their parts
+        Node c = Permission.builder().permission(new String("hello.world")).withContext("server", "survival").build();
+        assertEquals(a, c);
+        assertNotSame(a.getKey(), c.getKey());
+        assertNotSame(a.getContexts(), c.getContexts());
+    }
+
 }
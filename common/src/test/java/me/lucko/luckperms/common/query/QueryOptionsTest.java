@@ -25,6 +25,8 @@
 
 package me.lucko.luckperms.common.query;
 
+import me.lucko.luckperms.common.context.ImmutableContextSetImpl;
+import net.luckperms.api.context.ImmutableContextSet;
 import net.luckperms.api.query.Flag;
 import net.luckperms.api.query.QueryMode;
 import net.luckperms.api.query.QueryOptions;
@@ -32,6 +34,7 @@ import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -59,4 +62,20 @@ public class QueryOptionsTest {
         }
     }
 
+    @Test
+    public void testIntern() {
+        ImmutableContextSet context = new ImmutableContextSetImpl.BuilderImpl().add("world", "nether").add("server", "test").build();
+        QueryOptions first = new QueryOptionsBuilderImpl(QueryMode.CONTEXTUAL).context(context).build();
+        QueryOptions second = new QueryOptionsBuilderImpl(QueryMode.CONTEXTUAL).context(new ImmutableContextSetImpl.BuilderImpl().add("server", "test").add("world", "nether").build()).build();
+
+        assertEquals(first, second);
+        assertNotSame(first, second);
+
+        QueryOptions canonical = QueryOptionsImpl.intern(first);
+        assertSame(canonical, QueryOptionsImpl.intern(second));
+        assertSame(canonical.context(), ImmutableContextSetImpl.intern(context));
+
+        assertSame(QueryOptionsImpl.DEFAULT_CONTEXTUAL, QueryOptionsImpl.intern(QueryOptionsImpl.DEFAULT_CONTEXTUAL));
+    }
+
 }
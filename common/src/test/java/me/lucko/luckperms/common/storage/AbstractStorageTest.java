@@ -26,6 +26,7 @@
 package me.lucko.luckperms.common.storage;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.actionlog.LoggedAction;
@@ -35,12 +36,14 @@ import me.lucko.luckperms.common.config.LuckPermsConfiguration;
 import me.lucko.luckperms.common.event.EventDispatcher;
 import me.lucko.luckperms.common.filter.PageParameters;
 import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.HolderType;
 import me.lucko.luckperms.common.model.PrimaryGroupHolder;
 import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.model.manager.group.GroupManager;
 import me.lucko.luckperms.common.model.manager.group.StandardGroupManager;
 import me.lucko.luckperms.common.model.manager.user.StandardUserManager;
 import me.lucko.luckperms.common.model.manager.user.UserManager;
+import me.lucko.luckperms.common.model.nodemap.NodeMapType;
 import me.lucko.luckperms.common.node.types.Inheritance;
 import me.lucko.luckperms.common.node.types.Permission;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
@@ -62,6 +65,8 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
@@ -98,6 +103,8 @@ public abstract class AbstractStorageTest {
         lenient().when(this.bootstrap.getScheduler()).thenReturn(mock(SchedulerAdapter.class));
         lenient().when(this.configuration.get(ConfigKeys.PRIMARY_GROUP_CALCULATION)).thenReturn(PrimaryGroupHolder.AllParentsByWeight::new);
         lenient().when(this.configuration.get(ConfigKeys.PRIMARY_GROUP_CALCULATION_METHOD)).thenReturn("parents-by-weight");
+        lenient().when(this.configuration.get(ConfigKeys.LOG_APPROXIMATE_COUNT)).thenReturn(false);
+        lenient().when(this.configuration.get(ConfigKeys.NODE_MAP_TYPES)).thenReturn(ImmutableMap.of(HolderType.USER, NodeMapType.CONCURRENT, HolderType.GROUP, NodeMapType.CONCURRENT));
         lenient().when(this.bootstrap.getResourceStream(anyString()))
                 .then(answer((String path) -> AbstractStorageTest.class.getClassLoader().getResourceAsStream(path)));
         lenient().when(this.plugin.getEventDispatcher()).thenReturn(mock(EventDispatcher.class));
@@ -228,6 +235,99 @@ public abstract class AbstractStorageTest {
         assertEquals(300, page.getContent().size());
     }
 
+    @Test
+    public void testGetLogNextPage() throws Exception {
+        Instant baseTime = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        Function<Integer, LoggedAction> mockAction = i -> LoggedAction.build()
+                .source(UUID.randomUUID())
+                .sourceName("Test Source")
+                .targetType(Action.Target.Type.GROUP)
+                .targetName("test_group")
+                .description("next page test " + i)
+                .timestamp(baseTime.minusSeconds(100 - i))
+                .build();
+
+        for (int i = 0; i < 10; i++) {
+            this.storage.logAction(mockAction.apply(i));
+        }
+
+        LogPage page = this.storage.getLogPage(ActionFilters.group("test_group"), new PageParameters(3, 1));
+        assertEquals(
+                ImmutableList.of("next page test 9", "next page test 8", "next page test 7"),
+                page.getContent().stream().map(LoggedAction::getDescription).collect(Collectors.toList())
+        );
+
+        PageParameters next = page.getNextPage();
+        assertNotNull(next);
+        assertEquals(2, next.pageNumber());
+
+        // a new entry written between page reads only shifts offset based pages
+        this.storage.logAction(mockAction.apply(10));
+
+        page = this.storage.getLogPage(ActionFilters.group("test_group"), next);
+        assertEquals(11, page.getTotalEntries());
+        assertEquals(
+                next.after() != null
+                        ? ImmutableList.of("next page test 6", "next page test 5", "next page test 4")
+                        : ImmutableList.of("next page test 7", "next page test 6", "next page test 5"),
+                page.getContent().stream().map(LoggedAction::getDescription).collect(Collectors.toList())
+        );
+        List<Integer> positions = page.getNumberedContent().stream().map(LogPage.Entry::position).collect(Collectors.toList());
+        assertEquals(ImmutableList.of(4, 5, 6), positions);
+    }
+
+    @Test
+    public void testPruneLog() throws Exception {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        Function<Integer, LoggedAction> mockAction = i -> LoggedAction.build()
+                .source(UUID.randomUUID())
+                .sourceName("Test Source")
+                .targetType(Action.Target.Type.GROUP)
+                .targetName("test_group")
+                .description("prune test " + i)
+                .timestamp(now.minus(i, ChronoUnit.DAYS))
+                .build();
+
+        for (int i = 0; i < 10; i++) {
+            this.storage.logAction(mockAction.apply(i));
+        }
+
+        int removed = this.storage.pruneLog(now.minus(5, ChronoUnit.DAYS).minusSeconds(1));
+        assertEquals(4, removed);
+
+        LogPage page = this.storage.getLogPage(ActionFilters.group("test_group"), new PageParameters(2, 2));
+        assertEquals(6, page.getTotalEntries());
+        assertEquals(
+                ImmutableList.of("prune test 2", "prune test 3"),
+                page.getContent().stream().map(LoggedAction::getDescription).collect(Collectors.toList())
+        );
+    }
+
+    @Test
+    public void testLogActionsBatch() throws Exception {
+        Instant baseTime = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        List<Action> batch = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            batch.add(LoggedAction.build()
+                    .source(UUID.randomUUID())
+                    .sourceName("Test Source")
+                    .targetType(Action.Target.Type.TRACK)
+                    .targetName("test_track")
+                    .description("batch test " + i)
+                    .timestamp(baseTime.plusSeconds(i))
+                    .build());
+        }
+
+        this.storage.logActions(batch);
+
+        LogPage page = this.storage.getLogPage(ActionFilters.track("test_track"), new PageParameters(5, 1));
+        assertEquals(25, page.getTotalEntries());
+        assertEquals(
+                ImmutableList.of("batch test 24", "batch test 23", "batch test 22", "batch test 21", "batch test 20"),
+                page.getContent().stream().map(LoggedAction::getDescription).collect(Collectors.toList())
+        );
+    }
+
     @Test
     public void testSavePlayerData() throws Exception {
         UUID uniqueId = UUID.randomUUID();
@@ -358,4 +458,35 @@ public abstract class AbstractStorageTest {
         assertEquals(ImmutableSet.of(defaultGroupNode, examplePermission), user.normalData().asSet());
     }
 
+    @Test
+    public void testLoadDetachedUser() throws Exception {
+        StandardUserManager userManager = new StandardUserManager(this.plugin);
+
+        //noinspection unchecked,rawtypes
+        when(this.plugin.getUserManager()).thenReturn((UserManager) userManager);
+
+        UUID exampleUniqueId = UUID.fromString("069a79f4-44e9-4726-a5be-fca90e38aaf5");
+        PermissionNode examplePermission = Permission.builder()
+                .permission("test.1")
+                .withContext("server", "test")
+                .build();
+        InheritanceNode defaultGroupNode = Inheritance.builder(GroupManager.DEFAULT_GROUP_NAME).build();
+
+        User user = this.storage.loadUser(exampleUniqueId, "Notch");
+        user.setNode(DataType.NORMAL, examplePermission, true);
+        this.storage.saveUser(user);
+        userManager.unload(exampleUniqueId);
+
+        // a detached load returns the saved data, but doesn't register the user
+        User detached = this.storage.loadDetachedUser(exampleUniqueId);
+        assertEquals(ImmutableSet.of(defaultGroupNode, examplePermission), detached.normalData().asSet());
+        assertNull(userManager.getIfLoaded(exampleUniqueId));
+
+        // the same applies to users which don't exist in storage
+        UUID otherUniqueId = UUID.randomUUID();
+        detached = this.storage.loadDetachedUser(otherUniqueId);
+        assertEquals(otherUniqueId, detached.getUniqueId());
+        assertNull(userManager.getIfLoaded(otherUniqueId));
+    }
+
 }
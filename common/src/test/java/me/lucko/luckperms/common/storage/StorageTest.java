@@ -0,0 +1,155 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.storage;
+
+import com.google.common.collect.ImmutableSet;
+import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.config.LuckPermsConfiguration;
+import me.lucko.luckperms.common.event.EventDispatcher;
+import me.lucko.luckperms.common.metrics.MetricsRegistry;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.plugin.bootstrap.LuckPermsBootstrap;
+import me.lucko.luckperms.common.plugin.scheduler.SchedulerAdapter;
+import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
+import me.lucko.luckperms.common.storage.misc.PlayerSaveResultImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class StorageTest {
+
+    private static final UUID LUCK = UUID.fromString("c1d60c50-70b5-4722-8057-87767557e50d");
+    private static final UUID NOTCH = UUID.fromString("069a79f4-44e9-4726-a5be-fca90e38aaf5");
+
+    @Mock private LuckPermsPlugin plugin;
+    @Mock private LuckPermsBootstrap bootstrap;
+    @Mock private LuckPermsConfiguration configuration;
+    @Mock private SchedulerAdapter scheduler;
+    @Mock private StorageImplementation implementation;
+
+    private Storage storage;
+
+    @BeforeEach
+    public void setupMocks() {
+        lenient().when(this.plugin.getBootstrap()).thenReturn(this.bootstrap);
+        lenient().when(this.plugin.getConfiguration()).thenReturn(this.configuration);
+        lenient().when(this.plugin.getEventDispatcher()).thenReturn(mock(EventDispatcher.class));
+        lenient().when(this.plugin.getMetrics()).thenReturn(new MetricsRegistry());
+        lenient().when(this.bootstrap.getScheduler()).thenReturn(this.scheduler);
+        lenient().when(this.scheduler.async()).thenReturn(Runnable::run);
+        lenient().when(this.configuration.get(ConfigKeys.LOG_QUEUE_CAPACITY)).thenReturn(10);
+        lenient().when(this.configuration.get(ConfigKeys.LOG_QUEUE_BATCH_SIZE)).thenReturn(10);
+        lenient().when(this.configuration.get(ConfigKeys.LOG_QUEUE_FLUSH_INTERVAL)).thenReturn(500);
+        lenient().when(this.configuration.get(ConfigKeys.STORAGE_SLOW_OPERATION_THRESHOLD)).thenReturn(0);
+
+        this.storage = new Storage(this.plugin, this.implementation);
+    }
+
+    @Test
+    public void testUniqueIdLookupCached() throws Exception {
+        when(this.implementation.getPlayerUniqueId("Luck")).thenReturn(LUCK);
+
+        assertEquals(LUCK, this.storage.getPlayerUniqueId("Luck").join());
+        assertEquals(LUCK, this.storage.getPlayerUniqueId("Luck").join());
+        assertEquals(LUCK, this.storage.getPlayerUniqueId("luck").join());
+        verify(this.implementation, times(1)).getPlayerUniqueId("Luck");
+    }
+
+    @Test
+    public void testNameLookupCached() throws Exception {
+        when(this.implementation.getPlayerName(LUCK)).thenReturn("Luck");
+
+        assertEquals("Luck", this.storage.getPlayerName(LUCK).join());
+        assertEquals("Luck", this.storage.getPlayerName(LUCK).join());
+        verify(this.implementation, times(1)).getPlayerName(LUCK);
+    }
+
+    @Test
+    public void testMissingLookupsNotCached() throws Exception {
+        assertNull(this.storage.getPlayerUniqueId("Luck").join());
+        assertNull(this.storage.getPlayerUniqueId("Luck").join());
+        verify(this.implementation, times(2)).getPlayerUniqueId("Luck");
+    }
+
+    @Test
+    public void testSavePlayerDataInvalidatesLookups() throws Exception {
+        when(this.implementation.getPlayerUniqueId("Luck")).thenReturn(LUCK, NOTCH);
+        when(this.implementation.getPlayerName(LUCK)).thenReturn("Luck", "Luck2");
+
+        this.storage.getPlayerUniqueId("Luck").join();
+        this.storage.getPlayerName(LUCK).join();
+
+        // Luck changes their name, and Notch takes the old one
+        when(this.implementation.savePlayerData(LUCK, "Luck2")).thenReturn(PlayerSaveResultImpl.usernameUpdated("Luck"));
+        this.storage.savePlayerData(LUCK, "Luck2").join();
+
+        assertEquals("Luck2", this.storage.getPlayerName(LUCK).join());
+        assertEquals(NOTCH, this.storage.getPlayerUniqueId("Luck").join());
+        verify(this.implementation, times(2)).getPlayerUniqueId("Luck");
+        verify(this.implementation, times(2)).getPlayerName(LUCK);
+    }
+
+    @Test
+    public void testSavePlayerDataInvalidatesOtherUniqueIds() throws Exception {
+        when(this.implementation.getPlayerName(LUCK)).thenReturn("Luck", (String) null);
+        this.storage.getPlayerName(LUCK).join();
+
+        // Notch takes the name, which is removed from Luck
+        when(this.implementation.savePlayerData(NOTCH, "Luck")).thenReturn(PlayerSaveResultImpl.cleanInsert().withOtherUuidsPresent(ImmutableSet.of(LUCK)));
+        this.storage.savePlayerData(NOTCH, "Luck").join();
+
+        assertNull(this.storage.getPlayerName(LUCK).join());
+        verify(this.implementation, times(2)).getPlayerName(LUCK);
+    }
+
+    @Test
+    public void testDeletePlayerDataInvalidatesLookups() throws Exception {
+        when(this.implementation.getPlayerUniqueId("Luck")).thenReturn(LUCK, (UUID) null);
+        when(this.implementation.getPlayerName(LUCK)).thenReturn("Luck", (String) null);
+
+        this.storage.getPlayerName(LUCK).join();
+        this.storage.getPlayerUniqueId("Luck").join();
+
+        this.storage.deletePlayerData(LUCK).join();
+
+        assertNull(this.storage.getPlayerName(LUCK).join());
+        assertNull(this.storage.getPlayerUniqueId("Luck").join());
+    }
+
+}
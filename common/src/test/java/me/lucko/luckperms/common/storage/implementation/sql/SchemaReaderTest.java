@@ -63,6 +63,10 @@ public class SchemaReaderTest {
                 "CREATE INDEX ON `{prefix}players` (`username`)",
                 "CREATE TABLE `{prefix}groups` ( `name` VARCHAR(36) NOT NULL, PRIMARY KEY (`name`))",
                 "CREATE TABLE `{prefix}actions` ( `id` INT AUTO_INCREMENT NOT NULL, `time` BIGINT NOT NULL, `actor_uuid` VARCHAR(36) NOT NULL, `actor_name` VARCHAR(100) NOT NULL, `type` CHAR(1) NOT NULL, `acted_uuid` VARCHAR(36) NOT NULL, `acted_name` VARCHAR(36) NOT NULL, `action` VARCHAR(300) NOT NULL, PRIMARY KEY (`id`))",
+                "CREATE INDEX `{prefix}actions_time` ON `{prefix}actions` (`time`, `id`)",
+                "CREATE INDEX `{prefix}actions_actor_uuid` ON `{prefix}actions` (`actor_uuid`, `time`, `id`)",
+                "CREATE INDEX `{prefix}actions_acted_uuid` ON `{prefix}actions` (`acted_uuid`, `time`, `id`)",
+                "CREATE INDEX `{prefix}actions_type_acted_name` ON `{prefix}actions` (`type`, `acted_name`, `time`, `id`)",
                 "CREATE TABLE `{prefix}tracks` ( `name` VARCHAR(36) NOT NULL, `groups` TEXT NOT NULL, PRIMARY KEY (`name`))"
         ), readStatements("h2"));
     }
@@ -78,6 +82,10 @@ public class SchemaReaderTest {
                 "CREATE INDEX `{prefix}players_username` ON `{prefix}players` (`username`)",
                 "CREATE TABLE `{prefix}groups` ( `name` VARCHAR(36) NOT NULL, PRIMARY KEY (`name`))",
                 "CREATE TABLE `{prefix}actions` ( `id` INTEGER PRIMARY KEY NOT NULL, `time` BIGINT NOT NULL, `actor_uuid` VARCHAR(36) NOT NULL, `actor_name` VARCHAR(100) NOT NULL, `type` CHAR(1) NOT NULL, `acted_uuid` VARCHAR(36) NOT NULL, `acted_name` VARCHAR(36) NOT NULL, `action` VARCHAR(300) NOT NULL)",
+                "CREATE INDEX `{prefix}actions_time` ON `{prefix}actions` (`time`, `id`)",
+                "CREATE INDEX `{prefix}actions_actor_uuid` ON `{prefix}actions` (`actor_uuid`, `time`, `id`)",
+                "CREATE INDEX `{prefix}actions_acted_uuid` ON `{prefix}actions` (`acted_uuid`, `time`, `id`)",
+                "CREATE INDEX `{prefix}actions_type_acted_name` ON `{prefix}actions` (`type`, `acted_name`, `time`, `id`)",
                 "CREATE TABLE `{prefix}tracks` ( `name` VARCHAR(36) NOT NULL, `groups` TEXT NOT NULL, PRIMARY KEY (`name`))"
         ), readStatements("sqlite"));
     }
@@ -93,6 +101,10 @@ public class SchemaReaderTest {
                 "CREATE INDEX `{prefix}players_username` ON `{prefix}players` (`username`)",
                 "CREATE TABLE `{prefix}groups` ( `name` VARCHAR(36) NOT NULL, PRIMARY KEY (`name`)) DEFAULT CHARSET = utf8mb4",
                 "CREATE TABLE `{prefix}actions` ( `id` INT AUTO_INCREMENT NOT NULL, `time` BIGINT NOT NULL, `actor_uuid` VARCHAR(36) NOT NULL, `actor_name` VARCHAR(100) NOT NULL, `type` CHAR(1) NOT NULL, `acted_uuid` VARCHAR(36) NOT NULL, `acted_name` VARCHAR(36) NOT NULL, `action` VARCHAR(300) NOT NULL, PRIMARY KEY (`id`)) DEFAULT CHARSET = utf8mb4",
+                "CREATE INDEX `{prefix}actions_time` ON `{prefix}actions` (`time`, `id`)",
+                "CREATE INDEX `{prefix}actions_actor_uuid` ON `{prefix}actions` (`actor_uuid`, `time`, `id`)",
+                "CREATE INDEX `{prefix}actions_acted_uuid` ON `{prefix}actions` (`acted_uuid`, `time`, `id`)",
+                "CREATE INDEX `{prefix}actions_type_acted_name` ON `{prefix}actions` (`type`, `acted_name`, `time`, `id`)",
                 "CREATE TABLE `{prefix}tracks` ( `name` VARCHAR(36) NOT NULL, `groups` TEXT NOT NULL, PRIMARY KEY (`name`)) DEFAULT CHARSET = utf8mb4"
         );
         assertEquals(expected, readStatements("mysql"));
@@ -110,6 +122,10 @@ public class SchemaReaderTest {
                 "CREATE INDEX \"{prefix}players_username\" ON \"{prefix}players\" (\"username\")",
                 "CREATE TABLE \"{prefix}groups\" ( \"name\" VARCHAR(36) PRIMARY KEY NOT NULL)",
                 "CREATE TABLE \"{prefix}actions\" ( \"id\" SERIAL PRIMARY KEY NOT NULL, \"time\" BIGINT NOT NULL, \"actor_uuid\" VARCHAR(36) NOT NULL, \"actor_name\" VARCHAR(100) NOT NULL, \"type\" CHAR(1) NOT NULL, \"acted_uuid\" VARCHAR(36) NOT NULL, \"acted_name\" VARCHAR(36) NOT NULL, \"action\" VARCHAR(300) NOT NULL)",
+                "CREATE INDEX \"{prefix}actions_time\" ON \"{prefix}actions\" (\"time\", \"id\")",
+                "CREATE INDEX \"{prefix}actions_actor_uuid\" ON \"{prefix}actions\" (\"actor_uuid\", \"time\", \"id\")",
+                "CREATE INDEX \"{prefix}actions_acted_uuid\" ON \"{prefix}actions\" (\"acted_uuid\", \"time\", \"id\")",
+                "CREATE INDEX \"{prefix}actions_type_acted_name\" ON \"{prefix}actions\" (\"type\", \"acted_name\", \"time\", \"id\")",
                 "CREATE TABLE \"{prefix}tracks\" ( \"name\" VARCHAR(36) PRIMARY KEY NOT NULL, \"groups\" TEXT NOT NULL)"
         ), readStatements("postgresql"));
     }
@@ -169,4 +185,36 @@ public class SchemaReaderTest {
         ), filtered);
     }
 
+    @Test
+    public void testFilterMissingIndexes() throws IOException {
+        StatementProcessor processor = s -> s.replace("{prefix}", "luckperms_");
+        List<String> statements = readStatements("mysql").stream().map(processor::process).collect(Collectors.toList());
+
+        List<String> allTables = ImmutableList.of(
+                "luckperms_user_permissions",
+                "luckperms_group_permissions",
+                "luckperms_players",
+                "luckperms_groups",
+                "luckperms_actions",
+                "luckperms_tracks"
+        );
+
+        // tables created by an older schema, without the action log indexes
+        List<String> filtered = SchemaReader.filterMissingIndexStatements(statements, allTables, ImmutableSet.of(
+                "luckperms_user_permissions_uuid",
+                "luckperms_group_permissions_name",
+                "luckperms_players_username",
+                "luckperms_actions_time"
+        ));
+        assertEquals(ImmutableList.of(
+                "CREATE INDEX `luckperms_actions_actor_uuid` ON `luckperms_actions` (`actor_uuid`, `time`, `id`)",
+                "CREATE INDEX `luckperms_actions_acted_uuid` ON `luckperms_actions` (`acted_uuid`, `time`, `id`)",
+                "CREATE INDEX `luckperms_actions_type_acted_name` ON `luckperms_actions` (`type`, `acted_name`, `time`, `id`)"
+        ), filtered);
+
+        // indexes for tables which don't exist yet are created along with the table
+        filtered = SchemaReader.filterMissingIndexStatements(statements, ImmutableList.of(), ImmutableSet.of());
+        assertEquals(ImmutableList.of(), filtered);
+    }
+
 }
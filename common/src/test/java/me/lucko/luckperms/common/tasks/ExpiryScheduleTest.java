@@ -0,0 +1,67 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.tasks;
+
+import com.google.common.collect.ImmutableList;
+import me.lucko.luckperms.common.model.HolderType;
+import me.lucko.luckperms.common.model.PermissionHolderIdentifier;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ExpiryScheduleTest {
+
+    private static final PermissionHolderIdentifier A = new PermissionHolderIdentifier(HolderType.GROUP, "a");
+    private static final PermissionHolderIdentifier B = new PermissionHolderIdentifier(HolderType.GROUP, "b");
+
+    @Test
+    public void testPollDue() {
+        ExpireTemporaryTask.Schedule schedule = new ExpireTemporaryTask.Schedule();
+        schedule.schedule(A, 100);
+        schedule.schedule(B, 200);
+
+        assertTrue(schedule.pollDue(100).isEmpty());
+        assertEquals(ImmutableList.of(A), schedule.pollDue(101));
+        assertEquals(ImmutableList.of(B), schedule.pollDue(1000));
+        assertTrue(schedule.pollDue(1000).isEmpty());
+        assertEquals(0, schedule.size());
+    }
+
+    @Test
+    public void testEarliestTimeWins() {
+        ExpireTemporaryTask.Schedule schedule = new ExpireTemporaryTask.Schedule();
+        schedule.schedule(A, 500);
+        schedule.schedule(A, 100);
+        schedule.schedule(A, 300);
+        assertEquals(1, schedule.size());
+
+        // only returned once, the superseded entry is ignored
+        assertEquals(ImmutableList.of(A), schedule.pollDue(1000));
+        assertTrue(schedule.pollDue(1000).isEmpty());
+    }
+
+}
@@ -26,13 +26,31 @@
 package me.lucko.luckperms.common.treeview;
 
 import com.google.gson.JsonObject;
+import me.lucko.luckperms.common.plugin.scheduler.SchedulerAdapter;
+import me.lucko.luckperms.common.plugin.scheduler.SchedulerTask;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.testcontainers.shaded.com.google.common.collect.ImmutableList;
 import org.testcontainers.shaded.com.google.common.collect.ImmutableSet;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class PermissionRegistryTest {
 
@@ -78,4 +96,80 @@ public class PermissionRegistryTest {
         assertEquals("{\"minecraft\":{\"minecraft.command\":{\"minecraft.command.give\":{},\"minecraft.command.time\":{}}},\"worldedit\":{\"worldedit.clipboard\":{\"worldedit.clipboard.copy\":{},\"worldedit.clipboard.paste\":{}}}}", json.toString());
     }
 
+    @Test
+    public void testComplete() {
+        PermissionRegistry registry = new PermissionRegistry();
+        registry.insert("luckperms.user.info");
+        registry.insert("luckperms.user.permission.set");
+        registry.insert("luckperms.group.info");
+        registry.insert("luckperms.info");
+        registry.insert("minecraft.command.gamemode");
+
+        assertEquals(ImmutableList.of("luckperms", "minecraft"), registry.complete("", 10));
+        assertEquals(ImmutableList.of("luckperms"), registry.complete("L", 10));
+        assertEquals(ImmutableList.of("luckperms.group", "luckperms.info", "luckperms.user"), registry.complete("luckperms.", 10));
+        assertEquals(ImmutableList.of("luckperms.user.info", "luckperms.user.permission"), registry.complete("luckperms.user.", 10));
+        assertEquals(ImmutableList.of("luckperms.group"), registry.complete("luckperms.", 1));
+        assertEquals(ImmutableList.of(), registry.complete("luckperms.nothing.", 10));
+    }
+
+    @Test
+    public void testSaveAndLoad(@TempDir Path directory) throws IOException {
+        PermissionRegistry registry = new PermissionRegistry();
+        registry.insert("minecraft.command.give");
+        registry.insert("minecraft.command.time");
+        registry.insert("worldedit..clipboard.copy");
+
+        Path file = directory.resolve("permission-registry.gz");
+        registry.save(file);
+
+        PermissionRegistry loaded = new PermissionRegistry();
+        loaded.load(file);
+        assertEquals(ImmutableSet.copyOf(registry.rootAsList()), ImmutableSet.copyOf(loaded.rootAsList()));
+        assertTrue(loaded.rootAsList().contains("worldedit.clipboard.copy"));
+    }
+
+    @Test
+    public void testSaveExpiresOldPermissions(@TempDir Path directory) throws IOException {
+        long today = TimeUnit.MILLISECONDS.toDays(System.currentTimeMillis());
+
+        Path file = directory.resolve("permission-registry.gz");
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(file)), StandardCharsets.UTF_8))) {
+            writer.write("old.permission\t" + (today - 31) + "\n");
+            writer.write("recent.permission\t" + (today - 1) + "\n");
+            writer.write("legacy.permission\n");
+        }
+
+        PermissionRegistry registry = new PermissionRegistry();
+        registry.load(file);
+        assertTrue(registry.rootAsList().contains("old.permission"));
+
+        registry.save(file);
+        PermissionRegistry loaded = new PermissionRegistry();
+        loaded.load(file);
+        assertFalse(loaded.rootAsList().contains("old.permission"));
+        assertTrue(loaded.rootAsList().contains("recent.permission"));
+        assertTrue(loaded.rootAsList().contains("legacy.permission"));
+
+        // seeing the permission again keeps it
+        registry.insert("old.permission");
+        registry.save(file);
+        loaded = new PermissionRegistry();
+        loaded.load(file);
+        assertTrue(loaded.rootAsList().contains("old.permission"));
+    }
+
+    @Test
+    public void testAsyncCloseDrainsPending() {
+        SchedulerAdapter scheduler = mock(SchedulerAdapter.class);
+        when(scheduler.asyncRepeating(any(Runnable.class), anyLong(), any(TimeUnit.class))).thenReturn(mock(SchedulerTask.class));
+
+        AsyncPermissionRegistry registry = new AsyncPermissionRegistry(scheduler);
+        registry.offer("minecraft.command.give");
+        assertFalse(registry.rootAsList().contains("minecraft.command.give"));
+
+        registry.close();
+        assertTrue(registry.rootAsList().contains("minecraft.command.give"));
+    }
+
 }
@@ -0,0 +1,128 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ExpiringSetTest {
+
+    @Test
+    public void testExpiry() {
+        AtomicLong time = new AtomicLong();
+        ExpiringSet<String> set = new ExpiringSet<>(10, time::get);
+
+        assertTrue(set.add("a"));
+        assertFalse(set.add("a"));
+        assertTrue(set.contains("a"));
+
+        time.set(5);
+        assertTrue(set.add("b"));
+
+        time.set(10);
+        assertFalse(set.contains("a"));
+        assertTrue(set.contains("b"));
+        assertEquals(1, set.size());
+
+        time.set(15);
+        assertFalse(set.contains("b"));
+        assertEquals(0, set.size());
+    }
+
+    @Test
+    public void testAddResetsExpiry() {
+        AtomicLong time = new AtomicLong();
+        ExpiringSet<String> set = new ExpiringSet<>(10, time::get);
+
+        set.add("a");
+        time.set(8);
+        assertFalse(set.add("a"));
+
+        time.set(12);
+        assertTrue(set.contains("a"));
+
+        time.set(18);
+        assertFalse(set.contains("a"));
+    }
+
+    @Test
+    public void testRemove() {
+        AtomicLong time = new AtomicLong();
+        ExpiringSet<String> set = new ExpiringSet<>(10, time::get);
+
+        set.add("a");
+        assertTrue(set.remove("a"));
+        assertFalse(set.remove("a"));
+        assertFalse(set.contains("a"));
+
+        // adding again after removal isn't affected by the earlier addition
+        time.set(5);
+        assertTrue(set.add("a"));
+        time.set(12);
+        assertTrue(set.contains("a"));
+    }
+
+    @Test
+    public void testManyElements() {
+        AtomicLong time = new AtomicLong();
+        ExpiringSet<Integer> set = new ExpiringSet<>(1000, time::get);
+
+        for (int i = 0; i < 10000; i++) {
+            time.set(i);
+            assertTrue(set.add(i));
+        }
+        assertEquals(1000, set.size());
+        assertFalse(set.contains(8999));
+        assertTrue(set.contains(9000));
+    }
+
+    @Test
+    public void testRepeatedAddKeepsQueueBounded() {
+        AtomicLong time = new AtomicLong();
+        ExpiringSet<String> set = new ExpiringSet<>(1000, time::get);
+
+        for (int i = 0; i < 10000; i++) {
+            time.set(i);
+            set.add("a");
+            set.add("b");
+        }
+        assertEquals(2, set.size());
+        assertEquals(2, set.linkedSize());
+
+        set.remove("a");
+        assertEquals(1, set.linkedSize());
+
+        time.set(20000);
+        assertEquals(0, set.size());
+        assertEquals(0, set.linkedSize());
+    }
+
+}
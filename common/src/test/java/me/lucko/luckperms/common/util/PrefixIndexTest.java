@@ -0,0 +1,49 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.util;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PrefixIndexTest {
+
+    @Test
+    public void testStartsWith() {
+        PrefixIndex index = new PrefixIndex(ImmutableList.of("admin", "Moderator", "mod", "default", "member"));
+
+        assertEquals(ImmutableList.of("member", "mod", "Moderator"), index.startsWith("m", 10));
+        assertEquals(ImmutableList.of("mod", "Moderator"), index.startsWith("MOD", 10));
+        assertEquals(ImmutableList.of("member", "mod"), index.startsWith("m", 2));
+        assertEquals(ImmutableList.of(), index.startsWith("x", 10));
+        assertEquals(5, index.startsWith("", 10).size());
+
+        index.remove("MOD");
+        assertEquals(ImmutableList.of("member", "Moderator"), index.startsWith("m", 10));
+    }
+
+}
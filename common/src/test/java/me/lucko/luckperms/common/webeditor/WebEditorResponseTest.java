@@ -0,0 +1,305 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.webeditor;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import me.lucko.luckperms.common.actionlog.LogDispatcher;
+import me.lucko.luckperms.common.cache.BufferedRequest;
+import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.config.LuckPermsConfiguration;
+import me.lucko.luckperms.common.context.manager.ContextManager;
+import me.lucko.luckperms.common.event.EventDispatcher;
+import me.lucko.luckperms.common.messaging.InternalMessagingService;
+import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.HolderType;
+import me.lucko.luckperms.common.model.PermissionHolder;
+import me.lucko.luckperms.common.model.PrimaryGroupHolder;
+import me.lucko.luckperms.common.model.User;
+import me.lucko.luckperms.common.model.manager.group.GroupManager;
+import me.lucko.luckperms.common.model.manager.group.StandardGroupManager;
+import me.lucko.luckperms.common.model.manager.user.StandardUserManager;
+import me.lucko.luckperms.common.model.manager.user.UserManager;
+import me.lucko.luckperms.common.model.nodemap.NodeMapType;
+import me.lucko.luckperms.common.node.types.Inheritance;
+import me.lucko.luckperms.common.node.types.Permission;
+import me.lucko.luckperms.common.node.types.Prefix;
+import me.lucko.luckperms.common.node.utils.NodeJsonSerializer;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.plugin.bootstrap.LuckPermsBootstrap;
+import me.lucko.luckperms.common.plugin.logging.PluginLogger;
+import me.lucko.luckperms.common.plugin.scheduler.SchedulerAdapter;
+import me.lucko.luckperms.common.query.QueryOptionsImpl;
+import me.lucko.luckperms.common.sender.Sender;
+import me.lucko.luckperms.common.storage.Storage;
+import me.lucko.luckperms.common.webeditor.store.WebEditorSessionMap;
+import me.lucko.luckperms.common.webeditor.store.WebEditorStore;
+import net.luckperms.api.context.ContextSatisfyMode;
+import net.luckperms.api.model.data.DataType;
+import net.luckperms.api.node.Node;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class WebEditorResponseTest {
+
+    private static final UUID USER_1 = UUID.fromString("c1d60c50-70b5-4722-8057-87767557e50d");
+    private static final UUID USER_2 = UUID.fromString("069a79f4-44e9-4726-a5be-fca90e38aaf5");
+    private static final UUID USER_3 = UUID.fromString("853c80ef-3c37-49fd-aa49-938b674adae6");
+
+    @Mock private LuckPermsPlugin plugin;
+    @Mock private LuckPermsBootstrap bootstrap;
+    @Mock private LuckPermsConfiguration configuration;
+    @Mock private Storage storage;
+    @Mock private Sender sender;
+    @Mock private LogDispatcher logDispatcher;
+    @Mock private WebEditorStore webEditorStore;
+    @Mock private InternalMessagingService messagingService;
+    @Mock private BufferedRequest<Void> updateBuffer;
+    @Mock private ContextManager<?, ?> contextManager;
+
+    private StandardUserManager userManager;
+    private StandardGroupManager groupManager;
+
+    @BeforeEach
+    public void setupMocks() {
+        lenient().when(this.plugin.getBootstrap()).thenReturn(this.bootstrap);
+        lenient().when(this.bootstrap.getScheduler()).thenReturn(mock(SchedulerAdapter.class));
+        lenient().when(this.plugin.getConfiguration()).thenReturn(this.configuration);
+        lenient().when(this.plugin.getEventDispatcher()).thenReturn(mock(EventDispatcher.class));
+        lenient().when(this.plugin.getLogger()).thenReturn(mock(PluginLogger.class));
+        lenient().when(this.plugin.getStorage()).thenReturn(this.storage);
+        lenient().when(this.plugin.getLogDispatcher()).thenReturn(this.logDispatcher);
+        lenient().when(this.plugin.getWebEditorStore()).thenReturn(this.webEditorStore);
+        lenient().when(this.plugin.getMessagingService()).thenReturn(Optional.of(this.messagingService));
+        //noinspection unchecked,rawtypes
+        lenient().when(this.plugin.getContextManager()).thenReturn((ContextManager) this.contextManager);
+        lenient().when(this.contextManager.getStaticQueryOptions()).thenReturn(QueryOptionsImpl.DEFAULT_CONTEXTUAL);
+        lenient().when(this.webEditorStore.sessions()).thenReturn(new WebEditorSessionMap());
+        lenient().when(this.messagingService.getUpdateBuffer()).thenReturn(this.updateBuffer);
+        lenient().when(this.logDispatcher.dispatch(any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        lenient().when(this.sender.getUniqueId()).thenReturn(Sender.CONSOLE_UUID);
+        lenient().when(this.sender.getNameWithLocation()).thenReturn("Console");
+
+        lenient().when(this.configuration.get(ConfigKeys.PRIMARY_GROUP_CALCULATION)).thenReturn(PrimaryGroupHolder.AllParentsByWeight::new);
+        lenient().when(this.configuration.get(ConfigKeys.NODE_MAP_TYPES)).thenReturn(ImmutableMap.of(HolderType.USER, NodeMapType.CONCURRENT, HolderType.GROUP, NodeMapType.CONCURRENT));
+        lenient().when(this.configuration.get(ConfigKeys.CONTEXT_SATISFY_MODE)).thenReturn(ContextSatisfyMode.AT_LEAST_ONE_VALUE_PER_KEY);
+        lenient().when(this.configuration.get(ConfigKeys.GROUP_NAME_REWRITES)).thenReturn(Collections.emptyMap());
+        lenient().when(this.configuration.get(ConfigKeys.USE_ARGUMENT_BASED_COMMAND_PERMISSIONS)).thenReturn(false);
+        lenient().when(this.configuration.get(ConfigKeys.REQUIRE_SENDER_GROUP_MEMBERSHIP_TO_MODIFY)).thenReturn(false);
+        lenient().when(this.configuration.get(ConfigKeys.LOG_SYNCHRONOUSLY_IN_COMMANDS)).thenReturn(false);
+        lenient().when(this.configuration.get(ConfigKeys.AUTO_PUSH_UPDATES)).thenReturn(true);
+
+        this.userManager = new StandardUserManager(this.plugin);
+        this.groupManager = new StandardGroupManager(this.plugin);
+        //noinspection unchecked,rawtypes
+        lenient().when(this.plugin.getUserManager()).thenReturn((UserManager) this.userManager);
+        //noinspection unchecked,rawtypes
+        lenient().when(this.plugin.getGroupManager()).thenReturn((GroupManager) this.groupManager);
+
+        lenient().when(this.storage.loadUsers(any())).then(invocation -> {
+            Set<UUID> uniqueIds = invocation.getArgument(0);
+            Map<UUID, User> users = new HashMap<>();
+            for (UUID uniqueId : uniqueIds) {
+                users.put(uniqueId, this.userManager.getOrMake(uniqueId));
+            }
+            return CompletableFuture.completedFuture(users);
+        });
+        lenient().when(this.storage.loadUser(any(), any())).then(invocation -> CompletableFuture.completedFuture(this.userManager.getOrMake(invocation.getArgument(0))));
+        lenient().when(this.storage.loadGroup(anyString())).then(invocation -> CompletableFuture.completedFuture(Optional.of(this.groupManager.getOrMake(invocation.getArgument(0)))));
+        lenient().when(this.storage.saveUser(any())).thenReturn(CompletableFuture.completedFuture(null));
+        lenient().when(this.storage.saveGroup(any())).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    private static JsonObject change(String type, String id, Node... nodes) {
+        JsonObject change = new JsonObject();
+        change.addProperty("type", type);
+        change.addProperty("id", id);
+        change.add("nodes", NodeJsonSerializer.serializeNodes(Arrays.asList(nodes)));
+        return change;
+    }
+
+    private void apply(JsonObject... changes) {
+        JsonArray array = new JsonArray();
+        for (JsonObject change : changes) {
+            array.add(change);
+        }
+
+        JsonObject payload = new JsonObject();
+        payload.addProperty("sessionId", "test");
+        payload.add("changes", array);
+        new WebEditorResponse("test", payload).apply(this.plugin, this.sender, null, "lp", true);
+    }
+
+    /**
+     * Applies the changes one at a time to a fresh holder, as the editor used to.
+     */
+    private static Set<Node> applySequentially(PermissionHolder holder, Iterable<JsonObject> changes) {
+        for (JsonObject change : changes) {
+            holder.setNodes(DataType.NORMAL, NodeJsonSerializer.deserializeNodes(change.getAsJsonArray("nodes")), false);
+        }
+        return holder.normalData().asSet();
+    }
+
+    @Test
+    public void testUserChangesMatchSequentialApply() {
+        Node permission = Permission.builder().permission("test.permission").build();
+        Node parent = Inheritance.builder("admin").build();
+        Node prefix = Prefix.builder("[test]", 10).withContext("server", "test").build();
+
+        JsonObject change1 = change("user", USER_1.toString(), permission, parent);
+        JsonObject change2 = change("user", USER_2.toString(), prefix);
+        JsonObject change3 = change("user", USER_3.toString(), permission, prefix);
+        // a second change to the same user replaces the first
+        JsonObject change4 = change("user", USER_1.toString(), parent);
+
+        apply(change1, change2, change3, change4);
+
+        assertEquals(applySequentially(new User(USER_1, this.plugin), ImmutableList.of(change1, change4)), this.userManager.getIfLoaded(USER_1).normalData().asSet());
+        assertEquals(applySequentially(new User(USER_2, this.plugin), ImmutableList.of(change2)), this.userManager.getIfLoaded(USER_2).normalData().asSet());
+        assertEquals(applySequentially(new User(USER_3, this.plugin), ImmutableList.of(change3)), this.userManager.getIfLoaded(USER_3).normalData().asSet());
+
+        // loaded in one go, saved once each
+        verify(this.storage, times(1)).loadUsers(any());
+        verify(this.storage, never()).loadUser(any(), any());
+        verify(this.storage, times(3)).saveUser(any());
+        verify(this.storage, times(1)).saveUser(this.userManager.getIfLoaded(USER_1));
+
+        // and a single update is pushed
+        verify(this.updateBuffer, times(1)).request();
+        verify(this.messagingService, never()).pushUserUpdate(any());
+    }
+
+    @Test
+    public void testSingleUserChangePushesUserUpdate() {
+        Node permission = Permission.builder().permission("test.permission").build();
+        apply(change("user", USER_1.toString(), permission));
+
+        User user = this.userManager.getIfLoaded(USER_1);
+        verify(this.storage, times(1)).saveUser(user);
+        verify(this.messagingService, times(1)).pushUserUpdate(user);
+        verify(this.updateBuffer, never()).request();
+    }
+
+    @Test
+    public void testUnchangedUserNotSaved() {
+        Node permission = Permission.builder().permission("test.permission").build();
+        this.userManager.getOrMake(USER_1).setNodes(DataType.NORMAL, ImmutableList.of(permission), false);
+
+        apply(change("user", USER_1.toString(), permission));
+
+        verify(this.storage, never()).saveUser(any());
+        verify(this.messagingService, never()).pushUserUpdate(any());
+        verify(this.updateBuffer, never()).request();
+    }
+
+    @Test
+    public void testFailedBulkLoadFallsBackToSingleLoads() {
+        CompletableFuture<Map<UUID, User>> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new RuntimeException("test"));
+        when(this.storage.loadUsers(any())).thenReturn(failed);
+
+        Node permission = Permission.builder().permission("test.permission").build();
+        JsonObject change1 = change("user", USER_1.toString(), permission);
+        JsonObject change2 = change("user", USER_2.toString(), permission);
+
+        apply(change1, change2);
+
+        assertEquals(applySequentially(new User(USER_1, this.plugin), ImmutableList.of(change1)), this.userManager.getIfLoaded(USER_1).normalData().asSet());
+        assertEquals(applySequentially(new User(USER_2, this.plugin), ImmutableList.of(change2)), this.userManager.getIfLoaded(USER_2).normalData().asSet());
+        verify(this.storage, times(1)).loadUser(eq(USER_1), any());
+        verify(this.storage, times(1)).loadUser(eq(USER_2), any());
+        verify(this.storage, times(2)).saveUser(any());
+    }
+
+    @Test
+    public void testFailedGroupLoadFallsBackToSingleLoad() {
+        CompletableFuture<Optional<Group>> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new RuntimeException("test"));
+        when(this.storage.loadGroup("admin")).thenReturn(failed, CompletableFuture.completedFuture(Optional.of(this.groupManager.getOrMake("admin"))));
+
+        Node permission = Permission.builder().permission("test.permission").build();
+        JsonObject change1 = change("group", "admin", permission);
+        JsonObject change2 = change("group", "member", permission);
+
+        apply(change1, change2);
+
+        assertEquals(applySequentially(new Group("admin", this.plugin), ImmutableList.of(change1)), this.groupManager.getIfLoaded("admin").normalData().asSet());
+        assertEquals(applySequentially(new Group("member", this.plugin), ImmutableList.of(change2)), this.groupManager.getIfLoaded("member").normalData().asSet());
+        verify(this.storage, times(2)).loadGroup("admin");
+        verify(this.storage, times(1)).loadGroup("member");
+        verify(this.storage, times(2)).saveGroup(any());
+    }
+
+    @Test
+    public void testGroupChangesMatchSequentialApply() {
+        Node permission = Permission.builder().permission("test.permission").build();
+        Node parent = Inheritance.builder("member").build();
+
+        JsonObject change1 = change("group", "admin", permission, parent);
+        JsonObject change2 = change("group", "member", permission);
+        JsonObject change3 = change("user", USER_1.toString(), Inheritance.builder("admin").build());
+
+        apply(change1, change2, change3);
+
+        assertEquals(applySequentially(new Group("admin", this.plugin), ImmutableList.of(change1)), this.groupManager.getIfLoaded("admin").normalData().asSet());
+        assertEquals(applySequentially(new Group("member", this.plugin), ImmutableList.of(change2)), this.groupManager.getIfLoaded("member").normalData().asSet());
+        assertEquals(applySequentially(new User(USER_1, this.plugin), ImmutableList.of(change3)), this.userManager.getIfLoaded(USER_1).normalData().asSet());
+
+        verify(this.storage, times(2)).saveGroup(any());
+        verify(this.storage, times(1)).saveUser(any());
+
+        // group changes invalidate all caches and request a single network sync
+        verify(this.updateBuffer, times(1)).request();
+        verify(this.messagingService, never()).pushUserUpdate(any());
+    }
+
+}
@@ -25,16 +25,15 @@
 
 package me.lucko.luckperms.velocity.context;
 
-import com.velocitypowered.api.event.PostOrder;
 import com.velocitypowered.api.event.Subscribe;
-import com.velocitypowered.api.event.player.ServerConnectedEvent;
+import com.velocitypowered.api.event.player.ServerPostConnectEvent;
 import com.velocitypowered.api.proxy.Player;
 import com.velocitypowered.api.proxy.ServerConnection;
 import com.velocitypowered.api.proxy.server.RegisteredServer;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.context.ImmutableContextSetImpl;
+import me.lucko.luckperms.common.context.calculator.SignalDrivenContextCalculator;
 import me.lucko.luckperms.velocity.LPVelocityPlugin;
-import net.luckperms.api.context.ContextCalculator;
 import net.luckperms.api.context.ContextConsumer;
 import net.luckperms.api.context.ContextSet;
 import net.luckperms.api.context.DefaultContextKeys;
@@ -42,7 +41,7 @@ import net.luckperms.api.context.ImmutableContextSet;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.jetbrains.annotations.NotNull;
 
-public class VelocityPlayerCalculator implements ContextCalculator<Player> {
+public class VelocityPlayerCalculator implements SignalDrivenContextCalculator<Player> {
     private final LPVelocityPlugin plugin;
 
     public VelocityPlayerCalculator(LPVelocityPlugin plugin) {
@@ -67,8 +66,9 @@ public class VelocityPlayerCalculator implements ContextCalculator<Player> {
         return builder.build();
     }
 
-    @Subscribe(order = PostOrder.FIRST)
-    public void onServerConnect(ServerConnectedEvent e) {
+    @Subscribe
+    public void onServerPostConnect(ServerPostConnectEvent e) {
+        // fired once the player's current server has been updated
         this.plugin.getContextManager().signalContextUpdate(e.getPlayer());
     }
 }